@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.exception.CardException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.PaymentMethod;
+import com.stripe.model.SetupIntent;
+import com.stripe.model.Source;
+import com.stripe.model.StripeError;
+import com.stripe.model.Token;
+import com.stripe.model.checkout.Session;
+
+/**
+ * StripePluginProperties#toAdditionalDataMap for each Stripe type, and the reverse StripeDao#fromAdditionalData.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdditionalDataMapBenchmark {
+
+    private Source source;
+    private Token token;
+    private PaymentMethod paymentMethod;
+    private StripeException stripeException;
+    private PaymentIntent paymentIntent;
+    private Charge charge;
+    private SetupIntent setupIntent;
+    private Session session;
+    private String paymentIntentAdditionalData;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = BenchmarkFixtures.stripeObject("source.json", Source.class);
+        token = BenchmarkFixtures.stripeObject("token.json", Token.class);
+        paymentMethod = BenchmarkFixtures.stripeObject("payment_method.json", PaymentMethod.class);
+        paymentIntent = BenchmarkFixtures.stripeObject("payment_intent.json", PaymentIntent.class);
+        charge = BenchmarkFixtures.stripeObject("charge.json", Charge.class);
+        setupIntent = BenchmarkFixtures.stripeObject("setup_intent.json", SetupIntent.class);
+        session = BenchmarkFixtures.stripeObject("session.json", Session.class);
+
+        final StripeError stripeError = BenchmarkFixtures.stripeObject("card_error.json", StripeError.class);
+        stripeException = new CardException(stripeError.getMessage(), "req_Iq0vGm3D0e4h1C", stripeError.getCode(), null,
+                                            stripeError.getDeclineCode(), stripeError.getCharge(), 402, null);
+        stripeException.setStripeError(stripeError);
+
+        // Same configuration as the StripeDao mapper
+        final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(Include.NON_EMPTY);
+        paymentIntentAdditionalData = new StripeAdditionalDataWriter(objectMapper).write(paymentIntent, charge);
+    }
+
+    @Benchmark
+    public Map<String, Object> source() {
+        return StripePluginProperties.toAdditionalDataMap(source);
+    }
+
+    @Benchmark
+    public Map<String, Object> token() {
+        return StripePluginProperties.toAdditionalDataMap(token);
+    }
+
+    @Benchmark
+    public Map<String, Object> paymentMethod() {
+        return StripePluginProperties.toAdditionalDataMap(paymentMethod);
+    }
+
+    @Benchmark
+    public Map<String, Object> stripeException() {
+        return StripePluginProperties.toAdditionalDataMap(stripeException);
+    }
+
+    @Benchmark
+    public Map<String, Object> paymentIntent() {
+        return StripePluginProperties.toAdditionalDataMap(paymentIntent, charge);
+    }
+
+    @Benchmark
+    public Map<String, Object> setupIntent() {
+        return StripePluginProperties.toAdditionalDataMap(setupIntent);
+    }
+
+    @Benchmark
+    public Map<String, Object> session() {
+        return StripePluginProperties.toAdditionalDataMap(session, "pk_test_XXX");
+    }
+
+    @Benchmark
+    public Map fromAdditionalData() {
+        return StripeDao.fromAdditionalData(paymentIntentAdditionalData);
+    }
+}
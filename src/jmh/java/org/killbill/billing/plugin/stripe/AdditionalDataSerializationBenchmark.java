@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.checkout.Session;
+
+/**
+ * Map + ObjectMapper path (what StripeDao used to do) versus the streaming {@link StripeAdditionalDataWriter}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdditionalDataSerializationBenchmark {
+
+    // Same configuration as the StripeDao mapper
+    private final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(Include.NON_EMPTY);
+    private final StripeAdditionalDataWriter writer = new StripeAdditionalDataWriter(objectMapper);
+
+    private PaymentIntent paymentIntent;
+    private Charge charge;
+    private Session session;
+
+    @Setup
+    public void setUp() throws IOException {
+        paymentIntent = BenchmarkFixtures.stripeObject("payment_intent.json", PaymentIntent.class);
+        charge = BenchmarkFixtures.stripeObject("charge.json", Charge.class);
+        session = BenchmarkFixtures.stripeObject("session.json", Session.class);
+    }
+
+    @Benchmark
+    public String paymentIntentMap() throws IOException {
+        return objectMapper.writeValueAsString(StripePluginProperties.toAdditionalDataMap(paymentIntent, charge));
+    }
+
+    @Benchmark
+    public String paymentIntentStreaming() {
+        return writer.write(paymentIntent, charge);
+    }
+
+    @Benchmark
+    public String sessionMap() throws IOException {
+        return objectMapper.writeValueAsString(StripePluginProperties.toAdditionalDataMap(session, null));
+    }
+
+    @Benchmark
+    public String sessionStreaming() {
+        return writer.write(session, null);
+    }
+}
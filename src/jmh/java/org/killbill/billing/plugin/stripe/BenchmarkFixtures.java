@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+
+import com.stripe.net.ApiResource;
+
+/**
+ * Recorded Stripe payloads (test mode) and configuration used by the benchmarks, see src/jmh/resources.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    static <T> T stripeObject(final String name, final Class<T> clazz) throws IOException {
+        return ApiResource.GSON.fromJson(read("/fixtures/" + name), clazz);
+    }
+
+    static Properties properties(final String name) throws IOException {
+        final Properties properties = new Properties();
+        try (final InputStream inputStream = open("/" + name)) {
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+
+    static StripeResponsesRecord responseRecord(final String stripeId,
+                                                final String additionalData,
+                                                final TransactionType transactionType,
+                                                final LocalDateTime createdDate) {
+        final StripeResponsesRecord record = new StripeResponsesRecord();
+        record.setKbAccountId(UUID.randomUUID().toString());
+        record.setKbPaymentId(UUID.randomUUID().toString());
+        record.setKbPaymentTransactionId(UUID.randomUUID().toString());
+        record.setTransactionType(transactionType.toString());
+        record.setAmount(new BigDecimal("20.00"));
+        record.setCurrency(Currency.USD.name());
+        record.setStripeId(stripeId);
+        record.setAdditionalData(additionalData);
+        record.setCreatedDate(createdDate);
+        record.setKbTenantId(UUID.randomUUID().toString());
+        return record;
+    }
+
+    private static String read(final String path) throws IOException {
+        try (final InputStream inputStream = open(path)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static InputStream open(final String path) throws IOException {
+        final InputStream inputStream = BenchmarkFixtures.class.getResourceAsStream(path);
+        if (inputStream == null) {
+            throw new IOException("Missing fixture " + path);
+        }
+        return inputStream;
+    }
+}
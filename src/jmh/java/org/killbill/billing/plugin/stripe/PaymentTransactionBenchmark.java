@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+
+/**
+ * Read path of getPaymentInfo: building the transactions from the stripe_responses rows and checking for expiration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentTransactionBenchmark {
+
+    private StripeResponsesRecord processedRecord;
+    private StripeResponsesRecord pending3dsRecord;
+    private List<PaymentTransactionInfoPlugin> processedTransactions;
+    private List<PaymentTransactionInfoPlugin> pending3dsTransactions;
+    private ExpiredPaymentPolicy expiredPaymentPolicy;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(Include.NON_EMPTY);
+        final StripeAdditionalDataWriter writer = new StripeAdditionalDataWriter(objectMapper);
+        final LocalDateTime createdDate = LocalDateTime.now(ZoneOffset.UTC).minusDays(1);
+
+        final PaymentIntent paymentIntent = BenchmarkFixtures.stripeObject("payment_intent.json", PaymentIntent.class);
+        final Charge charge = BenchmarkFixtures.stripeObject("charge.json", Charge.class);
+        processedRecord = BenchmarkFixtures.responseRecord(paymentIntent.getId(), writer.write(paymentIntent, charge), TransactionType.PURCHASE, createdDate);
+
+        final PaymentIntent pending3dsPaymentIntent = BenchmarkFixtures.stripeObject("payment_intent_requires_action.json", PaymentIntent.class);
+        pending3dsRecord = BenchmarkFixtures.responseRecord(pending3dsPaymentIntent.getId(), writer.write(pending3dsPaymentIntent, null), TransactionType.AUTHORIZE, createdDate);
+
+        processedTransactions = ImmutableList.<PaymentTransactionInfoPlugin>of(StripePaymentTransactionInfoPlugin.build(processedRecord));
+        pending3dsTransactions = ImmutableList.<PaymentTransactionInfoPlugin>of(StripePaymentTransactionInfoPlugin.build(pending3dsRecord));
+
+        expiredPaymentPolicy = new ExpiredPaymentPolicy(new DefaultClock(), new StripeConfigProperties(BenchmarkFixtures.properties("stripe.properties"), ""));
+    }
+
+    @Benchmark
+    public StripePaymentTransactionInfoPlugin buildProcessed() {
+        return StripePaymentTransactionInfoPlugin.build(processedRecord);
+    }
+
+    @Benchmark
+    public StripePaymentTransactionInfoPlugin buildPending3ds() {
+        return StripePaymentTransactionInfoPlugin.build(pending3dsRecord);
+    }
+
+    @Benchmark
+    public StripePaymentTransactionInfoPlugin isExpiredProcessed() {
+        return expiredPaymentPolicy.isExpired(processedTransactions);
+    }
+
+    @Benchmark
+    public StripePaymentTransactionInfoPlugin isExpiredPending3ds() {
+        return expiredPaymentPolicy.isExpired(pending3dsTransactions);
+    }
+}
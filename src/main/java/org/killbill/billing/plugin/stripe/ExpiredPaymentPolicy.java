@@ -18,7 +18,6 @@
 package org.killbill.billing.plugin.stripe;
 
 import java.util.List;
-import java.util.Map;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.payment.api.TransactionType;
@@ -26,9 +25,8 @@ import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.clock.Clock;
 
-import com.google.common.base.MoreObjects;
 import com.google.common.collect.Iterables;
-import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.StripeAdditionalData;
 
 import static org.killbill.billing.plugin.stripe.StripePaymentPluginApi.PROPERTY_FROM_HPP;
 import static org.killbill.billing.plugin.stripe.StripePaymentPluginApi.PROPERTY_HPP_COMPLETION;
@@ -83,7 +81,7 @@ public class ExpiredPaymentPolicy {
             return transaction.getCreatedDate().plus(stripeProperties.getPendingPaymentExpirationPeriod(null));
         }
 
-        final Map stripeResponseAdditionalData = StripeDao.fromAdditionalData(transaction.getStripeResponseRecord().getAdditionalData());
+        final StripeAdditionalData stripeResponseAdditionalData = transaction.getStripeAdditionalData();
 
         if (is3ds(stripeResponseAdditionalData)) {
             return transaction.getCreatedDate().plus(stripeProperties.getPending3DsPaymentExpirationPeriod());
@@ -91,28 +89,24 @@ public class ExpiredPaymentPolicy {
             return transaction.getCreatedDate().plus(stripeProperties.getPendingHppPaymentWithoutCompletionExpirationPeriod());
         }
 
-        final String paymentMethod = getPaymentMethod(stripeResponseAdditionalData);
+        final String paymentMethod = stripeResponseAdditionalData.getLastChargePaymentMethodType();
         return transaction.getCreatedDate().plus(stripeProperties.getPendingPaymentExpirationPeriod(paymentMethod));
     }
 
-    private boolean isHppBuildFormTransaction(final Map stripeResponseAdditionalData) {
+    private boolean isHppBuildFormTransaction(final StripeAdditionalData stripeResponseAdditionalData) {
         return isHppPayment(stripeResponseAdditionalData) && !isHppCompletionTransaction(stripeResponseAdditionalData);
     }
 
-    private boolean is3ds(final Map stripeResponseAdditionalData) {
+    private boolean is3ds(final StripeAdditionalData stripeResponseAdditionalData) {
         // See https://stripe.com/docs/payments/payment-intents/status
-        return "requires_action".equals(stripeResponseAdditionalData.get("status"));
+        return "requires_action".equals(stripeResponseAdditionalData.getStatus());
     }
 
-    private boolean isHppCompletionTransaction(final Map stripeResponseAdditionalData) {
-        return Boolean.valueOf(MoreObjects.firstNonNull(stripeResponseAdditionalData.get(PROPERTY_HPP_COMPLETION), false).toString());
+    private boolean isHppCompletionTransaction(final StripeAdditionalData stripeResponseAdditionalData) {
+        return stripeResponseAdditionalData.getBoolean(PROPERTY_HPP_COMPLETION);
     }
 
-    private boolean isHppPayment(final Map stripeResponseAdditionalData) {
-        return Boolean.valueOf(MoreObjects.firstNonNull(stripeResponseAdditionalData.get(PROPERTY_FROM_HPP), false).toString());
-    }
-
-    private String getPaymentMethod(final Map stripeResponseAdditionalData) {
-        return (String) stripeResponseAdditionalData.get("last_charge_payment_method_type");
+    private boolean isHppPayment(final StripeAdditionalData stripeResponseAdditionalData) {
+        return stripeResponseAdditionalData.getBoolean(PROPERTY_FROM_HPP);
     }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@
 package org.killbill.billing.plugin.stripe;
 
 import java.util.Hashtable;
+import java.util.concurrent.ExecutorService;
 
 import javax.servlet.Servlet;
 import javax.servlet.http.HttpServlet;
@@ -40,6 +41,13 @@ public class StripeActivator extends KillbillActivatorBase {
     public static final String PLUGIN_NAME = "killbill-stripe";
 
     private StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    private StripeHealthcheck stripeHealthcheck;
+    private ExecutorService refreshExecutor;
+    private ExecutorService webhookExecutor;
+    private StripeWebhookProcessor webhookProcessor;
+    private StripePaymentMethodsBulkSync stripePaymentMethodsBulkSync;
+    private StripePendingPaymentReconciler stripePendingPaymentReconciler;
+    private StripeCustomerIdCache stripeCustomerIdCache;
 
     @Override
     public void start(final BundleContext context) throws Exception {
@@ -56,20 +64,64 @@ public class StripeActivator extends KillbillActivatorBase {
                 configProperties.getProperties());
         stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(stripeConfigProperties);
 
-        // Expose the healthcheck, so other plugins can check on the Stripe status
-        final StripeHealthcheck stripeHealthcheck = new StripeHealthcheck(stripeConfigPropertiesConfigurationHandler);
+        final StripeClientRegistry stripeClientRegistry = new StripeClientRegistry(stripeConfigPropertiesConfigurationHandler);
+
+        // Expose the healthcheck, so other plugins can check on the Stripe status (tenants are probed in the background)
+        stripeHealthcheck = new StripeHealthcheck(stripeClientRegistry, stripeConfigProperties.getHealthcheckInterval());
+        stripeHealthcheck.start();
         registerHealthcheck(context, stripeHealthcheck);
 
+        // Shared across tenants, used to refresh pending payments concurrently
+        refreshExecutor = StripeExecutors.newBoundedExecutor("stripe-refresh", stripeConfigProperties.getRefreshThreads());
+
+        stripeCustomerIdCache = new StripeCustomerIdCache(stripeConfigProperties.getCustomerIdCacheMaxSize(),
+                                                          stripeConfigProperties.getCustomerIdCacheExpiration());
+
+        // Looks up the UNDEFINED transactions in Stripe (shared across tenants, entries are scoped by tenant)
+        final StripeUndefinedTransactionResolver undefinedTransactionResolver = new StripeUndefinedTransactionResolver(stripeConfigProperties.getUndefinedTransactionSearchBatchSize(),
+                                                                                                                       stripeConfigProperties.getUndefinedTransactionNegativeCacheExpiration());
+
+        // Stripe webhooks are persisted synchronously and applied by this pool
+        webhookExecutor = StripeExecutors.newBoundedExecutor("stripe-webhook", stripeConfigProperties.getWebhookThreads());
+        webhookProcessor = new StripeWebhookProcessor(stripeConfigPropertiesConfigurationHandler,
+                                                      stripeClientRegistry,
+                                                      stripeDao,
+                                                      webhookExecutor,
+                                                      clock.getClock(),
+                                                      stripeConfigProperties);
+        webhookProcessor.start();
+
         // Register the payment plugin
         Stripe.setAppInfo("Kill Bill", "7.2.0", "https://killbill.io");
         final StripePaymentPluginApi pluginApi = new StripePaymentPluginApi(stripeConfigPropertiesConfigurationHandler,
+                                                                            stripeClientRegistry,
                                                                             killbillAPI,
                                                                             configProperties,
                                                                             clock.getClock(),
-                                                                            stripeDao
+                                                                            stripeDao,
+                                                                            refreshExecutor,
+                                                                            stripeCustomerIdCache,
+                                                                            undefinedTransactionResolver,
+                                                                            webhookProcessor
         );
         registerPaymentPluginApi(context, pluginApi);
 
+        // Expire and refresh pending payments in the background (for tenants with backgroundReconciliation enabled)
+        stripePendingPaymentReconciler = new StripePendingPaymentReconciler(stripeConfigPropertiesConfigurationHandler,
+                                                                            pluginApi,
+                                                                            stripeDao,
+                                                                            clock.getClock(),
+                                                                            stripeConfigProperties);
+        stripePendingPaymentReconciler.start();
+
+        // Tenant-wide refresh of the payment methods, triggered through /sync (the listings have their own pool)
+        stripePaymentMethodsBulkSync = new StripePaymentMethodsBulkSync(stripeConfigPropertiesConfigurationHandler,
+                                                                        pluginApi,
+                                                                        killbillAPI,
+                                                                        stripeDao,
+                                                                        stripeConfigProperties.getBulkSyncThreads(),
+                                                                        clock.getClock());
+
         // Register the servlet
         final PluginApp pluginApp = new PluginAppBuilder(PLUGIN_NAME,
                                                          killbillAPI,
@@ -77,8 +129,15 @@ public class StripeActivator extends KillbillActivatorBase {
                                                          super.clock,
                                                          configProperties).withRouteClass(StripeHealthcheckServlet.class)
                                                                           .withRouteClass(StripeCheckoutServlet.class)
+                                                                          .withRouteClass(StripeMetricsServlet.class)
+                                                                          .withRouteClass(StripeWebhookServlet.class)
+                                                                          .withRouteClass(StripeBulkSyncServlet.class)
                                                                           .withService(stripeHealthcheck)
+                                                                          .withService(stripeClientRegistry)
                                                                           .withService(pluginApi)
+                                                                          .withService(stripeCustomerIdCache)
+                                                                          .withService(undefinedTransactionResolver)
+                                                                          .withService(stripePaymentMethodsBulkSync)
                                                                           .withService(clock)
                                                                           .build();
         final HttpServlet stripeServlet = PluginApp.createServlet(pluginApp);
@@ -87,9 +146,33 @@ public class StripeActivator extends KillbillActivatorBase {
         registerHandlers();
     }
 
+    @Override
+    public void stop(final BundleContext context) throws Exception {
+        if (stripeHealthcheck != null) {
+            stripeHealthcheck.stop();
+        }
+        if (stripePendingPaymentReconciler != null) {
+            stripePendingPaymentReconciler.stop();
+        }
+        if (stripePaymentMethodsBulkSync != null) {
+            stripePaymentMethodsBulkSync.stop();
+        }
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (webhookProcessor != null) {
+            webhookProcessor.stop();
+        }
+        if (webhookExecutor != null) {
+            webhookExecutor.shutdownNow();
+        }
+        super.stop(context);
+    }
+
     public void registerHandlers() {
         final PluginConfigurationEventHandler handler = new PluginConfigurationEventHandler(stripeConfigPropertiesConfigurationHandler);
-        dispatcher.registerEventHandlers(handler);
+        // The customer id cache is invalidated on custom field changes
+        dispatcher.registerEventHandlers(handler, stripeCustomerIdCache);
     }
 
     private void registerServlet(final BundleContext context, final HttpServlet servlet) {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.PaymentMethod;
+import com.stripe.model.SetupIntent;
+import com.stripe.model.checkout.Session;
+
+/**
+ * Serializes Stripe objects straight to the additional_data JSON, without the intermediate map built by
+ * {@link StripePluginProperties#toAdditionalDataMap}. Both paths share the same field list and the output
+ * follows the NON_EMPTY inclusion rule of the DAO mapper: null values, empty strings, collections and maps are skipped.
+ */
+public class StripeAdditionalDataWriter {
+
+    // Don't pin large buffers to long-lived request threads
+    private static final int MAX_RETAINED_BUFFER_SIZE = 16 * 1024;
+
+    private static final ThreadLocal<StringWriter> BUFFER = ThreadLocal.withInitial(() -> new StringWriter(1024));
+
+    private final ObjectMapper objectMapper;
+
+    public StripeAdditionalDataWriter(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String write(final PaymentIntent stripePaymentIntent, @Nullable final Charge lastCharge) {
+        return write(additionalData -> StripePluginProperties.writeAdditionalData(stripePaymentIntent, lastCharge, additionalData));
+    }
+
+    public String write(final PaymentMethod stripePaymentMethod) {
+        return write(additionalData -> StripePluginProperties.writeAdditionalData(stripePaymentMethod, additionalData));
+    }
+
+    public String write(final SetupIntent stripeSetupIntent) {
+        return write(additionalData -> StripePluginProperties.writeAdditionalData(stripeSetupIntent, additionalData));
+    }
+
+    public String write(final Session session, @Nullable final String pk) {
+        return write(additionalData -> StripePluginProperties.writeAdditionalData(session, pk, additionalData));
+    }
+
+    private String write(final FieldsWriter fieldsWriter) {
+        final StringWriter buffer = BUFFER.get();
+        buffer.getBuffer().setLength(0);
+        try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            fieldsWriter.writeFields((key, value) -> writeField(generator, key, value));
+            generator.writeEndObject();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (buffer.getBuffer().capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                BUFFER.remove();
+            }
+        }
+        return buffer.toString();
+    }
+
+    private void writeField(final JsonGenerator generator, final String key, @Nullable final Object value) {
+        if (isEmpty(value)) {
+            return;
+        }
+
+        try {
+            generator.writeFieldName(key);
+            if (value instanceof String) {
+                generator.writeString((String) value);
+            } else if (value instanceof Long) {
+                generator.writeNumber((Long) value);
+            } else if (value instanceof Integer) {
+                generator.writeNumber((Integer) value);
+            } else if (value instanceof BigDecimal) {
+                generator.writeNumber((BigDecimal) value);
+            } else if (value instanceof Boolean) {
+                generator.writeBoolean((Boolean) value);
+            } else {
+                // Nested Stripe objects (metadata, next_action, last_payment_error, ...)
+                objectMapper.writeValue(generator, value);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isEmpty(@Nullable final Object value) {
+        if (value == null) {
+            return true;
+        } else if (value instanceof String) {
+            return ((String) value).isEmpty();
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        } else if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        } else {
+            return false;
+        }
+    }
+
+    private interface FieldsWriter {
+
+        void writeFields(BiConsumer<String, Object> additionalData);
+    }
+}
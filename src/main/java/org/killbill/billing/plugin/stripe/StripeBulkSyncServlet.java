@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jooby.MediaType;
+import org.jooby.Result;
+import org.jooby.Results;
+import org.jooby.Status;
+import org.jooby.mvc.GET;
+import org.jooby.mvc.Local;
+import org.jooby.mvc.POST;
+import org.jooby.mvc.Path;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillClock;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeBulkSyncsRecord;
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.callcontext.CallContext;
+
+import com.google.inject.Inject;
+
+@Singleton
+// Handle /plugins/killbill-stripe/sync
+@Path("/sync")
+public class StripeBulkSyncServlet {
+
+    private final OSGIKillbillClock clock;
+    private final StripePaymentMethodsBulkSync stripePaymentMethodsBulkSync;
+
+    @Inject
+    public StripeBulkSyncServlet(final OSGIKillbillClock clock,
+                                 final StripePaymentMethodsBulkSync stripePaymentMethodsBulkSync) {
+        this.clock = clock;
+        this.stripePaymentMethodsBulkSync = stripePaymentMethodsBulkSync;
+    }
+
+    @POST
+    public Result startSync(@Named("restart") final Optional<Boolean> restart,
+                            @Local @Named("killbill_tenant") final Tenant tenant) throws SQLException {
+        final CallContext context = new PluginCallContext(StripeActivator.PLUGIN_NAME, clock.getClock().getUTCNow(), null, tenant.getId());
+        final StripeBulkSyncsRecord bulkSync = stripePaymentMethodsBulkSync.start(restart.orElse(false), context);
+        return Results.with(toJson(bulkSync), Status.ACCEPTED)
+                      .type(MediaType.json);
+    }
+
+    @GET
+    public Result getSync(@Local @Named("killbill_tenant") final Tenant tenant) throws SQLException {
+        final StripeBulkSyncsRecord bulkSync = stripePaymentMethodsBulkSync.getState(tenant.getId());
+        if (bulkSync == null) {
+            return Results.with(Status.NOT_FOUND);
+        }
+        return Results.with(toJson(bulkSync), Status.OK)
+                      .type(MediaType.json);
+    }
+
+    private static Map<String, Object> toJson(final StripeBulkSyncsRecord bulkSync) {
+        final Map<String, Object> json = new HashMap<String, Object>();
+        json.put("state", bulkSync.getState());
+        json.put("startingAfter", bulkSync.getStartingAfter());
+        json.put("nbCustomers", bulkSync.getNbCustomers());
+        json.put("nbAdded", bulkSync.getNbAdded());
+        json.put("nbUpdated", bulkSync.getNbUpdated());
+        json.put("nbDeleted", bulkSync.getNbDeleted());
+        json.put("lastError", bulkSync.getLastError());
+        json.put("createdDate", String.valueOf(bulkSync.getCreatedDate()));
+        json.put("updatedDate", String.valueOf(bulkSync.getUpdatedDate()));
+        return json;
+    }
+}
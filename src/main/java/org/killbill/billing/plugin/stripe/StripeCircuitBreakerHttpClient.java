@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+/**
+ * Wraps the transport of a tenant with a bulkhead (at most maxConcurrentRequests calls in flight for the tenant) and a
+ * circuit breaker per endpoint: after circuitBreakerFailureThreshold consecutive failures (connection errors, 5xx or calls
+ * slower than circuitBreakerSlowCallDuration), calls to the endpoint fail fast for circuitBreakerOpenDuration, then a
+ * single trial call decides whether to close the circuit again.
+ * <p/>
+ * Rejected calls never reach Stripe: they fail with a ConnectException cause, so the transactions are recorded as
+ * CANCELED (see StripePluginProperties#mapExceptionToCallResult) instead of holding the payment threads.
+ */
+public class StripeCircuitBreakerHttpClient extends StripeHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeCircuitBreakerHttpClient.class);
+
+    // Object ids in urls (e.g. /v1/payment_intents/pi_XXX/confirm), to group the calls by endpoint
+    private static final Pattern STRIPE_ID_PATTERN = Pattern.compile("/[a-z]+_(?=[A-Za-z0-9]*[0-9A-Z])[A-Za-z0-9]+(?=/|$)");
+
+    private final StripeHttpClient delegate;
+    private final Semaphore inFlightRequests;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final long slowCallDurationNanos;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+    public StripeCircuitBreakerHttpClient(final StripeConfigProperties stripeConfigProperties, final StripeHttpClient delegate) {
+        super(stripeConfigProperties);
+        this.delegate = delegate;
+        this.inFlightRequests = stripeConfigProperties.getMaxConcurrentRequests() > 0 ? new Semaphore(stripeConfigProperties.getMaxConcurrentRequests()) : null;
+        this.failureThreshold = stripeConfigProperties.getCircuitBreakerFailureThreshold();
+        this.openDurationMillis = stripeConfigProperties.getCircuitBreakerOpenDuration();
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(stripeConfigProperties.getCircuitBreakerSlowCallDuration());
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public StripeResponse request(final StripeRequest request) throws StripeException {
+        final String endpoint = getEndpoint(request);
+        final CircuitBreaker circuitBreaker = failureThreshold > 0 ? circuitBreakers.computeIfAbsent(endpoint, k -> new CircuitBreaker()) : null;
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission(System.currentTimeMillis())) {
+            throw toRejectedException("Circuit breaker open for " + endpoint);
+        }
+        if (inFlightRequests != null && !inFlightRequests.tryAcquire()) {
+            if (circuitBreaker != null) {
+                circuitBreaker.releasePermission();
+            }
+            throw toRejectedException("Too many concurrent requests to Stripe");
+        }
+
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            final StripeResponse response = delegate.request(request);
+            failed = response.code() >= 500 || System.nanoTime() - startNanos > slowCallDurationNanos;
+            return response;
+        } catch (final ApiException e) {
+            failed = e.getStatusCode() == null || e.getStatusCode() >= 500;
+            throw e;
+        } catch (final StripeException e) {
+            // Other errors (e.g. invalid requests) mean Stripe is up
+            failed = e instanceof ApiConnectionException;
+            throw e;
+        } finally {
+            if (inFlightRequests != null) {
+                inFlightRequests.release();
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.onResult(endpoint, failed, System.currentTimeMillis());
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static String getEndpoint(final StripeRequest request) {
+        return request.method() + " " + STRIPE_ID_PATTERN.matcher(request.url().getPath()).replaceAll("/{id}");
+    }
+
+    private final class CircuitBreaker {
+
+        private int consecutiveFailures = 0;
+        // When set, the circuit is open until then; past that date, only one trial call goes through
+        private long openUntilMillis = 0;
+        private boolean trialInFlight = false;
+
+        synchronized boolean tryAcquirePermission(final long nowMillis) {
+            if (openUntilMillis == 0) {
+                return true;
+            }
+            if (nowMillis < openUntilMillis || trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+
+        synchronized void releasePermission() {
+            trialInFlight = false;
+        }
+
+        synchronized void onResult(final String endpoint, final boolean failed, final long nowMillis) {
+            trialInFlight = false;
+            if (!failed) {
+                if (openUntilMillis != 0) {
+                    logger.info("Closing circuit breaker for Stripe endpoint {}", endpoint);
+                }
+                consecutiveFailures = 0;
+                openUntilMillis = 0;
+            } else if (++consecutiveFailures >= failureThreshold) {
+                if (openUntilMillis == 0) {
+                    logger.warn("Opening circuit breaker for Stripe endpoint {} after {} consecutive failures", endpoint, consecutiveFailures);
+                }
+                openUntilMillis = nowMillis + openDurationMillis;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.stripe.net.RequestOptions;
+
+/**
+ * Caches one {@link StripeTenantClient} per tenant. A new client is built whenever the tenant configuration
+ * changes (a configuration update always creates a new {@link StripeConfigProperties} instance).
+ */
+public class StripeClientRegistry {
+
+    // ConcurrentHashMap doesn't support null keys
+    private static final UUID DEFAULT_TENANT_KEY = new UUID(0L, 0L);
+
+    private final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    private final StripeRoutingHttpClient routingHttpClient;
+    private final ConcurrentMap<UUID, StripeTenantClient> clientsByTenant = new ConcurrentHashMap<UUID, StripeTenantClient>();
+    // Replaced clients whose transport is still shared with other tenants (same API key), shut down once no longer routed to
+    private final Set<StripeTenantClient> replacedClients = ConcurrentHashMap.newKeySet();
+
+    public StripeClientRegistry(final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler) {
+        this.stripeConfigPropertiesConfigurationHandler = stripeConfigPropertiesConfigurationHandler;
+        this.routingHttpClient = StripeRoutingHttpClient.install();
+    }
+
+    public StripeTenantClient getClient(@Nullable final UUID kbTenantId) {
+        final StripeConfigProperties stripeConfigProperties = stripeConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId);
+        final UUID key = kbTenantId == null ? DEFAULT_TENANT_KEY : kbTenantId;
+
+        final StripeTenantClient existingClient = clientsByTenant.get(key);
+        if (existingClient != null && existingClient.getStripeConfigProperties() == stripeConfigProperties) {
+            return existingClient;
+        }
+
+        return clientsByTenant.compute(key, (tenantKey, currentClient) -> {
+            if (currentClient != null && currentClient.getStripeConfigProperties() == stripeConfigProperties) {
+                return currentClient;
+            }
+
+            final StripeTenantClient newClient = new StripeTenantClient(stripeConfigProperties);
+            // Registered first: on conflict, the current client (and its routing) is kept
+            routingHttpClient.register(tenantKey, newClient.getRequestOptions().getApiKey(), newClient.getHttpClient(), stripeConfigProperties);
+            if (currentClient != null && !Objects.equals(currentClient.getRequestOptions().getApiKey(), newClient.getRequestOptions().getApiKey())) {
+                routingHttpClient.unregister(tenantKey, currentClient.getRequestOptions().getApiKey());
+            }
+            if (currentClient != null) {
+                replacedClients.add(currentClient);
+            }
+            shutdownReplacedClients();
+            return newClient;
+        });
+    }
+
+    private void shutdownReplacedClients() {
+        for (final StripeTenantClient replacedClient : replacedClients) {
+            if (!routingHttpClient.isRouted(replacedClient.getHttpClient())) {
+                replacedClients.remove(replacedClient);
+                replacedClient.shutdown();
+            }
+        }
+    }
+
+    public RequestOptions getRequestOptions(@Nullable final UUID kbTenantId) {
+        return getClient(kbTenantId).getRequestOptions();
+    }
+
+    public StripeConfigProperties getConfig(@Nullable final UUID kbTenantId) {
+        return getClient(kbTenantId).getStripeConfigProperties();
+    }
+
+    // Rate limiter metrics, by tenant
+    public Map<String, Object> getRateLimiterStats() {
+        final Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        for (final Map.Entry<UUID, StripeTenantClient> entry : clientsByTenant.entrySet()) {
+            if (entry.getValue().getHttpClient() instanceof StripeRateLimitedHttpClient) {
+                stats.put(DEFAULT_TENANT_KEY.equals(entry.getKey()) ? "default" : entry.getKey().toString(),
+                          ((StripeRateLimitedHttpClient) entry.getValue().getHttpClient()).getStats());
+            }
+        }
+        return stats;
+    }
+}
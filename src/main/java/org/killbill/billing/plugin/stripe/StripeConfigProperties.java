@@ -19,26 +19,22 @@ package org.killbill.billing.plugin.stripe;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.Proxy.Type;
-import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Properties;
 
 import javax.annotation.Nullable;
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
 
 import org.joda.time.Period;
-import org.killbill.billing.plugin.util.http.SslUtils;
 
 import com.google.common.base.Ascii;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Strings;
-import com.stripe.Stripe;
 import com.stripe.net.RequestOptions;
 import com.stripe.net.RequestOptions.RequestOptionsBuilder;
 
@@ -46,10 +42,6 @@ public class StripeConfigProperties {
 
     private static final String PROPERTY_PREFIX = "org.killbill.billing.plugin.stripe.";
 
-    private static final SSLSocketFactory DEFAULT_SSL_SOCKET_FACTORY = HttpsURLConnection.getDefaultSSLSocketFactory();
-    private static final HostnameVerifier DEFAULT_HOSTNAME_VERIFIER = HttpsURLConnection.getDefaultHostnameVerifier();
-    private static final String DEFAULT_API_BASE = Stripe.getApiBase();
-
     public static final String DEFAULT_PENDING_PAYMENT_EXPIRATION_PERIOD = "P3d";
     public static final String DEFAULT_PENDING_3DS_PAYMENT_EXPIRATION_PERIOD = "PT3h";
     public static final String DEFAULT_PENDING_HPP_PAYMENT_WITHOUT_COMPLETION_EXPIRATION_PERIOD = "PT1h";
@@ -58,20 +50,84 @@ public class StripeConfigProperties {
     private static final String KEY_VALUE_DELIMITER = "#";
     private static final String DEFAULT_CONNECTION_TIMEOUT = "30000";
     private static final String DEFAULT_READ_TIMEOUT = "60000";
+    private static final String DEFAULT_HTTP_CLIENT = "urlconnection";
+    private static final String DEFAULT_HTTP_CLIENT_MAX_CONNECTIONS = "50";
+    private static final String DEFAULT_HTTP_CLIENT_IDLE_TIMEOUT = "60000";
+    private static final String DEFAULT_HTTP_CLIENT_MAX_CONNECTION_LIFETIME = "300000";
+    private static final String DEFAULT_REFRESH_THREADS = "16";
+    private static final String DEFAULT_REFRESH_TIMEOUT = "30000";
+    private static final String DEFAULT_RECONCILIATION_INTERVAL = "300000";
+    private static final String DEFAULT_RECONCILIATION_RATE = "10";
+    private static final String DEFAULT_RECONCILIATION_BATCH_SIZE = "100";
+    private static final String DEFAULT_RECONCILIATION_LOOKBACK_PERIOD = "P30d";
+    private static final String DEFAULT_CUSTOMER_ID_CACHE_MAX_SIZE = "10000";
+    private static final String DEFAULT_CUSTOMER_ID_CACHE_EXPIRATION = "60000";
+    private static final String DEFAULT_WEBHOOK_THREADS = "4";
+    private static final String DEFAULT_PAYMENT_METHOD_TYPES = "card,sepa_debit";
+    private static final String DEFAULT_BULK_SYNC_THREADS = "4";
+    private static final String DEFAULT_WEBHOOK_POLL_INTERVAL = "1000";
+    private static final String DEFAULT_WEBHOOK_BATCH_SIZE = "50";
+    private static final String DEFAULT_WEBHOOK_MAX_ATTEMPTS = "10";
+    private static final String DEFAULT_WEBHOOK_RETRY_DELAY = "10000";
+    private static final String DEFAULT_WEBHOOK_LEASE_TIMEOUT = "300000";
+    private static final String DEFAULT_HEALTHCHECK_INTERVAL = "30000";
+    private static final String DEFAULT_MAX_CONCURRENT_REQUESTS = "100";
+    private static final String DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = "5";
+    private static final String DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = "30000";
+    private static final String DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION = "30000";
+    private static final String DEFAULT_RATE_LIMIT = "0";
+    private static final String DEFAULT_RATE_LIMIT_MAX_WAIT = "5000";
+    private static final String DEFAULT_MAX_NETWORK_RETRIES = "2";
+    private static final String DEFAULT_UNDEFINED_TRANSACTION_SEARCH_BATCH_SIZE = "10";
+    private static final String DEFAULT_UNDEFINED_TRANSACTION_NEGATIVE_CACHE_EXPIRATION = "60000";
+    private static final String DEFAULT_UNDEFINED_TRANSACTION_CANCELLATION_DELAY = "PT10m";
 
     private final String region;
     private final String apiKey;
     private final String publicKey;
+    private final String webhookSecret;
     private final String apiBase;
     private final String proxyHost;
     private final int proxyPort;
     private final String connectionTimeout;
     private final String readTimeout;
+    private final String httpClient;
+    private final int httpClientMaxConnections;
+    private final long httpClientIdleTimeout;
+    private final long httpClientMaxConnectionLifetime;
+    private final int refreshThreads;
+    private final long refreshTimeout;
+    private final boolean backgroundReconciliation;
+    private final long reconciliationInterval;
+    private final double reconciliationRate;
+    private final int reconciliationBatchSize;
+    private final Period reconciliationLookbackPeriod;
+    private final long customerIdCacheMaxSize;
+    private final long customerIdCacheExpiration;
+    private final int webhookThreads;
+    private final int bulkSyncThreads;
+    private final long webhookPollInterval;
+    private final int webhookBatchSize;
+    private final int webhookMaxAttempts;
+    private final long webhookRetryDelay;
+    private final long webhookLeaseTimeout;
+    private final long healthcheckInterval;
+    private final int maxConcurrentRequests;
+    private final int circuitBreakerFailureThreshold;
+    private final long circuitBreakerOpenDuration;
+    private final long circuitBreakerSlowCallDuration;
+    private final double rateLimit;
+    private final long rateLimitMaxWait;
+    private final int maxNetworkRetries;
+    private final int undefinedTransactionSearchBatchSize;
+    private final long undefinedTransactionNegativeCacheExpiration;
+    private final Period undefinedTransactionCancellationDelay;
     private final Period pendingPaymentExpirationPeriod;
     private final Period pendingHppPaymentWithoutCompletionExpirationPeriod;
     private final Period pending3DsPaymentExpirationPeriod;
     private final Map<String, Period> paymentMethodToExpirationPeriod = new LinkedHashMap<String, Period>();
     private final String chargeDescription;
+    private final List<String> paymentMethodTypes = new ArrayList<String>();
     private final String chargeStatementDescriptor;
     private final boolean cancelOn3DSAuthorizationFailure;
 
@@ -79,14 +135,51 @@ public class StripeConfigProperties {
         this.region = region;
         this.apiKey = StripeConfigPropertyResolver.resolve(properties.getProperty(PROPERTY_PREFIX + "apiKey"));
         this.publicKey = StripeConfigPropertyResolver.resolve(properties.getProperty(PROPERTY_PREFIX + "publicKey"));
+        this.webhookSecret = StripeConfigPropertyResolver.resolve(properties.getProperty(PROPERTY_PREFIX + "webhookSecret"));
         this.apiBase = properties.getProperty(PROPERTY_PREFIX + "apiBase");
         this.proxyHost = properties.getProperty(PROPERTY_PREFIX + "proxyHost");
         this.proxyPort = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "proxyPort", "-1"));
         this.connectionTimeout = properties.getProperty(PROPERTY_PREFIX + "connectionTimeout", DEFAULT_CONNECTION_TIMEOUT);
         this.readTimeout = properties.getProperty(PROPERTY_PREFIX + "readTimeout", DEFAULT_READ_TIMEOUT);
+        this.httpClient = properties.getProperty(PROPERTY_PREFIX + "httpClient", DEFAULT_HTTP_CLIENT);
+        this.httpClientMaxConnections = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "httpClientMaxConnections", DEFAULT_HTTP_CLIENT_MAX_CONNECTIONS));
+        this.httpClientIdleTimeout = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "httpClientIdleTimeout", DEFAULT_HTTP_CLIENT_IDLE_TIMEOUT));
+        this.httpClientMaxConnectionLifetime = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "httpClientMaxConnectionLifetime", DEFAULT_HTTP_CLIENT_MAX_CONNECTION_LIFETIME));
+        this.refreshThreads = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "refreshThreads", DEFAULT_REFRESH_THREADS));
+        this.refreshTimeout = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "refreshTimeout", DEFAULT_REFRESH_TIMEOUT));
+        this.backgroundReconciliation = Boolean.parseBoolean(properties.getProperty(PROPERTY_PREFIX + "backgroundReconciliation"));
+        this.reconciliationInterval = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "reconciliationInterval", DEFAULT_RECONCILIATION_INTERVAL));
+        this.reconciliationRate = Double.parseDouble(properties.getProperty(PROPERTY_PREFIX + "reconciliationRate", DEFAULT_RECONCILIATION_RATE));
+        this.reconciliationBatchSize = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "reconciliationBatchSize", DEFAULT_RECONCILIATION_BATCH_SIZE));
+        this.reconciliationLookbackPeriod = Period.parse(properties.getProperty(PROPERTY_PREFIX + "reconciliationLookbackPeriod", DEFAULT_RECONCILIATION_LOOKBACK_PERIOD));
+        this.customerIdCacheMaxSize = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "customerIdCacheMaxSize", DEFAULT_CUSTOMER_ID_CACHE_MAX_SIZE));
+        this.customerIdCacheExpiration = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "customerIdCacheExpiration", DEFAULT_CUSTOMER_ID_CACHE_EXPIRATION));
+        this.webhookThreads = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "webhookThreads", DEFAULT_WEBHOOK_THREADS));
+        this.bulkSyncThreads = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "bulkSyncThreads", DEFAULT_BULK_SYNC_THREADS));
+        this.webhookPollInterval = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "webhookPollInterval", DEFAULT_WEBHOOK_POLL_INTERVAL));
+        this.webhookBatchSize = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "webhookBatchSize", DEFAULT_WEBHOOK_BATCH_SIZE));
+        this.webhookMaxAttempts = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "webhookMaxAttempts", DEFAULT_WEBHOOK_MAX_ATTEMPTS));
+        this.webhookRetryDelay = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "webhookRetryDelay", DEFAULT_WEBHOOK_RETRY_DELAY));
+        this.webhookLeaseTimeout = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "webhookLeaseTimeout", DEFAULT_WEBHOOK_LEASE_TIMEOUT));
+        this.healthcheckInterval = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "healthcheckInterval", DEFAULT_HEALTHCHECK_INTERVAL));
+        this.maxConcurrentRequests = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "maxConcurrentRequests", DEFAULT_MAX_CONCURRENT_REQUESTS));
+        this.circuitBreakerFailureThreshold = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "circuitBreakerFailureThreshold", DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD));
+        this.circuitBreakerOpenDuration = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "circuitBreakerOpenDuration", DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION));
+        this.circuitBreakerSlowCallDuration = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "circuitBreakerSlowCallDuration", DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION));
+        this.rateLimit = Double.parseDouble(properties.getProperty(PROPERTY_PREFIX + "rateLimit", DEFAULT_RATE_LIMIT));
+        this.rateLimitMaxWait = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "rateLimitMaxWait", DEFAULT_RATE_LIMIT_MAX_WAIT));
+        this.maxNetworkRetries = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "maxNetworkRetries", DEFAULT_MAX_NETWORK_RETRIES));
+        this.undefinedTransactionSearchBatchSize = Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + "undefinedTransactionSearchBatchSize", DEFAULT_UNDEFINED_TRANSACTION_SEARCH_BATCH_SIZE));
+        this.undefinedTransactionNegativeCacheExpiration = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "undefinedTransactionNegativeCacheExpiration", DEFAULT_UNDEFINED_TRANSACTION_NEGATIVE_CACHE_EXPIRATION));
+        this.undefinedTransactionCancellationDelay = Period.parse(properties.getProperty(PROPERTY_PREFIX + "undefinedTransactionCancellationDelay", DEFAULT_UNDEFINED_TRANSACTION_CANCELLATION_DELAY));
         this.pendingPaymentExpirationPeriod = readPendingExpirationProperty(properties);
         this.pending3DsPaymentExpirationPeriod = read3DsPendingExpirationProperty(properties);
         this.pendingHppPaymentWithoutCompletionExpirationPeriod = readPendingHppPaymentWithoutCompletionExpirationPeriod(properties);
+        for (final String paymentMethodType : properties.getProperty(PROPERTY_PREFIX + "paymentMethodTypes", DEFAULT_PAYMENT_METHOD_TYPES).split(",")) {
+            if (!paymentMethodType.trim().isEmpty()) {
+                this.paymentMethodTypes.add(paymentMethodType.trim());
+            }
+        }
         this.chargeDescription = Ascii.truncate(MoreObjects.firstNonNull(properties.getProperty(PROPERTY_PREFIX + "chargeDescription"), "Kill Bill charge"), 22, "...");
         this.chargeStatementDescriptor = Ascii.truncate(MoreObjects.firstNonNull(properties.getProperty(PROPERTY_PREFIX + "chargeStatementDescriptor"), "Kill Bill charge"), 22, "...");
         this.cancelOn3DSAuthorizationFailure = readCancelOn3DSAuthorizationFailure(properties);
@@ -100,6 +193,10 @@ public class StripeConfigProperties {
         return publicKey;
     }
 
+    public String getWebhookSecret() {
+        return webhookSecret;
+    }
+
     public String getApiBase() {
         return apiBase;
     }
@@ -120,6 +217,140 @@ public class StripeConfigProperties {
         return readTimeout;
     }
 
+    public String getHttpClient() {
+        return httpClient;
+    }
+
+    public int getHttpClientMaxConnections() {
+        return httpClientMaxConnections;
+    }
+
+    public long getHttpClientIdleTimeout() {
+        return httpClientIdleTimeout;
+    }
+
+    public long getHttpClientMaxConnectionLifetime() {
+        return httpClientMaxConnectionLifetime;
+    }
+
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    public long getRefreshTimeout() {
+        return refreshTimeout;
+    }
+
+    public boolean isBackgroundReconciliation() {
+        return backgroundReconciliation;
+    }
+
+    public long getReconciliationInterval() {
+        return reconciliationInterval;
+    }
+
+    public double getReconciliationRate() {
+        return reconciliationRate;
+    }
+
+    public int getReconciliationBatchSize() {
+        return reconciliationBatchSize;
+    }
+
+    public Period getReconciliationLookbackPeriod() {
+        return reconciliationLookbackPeriod;
+    }
+
+    public long getCustomerIdCacheMaxSize() {
+        return customerIdCacheMaxSize;
+    }
+
+    public long getCustomerIdCacheExpiration() {
+        return customerIdCacheExpiration;
+    }
+
+    public int getWebhookThreads() {
+        return webhookThreads;
+    }
+
+    public int getBulkSyncThreads() {
+        return bulkSyncThreads;
+    }
+
+    public long getWebhookPollInterval() {
+        return webhookPollInterval;
+    }
+
+    public int getWebhookBatchSize() {
+        return webhookBatchSize;
+    }
+
+    public int getWebhookMaxAttempts() {
+        return webhookMaxAttempts;
+    }
+
+    public long getWebhookRetryDelay() {
+        return webhookRetryDelay;
+    }
+
+    public long getWebhookLeaseTimeout() {
+        return webhookLeaseTimeout;
+    }
+
+    public long getHealthcheckInterval() {
+        return healthcheckInterval;
+    }
+
+    // Bulkhead and circuit breaker around the tenant transport, see StripeCircuitBreakerHttpClient (0 disables them)
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public long getCircuitBreakerSlowCallDuration() {
+        return circuitBreakerSlowCallDuration;
+    }
+
+    // Requests per second allowed for the API key of the tenant, see StripeRateLimitedHttpClient (0 disables the limiter)
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    public long getRateLimitMaxWait() {
+        return rateLimitMaxWait;
+    }
+
+    // Retries of the payment calls (sent with an idempotency key) after a network error
+    public int getMaxNetworkRetries() {
+        return maxNetworkRetries;
+    }
+
+    // kbTransactionIds looked up per Charge search, see StripeUndefinedTransactionResolver (Stripe allows up to 10 clauses)
+    public int getUndefinedTransactionSearchBatchSize() {
+        return undefinedTransactionSearchBatchSize;
+    }
+
+    public long getUndefinedTransactionNegativeCacheExpiration() {
+        return undefinedTransactionNegativeCacheExpiration;
+    }
+
+    // UNDEFINED transactions not found in Stripe are only canceled once that old (the search index lags behind)
+    public Period getUndefinedTransactionCancellationDelay() {
+        return undefinedTransactionCancellationDelay;
+    }
+
+    // PaymentMethod types listed when refreshing the payment methods from Stripe
+    public List<String> getPaymentMethodTypes() {
+        return paymentMethodTypes;
+    }
+
     public String getChargeDescription() {
         return chargeDescription;
     }
@@ -148,25 +379,37 @@ public class StripeConfigProperties {
         return pendingHppPaymentWithoutCompletionExpirationPeriod;
     }
 
-    public RequestOptions toRequestOptions() {
-        if (getApiBase() != null) {
-            Stripe.overrideApiBase(getApiBase());
+    /**
+     * @return true if both configurations build the same transport, see {@link StripeHttpClient#create}
+     * (tenants sharing an API key share a transport, see {@link StripeRoutingHttpClient})
+     */
+    public boolean hasSameTransportSettings(final StripeConfigProperties other) {
+        return Objects.equals(apiBase, other.apiBase) &&
+               Objects.equals(proxyHost, other.proxyHost) &&
+               proxyPort == other.proxyPort &&
+               Objects.equals(connectionTimeout, other.connectionTimeout) &&
+               Objects.equals(readTimeout, other.readTimeout) &&
+               Ascii.equalsIgnoreCase(httpClient, other.httpClient) &&
+               httpClientMaxConnections == other.httpClientMaxConnections &&
+               httpClientIdleTimeout == other.httpClientIdleTimeout &&
+               httpClientMaxConnectionLifetime == other.httpClientMaxConnectionLifetime &&
+               maxConcurrentRequests == other.maxConcurrentRequests &&
+               circuitBreakerFailureThreshold == other.circuitBreakerFailureThreshold &&
+               circuitBreakerOpenDuration == other.circuitBreakerOpenDuration &&
+               circuitBreakerSlowCallDuration == other.circuitBreakerSlowCallDuration &&
+               rateLimit == other.rateLimit &&
+               rateLimitMaxWait == other.rateLimitMaxWait;
+    }
 
-            // Since this is for testing only, disable certificates verification
-            try {
-                final SSLContext sc = SslUtils.getInstance().getSSLContext(true);
-                HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-                HttpsURLConnection.setDefaultHostnameVerifier((hostname, session) -> true);
-            } catch (final GeneralSecurityException e) {
-                throw new RuntimeException(e);
-            }
-        } else {
-            // Allow to switch back and forth (useful for tests)
-            Stripe.overrideApiBase(DEFAULT_API_BASE);
-            HttpsURLConnection.setDefaultSSLSocketFactory(DEFAULT_SSL_SOCKET_FACTORY);
-            HttpsURLConnection.setDefaultHostnameVerifier(DEFAULT_HOSTNAME_VERIFIER);
-        }
+    /**
+     * Build the request options for this configuration. This doesn't touch any global state: the api base override
+     * (if any) is handled by the tenant {@link StripeHttpClient}, see {@link StripeClientRegistry}.
+     */
+    public RequestOptions toRequestOptions() {
+        return toRequestOptionsBuilder().build();
+    }
 
+    public RequestOptionsBuilder toRequestOptionsBuilder() {
         final RequestOptionsBuilder requestOptionsBuilder = RequestOptions.builder()
                                                                           .setConnectTimeout(Integer.parseInt(getConnectionTimeout()))
                                                                           .setReadTimeout(Integer.parseInt(getReadTimeout()))
@@ -174,7 +417,7 @@ public class StripeConfigProperties {
         if (getProxyHost() != null && getProxyPort() != -1) {
             requestOptionsBuilder.setConnectionProxy(new Proxy(Type.HTTP, new InetSocketAddress(getProxyHost(), getProxyPort())));
         }
-        return requestOptionsBuilder.build();
+        return requestOptionsBuilder;
     }
 
     private Period readPendingExpirationProperty(final Properties properties) {
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.notification.plugin.api.ExtBusEvent;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillEventDispatcher.OSGIKillbillEventHandler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tenant-scoped kbAccountId to Stripe customer id (STRIPE_CUSTOMER_ID custom field) cache.
+ * <p/>
+ * Only known mappings are cached: entries are invalidated when a custom field is added to or removed from the account
+ * (the mapping can be changed outside of the plugin), and expire after customerIdCacheExpiration.
+ * <p/>
+ * Kill Bill dispatches each bus event to a single node: in a cluster, the other nodes keep their entry until it expires,
+ * and can charge the previous Stripe customer in the meantime. The default expiration is kept short for that reason.
+ */
+public class StripeCustomerIdCache implements OSGIKillbillEventHandler {
+
+    private final Cache<String, String> customerIds;
+
+    public StripeCustomerIdCache(final long maximumSize, final long expirationMillis) {
+        this.customerIds = CacheBuilder.newBuilder()
+                                       .maximumSize(maximumSize)
+                                       .expireAfterWrite(expirationMillis, TimeUnit.MILLISECONDS)
+                                       .recordStats()
+                                       .build();
+    }
+
+    public String getIfPresent(@Nullable final UUID kbTenantId, final UUID kbAccountId) {
+        return customerIds.getIfPresent(key(kbTenantId, kbAccountId));
+    }
+
+    public void put(@Nullable final UUID kbTenantId, final UUID kbAccountId, final String stripeCustomerId) {
+        customerIds.put(key(kbTenantId, kbAccountId), stripeCustomerId);
+    }
+
+    public void invalidate(@Nullable final UUID kbTenantId, final UUID kbAccountId) {
+        customerIds.invalidate(key(kbTenantId, kbAccountId));
+    }
+
+    @Override
+    public void handleKillbillEvent(final ExtBusEvent killbillEvent) {
+        switch (killbillEvent.getEventType()) {
+            case CUSTOM_FIELD_CREATION:
+            case CUSTOM_FIELD_DELETION:
+                if (killbillEvent.getAccountId() != null) {
+                    invalidate(killbillEvent.getTenantId(), killbillEvent.getAccountId());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        final CacheStats stats = customerIds.stats();
+        return ImmutableMap.<String, Object>of("size", customerIds.size(),
+                                               "hitCount", stats.hitCount(),
+                                               "missCount", stats.missCount(),
+                                               "hitRate", stats.hitRate(),
+                                               "evictionCount", stats.evictionCount());
+    }
+
+    private static String key(@Nullable final UUID kbTenantId, final UUID kbAccountId) {
+        return kbTenantId + "/" + kbAccountId;
+    }
+}
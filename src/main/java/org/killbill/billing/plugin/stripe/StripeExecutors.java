@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class StripeExecutors {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private StripeExecutors() {}
+
+    /**
+     * Pool used to fan out blocking Stripe calls: at most maxThreads calls are in flight (extra tasks are queued)
+     * and idle threads are released, so the pool costs nothing when the plugin is idle.
+     */
+    public static ExecutorService newBoundedExecutor(final String name, final int maxThreads) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads,
+                                                                   maxThreads,
+                                                                   KEEP_ALIVE_SECONDS,
+                                                                   TimeUnit.SECONDS,
+                                                                   new LinkedBlockingQueue<Runnable>(),
+                                                                   newDaemonThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Unbounded: for the JDK HttpClient internals, whose threads are bounded by the requests in flight
+    public static ExecutorService newCachedExecutor(final String name) {
+        return Executors.newCachedThreadPool(newDaemonThreadFactory(name));
+    }
+
+    public static ScheduledExecutorService newSingleThreadScheduledExecutor(final String name) {
+        return Executors.newSingleThreadScheduledExecutor(newDaemonThreadFactory(name));
+    }
+
+    private static ThreadFactory newDaemonThreadFactory(final String name) {
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
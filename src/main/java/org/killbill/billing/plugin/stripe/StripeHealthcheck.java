@@ -18,7 +18,15 @@
 package org.killbill.billing.plugin.stripe;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -27,6 +35,7 @@ import org.killbill.billing.tenant.api.Tenant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.stripe.Stripe;
 import com.stripe.exception.ApiException;
@@ -36,14 +45,53 @@ import com.stripe.net.ApiResource;
 import com.stripe.net.RequestOptions;
 import com.stripe.net.StripeResponse;
 
+/**
+ * The status of a tenant is served from memory: Stripe is pinged the first time the tenant is asked about,
+ * then every healthcheckInterval in the background, for as long as the tenant keeps being asked about.
+ * <p/>
+ * Callers never wait for Stripe: until the first probe of a tenant completes, its status is {@link #PROBING}. The
+ * tenants are probed concurrently, at most one probe per tenant at a time, so a slow tenant doesn't delay the others.
+ */
 public class StripeHealthcheck implements Healthcheck {
 
     private static final Logger logger = LoggerFactory.getLogger(StripeHealthcheck.class);
 
-    private final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    // Tenants not asked about for that many intervals aren't probed anymore
+    private static final int IDLE_INTERVALS = 10;
+    private static final int PROBE_THREADS = 4;
+
+    // Not known yet: the plugin itself is up, so the healthcheck doesn't fail while the first probe runs
+    @VisibleForTesting
+    static final HealthStatus PROBING = HealthStatus.healthy("Stripe status unknown: probing");
+
+    private final StripeClientRegistry stripeClientRegistry;
+    private final long intervalMillis;
+    private final Map<UUID, TenantHealth> healthByTenant = new ConcurrentHashMap<UUID, TenantHealth>();
+    private final Map<UUID, Long> lastRequestedByTenant = new ConcurrentHashMap<UUID, Long>();
+    private final Set<UUID> probingTenants = ConcurrentHashMap.newKeySet();
+    private final ExecutorService probeExecutor = StripeExecutors.newBoundedExecutor("stripe-healthcheck-probe", PROBE_THREADS);
 
-    public StripeHealthcheck(final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler) {
-        this.stripeConfigPropertiesConfigurationHandler = stripeConfigPropertiesConfigurationHandler;
+    private ScheduledExecutorService scheduler;
+
+    public StripeHealthcheck(final StripeClientRegistry stripeClientRegistry, final long intervalMillis) {
+        this.stripeClientRegistry = stripeClientRegistry;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = StripeExecutors.newSingleThreadScheduledExecutor("stripe-healthcheck");
+        scheduler.scheduleWithFixedDelay(this::probeAllSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        probeExecutor.shutdownNow();
     }
 
     @Override
@@ -53,13 +101,93 @@ public class StripeHealthcheck implements Healthcheck {
             return HealthStatus.healthy("Stripe OK");
         } else {
             // Specifying the tenant lets you also validate the tenant configuration
-            final StripeConfigProperties stripeConfigProperties = stripeConfigPropertiesConfigurationHandler.getConfigurable(tenant.getId());
-            return pingStripe(stripeConfigProperties);
+            lastRequestedByTenant.put(tenant.getId(), System.currentTimeMillis());
+            final TenantHealth health = healthByTenant.get(tenant.getId());
+            if (health != null) {
+                return health.status;
+            }
+            probeAsync(tenant.getId());
+            return PROBING;
         }
     }
 
-    private HealthStatus pingStripe(final StripeConfigProperties stripeConfigProperties) {
-        final RequestOptions requestOptions = stripeConfigProperties.toRequestOptions();
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        for (final Map.Entry<UUID, TenantHealth> entry : healthByTenant.entrySet()) {
+            stats.put(entry.getKey().toString(), ImmutableMap.<String, Object>of("healthy", entry.getValue().status.isHealthy(),
+                                                                                "latencyMillis", entry.getValue().latencyMillis,
+                                                                                "consecutiveFailures", entry.getValue().consecutiveFailures,
+                                                                                "probedAtMillis", entry.getValue().probedAtMillis));
+        }
+        return stats;
+    }
+
+    private void probeAllSafely() {
+        try {
+            probeAll();
+        } catch (final Exception e) {
+            // Don't let the exception cancel the next runs
+            logger.warn("Unable to probe Stripe", e);
+        }
+    }
+
+    // Only schedules the probes
+    @VisibleForTesting
+    void probeAll() {
+        final long idleSinceMillis = System.currentTimeMillis() - IDLE_INTERVALS * intervalMillis;
+        for (final UUID kbTenantId : healthByTenant.keySet()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            final Long lastRequestedMillis = lastRequestedByTenant.get(kbTenantId);
+            if (lastRequestedMillis == null || lastRequestedMillis < idleSinceMillis) {
+                healthByTenant.remove(kbTenantId);
+                lastRequestedByTenant.remove(kbTenantId);
+            } else {
+                probeAsync(kbTenantId);
+            }
+        }
+    }
+
+    private void probeAsync(final UUID kbTenantId) {
+        if (!probingTenants.add(kbTenantId)) {
+            // Still probing
+            return;
+        }
+
+        try {
+            probeExecutor.execute(() -> {
+                try {
+                    probe(kbTenantId);
+                } finally {
+                    probingTenants.remove(kbTenantId);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // Shutting down
+            probingTenants.remove(kbTenantId);
+        }
+    }
+
+    private void probe(final UUID kbTenantId) {
+        final long startNanos = System.nanoTime();
+        HealthStatus status;
+        try {
+            status = pingStripe(stripeClientRegistry.getRequestOptions(kbTenantId));
+        } catch (final RuntimeException e) {
+            // E.g. invalid tenant configuration
+            logger.warn("Healthcheck error", e);
+            status = HealthStatus.unHealthy("Stripe error: " + e.getMessage());
+        }
+        final long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        final TenantHealth previousHealth = healthByTenant.get(kbTenantId);
+        final int consecutiveFailures = status.isHealthy() ? 0 : (previousHealth == null ? 0 : previousHealth.consecutiveFailures) + 1;
+        healthByTenant.put(kbTenantId, new TenantHealth(status, latencyMillis, consecutiveFailures, System.currentTimeMillis()));
+    }
+
+    private HealthStatus pingStripe(final RequestOptions requestOptions) {
 
         // Found this endpoint by cURLing random urls - let's hope it's stable :-)
         final String url = String.format("%s%s", Stripe.getApiBase(), "/healthcheck");
@@ -83,6 +211,21 @@ public class StripeHealthcheck implements Healthcheck {
         }
     }
 
+    // Result of the last probe of a tenant
+    private static final class TenantHealth {
+
+        private final HealthStatus status;
+        private final long latencyMillis;
+        private final int consecutiveFailures;
+        private final long probedAtMillis;
+
+        private TenantHealth(final HealthStatus status, final long latencyMillis, final int consecutiveFailures, final long probedAtMillis) {
+            this.status = status;
+            this.latencyMillis = latencyMillis;
+            this.consecutiveFailures = consecutiveFailures;
+            this.probedAtMillis = probedAtMillis;
+        }
+    }
 
     public static class StripeHealthcheckResponse extends HashMap<String, Object> implements StripeObjectInterface {
 
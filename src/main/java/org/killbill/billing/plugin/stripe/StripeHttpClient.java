@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.stripe.Stripe;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+
+/**
+ * Per-tenant transport: each tenant configuration gets its own instance (see {@link StripeClientRegistry}),
+ * so api base overrides and TLS settings never leak into the JVM-wide defaults.
+ */
+public abstract class StripeHttpClient extends HttpClient {
+
+    private final String apiBase;
+
+    protected StripeHttpClient(final StripeConfigProperties stripeConfigProperties) {
+        this.apiBase = stripeConfigProperties.getApiBase();
+    }
+
+    public static StripeHttpClient create(final StripeConfigProperties stripeConfigProperties) {
+        final StripeHttpClient httpClient;
+        if ("pooled".equalsIgnoreCase(stripeConfigProperties.getHttpClient())) {
+            httpClient = new StripePooledHttpClient(stripeConfigProperties);
+        } else {
+            httpClient = new StripeUrlConnectionHttpClient(stripeConfigProperties);
+        }
+        final StripeHttpClient circuitBreakerHttpClient = new StripeCircuitBreakerHttpClient(stripeConfigProperties, httpClient);
+        // Calls wait for the rate limiter before taking a slot in the bulkhead
+        return stripeConfigProperties.getRateLimit() > 0 ? new StripeRateLimitedHttpClient(stripeConfigProperties, circuitBreakerHttpClient) : circuitBreakerHttpClient;
+    }
+
+    /**
+     * Releases the resources of the transport, once it is replaced (e.g. after a configuration change): in-flight
+     * requests complete.
+     */
+    public void shutdown() {
+    }
+
+    // Since api base overrides are for testing only, certificates verification is disabled when one is set
+    protected boolean isTrustAllCertificates() {
+        return apiBase != null;
+    }
+
+    protected String getEffectiveApiBase() {
+        return apiBase == null ? Stripe.getApiBase() : apiBase;
+    }
+
+    // Stripe models build their urls using the global api base: rewrite them for this tenant instead of calling Stripe#overrideApiBase
+    protected URL resolveUrl(final StripeRequest request) throws MalformedURLException {
+        final URL url = request.url();
+        if (apiBase == null) {
+            return url;
+        }
+
+        final String urlString = url.toString();
+        final String defaultApiBase = Stripe.getApiBase();
+        if (urlString.startsWith(defaultApiBase)) {
+            return new URL(apiBase + urlString.substring(defaultApiBase.length()));
+        } else {
+            return url;
+        }
+    }
+
+    protected HttpHeaders buildHeaders(final StripeRequest request) {
+        final Map<String, List<String>> userAgentHeaders = new HashMap<String, List<String>>();
+        userAgentHeaders.put("User-Agent", ImmutableList.<String>of(buildUserAgentString()));
+        userAgentHeaders.put("X-Stripe-Client-User-Agent", ImmutableList.<String>of(buildXStripeClientUserAgentString()));
+        return request.headers().withAdditionalHeaders(userAgentHeaders);
+    }
+
+    // Same message as the default stripe-java client, see StripePaymentTransactionInfoPlugin#getGatewayError
+    protected ApiConnectionException toApiConnectionException(final IOException e) {
+        return new ApiConnectionException(String.format("IOException during API request to Stripe (%s): %s "
+                                                        + "Please check your internet connection and try again. If this problem persists,"
+                                                        + "you should check Stripe's service status at https://twitter.com/stripestatus,"
+                                                        + " or let us know at support@stripe.com.",
+                                                        getEffectiveApiBase(),
+                                                        e.getMessage()),
+                                          e);
+    }
+
+    // For the calls refused before reaching Stripe (e.g. circuit open): they are CANCELED, see StripePluginProperties#mapExceptionToCallResult
+    protected ApiConnectionException toRejectedException(final String message) {
+        return toApiConnectionException(new CallRejectedException(message));
+    }
+
+    protected static Map<String, List<String>> withoutStatusLine(@Nullable final Map<String, List<String>> headerFields) {
+        final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        if (headerFields != null) {
+            for (final Map.Entry<String, List<String>> entry : headerFields.entrySet()) {
+                // HttpURLConnection returns the status line under the null key
+                if (entry.getKey() != null) {
+                    headers.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Cause of the exceptions thrown for the calls which were never sent: retrying them right away is pointless.
+     */
+    public static class CallRejectedException extends ConnectException {
+
+        private static final long serialVersionUID = 1L;
+
+        public CallRejectedException(final String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import javax.inject.Singleton;
+
+import org.jooby.MediaType;
+import org.jooby.Result;
+import org.jooby.Results;
+import org.jooby.Status;
+import org.jooby.mvc.GET;
+import org.jooby.mvc.Path;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+
+@Singleton
+// Handle /plugins/killbill-stripe/metrics
+@Path("/metrics")
+public class StripeMetricsServlet {
+
+    private final StripeCustomerIdCache stripeCustomerIdCache;
+    private final StripePaymentPluginApi stripePaymentPluginApi;
+    private final StripeHealthcheck stripeHealthcheck;
+    private final StripeClientRegistry stripeClientRegistry;
+    private final StripeUndefinedTransactionResolver undefinedTransactionResolver;
+
+    @Inject
+    public StripeMetricsServlet(final StripeCustomerIdCache stripeCustomerIdCache,
+                                final StripePaymentPluginApi stripePaymentPluginApi,
+                                final StripeHealthcheck stripeHealthcheck,
+                                final StripeClientRegistry stripeClientRegistry,
+                                final StripeUndefinedTransactionResolver undefinedTransactionResolver) {
+        this.stripeCustomerIdCache = stripeCustomerIdCache;
+        this.stripePaymentPluginApi = stripePaymentPluginApi;
+        this.stripeHealthcheck = stripeHealthcheck;
+        this.stripeClientRegistry = stripeClientRegistry;
+        this.undefinedTransactionResolver = undefinedTransactionResolver;
+    }
+
+    @GET
+    public Result getMetrics() {
+        return Results.with(ImmutableMap.<String, Object>of("customerIdCache", stripeCustomerIdCache.getStats(),
+                                                            "chargeLookups", stripePaymentPluginApi.getChargeLookupStats(),
+                                                            "healthchecks", stripeHealthcheck.getStats(),
+                                                            "rateLimiters", stripeClientRegistry.getRateLimiterStats(),
+                                                            "undefinedTransactionLookups", undefinedTransactionResolver.getStats()), Status.OK)
+                      .type(MediaType.json);
+    }
+}
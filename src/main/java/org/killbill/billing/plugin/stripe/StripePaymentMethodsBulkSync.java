@@ -0,0 +1,349 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeBulkSyncsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripePaymentMethodsRecord;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Customer;
+import com.stripe.model.CustomerCollection;
+import com.stripe.model.HasId;
+import com.stripe.model.PaymentMethod;
+import com.stripe.model.PaymentSourceCollection;
+import com.stripe.net.RequestOptions;
+
+/**
+ * Refreshes the payment methods of all the accounts of a tenant from Stripe, i.e. getPaymentMethods(refreshFromGateway=true)
+ * for the whole tenant: the Stripe customers are listed page by page (the payment methods of the customers of a page being
+ * listed concurrently, on a dedicated pool), joined to stripe_payment_methods by account and the differences applied in bulk.
+ * <p/>
+ * The position in the customers list is saved in stripe_bulk_syncs after each page, so an interrupted sync resumes
+ * where it stopped.
+ * <p/>
+ * A Stripe customer is mapped to its account through the STRIPE_CUSTOMER_ID custom field of the account, like
+ * getPaymentMethods does. The customers which can't be mapped are skipped, without listing their payment methods.
+ */
+public class StripePaymentMethodsBulkSync {
+
+    public static final String STATE_RUNNING = "RUNNING";
+    public static final String STATE_COMPLETED = "COMPLETED";
+    public static final String STATE_FAILED = "FAILED";
+
+    private static final Logger logger = LoggerFactory.getLogger(StripePaymentMethodsBulkSync.class);
+
+    // Maximum page size of the Stripe list endpoints
+    private static final int PAGE_SIZE = 100;
+    // A running sync without progress for that long is considered dead (e.g. its node was restarted) and can be resumed
+    private static final long STALE_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    private final StripePaymentPluginApi stripePaymentPluginApi;
+    private final OSGIKillbillAPI killbillAPI;
+    private final StripeDao dao;
+    private final Clock clock;
+    private final ExecutorService syncExecutor = StripeExecutors.newBoundedExecutor("stripe-bulk-sync", 1);
+    // Not the refresh pool: a sync doesn't delay the payment refreshes
+    private final ExecutorService listingExecutor;
+    private final Map<UUID, Future<?>> syncsByTenant = new ConcurrentHashMap<UUID, Future<?>>();
+
+    public StripePaymentMethodsBulkSync(final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler,
+                                        final StripePaymentPluginApi stripePaymentPluginApi,
+                                        final OSGIKillbillAPI killbillAPI,
+                                        final StripeDao dao,
+                                        final int listingThreads,
+                                        final Clock clock) {
+        this.stripeConfigPropertiesConfigurationHandler = stripeConfigPropertiesConfigurationHandler;
+        this.stripePaymentPluginApi = stripePaymentPluginApi;
+        this.killbillAPI = killbillAPI;
+        this.dao = dao;
+        this.listingExecutor = StripeExecutors.newBoundedExecutor("stripe-bulk-sync-listing", listingThreads);
+        this.clock = clock;
+    }
+
+    public void stop() {
+        syncExecutor.shutdownNow();
+        listingExecutor.shutdownNow();
+    }
+
+    /**
+     * Start the sync of the tenant in the background, or resume it if the previous one didn't complete.
+     *
+     * @param restart whether to start over, even if the previous sync didn't complete
+     * @return the state of the sync
+     */
+    public synchronized StripeBulkSyncsRecord start(final boolean restart, final CallContext context) throws SQLException {
+        final UUID kbTenantId = context.getTenantId();
+        final Future<?> currentSync = syncsByTenant.get(kbTenantId);
+        final StripeBulkSyncsRecord previousSync = dao.getBulkSync(kbTenantId);
+        if (currentSync != null && !currentSync.isDone()) {
+            return previousSync;
+        }
+
+        final DateTime utcNow = clock.getUTCNow();
+        if (previousSync != null &&
+            STATE_RUNNING.equals(previousSync.getState()) &&
+            previousSync.getUpdatedDate().isAfter(LocalDateTime.ofInstant(Instant.ofEpochMilli(utcNow.getMillis() - STALE_AFTER_MILLIS), ZoneOffset.UTC))) {
+            // Running on another node
+            return previousSync;
+        }
+
+        final StripeBulkSyncsRecord bulkSync;
+        if (previousSync == null || restart || STATE_COMPLETED.equals(previousSync.getState())) {
+            bulkSync = new StripeBulkSyncsRecord();
+            bulkSync.setNbCustomers(0);
+            bulkSync.setNbAdded(0);
+            bulkSync.setNbUpdated(0);
+            bulkSync.setNbDeleted(0);
+            bulkSync.setKbTenantId(kbTenantId.toString());
+        } else {
+            logger.info("Resuming Stripe bulk sync for tenant {} after customer {}", kbTenantId, previousSync.getStartingAfter());
+            bulkSync = previousSync;
+        }
+        bulkSync.setState(STATE_RUNNING);
+        bulkSync.setLastError(null);
+        dao.saveBulkSync(bulkSync, utcNow);
+
+        syncsByTenant.put(kbTenantId, syncExecutor.submit(() -> run(bulkSync, context)));
+        return bulkSync;
+    }
+
+    public StripeBulkSyncsRecord getState(final UUID kbTenantId) throws SQLException {
+        return dao.getBulkSync(kbTenantId);
+    }
+
+    @VisibleForTesting
+    void run(final StripeBulkSyncsRecord bulkSync, final CallContext context) {
+        final RequestOptions requestOptions = stripePaymentPluginApi.buildRequestOptions(context);
+        try {
+            CustomerCollection customers;
+            do {
+                final Map<String, Object> params = new HashMap<String, Object>();
+                params.put("limit", PAGE_SIZE);
+                // The first page of sources is returned with each customer
+                params.put("expand", ImmutableList.of("data.sources"));
+                if (bulkSync.getStartingAfter() != null) {
+                    params.put("starting_after", bulkSync.getStartingAfter());
+                }
+                customers = Customer.list(params, requestOptions);
+                if (customers.getData().isEmpty()) {
+                    break;
+                }
+
+                syncCustomers(customers.getData(), bulkSync, requestOptions, context);
+
+                // Checkpoint
+                bulkSync.setStartingAfter(customers.getData().get(customers.getData().size() - 1).getId());
+                bulkSync.setNbCustomers(bulkSync.getNbCustomers() + customers.getData().size());
+                dao.saveBulkSync(bulkSync, clock.getUTCNow());
+            } while (Boolean.TRUE.equals(customers.getHasMore()));
+
+            logger.info("Stripe bulk sync for tenant {} completed: {} customers, {} payment methods added, {} updated, {} deleted",
+                        bulkSync.getKbTenantId(), bulkSync.getNbCustomers(), bulkSync.getNbAdded(), bulkSync.getNbUpdated(), bulkSync.getNbDeleted());
+            bulkSync.setState(STATE_COMPLETED);
+        } catch (final Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.warn("Stripe bulk sync for tenant {} failed after customer {}", bulkSync.getKbTenantId(), bulkSync.getStartingAfter(), e);
+            bulkSync.setState(STATE_FAILED);
+            bulkSync.setLastError(String.valueOf(e));
+        }
+
+        try {
+            dao.saveBulkSync(bulkSync, clock.getUTCNow());
+        } catch (final SQLException e) {
+            logger.warn("Unable to save the state of the Stripe bulk sync for tenant {}", bulkSync.getKbTenantId(), e);
+        }
+    }
+
+    private void syncCustomers(final List<Customer> customers,
+                               final StripeBulkSyncsRecord bulkSync,
+                               final RequestOptions requestOptions,
+                               final CallContext context) throws SQLException, ExecutionException, InterruptedException, PaymentPluginApiException {
+        final UUID kbTenantId = context.getTenantId();
+        final List<String> paymentMethodTypes = stripeConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId).getPaymentMethodTypes();
+
+        final Map<Customer, List<UUID>> kbAccountIdsByCustomer = new LinkedHashMap<Customer, List<UUID>>();
+        for (final Customer customer : customers) {
+            final List<UUID> kbAccountIds = getKbAccountIds(customer, context);
+            if (kbAccountIds.isEmpty()) {
+                logger.debug("Skipping Stripe customer {}: no Kill Bill account found", customer.getId());
+            } else {
+                kbAccountIdsByCustomer.put(customer, kbAccountIds);
+            }
+        }
+
+        // List the payment methods of the customers concurrently
+        final Map<Customer, Future<Map<String, HasId>>> listings = new LinkedHashMap<Customer, Future<Map<String, HasId>>>();
+        for (final Customer customer : kbAccountIdsByCustomer.keySet()) {
+            listings.put(customer, listingExecutor.submit(() -> listPaymentMethods(customer, paymentMethodTypes, requestOptions)));
+        }
+        // Aggregated by account before the diff (custom fields aren't unique by name, so several customers can be mapped to
+        // an account): otherwise the objects of one customer would deactivate the payment methods of the other
+        final Map<UUID, Map<String, HasId>> stripeObjectsByAccount = new LinkedHashMap<UUID, Map<String, HasId>>();
+        try {
+            for (final Map.Entry<Customer, Future<Map<String, HasId>>> listing : listings.entrySet()) {
+                final Map<String, HasId> stripeObjects = listing.getValue().get();
+                for (final UUID kbAccountId : kbAccountIdsByCustomer.get(listing.getKey())) {
+                    final Map<String, HasId> accountStripeObjects = stripeObjectsByAccount.computeIfAbsent(kbAccountId, k -> new LinkedHashMap<String, HasId>());
+                    for (final HasId stripeObject : stripeObjects.values()) {
+                        accountStripeObjects.putIfAbsent(stripeObject.getId(), stripeObject);
+                    }
+                }
+            }
+        } finally {
+            for (final Future<Map<String, HasId>> listing : listings.values()) {
+                listing.cancel(true);
+            }
+        }
+
+        // Join them to our payment methods, by account
+        final Map<String, Map<String, StripePaymentMethodsRecord>> existingPaymentMethodsByAccount = new HashMap<String, Map<String, StripePaymentMethodsRecord>>();
+        for (final StripePaymentMethodsRecord paymentMethod : dao.getPaymentMethods(stripeObjectsByAccount.keySet(), kbTenantId)) {
+            existingPaymentMethodsByAccount.computeIfAbsent(paymentMethod.getKbAccountId(), k -> new HashMap<String, StripePaymentMethodsRecord>())
+                                           .put(paymentMethod.getStripeId(), paymentMethod);
+        }
+
+        // Compute the differences
+        final DateTime utcNow = clock.getUTCNow();
+        final List<StripePaymentMethodsRecord> paymentMethodsToUpdate = new ArrayList<StripePaymentMethodsRecord>();
+        final List<StripePaymentMethodsRecord> paymentMethodsToDelete = new ArrayList<StripePaymentMethodsRecord>();
+        final Map<UUID, Map<String, StripePaymentMethodsRecord>> paymentMethodsToAddByAccount = new LinkedHashMap<UUID, Map<String, StripePaymentMethodsRecord>>();
+        for (final Map.Entry<UUID, Map<String, HasId>> entry : stripeObjectsByAccount.entrySet()) {
+            final UUID kbAccountId = entry.getKey();
+            final Map<String, HasId> stripeObjects = entry.getValue();
+            final Map<String, StripePaymentMethodsRecord> existingPaymentMethods = existingPaymentMethodsByAccount.getOrDefault(kbAccountId.toString(), ImmutableMap.<String, StripePaymentMethodsRecord>of());
+            for (final HasId stripeObject : stripeObjects.values()) {
+                final Map<String, Object> additionalDataMap = StripePaymentPluginApi.toPaymentMethodAdditionalDataMap(stripeObject);
+                final StripePaymentMethodsRecord existingPaymentMethod = existingPaymentMethods.get(stripeObject.getId());
+                if (existingPaymentMethod == null) {
+                    paymentMethodsToAddByAccount.computeIfAbsent(kbAccountId, k -> new LinkedHashMap<String, StripePaymentMethodsRecord>())
+                                                .put(stripeObject.getId(), dao.newPaymentMethodRecord(kbAccountId, null, additionalDataMap, stripeObject.getId(), utcNow, kbTenantId));
+                } else {
+                    final StripePaymentMethodsRecord paymentMethod = dao.newPaymentMethodRecord(kbAccountId,
+                                                                                                UUID.fromString(existingPaymentMethod.getKbPaymentMethodId()),
+                                                                                                additionalDataMap,
+                                                                                                stripeObject.getId(),
+                                                                                                utcNow,
+                                                                                                kbTenantId);
+                    // Only the payment methods which changed are written
+                    if (!StripeDao.fromAdditionalData(existingPaymentMethod.getAdditionalData()).equals(StripeDao.fromAdditionalData(paymentMethod.getAdditionalData()))) {
+                        paymentMethodsToUpdate.add(paymentMethod);
+                    }
+                }
+            }
+            for (final StripePaymentMethodsRecord existingPaymentMethod : existingPaymentMethods.values()) {
+                if (!stripeObjects.containsKey(existingPaymentMethod.getStripeId())) {
+                    paymentMethodsToDelete.add(existingPaymentMethod);
+                }
+            }
+        }
+
+        // Apply them in bulk
+        dao.updatePaymentMethods(paymentMethodsToUpdate);
+        dao.deletePaymentMethods(paymentMethodsToDelete, utcNow);
+        // The payment methods are created in Kill Bill account by account, their rows are inserted at once
+        final List<StripePaymentMethodsRecord> paymentMethodsAdded = new ArrayList<StripePaymentMethodsRecord>();
+        try {
+            for (final Map.Entry<UUID, Map<String, StripePaymentMethodsRecord>> entry : paymentMethodsToAddByAccount.entrySet()) {
+                try {
+                    stripePaymentPluginApi.createSyncedPaymentMethods(entry.getKey(), entry.getValue(), paymentMethodsAdded, context);
+                } catch (final PaymentApiException e) {
+                    // Don't fail the whole sync because of one account
+                    logger.warn("Unable to create the payment methods {} for account {}", entry.getValue().keySet(), entry.getKey(), e);
+                }
+            }
+        } finally {
+            // Including the ones created before a failure, as Kill Bill keeps them
+            dao.addPaymentMethods(paymentMethodsAdded);
+        }
+
+        bulkSync.setNbAdded(bulkSync.getNbAdded() + paymentMethodsAdded.size());
+        bulkSync.setNbUpdated(bulkSync.getNbUpdated() + paymentMethodsToUpdate.size());
+        bulkSync.setNbDeleted(bulkSync.getNbDeleted() + paymentMethodsToDelete.size());
+    }
+
+    // Same listings as StripePaymentPluginApi#getPaymentMethods, by Stripe id (the APIs can return the same objects under a different type)
+    private Map<String, HasId> listPaymentMethods(final Customer customer,
+                                                  final Iterable<String> paymentMethodTypes,
+                                                  final RequestOptions requestOptions) throws StripeException {
+        final Map<String, HasId> stripeObjects = new LinkedHashMap<String, HasId>();
+        for (final String paymentMethodType : paymentMethodTypes) {
+            final Map<String, Object> paymentMethodParams = new HashMap<String, Object>();
+            paymentMethodParams.put("customer", customer.getId());
+            paymentMethodParams.put("type", paymentMethodType);
+            for (final PaymentMethod paymentMethod : PaymentMethod.list(paymentMethodParams, requestOptions).autoPagingIterable(paymentMethodParams, requestOptions)) {
+                stripeObjects.putIfAbsent(paymentMethod.getId(), paymentMethod);
+            }
+        }
+
+        final PaymentSourceCollection sources = customer.getSources();
+        if (sources != null) {
+            for (final HasId source : sources.autoPagingIterable(new HashMap<String, Object>(), requestOptions)) {
+                stripeObjects.putIfAbsent(source.getId(), source);
+            }
+        }
+        return stripeObjects;
+    }
+
+    // The accounts whose STRIPE_CUSTOMER_ID custom field is the customer (normally a single one)
+    private List<UUID> getKbAccountIds(final Customer customer, final CallContext context) {
+        final List<UUID> kbAccountIds = new ArrayList<UUID>();
+        for (final CustomField customField : killbillAPI.getCustomFieldUserApi().searchCustomFields("STRIPE_CUSTOMER_ID",
+                                                                                                   customer.getId(),
+                                                                                                   ObjectType.ACCOUNT,
+                                                                                                   0L,
+                                                                                                   (long) PAGE_SIZE,
+                                                                                                   context)) {
+            kbAccountIds.add(customField.getObjectId());
+        }
+        return kbAccountIds;
+    }
+}
@@ -20,19 +20,30 @@ package org.killbill.billing.plugin.stripe;
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.StreamSupport;
 
 import javax.annotation.Nullable;
 
 import org.joda.time.DateTime;
+import org.jooq.types.ULong;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.catalog.api.Currency;
@@ -50,9 +61,12 @@ import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.api.core.PluginCustomField;
+import org.killbill.billing.plugin.api.payment.PluginGatewayNotification;
 import org.killbill.billing.plugin.api.payment.PluginHostedPaymentPageFormDescriptor;
 import org.killbill.billing.plugin.api.payment.PluginPaymentPluginApi;
+import org.killbill.billing.plugin.stripe.dao.StripeAdditionalData;
 import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.StripeUnitOfWork;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripePaymentMethods;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeHppRequestsRecord;
@@ -69,13 +83,17 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.stripe.exception.ApiConnectionException;
 import com.stripe.exception.CardException;
+import com.stripe.exception.SignatureVerificationException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
-import com.stripe.model.ChargeSearchResult;
+import com.stripe.model.ChargeCollection;
 import com.stripe.model.Customer;
+import com.stripe.model.Event;
 import com.stripe.model.HasId;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.PaymentMethod;
@@ -87,7 +105,6 @@ import com.stripe.model.Source;
 import com.stripe.model.Token;
 import com.stripe.model.checkout.Session;
 import com.stripe.net.RequestOptions;
-import com.stripe.param.ChargeSearchParams;
 import com.stripe.param.PaymentIntentCancelParams;
 
 public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeResponsesRecord, StripeResponses, StripePaymentMethodsRecord, StripePaymentMethods> {
@@ -109,8 +126,22 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
     public static final String PROPERTY_HPP_COMPLETION = "fromHPPCompletion";
     public static final String PROPERTY_OVERRIDDEN_TRANSACTION_STATUS = "overriddenTransactionStatus";
 
+    private static final long INITIAL_NETWORK_RETRY_DELAY_MILLIS = 500;
+    private static final long MAX_NETWORK_RETRY_DELAY_MILLIS = 5000;
+
     private final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    private final StripeClientRegistry stripeClientRegistry;
     private final StripeDao dao;
+    private final ExecutorService refreshExecutor;
+    private final StripeCustomerIdCache stripeCustomerIdCache;
+    private final StripeUndefinedTransactionResolver undefinedTransactionResolver;
+    private final StripeWebhookProcessor webhookProcessor;
+    // Payment methods listed from Stripe being created in Kill Bill by the syncs, by kbAccountId and Stripe id (Kill Bill
+    // calls addPaymentMethod back on its plugin dispatcher threads, not on the thread of the sync)
+    private final ConcurrentMap<String, StripePaymentMethodsRecord> syncedPaymentMethodsToAdd = new ConcurrentHashMap<String, StripePaymentMethodsRecord>();
+    // Last charge lookups answered from the charges embedded in the PaymentIntent vs. those which needed a call to Stripe
+    private final AtomicLong embeddedChargeLookups = new AtomicLong();
+    private final AtomicLong listedChargeLookups = new AtomicLong();
 
     static final List<String> metadataFilter = List.of("payment_method_types");
 
@@ -120,13 +151,23 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
 
 
     public StripePaymentPluginApi(final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler,
+                                  final StripeClientRegistry stripeClientRegistry,
                                   final OSGIKillbillAPI killbillAPI,
                                   final OSGIConfigPropertiesService configProperties,
                                   final Clock clock,
-                                  final StripeDao dao) {
+                                  final StripeDao dao,
+                                  final ExecutorService refreshExecutor,
+                                  final StripeCustomerIdCache stripeCustomerIdCache,
+                                  final StripeUndefinedTransactionResolver undefinedTransactionResolver,
+                                  final StripeWebhookProcessor webhookProcessor) {
         super(killbillAPI, configProperties, clock, dao);
         this.stripeConfigPropertiesConfigurationHandler = stripeConfigPropertiesConfigurationHandler;
+        this.stripeClientRegistry = stripeClientRegistry;
         this.dao = dao;
+        this.refreshExecutor = refreshExecutor;
+        this.stripeCustomerIdCache = stripeCustomerIdCache;
+        this.undefinedTransactionResolver = undefinedTransactionResolver;
+        this.webhookProcessor = webhookProcessor;
         expandSourcesParams = new HashMap<>();
         expandSourcesParams.put("expand", List.of("sources"));
     }
@@ -137,14 +178,44 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                                              final UUID kbPaymentId,
                                                              final Iterable<PluginProperty> properties,
                                                              final TenantContext context) throws PaymentPluginApiException {
-        final List<PaymentTransactionInfoPlugin> transactions = super.getPaymentInfo(kbAccountId, kbPaymentId, properties, context);
-        if (transactions.isEmpty()) {
-            // We don't know about this payment (maybe it was aborted in a control plugin)
-            return transactions;
+        // The responses lookup and the expiry or refresh updates share a connection
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork()) {
+            final List<PaymentTransactionInfoPlugin> transactions = super.getPaymentInfo(kbAccountId, kbPaymentId, properties, context);
+            if (transactions.isEmpty()) {
+                // We don't know about this payment (maybe it was aborted in a control plugin)
+                return transactions;
+            }
+
+            if (stripeConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()).isBackgroundReconciliation()) {
+                // Expiry and refresh are handled by StripePendingPaymentReconciler
+                return transactions;
+            }
+
+            return reconcilePayment(transactions, context);
+        }
+    }
+
+    /**
+     * Expire or refresh (against Stripe) the PENDING and UNDEFINED transactions of a payment.
+     */
+    public List<PaymentTransactionInfoPlugin> reconcilePayment(final UUID kbAccountId,
+                                                               final UUID kbPaymentId,
+                                                               final TenantContext context) throws PaymentPluginApiException {
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork()) {
+            final List<PaymentTransactionInfoPlugin> transactions = super.getPaymentInfo(kbAccountId, kbPaymentId, ImmutableList.<PluginProperty>of(), context);
+            if (transactions.isEmpty()) {
+                return transactions;
+            }
+            return reconcilePayment(transactions, context);
         }
+    }
+
+    private List<PaymentTransactionInfoPlugin> reconcilePayment(final List<PaymentTransactionInfoPlugin> transactions,
+                                                                final TenantContext context) throws PaymentPluginApiException {
+        final StripeConfigProperties stripeConfigProperties = stripeConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId());
 
         // Check if a HPP payment needs to be canceled
-        final ExpiredPaymentPolicy expiredPaymentPolicy = new ExpiredPaymentPolicy(clock, stripeConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()));
+        final ExpiredPaymentPolicy expiredPaymentPolicy = new ExpiredPaymentPolicy(clock, stripeConfigProperties);
         final StripePaymentTransactionInfoPlugin transactionToExpire = expiredPaymentPolicy.isExpired(transactions);
         if (transactionToExpire != null) {
             logger.info("Canceling expired Stripe transaction {} (created {})", transactionToExpire.getStripeResponseRecord().getStripeId(), transactionToExpire.getStripeResponseRecord().getCreatedDate());
@@ -152,87 +223,202 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                                                   PaymentPluginStatus.CANCELED.toString(),
                                                                   "message",
                                                                   "Payment Expired - Cancelled by Janitor");
+            final StripeResponsesRecord expiredResponse;
             try {
-                dao.updateResponse(transactionToExpire.getStripeResponseRecord(), additionalMetadata);
+                expiredResponse = dao.updateResponse(transactionToExpire.getStripeResponseRecord(), transactionToExpire.getStripeAdditionalData(), additionalMetadata);
             } catch (final SQLException e) {
                 throw new PaymentPluginApiException("Unable to update expired payment", e);
             }
 
-            // Reload payment
-            return super.getPaymentInfo(kbAccountId, kbPaymentId, properties, context);
+            return withUpdatedResponses(transactions, ImmutableList.<StripeResponsesRecord>of(expiredResponse));
         }
 
-        // Refresh, if needed
-        boolean wasRefreshed = false;
+        // Refresh, if needed: the Stripe round trips are done concurrently and the results are applied in a single batch
+        // (the connection is handed back to the pool in the meantime)
+        dao.releaseConnection();
         final RequestOptions requestOptions = buildRequestOptions(context);
+        final Map<UUID, Future<Map<String, Object>>> refreshes = new LinkedHashMap<UUID, Future<Map<String, Object>>>();
+        final Set<UUID> undefinedKbTransactionIds = new HashSet<UUID>();
         for (final PaymentTransactionInfoPlugin transaction : transactions) {
+            if (refreshes.containsKey(transaction.getKbTransactionPaymentId()) || undefinedKbTransactionIds.contains(transaction.getKbTransactionPaymentId())) {
+                continue;
+            }
             if (transaction.getStatus() == PaymentPluginStatus.PENDING) {
-                final String paymentIntentId = PluginProperties.findPluginPropertyValue("id", transaction.getProperties());
+                refreshes.put(transaction.getKbTransactionPaymentId(),
+                              refreshExecutor.submit(() -> refreshPendingTransaction(transaction, stripeConfigProperties, requestOptions)));
+            } else if (transaction.getStatus() == PaymentPluginStatus.UNDEFINED) {
+                undefinedKbTransactionIds.add(transaction.getKbTransactionPaymentId());
+            }
+        }
+        // The UNDEFINED transactions are looked up together (a single Charge search per batch)
+        final Future<Map<UUID, Map<String, Object>>> undefinedRefresh = undefinedKbTransactionIds.isEmpty() ?
+                                                                        null :
+                                                                        refreshExecutor.submit(() -> refreshUndefinedTransactions(transactions, undefinedKbTransactionIds, stripeConfigProperties, requestOptions, context.getTenantId()));
+        if (refreshes.isEmpty() && undefinedRefresh == null) {
+            return transactions;
+        }
+
+        final Map<UUID, Map<String, Object>> updates = awaitRefreshes(refreshes, undefinedRefresh, stripeConfigProperties.getRefreshTimeout());
+        if (updates.isEmpty()) {
+            return transactions;
+        }
+
+        final List<StripeResponsesRecord> updatedResponses;
+        try {
+            updatedResponses = dao.updateResponses(updates, context.getTenantId());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to refresh payment", e);
+        }
+
+        return withUpdatedResponses(transactions, updatedResponses);
+    }
+
+    // Only the transactions backed by an updated response are rebuilt, the others are kept as loaded
+    private List<PaymentTransactionInfoPlugin> withUpdatedResponses(final List<PaymentTransactionInfoPlugin> transactions,
+                                                                    final Iterable<StripeResponsesRecord> updatedResponses) {
+        final Map<ULong, StripeResponsesRecord> updatedResponsesByRecordId = new HashMap<ULong, StripeResponsesRecord>();
+        for (final StripeResponsesRecord updatedResponse : updatedResponses) {
+            updatedResponsesByRecordId.put(updatedResponse.getRecordId(), updatedResponse);
+        }
+        if (updatedResponsesByRecordId.isEmpty()) {
+            return transactions;
+        }
+
+        final List<PaymentTransactionInfoPlugin> mergedTransactions = new ArrayList<PaymentTransactionInfoPlugin>(transactions.size());
+        for (final PaymentTransactionInfoPlugin transaction : transactions) {
+            final StripeResponsesRecord updatedResponse = updatedResponsesByRecordId.get(((StripePaymentTransactionInfoPlugin) transaction).getStripeResponseRecord().getRecordId());
+            mergedTransactions.add(updatedResponse == null ? transaction : buildPaymentTransactionInfoPlugin(updatedResponse));
+        }
+        return mergedTransactions;
+    }
+
+    // Returns the additional data to merge into the transaction response, or null if nothing changed
+    private Map<String, Object> refreshPendingTransaction(final PaymentTransactionInfoPlugin transaction,
+                                                          final StripeConfigProperties stripeConfigProperties,
+                                                          final RequestOptions requestOptions) {
+        final String paymentIntentId = PluginProperties.findPluginPropertyValue("id", transaction.getProperties());
+        try {
+            PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId, requestOptions);
+            // 3DS validated: must confirm the PaymentIntent
+            if ("requires_confirmation".equals(intent.getStatus())) {
+                logger.info("Confirming Stripe transaction {}", intent.getId());
+                intent = intent.confirm(requestOptions);
+            }
+            // 3DS authorization failure - Fail payment according to property
+            else if (stripeConfigProperties.isCancelOn3DSAuthorizationFailure()
+                    && "requires_payment_method".equals(intent.getStatus())
+                    && intent.getLastPaymentError() != null
+                    && "payment_intent_authentication_failure".equals(intent.getLastPaymentError().getCode())) {
+                logger.info("Cancelling Stripe PaymentIntent after 3DS authorization failure {}", intent.getId());
+                intent = intent.cancel(
+                            PaymentIntentCancelParams.builder()
+                                    .setCancellationReason(PaymentIntentCancelParams.CancellationReason.ABANDONED)
+                                    .build(),
+                            requestOptions
+                    );
+            }
+            final Charge lastCharge = getLastCharge(intent, requestOptions);
+            return StripePluginProperties.toAdditionalDataMap(intent, lastCharge);
+        } catch (final StripeException e) {
+            logger.warn("Unable to fetch latest payment state in Stripe, data might be stale", e);
+            return null;
+        }
+    }
+
+    // Returns the additional data to merge into the responses of the transactions which changed
+    private Map<UUID, Map<String, Object>> refreshUndefinedTransactions(final List<PaymentTransactionInfoPlugin> transactions,
+                                                                        final Set<UUID> kbTransactionIds,
+                                                                        final StripeConfigProperties stripeConfigProperties,
+                                                                        final RequestOptions requestOptions,
+                                                                        final UUID kbTenantId) {
+        final StripeUndefinedTransactionResolver.Resolution resolution = undefinedTransactionResolver.resolve(transactions, requestOptions, kbTenantId);
+
+        final Map<UUID, Map<String, Object>> updates = new LinkedHashMap<UUID, Map<String, Object>>();
+        final Set<UUID> remainingKbTransactionIds = new HashSet<UUID>(kbTransactionIds);
+        for (final PaymentTransactionInfoPlugin transaction : transactions) {
+            final UUID kbTransactionId = transaction.getKbTransactionPaymentId();
+            if (!remainingKbTransactionIds.remove(kbTransactionId)) {
+                continue;
+            }
+
+            final String paymentIntentId = resolution.getPaymentIntentIds().get(kbTransactionId);
+            if (paymentIntentId != null) {
                 try {
-                    PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId, requestOptions);
-                    // 3DS validated: must confirm the PaymentIntent
-                    if ("requires_confirmation".equals(intent.getStatus())) {
-                        logger.info("Confirming Stripe transaction {}", intent.getId());
-                        intent = intent.confirm(requestOptions);
-                    }
-                    // 3DS authorization failure - Fail payment according to property
-                    else if (stripeConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()).isCancelOn3DSAuthorizationFailure()
-                            && "requires_payment_method".equals(intent.getStatus())
-                            && intent.getLastPaymentError() != null
-                            && "payment_intent_authentication_failure".equals(intent.getLastPaymentError().getCode())) {
-                        logger.info("Cancelling Stripe PaymentIntent after 3DS authorization failure {}", intent.getId());
-                        intent = intent.cancel(
-                                    PaymentIntentCancelParams.builder()
-                                            .setCancellationReason(PaymentIntentCancelParams.CancellationReason.ABANDONED)
-                                            .build(),
-                                    requestOptions
-                            );
-                    }
-                    final Charge lastCharge = getLastCharge(intent, Collections.emptyMap(), requestOptions);
-                    dao.updateResponse(transaction.getKbTransactionPaymentId(), intent, lastCharge, context.getTenantId());
-                    wasRefreshed = true;
+                    final PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId, requestOptions);
+                    logger.info("Fixing Stripe transaction {}", intent.getId());
+                    final Charge lastCharge = getLastCharge(intent, requestOptions);
+                    updates.put(kbTransactionId, StripePluginProperties.toAdditionalDataMap(intent, lastCharge));
                 } catch (final StripeException e) {
                     logger.warn("Unable to fetch latest payment state in Stripe, data might be stale", e);
-                } catch (final SQLException e) {
-                    throw new PaymentPluginApiException("Unable to refresh payment", e);
                 }
-            } else if (transaction.getStatus() == PaymentPluginStatus.UNDEFINED) {
-                final ChargeSearchParams searchParams = ChargeSearchParams.builder().setQuery("metadata['kbTransactionId']:'" + transaction.getKbTransactionPaymentId() + "'").build();
+            } else if (resolution.getNotFoundKbTransactionIds().contains(kbTransactionId)) {
+                // The search index lags behind the API: only give up on transactions old enough
+                if (transaction.getCreatedDate() != null
+                    && clock.getUTCNow().isBefore(transaction.getCreatedDate().plus(stripeConfigProperties.getUndefinedTransactionCancellationDelay()))) {
+                    logger.info("No Stripe charge found yet for kbTransactionId={}", kbTransactionId);
+                    continue;
+                }
+                logger.info("Canceling UNKNOWN Stripe transaction for kbTransactionId={}", kbTransactionId);
+                updates.put(kbTransactionId, ImmutableMap.<String, Object>builder()
+                                                         .put(PROPERTY_OVERRIDDEN_TRANSACTION_STATUS,
+                                                              PaymentPluginStatus.CANCELED.toString())
+                                                         .put("message",
+                                                              "Payment didn't happen - Cancelled by Janitor")
+                                                         .build());
+            } // Anything else, manual checks needed
+        }
+        return updates;
+    }
+
+    /**
+     * Look up the UNDEFINED transactions in Stripe ahead of their reconciliation (e.g. for a page of responses),
+     * so the Charge searches are batched: the results are cached by the resolver.
+     */
+    public void prefetchUndefinedTransactions(final List<PaymentTransactionInfoPlugin> transactions, final TenantContext context) {
+        undefinedTransactionResolver.resolve(transactions, buildRequestOptions(context), context.getTenantId());
+    }
+
+    private Map<UUID, Map<String, Object>> awaitRefreshes(final Map<UUID, Future<Map<String, Object>>> refreshes,
+                                                          @Nullable final Future<Map<UUID, Map<String, Object>>> undefinedRefresh,
+                                                          final long timeoutMillis) throws PaymentPluginApiException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        final Map<UUID, Map<String, Object>> updates = new LinkedHashMap<UUID, Map<String, Object>>();
+        try {
+            for (final Map.Entry<UUID, Future<Map<String, Object>>> refresh : refreshes.entrySet()) {
                 try {
-                    final ChargeSearchResult result = Charge.search(searchParams, requestOptions);
-                    if (result.getData().size() == 1) {
-                        final Charge charge = result.getData().get(0);
-                        if (charge.getPaymentIntent() != null) {
-                            final PaymentIntent intent = PaymentIntent.retrieve(charge.getPaymentIntent(), requestOptions);
-                            logger.info("Fixing Stripe transaction {}", intent.getId());
-                            final Charge lastCharge = getLastCharge(intent, Collections.emptyMap(), requestOptions);
-                            dao.updateResponse(transaction.getKbTransactionPaymentId(), intent, lastCharge, context.getTenantId());
-                            wasRefreshed = true;
-                        }
-                    } else if (result.getData().isEmpty()) {
-                        logger.info("Canceling UNKNOWN Stripe transaction for kbTransactionId={}", transaction.getKbTransactionPaymentId());
-                        final Map<String, Object> additionalMetadata = ImmutableMap.<String, Object>builder()
-                                                                                   .put(PROPERTY_OVERRIDDEN_TRANSACTION_STATUS,
-                                                                                        PaymentPluginStatus.CANCELED.toString())
-                                                                                   .put("message",
-                                                                                        "Payment didn't happen - Cancelled by Janitor")
-                                                                                   .build();
-                        try {
-                            dao.updateResponse(transaction.getKbTransactionPaymentId(), additionalMetadata, context.getTenantId());
-                            wasRefreshed = true;
-                        } catch (final SQLException e) {
-                            throw new PaymentPluginApiException("Unable to update expired payment", e);
-                        }
-                    } // Anything else, manual checks needed
-                } catch (final StripeException e) {
-                    logger.warn("Unable to fetch latest payment state in Stripe, data might be stale", e);
-                } catch (final SQLException e) {
-                    throw new PaymentPluginApiException("Unable to refresh payment", e);
+                    final Map<String, Object> additionalData = refresh.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (additionalData != null) {
+                        updates.put(refresh.getKey(), additionalData);
+                    }
+                } catch (final TimeoutException e) {
+                    refresh.getValue().cancel(true);
+                    logger.warn("Timed out refreshing kbTransactionId={} in Stripe, data might be stale", refresh.getKey());
+                } catch (final ExecutionException e) {
+                    logger.warn("Unable to refresh kbTransactionId={} in Stripe, data might be stale", refresh.getKey(), e.getCause());
                 }
             }
-        }
 
-        return wasRefreshed ? super.getPaymentInfo(kbAccountId, kbPaymentId, properties, context) : transactions;
+            if (undefinedRefresh != null) {
+                try {
+                    updates.putAll(undefinedRefresh.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (final TimeoutException e) {
+                    undefinedRefresh.cancel(true);
+                    logger.warn("Timed out refreshing the UNDEFINED transactions in Stripe, data might be stale");
+                } catch (final ExecutionException e) {
+                    logger.warn("Unable to refresh the UNDEFINED transactions in Stripe, data might be stale", e.getCause());
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (final Future<Map<String, Object>> future : refreshes.values()) {
+                future.cancel(true);
+            }
+            if (undefinedRefresh != null) {
+                undefinedRefresh.cancel(true);
+            }
+            throw new PaymentPluginApiException("Interrupted while refreshing payment", e);
+        }
+        return updates;
     }
 
     @Override
@@ -272,6 +458,13 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
 
     @Override
     public void addPaymentMethod(final UUID kbAccountId, final UUID kbPaymentMethodId, final PaymentMethodPlugin paymentMethodProps, final boolean setDefault, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
+        final StripePaymentMethodsRecord syncedPaymentMethod = syncedPaymentMethodsToAdd.get(syncedPaymentMethodKey(kbAccountId, paymentMethodProps.getExternalPaymentMethodId()));
+        if (syncedPaymentMethod != null) {
+            // Listed from Stripe by the sync, hence already attached to the customer: the rows are inserted in bulk by the sync
+            syncedPaymentMethod.setKbPaymentMethodId(kbPaymentMethodId.toString());
+            return;
+        }
+
         final RequestOptions requestOptions = buildRequestOptions(context);
 
         // Support both body and query parameters based plugin properties
@@ -302,7 +495,7 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                     throw new PaymentPluginApiException("INTERNAL", "Unable to add payment method: missing StripeHppRequestsRecord for sessionId " + sessionId);
                 }
 
-                final String setupIntentId = (String) StripeDao.fromAdditionalData(hppRecord.getAdditionalData()).get("setup_intent_id");
+                final String setupIntentId = new StripeAdditionalData(hppRecord.getAdditionalData()).getString("setup_intent_id");
                 final SetupIntent setupIntent = SetupIntent.retrieve(setupIntentId, requestOptions);
                 if ("succeeded".equals(setupIntent.getStatus())) {
                     final String existingCustomerId = getCustomerIdNoException(kbAccountId, context);
@@ -314,6 +507,7 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                                                                                                    "STRIPE_CUSTOMER_ID",
                                                                                                                    setupIntent.getCustomer(),
                                                                                                                    clock.getUTCNow())), context);
+                        stripeCustomerIdCache.put(context.getTenantId(), kbAccountId, setupIntent.getCustomer());
                     } else if (!existingCustomerId.equals(setupIntent.getCustomer())) {
                         throw new PaymentPluginApiException("USER", "Unable to add payment method : setupIntent customerId is " + setupIntent.getCustomer() + " but account already mapped to " + existingCustomerId);
                     }
@@ -483,6 +677,7 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
             } catch (final CustomFieldApiException e) {
                 throw new PaymentPluginApiException("Unable to add custom field", e);
             }
+            stripeCustomerIdCache.put(context.getTenantId(), kbAccountId, customer.getId());
 
             return customer.getId();
         } else {
@@ -551,31 +746,50 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
         // To retrieve all payment methods in Stripe, retrieve the Stripe customer id (custom field on the account)
         final String stripeCustomerId = getCustomerId(kbAccountId, context);
 
-        // Sync Stripe payment methods (source of truth)
+        // Sync Stripe payment methods (source of truth): the listings (one per PaymentMethod type, then the sources) are
+        // independent, so they are fetched concurrently and merged below in that order
         final RequestOptions requestOptions = buildRequestOptions(context);
+        final List<Future<List<? extends HasId>>> listings = new ArrayList<Future<List<? extends HasId>>>();
+        for (final String paymentMethodType : stripeConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()).getPaymentMethodTypes()) {
+            listings.add(refreshExecutor.submit(() -> {
+                final Map<String, Object> paymentMethodParams = new HashMap<>();
+                paymentMethodParams.put("customer", stripeCustomerId);
+                paymentMethodParams.put("type", paymentMethodType);
+                return ImmutableList.copyOf(PaymentMethod.list(paymentMethodParams, requestOptions).autoPagingIterable(paymentMethodParams, requestOptions));
+            }));
+        }
+        listings.add(refreshExecutor.submit(() -> {
+            final PaymentSourceCollection psc = Customer.retrieve(stripeCustomerId, expandSourcesParams, requestOptions).getSources();
+            if (psc == null) {
+                return ImmutableList.<HasId>of();
+            }
+            return ImmutableList.copyOf(psc.autoPagingIterable(new HashMap<>(), requestOptions));
+        }));
 
         // Track the objects (the various Stripe APIs can return the same objects under a different type)
         final Set<String> stripeObjectsTreated = new HashSet<>();
+        // Changes are collected first, then applied in bulk
+        final List<StripePaymentMethodsRecord> paymentMethodsToUpdate = new ArrayList<StripePaymentMethodsRecord>();
+        final Map<String, StripePaymentMethodsRecord> paymentMethodsToAdd = new LinkedHashMap<String, StripePaymentMethodsRecord>();
         try {
-            // Start with PaymentMethod...
-            final Map<String, Object> paymentMethodParams = new HashMap<>();
-            paymentMethodParams.put("customer", stripeCustomerId);
-            paymentMethodParams.put("type", "card");
-            final Iterable<PaymentMethod> stripePaymentMethodsCard = PaymentMethod.list(paymentMethodParams, requestOptions).autoPagingIterable(paymentMethodParams, requestOptions);
-            syncPaymentMethods(kbAccountId, stripePaymentMethodsCard, existingPaymentMethodByStripeId, stripeObjectsTreated, context);
-
-            paymentMethodParams.put("type", "sepa_debit");
-            final Iterable<PaymentMethod> stripePaymentMethodsSepaDebit = PaymentMethod.list(paymentMethodParams, requestOptions).autoPagingIterable(paymentMethodParams, requestOptions);
-            syncPaymentMethods(kbAccountId, stripePaymentMethodsSepaDebit, existingPaymentMethodByStripeId, stripeObjectsTreated, context);
-
-            // Then go through the sources
-            final PaymentSourceCollection psc = Customer.retrieve(stripeCustomerId, expandSourcesParams, requestOptions).getSources();
-            if (psc != null) {
-                final Iterable<? extends HasId> stripeSources = psc.autoPagingIterable(paymentMethodParams, requestOptions);
-                syncPaymentMethods(kbAccountId, stripeSources, existingPaymentMethodByStripeId, stripeObjectsTreated, context);
+            for (final Future<List<? extends HasId>> listing : listings) {
+                syncPaymentMethods(kbAccountId, listing.get(), existingPaymentMethodByStripeId, stripeObjectsTreated, paymentMethodsToUpdate, paymentMethodsToAdd, context);
             }
-        } catch (final StripeException e) {
-            throw new PaymentPluginApiException("Error connecting to Stripe", e);
+        } catch (final ExecutionException e) {
+            throw new PaymentPluginApiException("Error connecting to Stripe", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("Interrupted while listing the Stripe payment methods", e);
+        } finally {
+            // No-op for the listings already done
+            for (final Future<List<? extends HasId>> listing : listings) {
+                listing.cancel(true);
+            }
+        }
+
+        try {
+            dao.updatePaymentMethods(paymentMethodsToUpdate);
+            addSyncedPaymentMethods(kbAccountId, paymentMethodsToAdd, context);
         } catch (final PaymentApiException e) {
             throw new PaymentPluginApiException("Error creating payment method", e);
         } catch (final SQLException e) {
@@ -591,72 +805,136 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
         return super.getPaymentMethods(kbAccountId, false, properties, context);
     }
 
-    private void syncPaymentMethods(final UUID kbAccountId, final Iterable<? extends HasId> stripeObjects, final Map<String, StripePaymentMethodsRecord> existingPaymentMethodByStripeId, final Set<String> stripeObjectsTreated, final CallContext context) throws PaymentApiException, SQLException {
+    private void syncPaymentMethods(final UUID kbAccountId,
+                                    final Iterable<? extends HasId> stripeObjects,
+                                    final Map<String, StripePaymentMethodsRecord> existingPaymentMethodByStripeId,
+                                    final Set<String> stripeObjectsTreated,
+                                    final Collection<StripePaymentMethodsRecord> paymentMethodsToUpdate,
+                                    final Map<String, StripePaymentMethodsRecord> paymentMethodsToAdd,
+                                    final CallContext context) {
+        final DateTime utcNow = clock.getUTCNow();
         for (final HasId stripeObject : stripeObjects) {
             if (stripeObjectsTreated.contains(stripeObject.getId())) {
                 continue;
             }
             stripeObjectsTreated.add(stripeObject.getId());
 
-            final Map<String, Object> additionalDataMap;
-            if (stripeObject instanceof PaymentMethod) {
-                additionalDataMap = StripePluginProperties.toAdditionalDataMap((PaymentMethod) stripeObject);
-            } else if (stripeObject instanceof PaymentSource) {
-                additionalDataMap = StripePluginProperties.toAdditionalDataMap((PaymentSource) stripeObject);
-            } else {
-                throw new UnsupportedOperationException("Unsupported object: " + stripeObject);
-            }
+            final Map<String, Object> additionalDataMap = toPaymentMethodAdditionalDataMap(stripeObject);
 
             // We remove it here to build the list of local payment methods to delete
             final StripePaymentMethodsRecord existingPaymentMethodRecord = existingPaymentMethodByStripeId.remove(stripeObject.getId());
             if (existingPaymentMethodRecord == null) {
                 // We don't know about it yet, create it
-                logger.info("Creating new local Stripe payment method {}", stripeObject.getId());
-                final List<PluginProperty> properties = PluginProperties.buildPluginProperties(additionalDataMap);
-                final StripePaymentMethodPlugin paymentMethodInfo = new StripePaymentMethodPlugin(null,
-                                                                                                  stripeObject.getId(),
-                                                                                                  false,
-                                                                                                  properties);
-                killbillAPI.getPaymentApi().addPaymentMethod(getAccount(kbAccountId, context),
-                                                             stripeObject.getId(),
+                paymentMethodsToAdd.put(stripeObject.getId(), dao.newPaymentMethodRecord(kbAccountId, null, additionalDataMap, stripeObject.getId(), utcNow, context.getTenantId()));
+            } else {
+                logger.info("Updating existing local Stripe payment method {}", stripeObject.getId());
+                paymentMethodsToUpdate.add(dao.newPaymentMethodRecord(kbAccountId,
+                                                                      UUID.fromString(existingPaymentMethodRecord.getKbPaymentMethodId()),
+                                                                      additionalDataMap,
+                                                                      stripeObject.getId(),
+                                                                      utcNow,
+                                                                      context.getTenantId()));
+            }
+        }
+    }
+
+    static Map<String, Object> toPaymentMethodAdditionalDataMap(final HasId stripeObject) {
+        if (stripeObject instanceof PaymentMethod) {
+            return StripePluginProperties.toAdditionalDataMap((PaymentMethod) stripeObject);
+        } else if (stripeObject instanceof PaymentSource) {
+            return StripePluginProperties.toAdditionalDataMap((PaymentSource) stripeObject);
+        } else {
+            throw new UnsupportedOperationException("Unsupported object: " + stripeObject);
+        }
+    }
+
+    // Create the payment methods in Kill Bill, then insert the rows in bulk: the ones created before a failure are
+    // inserted as well, as Kill Bill keeps them
+    List<StripePaymentMethodsRecord> addSyncedPaymentMethods(final UUID kbAccountId,
+                                                             final Map<String, StripePaymentMethodsRecord> paymentMethodsToAdd,
+                                                             final CallContext context) throws PaymentApiException, PaymentPluginApiException, SQLException {
+        final List<StripePaymentMethodsRecord> paymentMethodsAdded = new ArrayList<StripePaymentMethodsRecord>();
+        try {
+            createSyncedPaymentMethods(kbAccountId, paymentMethodsToAdd, paymentMethodsAdded, context);
+        } catch (final PaymentApiException | PaymentPluginApiException | RuntimeException e) {
+            try {
+                dao.addPaymentMethods(paymentMethodsAdded);
+            } catch (final SQLException sqlException) {
+                e.addSuppressed(sqlException);
+            }
+            throw e;
+        }
+
+        dao.addPaymentMethods(paymentMethodsAdded);
+        return paymentMethodsAdded;
+    }
+
+    // Create the payment methods in Kill Bill, without inserting the rows: addPaymentMethod, called back by Kill Bill,
+    // only records the kbPaymentMethodId of each row, which is then added to paymentMethodsAdded
+    void createSyncedPaymentMethods(final UUID kbAccountId,
+                                    final Map<String, StripePaymentMethodsRecord> paymentMethodsToAdd,
+                                    final Collection<StripePaymentMethodsRecord> paymentMethodsAdded,
+                                    final CallContext context) throws PaymentApiException, PaymentPluginApiException {
+        if (paymentMethodsToAdd.isEmpty()) {
+            return;
+        }
+
+        final Account account = getAccount(kbAccountId, context);
+        for (final StripePaymentMethodsRecord paymentMethodToAdd : paymentMethodsToAdd.values()) {
+            logger.info("Creating new local Stripe payment method {}", paymentMethodToAdd.getStripeId());
+            final List<PluginProperty> properties = PluginProperties.buildPluginProperties(StripeDao.fromAdditionalData(paymentMethodToAdd.getAdditionalData()));
+            final StripePaymentMethodPlugin paymentMethodInfo = new StripePaymentMethodPlugin(null,
+                                                                                              paymentMethodToAdd.getStripeId(),
+                                                                                              false,
+                                                                                              properties);
+            final String key = syncedPaymentMethodKey(kbAccountId, paymentMethodToAdd.getStripeId());
+            syncedPaymentMethodsToAdd.put(key, paymentMethodToAdd);
+            try {
+                killbillAPI.getPaymentApi().addPaymentMethod(account,
+                                                             paymentMethodToAdd.getStripeId(),
                                                              StripeActivator.PLUGIN_NAME,
                                                              false,
                                                              paymentMethodInfo,
                                                              ImmutableList.<PluginProperty>of(),
                                                              context);
-            } else {
-                logger.info("Updating existing local Stripe payment method {}", stripeObject.getId());
-                dao.updatePaymentMethod(UUID.fromString(existingPaymentMethodRecord.getKbPaymentMethodId()),
-                                        additionalDataMap,
-                                        stripeObject.getId(),
-                                        clock.getUTCNow(),
-                                        context.getTenantId());
+            } finally {
+                syncedPaymentMethodsToAdd.remove(key, paymentMethodToAdd);
+            }
+            if (paymentMethodToAdd.getKbPaymentMethodId() != null) {
+                paymentMethodsAdded.add(paymentMethodToAdd);
             }
         }
     }
 
+    private static String syncedPaymentMethodKey(final UUID kbAccountId, final String stripeId) {
+        return kbAccountId + "/" + stripeId;
+    }
+
     @Override
     public PaymentTransactionInfoPlugin authorizePayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final UUID kbPaymentMethodId, final BigDecimal amount, final Currency currency, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
 
-        final StripeResponsesRecord stripeResponsesRecord;
-        try {
-            stripeResponsesRecord = dao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId());
-        } catch (final SQLException e) {
-            throw new PaymentPluginApiException("SQL exception when fetching response", e);
-        }
+        // The response lookup and update, and the payment method lookup, share a connection
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork()) {
+            final StripeResponsesRecord stripeResponsesRecord;
+            try {
+                stripeResponsesRecord = dao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId());
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("SQL exception when fetching response", e);
+            }
 
-        final boolean isHPPCompletion = stripeResponsesRecord != null && Boolean.valueOf(MoreObjects.firstNonNull(StripeDao.fromAdditionalData(stripeResponsesRecord.getAdditionalData()).get(PROPERTY_FROM_HPP), false).toString());
-        if (!isHPPCompletion) {
-            updateResponseWithAdditionalProperties(kbTransactionId, properties, context.getTenantId());
-            // We don't have any record for that payment: we want to trigger an actual authorization call (or complete a 3D-S authorization)
-            return executeInitialTransaction(TransactionType.AUTHORIZE, kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, properties, context);
-        } else {
-            // We already have a record for that payment transaction: we just update the response row with additional properties
-            // (the API can be called for instance after the user is redirected back from the HPP)
-            updateResponseWithAdditionalProperties(kbTransactionId, PluginProperties.merge(ImmutableMap.of(PROPERTY_HPP_COMPLETION, true), properties), context.getTenantId());
-        }
+            final boolean isHPPCompletion = stripeResponsesRecord != null && new StripeAdditionalData(stripeResponsesRecord.getAdditionalData()).getBoolean(PROPERTY_FROM_HPP);
+            if (!isHPPCompletion) {
+                updateResponseWithAdditionalProperties(kbTransactionId, properties, context.getTenantId());
+                // We don't have any record for that payment: we want to trigger an actual authorization call (or complete a 3D-S authorization)
+                return executeInitialTransaction(TransactionType.AUTHORIZE, kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, properties, context);
+            } else {
+                // We already have a record for that payment transaction: we just update the response row with additional properties
+                // (the API can be called for instance after the user is redirected back from the HPP)
+                updateResponseWithAdditionalProperties(kbTransactionId, PluginProperties.merge(ImmutableMap.of(PROPERTY_HPP_COMPLETION, true), properties), context.getTenantId());
+            }
 
-        return buildPaymentTransactionInfoPlugin(stripeResponsesRecord);
+            return buildPaymentTransactionInfoPlugin(stripeResponsesRecord);
+        }
     }
 
     private void updateResponseWithAdditionalProperties(final UUID kbTransactionId, final Iterable<PluginProperty> properties, final UUID tenantId) throws PaymentPluginApiException {
@@ -676,10 +954,11 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                               public PaymentIntent execute(final Account account, final StripePaymentMethodsRecord paymentMethodsRecord, final StripeResponsesRecord previousResponse) throws StripeException {
                                                   final RequestOptions requestOptions = buildRequestOptions(context);
 
-                                                  final PaymentIntent intent = PaymentIntent.retrieve((String) StripeDao.fromAdditionalData(previousResponse.getAdditionalData()).get("id"), requestOptions);
+                                                  final PaymentIntent intent = PaymentIntent.retrieve(new StripeAdditionalData(previousResponse.getAdditionalData()).getId(), requestOptions);
                                                   final Map<String, Object> paymentIntentParams = new HashMap<String, Object>();
                                                   paymentIntentParams.put("amount_to_capture", KillBillMoney.toMinorUnits(currency.toString(), amount));
-                                                  return intent.capture(paymentIntentParams, requestOptions);
+                                                  final RequestOptions idempotentRequestOptions = buildRequestOptions(context, kbTransactionId, TransactionType.CAPTURE);
+                                                  return executeWithRetries(() -> intent.capture(paymentIntentParams, idempotentRequestOptions), context);
                                               }
                                           },
                                           kbAccountId,
@@ -694,23 +973,25 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
 
     @Override
     public PaymentTransactionInfoPlugin purchasePayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final UUID kbPaymentMethodId, final BigDecimal amount, final Currency currency, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
+        // The response update and the payment method lookup share a connection
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork()) {
+            final StripeResponsesRecord stripeResponsesRecord;
+            try {
+                stripeResponsesRecord = dao.updateResponse(kbTransactionId, properties, context.getTenantId());
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("HPP notification came through, but we encountered a database error", e);
+            }
 
-        final StripeResponsesRecord stripeResponsesRecord;
-        try {
-            stripeResponsesRecord = dao.updateResponse(kbTransactionId, properties, context.getTenantId());
-        } catch (final SQLException e) {
-            throw new PaymentPluginApiException("HPP notification came through, but we encountered a database error", e);
-        }
+            if (stripeResponsesRecord == null) {
+                // We don't have any record for that payment: we want to trigger an actual purchase (auto-capture) call
+                return executeInitialTransaction(TransactionType.PURCHASE, kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, properties, context);
+            } else {
+                // We already have a record for that payment transaction and we just updated the response row with additional properties
+                // (the API can be called for instance after the user is redirected back from the HPP)
+            }
 
-        if (stripeResponsesRecord == null) {
-            // We don't have any record for that payment: we want to trigger an actual purchase (auto-capture) call
-            return executeInitialTransaction(TransactionType.PURCHASE, kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, properties, context);
-        } else {
-            // We already have a record for that payment transaction and we just updated the response row with additional properties
-            // (the API can be called for instance after the user is redirected back from the HPP)
+            return buildPaymentTransactionInfoPlugin(stripeResponsesRecord);
         }
-
-        return buildPaymentTransactionInfoPlugin(stripeResponsesRecord);
     }
 
     @Override
@@ -722,8 +1003,9 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                               public PaymentIntent execute(final Account account, final StripePaymentMethodsRecord paymentMethodsRecord, final StripeResponsesRecord previousResponse) throws StripeException {
                                                   final RequestOptions requestOptions = buildRequestOptions(context);
 
-                                                  final PaymentIntent intent = PaymentIntent.retrieve((String) StripeDao.fromAdditionalData(previousResponse.getAdditionalData()).get("id"), requestOptions);
-                                                  return intent.cancel(requestOptions);
+                                                  final PaymentIntent intent = PaymentIntent.retrieve(new StripeAdditionalData(previousResponse.getAdditionalData()).getId(), requestOptions);
+                                                  final RequestOptions idempotentRequestOptions = buildRequestOptions(context, kbTransactionId, TransactionType.VOID);
+                                                  return executeWithRetries(() -> intent.cancel(idempotentRequestOptions), context);
 
                                               }
                                           },
@@ -750,17 +1032,18 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                               @Override
                                               public PaymentIntent execute(final Account account, final StripePaymentMethodsRecord paymentMethodsRecord, final StripeResponsesRecord previousResponse) throws StripeException {
                                                   final RequestOptions requestOptions = buildRequestOptions(context);
-                                                  final Map additionalData = StripeDao.fromAdditionalData(previousResponse.getAdditionalData());
+                                                  final StripeAdditionalData additionalData = new StripeAdditionalData(previousResponse.getAdditionalData());
 
-                                                  final String paymentIntent = (String) additionalData.get("id");
+                                                  final String paymentIntent = additionalData.getId();
                                                   // The PaymentIntent API doesn't have a refund API - refund the charge created behind the scenes instead
-                                                  final String lastChargeId = (String) additionalData.get("last_charge_id");
+                                                  final String lastChargeId = additionalData.getLastChargeId();
 
                                                   final Map<String, Object> params = new HashMap<>();
                                                   params.put("charge", lastChargeId);
                                                   params.put("amount", KillBillMoney.toMinorUnits(currency.toString(), amount));
 
-                                                  Refund.create(params, requestOptions);
+                                                  final RequestOptions idempotentRequestOptions = buildRequestOptions(context, kbTransactionId, TransactionType.REFUND);
+                                                  executeWithRetries(() -> Refund.create(params, idempotentRequestOptions), context);
 
                                                   return PaymentIntent.retrieve(paymentIntent, requestOptions);
                                               }
@@ -777,8 +1060,57 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
 
     @VisibleForTesting
     RequestOptions buildRequestOptions(final TenantContext context) {
-        final StripeConfigProperties stripeConfigProperties = stripeConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId());
-        return stripeConfigProperties.toRequestOptions();
+        return stripeClientRegistry.getRequestOptions(context.getTenantId());
+    }
+
+    RequestOptions buildRequestOptions(final TenantContext context, final UUID kbTransactionId, final TransactionType transactionType) {
+        return withIdempotencyKey(stripeClientRegistry.getConfig(context.getTenantId()), kbTransactionId, transactionType);
+    }
+
+    // One key per plugin call, shared by its network retries below so that Stripe replays the original outcome instead
+    // of charging twice. Not reused across plugin calls: Kill Bill completes a PENDING (3DS) transaction by calling the
+    // plugin again with the same kbTransactionId, which must reach Stripe. Built from the tenant configuration, as
+    // RequestOptions#toBuilder doesn't carry the timeouts and the proxy over
+    @VisibleForTesting
+    static RequestOptions withIdempotencyKey(final StripeConfigProperties stripeConfigProperties, final UUID kbTransactionId, final TransactionType transactionType) {
+        return stripeConfigProperties.toRequestOptionsBuilder()
+                                     .setIdempotencyKey("killbill-" + transactionType.toString().toLowerCase() + "-" + kbTransactionId + "-" + UUID.randomUUID())
+                                     .build();
+    }
+
+    private <T> T executeWithRetries(final StripeCall<T> call, final TenantContext context) throws StripeException {
+        return executeWithRetries(call, stripeConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()));
+    }
+
+    // Only for calls sent with an idempotency key: network errors (e.g. read timeouts) are retried with a jittered
+    // exponential backoff, instead of leaving the transaction UNDEFINED
+    private <T> T executeWithRetries(final StripeCall<T> call, final StripeConfigProperties stripeConfigProperties) throws StripeException {
+        int nbRetries = 0;
+        while (true) {
+            try {
+                return call.call();
+            } catch (final ApiConnectionException e) {
+                // Calls rejected before reaching Stripe (e.g. circuit open) would be rejected again
+                if (nbRetries >= stripeConfigProperties.getMaxNetworkRetries() || Throwables.getRootCause(e) instanceof StripeHttpClient.CallRejectedException) {
+                    throw e;
+                }
+                nbRetries++;
+
+                final long delayMillis = Math.min(MAX_NETWORK_RETRY_DELAY_MILLIS, INITIAL_NETWORK_RETRY_DELAY_MILLIS << (nbRetries - 1));
+                logger.warn("Network error calling Stripe, retrying ({}/{})", nbRetries, stripeConfigProperties.getMaxNetworkRetries(), e);
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(delayMillis / 2, delayMillis + 1));
+                } catch (final InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private interface StripeCall<T> {
+
+        T call() throws StripeException;
     }
 
     @Override
@@ -840,7 +1172,16 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
 
     @Override
     public GatewayNotification processNotification(final String notification, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
-        throw new PaymentPluginApiException("INTERNAL", "#processNotification not yet implemented, please contact support@killbill.io");
+        final String signatureHeader = PluginProperties.findPluginPropertyValue(StripeWebhookProcessor.PROPERTY_STRIPE_SIGNATURE, properties);
+        final Event event;
+        try {
+            event = webhookProcessor.receive(notification, signatureHeader, context.getTenantId());
+        } catch (final SignatureVerificationException e) {
+            throw new PaymentPluginApiException("USER", "Invalid Stripe webhook: " + e.getMessage());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to persist Stripe webhook", e);
+        }
+        return new PluginGatewayNotification(event.getId());
     }
 
     private abstract static class TransactionExecutor<T> {
@@ -869,8 +1210,6 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                          new TransactionExecutor<PaymentIntent>() {
                                              @Override
                                              public PaymentIntent execute(final Account account, final StripePaymentMethodsRecord paymentMethodsRecord) throws StripeException {
-                                                 final RequestOptions requestOptions = buildRequestOptions(context);
-
                                                  final CaptureMethod captureMethod = transactionType == TransactionType.AUTHORIZE ? CaptureMethod.MANUAL : CaptureMethod.AUTOMATIC;
 
                                                  final Map<String, Object> paymentIntentParams = new HashMap<>();
@@ -924,7 +1263,8 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                                  paymentIntentParams.put("statement_descriptor_suffix", stripeConfigProperties.getChargeStatementDescriptor());
 
                                                  logger.info("Creating Stripe PaymentIntent");
-                                                 return PaymentIntent.create(paymentIntentParams, requestOptions);
+                                                 final RequestOptions idempotentRequestOptions = buildRequestOptions(context, kbTransactionId, transactionType);
+                                                 return executeWithRetries(() -> PaymentIntent.create(paymentIntentParams, idempotentRequestOptions), stripeConfigProperties);
                                              }
                                          },
                                          kbAccountId,
@@ -947,40 +1287,45 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                                                    final Currency currency,
                                                                    final Iterable<PluginProperty> properties,
                                                                    final TenantContext context) throws PaymentPluginApiException {
-        final Account account = getAccount(kbAccountId, context);
-        final StripePaymentMethodsRecord nonNullPaymentMethodsRecord = getStripePaymentMethodsRecord(kbPaymentMethodId, context);
-        final DateTime utcNow = clock.getUTCNow();
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork()) {
+            final Account account = getAccount(kbAccountId, context);
+            final StripePaymentMethodsRecord nonNullPaymentMethodsRecord = getStripePaymentMethodsRecord(kbPaymentMethodId, context);
+            final DateTime utcNow = clock.getUTCNow();
 
-        PaymentIntent response = null;
-        StripeException stripeException = null;
-        final RequestOptions requestOptions = buildRequestOptions(context);
-        if (shouldSkipStripe(properties)) {
-            throw new UnsupportedOperationException("TODO");
-        } else {
-            try {
-                response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord);
-            } catch (final CardException e) {
+            // Don't hold on to the connection during the Stripe round trips
+            dao.releaseConnection();
+
+            PaymentIntent response = null;
+            StripeException stripeException = null;
+            final RequestOptions requestOptions = buildRequestOptions(context);
+            if (shouldSkipStripe(properties)) {
+                throw new UnsupportedOperationException("TODO");
+            } else {
                 try {
-                    final Charge charge = Charge.retrieve(e.getCharge(), requestOptions);
-                    final String paymentIntentId = charge.getPaymentIntent();
-                    final PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId, requestOptions);
-                    response = paymentIntent;
-                } catch (final StripeException e2) {
-                    logger.warn("Error connecting to Stripe", e2);
-                    stripeException = e2;
+                    response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord);
+                } catch (final CardException e) {
+                    try {
+                        final Charge charge = Charge.retrieve(e.getCharge(), requestOptions);
+                        final String paymentIntentId = charge.getPaymentIntent();
+                        final PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId, requestOptions);
+                        response = paymentIntent;
+                    } catch (final StripeException e2) {
+                        logger.warn("Error connecting to Stripe", e2);
+                        stripeException = e2;
+                    }
+                } catch (final StripeException e) {
+                    logger.warn("Error connecting to Stripe", e);
+                    stripeException = e;
                 }
-            } catch (final StripeException e) {
-                logger.warn("Error connecting to Stripe", e);
-                stripeException = e;
             }
-        }
 
-        try {
-            final Charge lastCharge = getLastCharge(response, Collections.emptyMap(), requestOptions);
-            final StripeResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, lastCharge, stripeException, utcNow, context.getTenantId());
-            return StripePaymentTransactionInfoPlugin.build(responsesRecord);
-        } catch (final SQLException e) {
-            throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + response, e);
+            try {
+                final Charge lastCharge = getLastCharge(response, requestOptions);
+                final StripeResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, lastCharge, stripeException, utcNow, context.getTenantId());
+                return StripePaymentTransactionInfoPlugin.build(responsesRecord);
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + response, e);
+            }
         }
     }
 
@@ -994,40 +1339,45 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                                                                     @Nullable final Currency currency,
                                                                     final Iterable<PluginProperty> properties,
                                                                     final TenantContext context) throws PaymentPluginApiException {
-        final Account account = getAccount(kbAccountId, context);
-        final StripePaymentMethodsRecord nonNullPaymentMethodsRecord = getStripePaymentMethodsRecord(kbPaymentMethodId, context);
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork()) {
+            final Account account = getAccount(kbAccountId, context);
+            final StripePaymentMethodsRecord nonNullPaymentMethodsRecord = getStripePaymentMethodsRecord(kbPaymentMethodId, context);
 
-        final StripeResponsesRecord previousResponse;
-        try {
-            previousResponse = dao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId());
-            if (previousResponse == null) {
-                throw new PaymentPluginApiException(null, "Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId);
+            final StripeResponsesRecord previousResponse;
+            try {
+                previousResponse = dao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId());
+                if (previousResponse == null) {
+                    throw new PaymentPluginApiException(null, "Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId);
+                }
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId, e);
             }
-        } catch (final SQLException e) {
-            throw new PaymentPluginApiException("Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId, e);
-        }
 
-        final DateTime utcNow = clock.getUTCNow();
+            final DateTime utcNow = clock.getUTCNow();
 
-        PaymentIntent response = null;
-        StripeException stripeException = null;
-        if (shouldSkipStripe(properties)) {
-            throw new UnsupportedOperationException("TODO");
-        } else {
-            try {
-                response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord, previousResponse);
-            } catch (final StripeException e) {
-                logger.warn("Error connecting to Stripe", e);
-                stripeException = e;
+            // Don't hold on to the connection during the Stripe round trips
+            dao.releaseConnection();
+
+            PaymentIntent response = null;
+            StripeException stripeException = null;
+            if (shouldSkipStripe(properties)) {
+                throw new UnsupportedOperationException("TODO");
+            } else {
+                try {
+                    response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord, previousResponse);
+                } catch (final StripeException e) {
+                    logger.warn("Error connecting to Stripe", e);
+                    stripeException = e;
+                }
             }
-        }
 
-        try {
-            final Charge lastCharge = getLastCharge(response, Collections.emptyMap(), buildRequestOptions(context));
-            final StripeResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, lastCharge, stripeException, utcNow, context.getTenantId());
-            return StripePaymentTransactionInfoPlugin.build(responsesRecord);
-        } catch (final SQLException e) {
-            throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + response, e);
+            try {
+                final Charge lastCharge = getLastCharge(response, buildRequestOptions(context));
+                final StripeResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, lastCharge, stripeException, utcNow, context.getTenantId());
+                return StripePaymentTransactionInfoPlugin.build(responsesRecord);
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + response, e);
+            }
         }
     }
 
@@ -1040,6 +1390,11 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
     }
 
     private String getCustomerIdNoException(final UUID kbAccountId, final CallContext context) {
+        final String cachedStripeCustomerId = stripeCustomerIdCache.getIfPresent(context.getTenantId(), kbAccountId);
+        if (cachedStripeCustomerId != null) {
+            return cachedStripeCustomerId;
+        }
+
         final List<CustomField> customFields = killbillAPI.getCustomFieldUserApi().getCustomFieldsForAccountType(kbAccountId, ObjectType.ACCOUNT, context);
         String stripeCustomerId = null;
         for (final CustomField customField : customFields) {
@@ -1048,6 +1403,9 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
                 break;
             }
         }
+        if (stripeCustomerId != null) {
+            stripeCustomerIdCache.put(context.getTenantId(), kbAccountId, stripeCustomerId);
+        }
         return stripeCustomerId;
     }
 
@@ -1077,19 +1435,49 @@ public class StripePaymentPluginApi extends PluginPaymentPluginApi<StripeRespons
         return "true".equals(PluginProperties.findPluginPropertyValue("skipGw", properties)) || "true".equals(PluginProperties.findPluginPropertyValue("skip_gw", properties));
     }
 
-    private Charge getLastCharge(@Nullable final PaymentIntent stripePaymentIntent,
-                                 final Map<String, Object> params,
-                                 final RequestOptions requestOptions) {
+    // The charges embedded in the PaymentIntent are its most recent ones, so Stripe is only called (once, for the newest
+    // charge) when they don't all fit in that first page. latest_charge isn't available with our API version (2020-08-27).
+    private Charge getLastCharge(@Nullable final PaymentIntent stripePaymentIntent, final RequestOptions requestOptions) {
         if (stripePaymentIntent == null || stripePaymentIntent.getCharges() == null) {
             return null;
         }
 
+        final ChargeCollection charges = stripePaymentIntent.getCharges();
+        if (!Boolean.TRUE.equals(charges.getHasMore())) {
+            embeddedChargeLookups.incrementAndGet();
+            return getNewestCharge(charges.getData());
+        }
+
+        listedChargeLookups.incrementAndGet();
+        final Map<String, Object> params = new HashMap<String, Object>();
+        params.put("payment_intent", stripePaymentIntent.getId());
+        // Newest first
+        params.put("limit", 1);
+        try {
+            return getNewestCharge(Charge.list(params, requestOptions).getData());
+        } catch (final StripeException e) {
+            logger.warn("Unable to list the charges of Stripe PaymentIntent {}, using the embedded ones", stripePaymentIntent.getId(), e);
+            return getNewestCharge(charges.getData());
+        }
+    }
+
+    @Nullable
+    private static Charge getNewestCharge(@Nullable final Iterable<Charge> charges) {
+        if (charges == null) {
+            return null;
+        }
+
         Charge lastCharge = null;
-        for (final Charge charge : stripePaymentIntent.getCharges().autoPagingIterable(params, requestOptions)) {
+        for (final Charge charge : charges) {
             if (lastCharge == null || lastCharge.getCreated() < charge.getCreated()) {
                 lastCharge = charge;
             }
         }
         return lastCharge;
     }
+
+    public Map<String, Object> getChargeLookupStats() {
+        return ImmutableMap.<String, Object>of("embedded", embeddedChargeLookups.get(),
+                                               "listed", listedChargeLookups.get());
+    }
 }
@@ -33,7 +33,7 @@ import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.api.payment.PluginPaymentTransactionInfoPlugin;
-import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.StripeAdditionalData;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
 
 import com.google.common.base.Strings;
@@ -44,23 +44,27 @@ public class StripePaymentTransactionInfoPlugin extends PluginPaymentTransaction
     private static final int ERROR_CODE_MAX_LENGTH = 32;
 
     private final StripeResponsesRecord stripeResponseRecord;
+    private final StripeAdditionalData stripeAdditionalData;
 
     public static StripePaymentTransactionInfoPlugin build(final StripeResponsesRecord stripeResponsesRecord) {
-        final Map additionalData = StripeDao.fromAdditionalData(stripeResponsesRecord.getAdditionalData());
-        final String firstPaymentReferenceId = (String) additionalData.get("last_charge_id");
-        final String secondPaymentReferenceId = (String) additionalData.get("last_charge_authorization_code");
+        final StripeAdditionalData stripeAdditionalData = new StripeAdditionalData(stripeResponsesRecord.getAdditionalData());
+        // The plugin properties need the full map: parse it once, the typed accessors below reuse it
+        final Map additionalData = stripeAdditionalData.getMap();
+        final String firstPaymentReferenceId = stripeAdditionalData.getLastChargeId();
+        final String secondPaymentReferenceId = stripeAdditionalData.getLastChargeAuthorizationCode();
 
         final DateTime responseDate = new DateTime(stripeResponsesRecord.getCreatedDate()
                                                                         .atZone(ZoneOffset.UTC)
                                                                         .toInstant()
                                                                         .toEpochMilli(), DateTimeZone.UTC);
         return new StripePaymentTransactionInfoPlugin(stripeResponsesRecord,
+                                                      stripeAdditionalData,
                                                       UUID.fromString(stripeResponsesRecord.getKbPaymentId()),
                                                       UUID.fromString(stripeResponsesRecord.getKbPaymentTransactionId()),
                                                       TransactionType.valueOf(stripeResponsesRecord.getTransactionType()),
                                                       stripeResponsesRecord.getAmount(),
                                                       Strings.isNullOrEmpty(stripeResponsesRecord.getCurrency()) ? null : Currency.valueOf(stripeResponsesRecord.getCurrency()),
-                                                      getPaymentPluginStatus(additionalData),
+                                                      getPaymentPluginStatus(stripeAdditionalData),
                                                       getGatewayError(additionalData),
                                                       truncate(getGatewayErrorCode(additionalData)),
                                                       firstPaymentReferenceId,
@@ -70,14 +74,17 @@ public class StripePaymentTransactionInfoPlugin extends PluginPaymentTransaction
                                                       PluginProperties.buildPluginProperties(additionalData));
     }
 
-    private static PaymentPluginStatus getPaymentPluginStatus(final Map additionalData) {
-        final String overriddenTransactionStatus = (String) additionalData.get(StripePaymentPluginApi.PROPERTY_OVERRIDDEN_TRANSACTION_STATUS);
+    /**
+     * Only the top-level scalars are needed, except for failed 3DS intents (last_payment_error).
+     */
+    public static PaymentPluginStatus getPaymentPluginStatus(final StripeAdditionalData additionalData) {
+        final String overriddenTransactionStatus = additionalData.getString(StripePaymentPluginApi.PROPERTY_OVERRIDDEN_TRANSACTION_STATUS);
         if (overriddenTransactionStatus != null) {
             return PaymentPluginStatus.valueOf(overriddenTransactionStatus);
         }
 
-        final String status = (String) additionalData.get("status");
-        final String lastChargeStatus = (String) additionalData.get("last_charge_status");
+        final String status = additionalData.getStatus();
+        final String lastChargeStatus = additionalData.getLastChargeStatus();
         if ("succeeded".equals(lastChargeStatus)) {
             return PaymentPluginStatus.PROCESSED;
         } else if ("pending".equals(lastChargeStatus)) {
@@ -96,8 +103,8 @@ public class StripePaymentTransactionInfoPlugin extends PluginPaymentTransaction
                 return PaymentPluginStatus.ERROR;
             }
             if ("requires_payment_method".equals(status)
-                && additionalData.get("last_payment_error") != null
-                && "payment_intent_authentication_failure".equals(((Map) additionalData.get("last_payment_error")).get("code"))) {
+                && additionalData.getMap().get("last_payment_error") != null
+                && "payment_intent_authentication_failure".equals(((Map) additionalData.getMap().get("last_payment_error")).get("code"))) {
                 // Failed 3DS intent, but not yet cancelled
                 return PaymentPluginStatus.PENDING;
             }
@@ -132,6 +139,7 @@ public class StripePaymentTransactionInfoPlugin extends PluginPaymentTransaction
     }
 
     public StripePaymentTransactionInfoPlugin(final StripeResponsesRecord stripeResponsesRecord,
+                                              final StripeAdditionalData stripeAdditionalData,
                                               final UUID kbPaymentId,
                                               final UUID kbTransactionPaymentPaymentId,
                                               final TransactionType transactionType,
@@ -159,12 +167,17 @@ public class StripePaymentTransactionInfoPlugin extends PluginPaymentTransaction
               effectiveDate,
               properties);
         this.stripeResponseRecord = stripeResponsesRecord;
+        this.stripeAdditionalData = stripeAdditionalData;
     }
 
     public StripeResponsesRecord getStripeResponseRecord() {
         return stripeResponseRecord;
     }
 
+    public StripeAdditionalData getStripeAdditionalData() {
+        return stripeAdditionalData;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.jooq.types.ULong;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.api.PluginTenantContext;
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Expires and refreshes PENDING and UNDEFINED payments in the background, for the tenants which have enabled
+ * backgroundReconciliation (getPaymentInfo is then a pure database read for these tenants).
+ * <p/>
+ * Each pass pages through the responses flagged as unresolved (stripe_responses.is_unresolved) created within
+ * reconciliationLookbackPeriod, so it doesn't read the resolved ones. A tenant is reconciled by one node at a time:
+ * the node holds a lease on the tenant (stripe_leases), renewed page after page, which the other nodes can only
+ * take over once it expired (e.g. the node went away) or was released (the reconciler was stopped).
+ */
+public class StripePendingPaymentReconciler {
+
+    @VisibleForTesting
+    static final String LEASE_NAME = "reconciler";
+
+    private static final Logger logger = LoggerFactory.getLogger(StripePendingPaymentReconciler.class);
+
+    private final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    private final StripePaymentPluginApi stripePaymentPluginApi;
+    private final StripeDao dao;
+    private final Clock clock;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final RateLimiter rateLimiter;
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    private ScheduledExecutorService scheduler;
+
+    public StripePendingPaymentReconciler(final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler,
+                                          final StripePaymentPluginApi stripePaymentPluginApi,
+                                          final StripeDao dao,
+                                          final Clock clock,
+                                          final StripeConfigProperties stripeConfigProperties) {
+        this.stripeConfigPropertiesConfigurationHandler = stripeConfigPropertiesConfigurationHandler;
+        this.stripePaymentPluginApi = stripePaymentPluginApi;
+        this.dao = dao;
+        this.clock = clock;
+        this.intervalMillis = stripeConfigProperties.getReconciliationInterval();
+        this.batchSize = stripeConfigProperties.getReconciliationBatchSize();
+        this.rateLimiter = RateLimiter.create(stripeConfigProperties.getReconciliationRate());
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = StripeExecutors.newSingleThreadScheduledExecutor("stripe-reconciler");
+        scheduler.scheduleWithFixedDelay(this::runSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            try {
+                dao.releaseLeases(LEASE_NAME, leaseOwner);
+            } catch (final SQLException e) {
+                // The leases will expire
+                logger.warn("Unable to release the reconciliation leases of owner={}", leaseOwner, e);
+            }
+        }
+    }
+
+    private void runSafely() {
+        try {
+            reconcile();
+        } catch (final Exception e) {
+            // Don't let the exception cancel the next runs
+            logger.warn("Unable to reconcile pending Stripe payments", e);
+        }
+    }
+
+    /**
+     * @return the number of payments reconciled against Stripe
+     */
+    @VisibleForTesting
+    int reconcile() throws SQLException {
+        // The default configuration is used to discover the tenants: the lookback period of each tenant applies below
+        final DateTime discoverySince = clock.getUTCNow().minus(stripeConfigPropertiesConfigurationHandler.getConfigurable(null).getReconciliationLookbackPeriod());
+
+        int nbReconciled = 0;
+        for (final UUID kbTenantId : dao.getTenantIdsWithUnresolvedResponsesCreatedSince(discoverySince)) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            if (!stripeConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId).isBackgroundReconciliation()) {
+                continue;
+            }
+            if (!acquireLease(kbTenantId)) {
+                logger.debug("Skipping reconciliation of kbTenantId={}, another node holds the lease", kbTenantId);
+                continue;
+            }
+            nbReconciled += reconcileTenant(kbTenantId);
+        }
+        return nbReconciled;
+    }
+
+    private int reconcileTenant(final UUID kbTenantId) throws SQLException {
+        final DateTime lookbackStart = clock.getUTCNow().minus(stripeConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId).getReconciliationLookbackPeriod());
+
+        final TenantContext context = new PluginTenantContext(null, kbTenantId);
+        final Set<UUID> kbPaymentIdsSeen = new HashSet<UUID>();
+        int nbReconciled = 0;
+
+        StripeResponsesRecord lastRecord = null;
+        List<StripeResponsesRecord> page;
+        do {
+            page = dao.getUnresolvedResponsesCreatedSince(kbTenantId, lookbackStart, lastRecord, batchSize);
+            final List<PaymentTransactionInfoPlugin> transactions = new ArrayList<PaymentTransactionInfoPlugin>(page.size());
+            for (final StripeResponsesRecord record : page) {
+                transactions.add(StripePaymentTransactionInfoPlugin.build(record));
+            }
+            // The UNDEFINED transactions of the page are searched in batches, the payments below then hit the cache
+            stripePaymentPluginApi.prefetchUndefinedTransactions(transactions, context);
+
+            final List<ULong> staleRecordIds = new ArrayList<ULong>();
+            for (int i = 0; i < page.size(); i++) {
+                final StripeResponsesRecord record = page.get(i);
+                final PaymentTransactionInfoPlugin transaction = transactions.get(i);
+                if (!isUnresolved(transaction.getStatus())) {
+                    // Flagged before it was resolved (the refreshes of the payment update the flag)
+                    staleRecordIds.add(record.getRecordId());
+                    continue;
+                }
+                if (!kbPaymentIdsSeen.add(transaction.getKbPaymentId())) {
+                    continue;
+                }
+
+                rateLimiter.acquire();
+                nbReconciled++;
+                reconcilePayment(UUID.fromString(record.getKbAccountId()), transaction.getKbPaymentId(), context);
+            }
+            dao.clearUnresolvedFlags(staleRecordIds);
+
+            if (!page.isEmpty()) {
+                lastRecord = page.get(page.size() - 1);
+            }
+            // Renewing the lease also stops the pass if another node took it over meanwhile
+        } while (page.size() == batchSize && !Thread.currentThread().isInterrupted() && acquireLease(kbTenantId));
+
+        return nbReconciled;
+    }
+
+    // The lease outlives a missed pass: the other nodes only take it over if this node stopped renewing it
+    private boolean acquireLease(final UUID kbTenantId) throws SQLException {
+        final DateTime utcNow = clock.getUTCNow();
+        return dao.tryAcquireLease(LEASE_NAME, leaseOwner, utcNow.plus(2 * intervalMillis), utcNow, kbTenantId);
+    }
+
+    private void reconcilePayment(final UUID kbAccountId, final UUID kbPaymentId, final TenantContext context) {
+        try {
+            stripePaymentPluginApi.reconcilePayment(kbAccountId, kbPaymentId, context);
+        } catch (final PaymentPluginApiException e) {
+            logger.warn("Unable to reconcile kbPaymentId={}", kbPaymentId, e);
+        }
+    }
+
+    private static boolean isUnresolved(final PaymentPluginStatus status) {
+        return status == PaymentPluginStatus.PENDING || status == PaymentPluginStatus.UNDEFINED;
+    }
+}
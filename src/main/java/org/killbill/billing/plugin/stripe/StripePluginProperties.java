@@ -24,6 +24,7 @@ import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import javax.annotation.Nullable;
 
@@ -141,49 +142,51 @@ public abstract class StripePluginProperties {
 
     public static Map<String, Object> toAdditionalDataMap(final PaymentMethod stripePaymentMethod) {
         final Map<String, Object> additionalDataMap = new HashMap<String, Object>();
+        writeAdditionalData(stripePaymentMethod, additionalDataMap::put);
+        return additionalDataMap;
+    }
 
+    static void writeAdditionalData(final PaymentMethod stripePaymentMethod, final BiConsumer<String, Object> additionalData) {
         final Card card = stripePaymentMethod.getCard();
         if (card != null) {
-            additionalDataMap.put("card_brand", card.getBrand());
+            additionalData.accept("card_brand", card.getBrand());
             if (card.getChecks() != null) {
-                additionalDataMap.put("card_address_line1_check", card.getChecks().getAddressLine1Check());
-                additionalDataMap.put("card_address_postal_code_check", card.getChecks().getAddressPostalCodeCheck());
-                additionalDataMap.put("card_cvc_check", card.getChecks().getCvcCheck());
+                additionalData.accept("card_address_line1_check", card.getChecks().getAddressLine1Check());
+                additionalData.accept("card_address_postal_code_check", card.getChecks().getAddressPostalCodeCheck());
+                additionalData.accept("card_cvc_check", card.getChecks().getCvcCheck());
             }
-            additionalDataMap.put("card_country", card.getCountry());
-            additionalDataMap.put("card_description", card.getDescription());
-            additionalDataMap.put("card_exp_month", card.getExpMonth());
-            additionalDataMap.put("card_exp_year", card.getExpYear());
-            additionalDataMap.put("card_fingerprint", card.getFingerprint());
-            additionalDataMap.put("card_funding", card.getFunding());
-            additionalDataMap.put("card_iin", card.getIin());
-            additionalDataMap.put("card_issuer", card.getIssuer());
-            additionalDataMap.put("card_last4", card.getLast4());
+            additionalData.accept("card_country", card.getCountry());
+            additionalData.accept("card_description", card.getDescription());
+            additionalData.accept("card_exp_month", card.getExpMonth());
+            additionalData.accept("card_exp_year", card.getExpYear());
+            additionalData.accept("card_fingerprint", card.getFingerprint());
+            additionalData.accept("card_funding", card.getFunding());
+            additionalData.accept("card_iin", card.getIin());
+            additionalData.accept("card_issuer", card.getIssuer());
+            additionalData.accept("card_last4", card.getLast4());
             if (card.getThreeDSecureUsage() != null) {
-                additionalDataMap.put("card_three_d_secure_usage_support", card.getThreeDSecureUsage().getSupported());
+                additionalData.accept("card_three_d_secure_usage_support", card.getThreeDSecureUsage().getSupported());
             }
             if (card.getWallet() != null) {
-                additionalDataMap.put("card_wallet_type", card.getWallet().getType());
+                additionalData.accept("card_wallet_type", card.getWallet().getType());
             }
         }
         final PaymentMethod.SepaDebit sepaDebit = stripePaymentMethod.getSepaDebit();
         if (sepaDebit != null) {
-            additionalDataMap.put("sepa_debit_bank_code", sepaDebit.getBankCode());
-            additionalDataMap.put("sepa_debit_branch_code", sepaDebit.getBranchCode());
-            additionalDataMap.put("sepa_debit_country", sepaDebit.getCountry());
-            additionalDataMap.put("sepa_debit_fingerprint", sepaDebit.getFingerprint());
-            additionalDataMap.put("sepa_debit_last4", sepaDebit.getLast4());
+            additionalData.accept("sepa_debit_bank_code", sepaDebit.getBankCode());
+            additionalData.accept("sepa_debit_branch_code", sepaDebit.getBranchCode());
+            additionalData.accept("sepa_debit_country", sepaDebit.getCountry());
+            additionalData.accept("sepa_debit_fingerprint", sepaDebit.getFingerprint());
+            additionalData.accept("sepa_debit_last4", sepaDebit.getLast4());
         }
 
-        additionalDataMap.put("created", stripePaymentMethod.getCreated());
-        additionalDataMap.put("customer_id", stripePaymentMethod.getCustomer());
-        additionalDataMap.put("id", stripePaymentMethod.getId());
-        additionalDataMap.put("livemode", stripePaymentMethod.getLivemode());
-        additionalDataMap.put("metadata", stripePaymentMethod.getMetadata());
-        additionalDataMap.put("object", stripePaymentMethod.getObject());
-        additionalDataMap.put("type", stripePaymentMethod.getType());
-
-        return additionalDataMap;
+        additionalData.accept("created", stripePaymentMethod.getCreated());
+        additionalData.accept("customer_id", stripePaymentMethod.getCustomer());
+        additionalData.accept("id", stripePaymentMethod.getId());
+        additionalData.accept("livemode", stripePaymentMethod.getLivemode());
+        additionalData.accept("metadata", stripePaymentMethod.getMetadata());
+        additionalData.accept("object", stripePaymentMethod.getObject());
+        additionalData.accept("type", stripePaymentMethod.getType());
     }
 
     public static Map<String, Object> toAdditionalDataMap(final StripeException stripeException) {
@@ -242,117 +245,125 @@ public abstract class StripePluginProperties {
 
     public static Map<String, Object> toAdditionalDataMap(final PaymentIntent stripePaymentIntent, @Nullable final Charge lastCharge) {
         final Map<String, Object> additionalDataMap = new HashMap<String, Object>();
+        writeAdditionalData(stripePaymentIntent, lastCharge, additionalDataMap::put);
+        return additionalDataMap;
+    }
 
-        additionalDataMap.put("amount", stripePaymentIntent.getAmount());
-        additionalDataMap.put("amount_capturable", stripePaymentIntent.getAmountCapturable());
-        additionalDataMap.put("amount_received", stripePaymentIntent.getAmountReceived());
-        additionalDataMap.put("application", stripePaymentIntent.getApplication());
-        additionalDataMap.put("application_fee_amount", stripePaymentIntent.getApplicationFeeAmount());
-        additionalDataMap.put("canceled_at", stripePaymentIntent.getCanceledAt());
-        additionalDataMap.put("cancellation_reason", stripePaymentIntent.getCancellationReason());
-        additionalDataMap.put("capture_method", stripePaymentIntent.getCaptureMethod());
-        additionalDataMap.put("confirmation_method", stripePaymentIntent.getConfirmationMethod());
-        additionalDataMap.put("created", stripePaymentIntent.getCreated());
-        additionalDataMap.put("currency", stripePaymentIntent.getCurrency());
-        additionalDataMap.put("customer_id", stripePaymentIntent.getCustomer());
-        additionalDataMap.put("description", stripePaymentIntent.getDescription());
-        additionalDataMap.put("id", stripePaymentIntent.getId());
-        additionalDataMap.put("invoice_id", stripePaymentIntent.getInvoice());
-        additionalDataMap.put("last_payment_error", stripePaymentIntent.getLastPaymentError());
-        additionalDataMap.put("livemode", stripePaymentIntent.getLivemode());
-        additionalDataMap.put("metadata", stripePaymentIntent.getMetadata());
-        additionalDataMap.put("next_action", stripePaymentIntent.getNextAction());
-        additionalDataMap.put("object", stripePaymentIntent.getObject());
-        additionalDataMap.put("on_behalf_of", stripePaymentIntent.getOnBehalfOf());
-        additionalDataMap.put("payment_method_id", stripePaymentIntent.getPaymentMethod());
-        additionalDataMap.put("payment_method_types", stripePaymentIntent.getPaymentMethodTypes());
-        additionalDataMap.put("review_id", stripePaymentIntent.getReview());
-        additionalDataMap.put("statement_descriptor", stripePaymentIntent.getStatementDescriptor());
-        additionalDataMap.put("status", stripePaymentIntent.getStatus());
-        additionalDataMap.put("transfer_group", stripePaymentIntent.getTransferGroup());
+    static void writeAdditionalData(final PaymentIntent stripePaymentIntent, @Nullable final Charge lastCharge, final BiConsumer<String, Object> additionalData) {
+        additionalData.accept("amount", stripePaymentIntent.getAmount());
+        additionalData.accept("amount_capturable", stripePaymentIntent.getAmountCapturable());
+        additionalData.accept("amount_received", stripePaymentIntent.getAmountReceived());
+        additionalData.accept("application", stripePaymentIntent.getApplication());
+        additionalData.accept("application_fee_amount", stripePaymentIntent.getApplicationFeeAmount());
+        additionalData.accept("canceled_at", stripePaymentIntent.getCanceledAt());
+        additionalData.accept("cancellation_reason", stripePaymentIntent.getCancellationReason());
+        additionalData.accept("capture_method", stripePaymentIntent.getCaptureMethod());
+        additionalData.accept("confirmation_method", stripePaymentIntent.getConfirmationMethod());
+        additionalData.accept("created", stripePaymentIntent.getCreated());
+        additionalData.accept("currency", stripePaymentIntent.getCurrency());
+        additionalData.accept("customer_id", stripePaymentIntent.getCustomer());
+        additionalData.accept("description", stripePaymentIntent.getDescription());
+        additionalData.accept("id", stripePaymentIntent.getId());
+        additionalData.accept("invoice_id", stripePaymentIntent.getInvoice());
+        additionalData.accept("last_payment_error", stripePaymentIntent.getLastPaymentError());
+        additionalData.accept("livemode", stripePaymentIntent.getLivemode());
+        additionalData.accept("metadata", stripePaymentIntent.getMetadata());
+        additionalData.accept("next_action", stripePaymentIntent.getNextAction());
+        additionalData.accept("object", stripePaymentIntent.getObject());
+        additionalData.accept("on_behalf_of", stripePaymentIntent.getOnBehalfOf());
+        additionalData.accept("payment_method_id", stripePaymentIntent.getPaymentMethod());
+        additionalData.accept("payment_method_types", stripePaymentIntent.getPaymentMethodTypes());
+        additionalData.accept("review_id", stripePaymentIntent.getReview());
+        additionalData.accept("statement_descriptor", stripePaymentIntent.getStatementDescriptor());
+        additionalData.accept("status", stripePaymentIntent.getStatus());
+        additionalData.accept("transfer_group", stripePaymentIntent.getTransferGroup());
 
         if (lastCharge != null) {
             // Keep the state for the last charge (maps to our payment transaction)
-            additionalDataMap.put("last_charge_amount", lastCharge.getAmount());
-            additionalDataMap.put("last_charge_authorization_code", lastCharge.getAuthorizationCode());
-            additionalDataMap.put("last_charge_balance_transaction_id", lastCharge.getBalanceTransaction());
-            additionalDataMap.put("last_charge_created", lastCharge.getCreated());
-            additionalDataMap.put("last_charge_currency", lastCharge.getCurrency());
-            additionalDataMap.put("last_charge_description", lastCharge.getDescription());
-            additionalDataMap.put("last_charge_failure_code", lastCharge.getFailureCode());
-            additionalDataMap.put("last_charge_failure_message", lastCharge.getFailureMessage());
-            additionalDataMap.put("last_charge_id", lastCharge.getId());
-            additionalDataMap.put("last_charge_metadata", lastCharge.getMetadata());
-            additionalDataMap.put("last_charge_object", lastCharge.getObject());
-            additionalDataMap.put("last_charge_outcome", lastCharge.getOutcome());
-            additionalDataMap.put("last_charge_paid", lastCharge.getPaid());
-            additionalDataMap.put("last_charge_payment_method_id", lastCharge.getPaymentMethod());
+            additionalData.accept("last_charge_amount", lastCharge.getAmount());
+            additionalData.accept("last_charge_authorization_code", lastCharge.getAuthorizationCode());
+            additionalData.accept("last_charge_balance_transaction_id", lastCharge.getBalanceTransaction());
+            additionalData.accept("last_charge_created", lastCharge.getCreated());
+            additionalData.accept("last_charge_currency", lastCharge.getCurrency());
+            additionalData.accept("last_charge_description", lastCharge.getDescription());
+            additionalData.accept("last_charge_failure_code", lastCharge.getFailureCode());
+            additionalData.accept("last_charge_failure_message", lastCharge.getFailureMessage());
+            additionalData.accept("last_charge_id", lastCharge.getId());
+            additionalData.accept("last_charge_metadata", lastCharge.getMetadata());
+            additionalData.accept("last_charge_object", lastCharge.getObject());
+            additionalData.accept("last_charge_outcome", lastCharge.getOutcome());
+            additionalData.accept("last_charge_paid", lastCharge.getPaid());
+            additionalData.accept("last_charge_payment_method_id", lastCharge.getPaymentMethod());
             if (lastCharge.getPaymentMethodDetails() != null) {
-                additionalDataMap.put("last_charge_payment_method_type", lastCharge.getPaymentMethodDetails().getType());
+                additionalData.accept("last_charge_payment_method_type", lastCharge.getPaymentMethodDetails().getType());
             }
-            additionalDataMap.put("last_charge_statement_descriptor", lastCharge.getStatementDescriptor());
-            additionalDataMap.put("last_charge_status", lastCharge.getStatus());
+            additionalData.accept("last_charge_statement_descriptor", lastCharge.getStatementDescriptor());
+            additionalData.accept("last_charge_status", lastCharge.getStatus());
         }
 
-        return additionalDataMap;
     }
 
     public static Map<String, Object> toAdditionalDataMap(final SetupIntent stripeSetupIntent) {
         final Map<String, Object> additionalDataMap = new HashMap<String, Object>();
+        writeAdditionalData(stripeSetupIntent, additionalDataMap::put);
+        return additionalDataMap;
+    }
 
-        additionalDataMap.put("application", stripeSetupIntent.getApplication());
-        additionalDataMap.put("cancellation_reason", stripeSetupIntent.getCancellationReason());
-        additionalDataMap.put("created", stripeSetupIntent.getCreated());
-        additionalDataMap.put("customer_id", stripeSetupIntent.getCustomer());
-        additionalDataMap.put("description", stripeSetupIntent.getDescription());
-        additionalDataMap.put("id", stripeSetupIntent.getId());
-        additionalDataMap.put("last_setup_error", stripeSetupIntent.getLastSetupError());
-        additionalDataMap.put("latest_attempt", stripeSetupIntent.getLatestAttempt());
-        additionalDataMap.put("livemode", stripeSetupIntent.getLivemode());
-        additionalDataMap.put("mandate", stripeSetupIntent.getMandate());
-        additionalDataMap.put("metadata", stripeSetupIntent.getMetadata());
-        additionalDataMap.put("next_action", stripeSetupIntent.getNextAction());
-        additionalDataMap.put("object", stripeSetupIntent.getObject());
-        additionalDataMap.put("on_behalf_of", stripeSetupIntent.getOnBehalfOf());
-        additionalDataMap.put("payment_method_id", stripeSetupIntent.getPaymentMethod());
+    static void writeAdditionalData(final SetupIntent stripeSetupIntent, final BiConsumer<String, Object> additionalData) {
+        additionalData.accept("application", stripeSetupIntent.getApplication());
+        additionalData.accept("cancellation_reason", stripeSetupIntent.getCancellationReason());
+        additionalData.accept("created", stripeSetupIntent.getCreated());
+        additionalData.accept("customer_id", stripeSetupIntent.getCustomer());
+        additionalData.accept("description", stripeSetupIntent.getDescription());
+        additionalData.accept("id", stripeSetupIntent.getId());
+        additionalData.accept("last_setup_error", stripeSetupIntent.getLastSetupError());
+        additionalData.accept("latest_attempt", stripeSetupIntent.getLatestAttempt());
+        additionalData.accept("livemode", stripeSetupIntent.getLivemode());
+        additionalData.accept("mandate", stripeSetupIntent.getMandate());
+        additionalData.accept("metadata", stripeSetupIntent.getMetadata());
+        additionalData.accept("next_action", stripeSetupIntent.getNextAction());
+        additionalData.accept("object", stripeSetupIntent.getObject());
+        additionalData.accept("on_behalf_of", stripeSetupIntent.getOnBehalfOf());
+        additionalData.accept("payment_method_id", stripeSetupIntent.getPaymentMethod());
         final PaymentMethodOptions paymentMethodOptions = stripeSetupIntent.getPaymentMethodOptions();
         if (paymentMethodOptions != null ) {
             final SetupIntent.PaymentMethodOptions.Card card = paymentMethodOptions.getCard();
             if (card != null) {
-                additionalDataMap.put("payment_method_options_card_request_three_d_secure", card.getRequestThreeDSecure());
+                additionalData.accept("payment_method_options_card_request_three_d_secure", card.getRequestThreeDSecure());
             }
             // paymentMethodOptions also contains "sepa_debit" which contains "mandate_options" that currently has
             // no properties, so it is ignored here (https://stripe.com/docs/api/setup_intents/object)
         }
-        additionalDataMap.put("payment_method_types", stripeSetupIntent.getPaymentMethodTypes());
-        additionalDataMap.put("single_use_mandate_id", stripeSetupIntent.getSingleUseMandate());
-        additionalDataMap.put("status", stripeSetupIntent.getStatus());
-        additionalDataMap.put("usage", stripeSetupIntent.getUsage());
-
-        return additionalDataMap;
+        additionalData.accept("payment_method_types", stripeSetupIntent.getPaymentMethodTypes());
+        additionalData.accept("single_use_mandate_id", stripeSetupIntent.getSingleUseMandate());
+        additionalData.accept("status", stripeSetupIntent.getStatus());
+        additionalData.accept("usage", stripeSetupIntent.getUsage());
     }
 
     public static Map<String, Object> toAdditionalDataMap(final Session session, @Nullable final String pk) {
         final Map<String, Object> additionalDataMap = new HashMap<String, Object>();
+        writeAdditionalData(session, pk, additionalDataMap::put);
+        return additionalDataMap;
+    }
 
-        additionalDataMap.put("billing_address_collection", session.getBillingAddressCollection());
-        additionalDataMap.put("cancel_url", session.getCancelUrl());
-        additionalDataMap.put("client_reference_id", session.getClientReferenceId());
-        additionalDataMap.put("customer_id", session.getCustomer());
-        additionalDataMap.put("line_items", session.getLineItems());
-        additionalDataMap.put("id", session.getId());
-        additionalDataMap.put("livemode", session.getLivemode());
-        additionalDataMap.put("locale", session.getLocale());
-        additionalDataMap.put("object", session.getObject());
-        additionalDataMap.put("payment_intent_id", session.getPaymentIntent());
-        additionalDataMap.put("payment_method_types", session.getPaymentMethodTypes());
-        additionalDataMap.put("setup_intent_id", session.getSetupIntent());
-        additionalDataMap.put("subscription_id", session.getSubscription());
-        additionalDataMap.put("success_url", session.getSuccessUrl());
+    static void writeAdditionalData(final Session session, @Nullable final String pk, final BiConsumer<String, Object> additionalData) {
+        additionalData.accept("billing_address_collection", session.getBillingAddressCollection());
+        additionalData.accept("cancel_url", session.getCancelUrl());
+        additionalData.accept("client_reference_id", session.getClientReferenceId());
+        additionalData.accept("customer_id", session.getCustomer());
+        additionalData.accept("line_items", session.getLineItems());
+        additionalData.accept("id", session.getId());
+        additionalData.accept("livemode", session.getLivemode());
+        additionalData.accept("locale", session.getLocale());
+        additionalData.accept("object", session.getObject());
+        additionalData.accept("payment_intent_id", session.getPaymentIntent());
+        additionalData.accept("payment_method_types", session.getPaymentMethodTypes());
+        additionalData.accept("setup_intent_id", session.getSetupIntent());
+        additionalData.accept("subscription_id", session.getSubscription());
+        additionalData.accept("success_url", session.getSuccessUrl());
         if (pk != null) {
-            additionalDataMap.put("publishable_key", pk);
+            additionalData.accept("publishable_key", pk);
         }
 
-        return additionalDataMap;
     }
 }
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+/**
+ * Keep-alive HTTP/1.1 transport backed by the JDK HttpClient.
+ * <p/>
+ * With HTTP/1.1, each in-flight request holds its own connection: the number of connections is bounded by a semaphore
+ * (httpClientMaxConnections), idle connections being kept alive by the JDK pool for the next calls.
+ * <p/>
+ * The JDK client doesn't expose that pool, so connections are recycled by retiring the client owning them. Requests
+ * are spread over a few clients, each retired once idle for httpClientIdleTimeout or older than
+ * httpClientMaxConnectionLifetime (the first lifetimes are staggered, so the clients aren't all recycled at once).
+ * A retired client completes its in-flight requests, then its executor is shut down. On shutdown, all clients are retired.
+ */
+public class StripePooledHttpClient extends StripeHttpClient {
+
+    private static final int MAX_CLIENTS = 4;
+
+    private final Semaphore connections;
+    private final long idleTimeoutMillis;
+    private final long maxConnectionLifetimeMillis;
+    private final Duration connectTimeout;
+    private final ProxySelector proxySelector;
+    private final AtomicReferenceArray<PooledClient> pooledClients;
+    private final AtomicInteger nextPooledClient = new AtomicInteger();
+    private final AtomicLong createdClients = new AtomicLong();
+    private final AtomicInteger activeClients = new AtomicInteger();
+    private volatile boolean isShutdown;
+
+    public StripePooledHttpClient(final StripeConfigProperties stripeConfigProperties) {
+        super(stripeConfigProperties);
+        this.connections = new Semaphore(stripeConfigProperties.getHttpClientMaxConnections(), true);
+        this.idleTimeoutMillis = stripeConfigProperties.getHttpClientIdleTimeout();
+        this.maxConnectionLifetimeMillis = stripeConfigProperties.getHttpClientMaxConnectionLifetime();
+        this.connectTimeout = Duration.ofMillis(Integer.parseInt(stripeConfigProperties.getConnectionTimeout()));
+        if (stripeConfigProperties.getProxyHost() != null && stripeConfigProperties.getProxyPort() != -1) {
+            this.proxySelector = ProxySelector.of(new InetSocketAddress(stripeConfigProperties.getProxyHost(), stripeConfigProperties.getProxyPort()));
+        } else {
+            this.proxySelector = null;
+        }
+        this.pooledClients = new AtomicReferenceArray<PooledClient>(Math.max(1, Math.min(MAX_CLIENTS, stripeConfigProperties.getHttpClientMaxConnections())));
+    }
+
+    @Override
+    public StripeResponse request(final StripeRequest request) throws ApiConnectionException {
+        final HttpRequest httpRequest;
+        try {
+            httpRequest = buildRequest(request);
+        } catch (final IOException e) {
+            throw toApiConnectionException(e);
+        }
+
+        try {
+            // The request hasn't been sent yet: surface pool exhaustion as a connection failure (see StripePluginProperties#mapExceptionToCallResult)
+            if (!connections.tryAcquire(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw toRejectedException("Timed out waiting for a pooled connection");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw toRejectedException("Interrupted while waiting for a pooled connection");
+        }
+
+        final PooledClient pooledClient = acquireClient();
+        try {
+            final HttpResponse<String> response = pooledClient.client.send(httpRequest, BodyHandlers.ofString(StandardCharsets.UTF_8));
+            return new StripeResponse(response.statusCode(), HttpHeaders.of(response.headers().map()), response.body());
+        } catch (final HttpConnectTimeoutException e) {
+            final ConnectException connectException = new ConnectException(e.getMessage());
+            connectException.initCause(e);
+            throw toApiConnectionException(connectException);
+        } catch (final IOException e) {
+            throw toApiConnectionException(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw toApiConnectionException(new IOException("Interrupted during API request", e));
+        } finally {
+            pooledClient.release();
+            connections.release();
+            if (isShutdown) {
+                // Requests racing with the shutdown don't leave a client behind
+                retireClients();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+        retireClients();
+    }
+
+    private synchronized void retireClients() {
+        for (int i = 0; i < pooledClients.length(); i++) {
+            final PooledClient retired = pooledClients.getAndSet(i, null);
+            if (retired != null) {
+                retired.retire();
+            }
+        }
+    }
+
+    // Number of JDK clients built so far (i.e. initial ones and replacements of the retired ones)
+    @VisibleForTesting
+    long getCreatedClients() {
+        return createdClients.get();
+    }
+
+    // Number of JDK clients whose executor isn't shut down yet
+    @VisibleForTesting
+    int getActiveClients() {
+        return activeClients.get();
+    }
+
+    private HttpRequest buildRequest(final StripeRequest request) throws IOException {
+        final HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(resolveUrl(request).toURI());
+        } catch (final URISyntaxException e) {
+            throw new IOException(e);
+        }
+
+        builder.timeout(Duration.ofMillis(request.options().getReadTimeout()));
+        for (final Map.Entry<String, List<String>> header : buildHeaders(request).map().entrySet()) {
+            builder.header(header.getKey(), String.join(",", header.getValue()));
+        }
+
+        if (request.content() != null) {
+            builder.header("Content-Type", request.content().contentType());
+            builder.method(request.method().name(), BodyPublishers.ofByteArray(request.content().byteArrayContent()));
+        } else {
+            builder.method(request.method().name(), BodyPublishers.noBody());
+        }
+
+        return builder.build();
+    }
+
+    // The returned client must be released once the request completed
+    private PooledClient acquireClient() {
+        final int index = Math.floorMod(nextPooledClient.getAndIncrement(), pooledClients.length());
+        final long now = System.currentTimeMillis();
+
+        PooledClient current = pooledClients.get(index);
+        if (current == null || current.isExpired(now) || !current.tryAcquire()) {
+            synchronized (this) {
+                current = pooledClients.get(index);
+                if (current == null || current.isExpired(now)) {
+                    final PooledClient retired = current;
+                    // Stagger the first lifetimes, for the clients not to be recycled together
+                    final long lifetimeMillis = retired == null ? maxConnectionLifetimeMillis * (index + 1) / pooledClients.length() : maxConnectionLifetimeMillis;
+                    current = new PooledClient(now, lifetimeMillis);
+                    pooledClients.set(index, current);
+                    if (retired != null) {
+                        retired.retire();
+                    }
+                }
+                // Clients are only retired under the lock: this one can't be
+                current.tryAcquire();
+            }
+        }
+        current.lastUsedMillis = now;
+        return current;
+    }
+
+    private java.net.http.HttpClient buildClient(final ExecutorService executor) {
+        final java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                                                                                 .version(Version.HTTP_1_1)
+                                                                                 .followRedirects(Redirect.NEVER)
+                                                                                 .connectTimeout(connectTimeout)
+                                                                                 .executor(executor);
+        if (proxySelector != null) {
+            builder.proxy(proxySelector);
+        }
+        if (isTrustAllCertificates()) {
+            try {
+                builder.sslContext(buildTrustAllSSLContext());
+            } catch (final GeneralSecurityException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        createdClients.incrementAndGet();
+        return builder.build();
+    }
+
+    // The JDK client verifies the host name in the trust manager (unless it is an X509ExtendedTrustManager), whatever
+    // the SSLParameters: this one accepts any certificate for any host
+    private static SSLContext buildTrustAllSSLContext() throws GeneralSecurityException {
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{new TrustAllTrustManager()}, new SecureRandom());
+        return sslContext;
+    }
+
+    private final class PooledClient {
+
+        private final ExecutorService executor;
+        private final java.net.http.HttpClient client;
+        private final long expirationMillis;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean shutdown = new AtomicBoolean();
+        private volatile boolean retired;
+        private volatile long lastUsedMillis;
+
+        private PooledClient(final long createdMillis, final long lifetimeMillis) {
+            this.executor = StripeExecutors.newCachedExecutor("stripe-http");
+            this.client = buildClient(executor);
+            activeClients.incrementAndGet();
+            this.expirationMillis = createdMillis + lifetimeMillis;
+            this.lastUsedMillis = createdMillis;
+        }
+
+        private boolean isExpired(final long now) {
+            return now > expirationMillis || now - lastUsedMillis > idleTimeoutMillis;
+        }
+
+        private boolean tryAcquire() {
+            inFlight.incrementAndGet();
+            if (retired) {
+                release();
+                return false;
+            }
+            return true;
+        }
+
+        private void release() {
+            if (inFlight.decrementAndGet() == 0 && retired) {
+                shutdown();
+            }
+        }
+
+        // In-flight requests complete, the executor (and so the client threads) is shut down after the last one
+        private void retire() {
+            retired = true;
+            if (inFlight.get() == 0) {
+                shutdown();
+            }
+        }
+
+        private void shutdown() {
+            if (shutdown.compareAndSet(false, true)) {
+                executor.shutdown();
+                activeClients.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class TrustAllTrustManager extends X509ExtendedTrustManager {
+
+        @Override
+        public void checkClientTrusted(final X509Certificate[] chain, final String authType, final Socket socket) {
+        }
+
+        @Override
+        public void checkServerTrusted(final X509Certificate[] chain, final String authType, final Socket socket) {
+        }
+
+        @Override
+        public void checkClientTrusted(final X509Certificate[] chain, final String authType, final SSLEngine engine) {
+        }
+
+        @Override
+        public void checkServerTrusted(final X509Certificate[] chain, final String authType, final SSLEngine engine) {
+        }
+
+        @Override
+        public void checkClientTrusted(final X509Certificate[] chain, final String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(final X509Certificate[] chain, final String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.ApiResource;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+/**
+ * Client-side token bucket for the API key of a tenant, so bursts (e.g. month-end billing) are smoothed out instead of
+ * being rejected by Stripe. The rate starts at rateLimit requests per second, is halved on each 429 (and the bucket paused
+ * for Retry-After, one second by default) and slowly grows back on success.
+ * <p/>
+ * A 429 with the lock_timeout error code isn't a rate limit but a contention on the object (concurrent requests on the
+ * same PaymentIntent, customer...): the rate is left alone and only the request itself waits before its retry.
+ * <p/>
+ * Callers wait at most rateLimitMaxWait for a permit, including the retries of throttled requests (a 429 means the request
+ * wasn't processed, so it is safe to send again); past that, the call fails with a ConnectException cause, like the
+ * other calls which never reached Stripe (see StripePluginProperties#mapExceptionToCallResult).
+ */
+public class StripeRateLimitedHttpClient extends StripeHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeRateLimitedHttpClient.class);
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String LOCK_TIMEOUT = "lock_timeout";
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    private static final double MIN_RATE = 1.0;
+    // Fraction of the configured rate recovered per successful call
+    private static final double RECOVERY_STEP = 0.01;
+
+    private final StripeHttpClient delegate;
+    private final double maxRate;
+    private final long maxWaitNanos;
+    private final RateLimiter rateLimiter;
+    private final AtomicLong pausedUntilNanos = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong nbWaits = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong nbThrottled = new AtomicLong();
+    private final AtomicLong nbLockTimeouts = new AtomicLong();
+    private final AtomicLong nbRejected = new AtomicLong();
+
+    public StripeRateLimitedHttpClient(final StripeConfigProperties stripeConfigProperties, final StripeHttpClient delegate) {
+        super(stripeConfigProperties);
+        this.delegate = delegate;
+        this.maxRate = stripeConfigProperties.getRateLimit();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(stripeConfigProperties.getRateLimitMaxWait());
+        this.rateLimiter = RateLimiter.create(maxRate);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public StripeResponse request(final StripeRequest request) throws StripeException {
+        final long deadlineNanos = System.nanoTime() + maxWaitNanos;
+        while (true) {
+            acquire(deadlineNanos);
+
+            final StripeResponse response = delegate.request(request);
+            if (response.code() != TOO_MANY_REQUESTS) {
+                onSuccess();
+                return response;
+            }
+
+            if (isLockTimeout(response)) {
+                nbLockTimeouts.incrementAndGet();
+                final long retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(getRetryAfterMillis(response));
+                if (System.nanoTime() + retryAfterNanos > deadlineNanos) {
+                    return response;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(retryAfterNanos);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return response;
+                }
+                continue;
+            }
+
+            nbThrottled.incrementAndGet();
+            final long retryAfterNanos = onThrottled(response);
+            if (System.nanoTime() + retryAfterNanos > deadlineNanos) {
+                // Let stripe-java surface the RateLimitException
+                return response;
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return ImmutableMap.<String, Object>builder()
+                           .put("rate", rateLimiter.getRate())
+                           .put("queueDepth", waiting.get())
+                           .put("waitCount", nbWaits.get())
+                           .put("totalWaitMillis", TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()))
+                           .put("throttledCount", nbThrottled.get())
+                           .put("lockTimeoutCount", nbLockTimeouts.get())
+                           .put("rejectedCount", nbRejected.get())
+                           .build();
+    }
+
+    @VisibleForTesting
+    double getRate() {
+        return rateLimiter.getRate();
+    }
+
+    private void acquire(final long deadlineNanos) throws ApiConnectionException {
+        final long startNanos = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            final long pauseNanos = pausedUntilNanos.get() - startNanos;
+            if (pauseNanos > 0) {
+                if (startNanos + pauseNanos > deadlineNanos) {
+                    throw reject("Stripe rate limit exceeded, requests paused");
+                }
+                TimeUnit.NANOSECONDS.sleep(pauseNanos);
+            }
+            if (!rateLimiter.tryAcquire(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                throw reject("Timed out waiting for the Stripe rate limiter");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("Interrupted while waiting for the Stripe rate limiter");
+        } finally {
+            waiting.decrementAndGet();
+            final long waitNanos = System.nanoTime() - startNanos;
+            if (waitNanos > TimeUnit.MILLISECONDS.toNanos(1)) {
+                nbWaits.incrementAndGet();
+                totalWaitNanos.addAndGet(waitNanos);
+            }
+        }
+    }
+
+    private ApiConnectionException reject(final String message) {
+        nbRejected.incrementAndGet();
+        return toRejectedException(message);
+    }
+
+    private void onSuccess() {
+        final double rate = rateLimiter.getRate();
+        if (rate < maxRate) {
+            rateLimiter.setRate(Math.min(maxRate, rate + maxRate * RECOVERY_STEP));
+        }
+    }
+
+    // Returns how long to wait before retrying
+    private long onThrottled(final StripeResponse response) {
+        final double rate = rateLimiter.getRate();
+        final double newRate = Math.max(MIN_RATE, rate / 2);
+        rateLimiter.setRate(newRate);
+
+        final long retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(getRetryAfterMillis(response));
+        final long pausedUntil = System.nanoTime() + retryAfterNanos;
+        pausedUntilNanos.accumulateAndGet(pausedUntil, (current, candidate) -> candidate - current > 0 ? candidate : current);
+        logger.warn("Throttled by Stripe, lowering the rate limit from {} to {} requests/s", rate, newRate);
+        return retryAfterNanos;
+    }
+
+    private static boolean isLockTimeout(final StripeResponse response) {
+        try {
+            final JsonObject body = ApiResource.GSON.fromJson(response.body(), JsonObject.class);
+            final JsonElement error = body == null ? null : body.get("error");
+            final JsonElement code = error == null || !error.isJsonObject() ? null : error.getAsJsonObject().get("code");
+            return code != null && code.isJsonPrimitive() && LOCK_TIMEOUT.equals(code.getAsString());
+        } catch (final JsonParseException e) {
+            return false;
+        }
+    }
+
+    private static long getRetryAfterMillis(final StripeResponse response) {
+        final Optional<String> retryAfter = response.headers() == null ? Optional.<String>empty() : response.headers().firstValue("Retry-After");
+        if (retryAfter.isPresent()) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.get().trim()));
+            } catch (final NumberFormatException ignored) {
+                // HTTP date, not sent by Stripe
+            }
+        }
+        return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+}
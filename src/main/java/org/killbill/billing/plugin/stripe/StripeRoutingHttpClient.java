@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.stripe.exception.StripeException;
+import com.stripe.net.ApiResource;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpURLConnectionClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+/**
+ * stripe-java only supports a single, static, response getter. This client is installed once and dispatches
+ * each request to the transport of the tenant owning the API key (requests are never tagged with the tenant).
+ * <p/>
+ * Tenants sharing an API key share the transport of the first one registered (and so its rate limiter and circuit
+ * breakers, which are per Stripe account anyway): a tenant registering the same key with different transport
+ * settings is rejected, instead of silently routing the other tenants through its transport.
+ */
+public class StripeRoutingHttpClient extends HttpClient {
+
+    private static final StripeRoutingHttpClient INSTANCE = new StripeRoutingHttpClient();
+
+    private static boolean installed = false;
+
+    // Registrations are immutable and replaced under the lock: the request path doesn't lock
+    private final Map<String, Registration> registrationsByApiKey = new ConcurrentHashMap<String, Registration>();
+    private final HttpClient defaultHttpClient = new HttpURLConnectionClient();
+
+    private StripeRoutingHttpClient() {
+    }
+
+    public static synchronized StripeRoutingHttpClient install() {
+        if (!installed) {
+            ApiResource.setStripeResponseGetter(new LiveStripeResponseGetter(INSTANCE));
+            installed = true;
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @throws IllegalStateException if other tenants already use the API key with different transport settings
+     */
+    public synchronized void register(final UUID tenantKey,
+                                      final String apiKey,
+                                      final HttpClient httpClient,
+                                      final StripeConfigProperties stripeConfigProperties) {
+        if (apiKey == null) {
+            return;
+        }
+
+        final Registration existing = registrationsByApiKey.get(apiKey);
+        if (existing == null || existing.isOnlyUsedBy(tenantKey)) {
+            registrationsByApiKey.put(apiKey, new Registration(httpClient, stripeConfigProperties, ImmutableSet.<UUID>of(tenantKey)));
+        } else if (existing.stripeConfigProperties.hasSameTransportSettings(stripeConfigProperties)) {
+            registrationsByApiKey.put(apiKey, existing.withTenantKeys(ImmutableSet.<UUID>builder().addAll(existing.tenantKeys).add(tenantKey).build()));
+        } else {
+            throw new IllegalStateException(String.format("The Stripe API key of tenant %s is already used by tenant(s) %s with different transport settings",
+                                                          tenantKey, existing.tenantKeys));
+        }
+    }
+
+    public synchronized void unregister(final UUID tenantKey, final String apiKey) {
+        if (apiKey == null) {
+            return;
+        }
+
+        final Registration existing = registrationsByApiKey.get(apiKey);
+        if (existing == null || !existing.tenantKeys.contains(tenantKey)) {
+            return;
+        }
+        if (existing.tenantKeys.size() == 1) {
+            registrationsByApiKey.remove(apiKey);
+        } else {
+            registrationsByApiKey.put(apiKey, existing.withTenantKeys(ImmutableSet.copyOf(Sets.difference(existing.tenantKeys, ImmutableSet.<UUID>of(tenantKey)))));
+        }
+    }
+
+    @Override
+    public StripeResponse request(final StripeRequest request) throws StripeException {
+        final String apiKey = request.options() == null ? null : request.options().getApiKey();
+        final Registration registration = apiKey == null ? null : registrationsByApiKey.get(apiKey);
+        return (registration == null ? defaultHttpClient : registration.httpClient).request(request);
+    }
+
+    // Whether requests can still be dispatched to that transport
+    public boolean isRouted(final HttpClient httpClient) {
+        for (final Registration registration : registrationsByApiKey.values()) {
+            if (registration.httpClient == httpClient) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @VisibleForTesting
+    HttpClient getHttpClient(final String apiKey) {
+        final Registration registration = registrationsByApiKey.get(apiKey);
+        return registration == null ? null : registration.httpClient;
+    }
+
+    private static final class Registration {
+
+        private final HttpClient httpClient;
+        private final StripeConfigProperties stripeConfigProperties;
+        private final Set<UUID> tenantKeys;
+
+        private Registration(final HttpClient httpClient, final StripeConfigProperties stripeConfigProperties, final Set<UUID> tenantKeys) {
+            this.httpClient = httpClient;
+            this.stripeConfigProperties = stripeConfigProperties;
+            this.tenantKeys = tenantKeys;
+        }
+
+        private Registration withTenantKeys(final Set<UUID> newTenantKeys) {
+            return new Registration(httpClient, stripeConfigProperties, newTenantKeys);
+        }
+
+        private boolean isOnlyUsedBy(final UUID tenantKey) {
+            return tenantKeys.size() == 1 && tenantKeys.contains(tenantKey);
+        }
+    }
+}
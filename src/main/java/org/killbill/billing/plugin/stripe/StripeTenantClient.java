@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.stripe.net.RequestOptions;
+
+/**
+ * Immutable view of a tenant configuration version: request options and transport are built once and shared by all calls.
+ */
+public class StripeTenantClient {
+
+    private final StripeConfigProperties stripeConfigProperties;
+    private final RequestOptions requestOptions;
+    private final StripeHttpClient httpClient;
+    private volatile boolean isShutdown;
+
+    public StripeTenantClient(final StripeConfigProperties stripeConfigProperties) {
+        this.stripeConfigProperties = stripeConfigProperties;
+        this.requestOptions = stripeConfigProperties.toRequestOptions();
+        this.httpClient = StripeHttpClient.create(stripeConfigProperties);
+    }
+
+    public StripeConfigProperties getStripeConfigProperties() {
+        return stripeConfigProperties;
+    }
+
+    public RequestOptions getRequestOptions() {
+        return requestOptions;
+    }
+
+    public StripeHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    // Once replaced by the client of a new configuration version, and no longer routed to
+    public void shutdown() {
+        isShutdown = true;
+        httpClient.shutdown();
+    }
+
+    @VisibleForTesting
+    boolean isShutdown() {
+        return isShutdown;
+    }
+}
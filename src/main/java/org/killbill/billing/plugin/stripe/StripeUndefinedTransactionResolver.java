@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.ChargeSearchResult;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.ChargeSearchParams;
+
+/**
+ * Finds the PaymentIntents of UNDEFINED transactions (e.g. read timeout while creating the PaymentIntent).
+ * <p/>
+ * The PaymentIntent id persisted with the responses of the transaction is used when there is one. Otherwise, the
+ * kbTransactionIds are looked up by batches, with a single Charge search (OR clauses on the kbTransactionId metadata)
+ * per batch: matches are kept in memory until they are persisted, and transactions without any charge aren't searched
+ * again until the negative entry expires (the search API is slow and has its own rate limit).
+ */
+public class StripeUndefinedTransactionResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeUndefinedTransactionResolver.class);
+
+    // Limit of the Stripe search query language
+    private static final int MAX_SEARCH_CLAUSES = 10;
+    private static final long SEARCH_LIMIT = 100L;
+    private static final long MAX_CACHE_SIZE = 10000L;
+    private static final long PAYMENT_INTENT_IDS_EXPIRATION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final int searchBatchSize;
+    // kbTenantId/kbTransactionId to PaymentIntent id
+    private final Cache<String, String> paymentIntentIds;
+    // kbTenantId/kbTransactionId without any charge in Stripe
+    private final Cache<String, Boolean> notFound;
+
+    private final AtomicLong localLookups = new AtomicLong();
+    private final AtomicLong cachedLookups = new AtomicLong();
+    private final AtomicLong negativeCacheHits = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchedTransactions = new AtomicLong();
+
+    public StripeUndefinedTransactionResolver(final int searchBatchSize, final long negativeCacheExpirationMillis) {
+        this.searchBatchSize = Math.max(1, Math.min(searchBatchSize, MAX_SEARCH_CLAUSES));
+        this.paymentIntentIds = CacheBuilder.newBuilder()
+                                            .maximumSize(MAX_CACHE_SIZE)
+                                            .expireAfterWrite(PAYMENT_INTENT_IDS_EXPIRATION_MILLIS, TimeUnit.MILLISECONDS)
+                                            .build();
+        this.notFound = CacheBuilder.newBuilder()
+                                    .maximumSize(MAX_CACHE_SIZE)
+                                    .expireAfterWrite(negativeCacheExpirationMillis, TimeUnit.MILLISECONDS)
+                                    .build();
+    }
+
+    /**
+     * Resolve the UNDEFINED transactions of the list (the other transactions are only used for the local lookup).
+     * <p/>
+     * Transactions missing from the resolution couldn't be resolved (Stripe error, several PaymentIntents found, etc.).
+     */
+    public Resolution resolve(final List<PaymentTransactionInfoPlugin> transactions,
+                              final RequestOptions requestOptions,
+                              @Nullable final UUID kbTenantId) {
+        final Map<UUID, String> resolvedPaymentIntentIds = new LinkedHashMap<UUID, String>();
+        final Set<UUID> notFoundKbTransactionIds = new HashSet<UUID>();
+        final Set<UUID> toSearch = new LinkedHashSet<UUID>();
+        for (final PaymentTransactionInfoPlugin transaction : transactions) {
+            final UUID kbTransactionId = transaction.getKbTransactionPaymentId();
+            if (transaction.getStatus() != PaymentPluginStatus.UNDEFINED
+                || resolvedPaymentIntentIds.containsKey(kbTransactionId)
+                || notFoundKbTransactionIds.contains(kbTransactionId)
+                || toSearch.contains(kbTransactionId)) {
+                continue;
+            }
+
+            final String localPaymentIntentId = findLocalPaymentIntentId(transaction, transactions);
+            if (localPaymentIntentId != null) {
+                localLookups.incrementAndGet();
+                resolvedPaymentIntentIds.put(kbTransactionId, localPaymentIntentId);
+                continue;
+            }
+
+            final String key = key(kbTenantId, kbTransactionId);
+            final String cachedPaymentIntentId = paymentIntentIds.getIfPresent(key);
+            if (cachedPaymentIntentId != null) {
+                cachedLookups.incrementAndGet();
+                resolvedPaymentIntentIds.put(kbTransactionId, cachedPaymentIntentId);
+            } else if (notFound.getIfPresent(key) != null) {
+                negativeCacheHits.incrementAndGet();
+                notFoundKbTransactionIds.add(kbTransactionId);
+            } else {
+                toSearch.add(kbTransactionId);
+            }
+        }
+
+        for (final List<UUID> batch : Lists.partition(new ArrayList<UUID>(toSearch), searchBatchSize)) {
+            search(batch, requestOptions, kbTenantId, resolvedPaymentIntentIds, notFoundKbTransactionIds);
+        }
+
+        return new Resolution(resolvedPaymentIntentIds, notFoundKbTransactionIds);
+    }
+
+    public Map<String, Object> getStats() {
+        return ImmutableMap.<String, Object>of("local", localLookups.get(),
+                                               "cached", cachedLookups.get(),
+                                               "negativeCacheHits", negativeCacheHits.get(),
+                                               "searches", searches.get(),
+                                               "searchedTransactions", searchedTransactions.get());
+    }
+
+    private void search(final List<UUID> kbTransactionIds,
+                        final RequestOptions requestOptions,
+                        @Nullable final UUID kbTenantId,
+                        final Map<UUID, String> resolvedPaymentIntentIds,
+                        final Set<UUID> notFoundKbTransactionIds) {
+        final ChargeSearchParams searchParams = ChargeSearchParams.builder()
+                                                                  .setQuery(buildSearchQuery(kbTransactionIds))
+                                                                  .setLimit(SEARCH_LIMIT)
+                                                                  .build();
+        final ChargeSearchResult result;
+        try {
+            searches.incrementAndGet();
+            searchedTransactions.addAndGet(kbTransactionIds.size());
+            result = Charge.search(searchParams, requestOptions);
+        } catch (final StripeException e) {
+            logger.warn("Unable to search Stripe charges for kbTransactionIds={}, data might be stale", kbTransactionIds, e);
+            return;
+        }
+
+        final Map<String, Set<String>> paymentIntentIdsByKbTransactionId = new HashMap<String, Set<String>>();
+        final Set<String> kbTransactionIdsWithCharges = new HashSet<String>();
+        for (final Charge charge : result.getData()) {
+            final String kbTransactionId = charge.getMetadata() == null ? null : charge.getMetadata().get("kbTransactionId");
+            if (kbTransactionId == null) {
+                continue;
+            }
+            kbTransactionIdsWithCharges.add(kbTransactionId);
+            if (charge.getPaymentIntent() != null) {
+                paymentIntentIdsByKbTransactionId.computeIfAbsent(kbTransactionId, k -> new HashSet<String>()).add(charge.getPaymentIntent());
+            }
+        }
+
+        // Truncated results: a transaction without any charge in this page may still have some
+        final boolean complete = !Boolean.TRUE.equals(result.getHasMore());
+        for (final UUID kbTransactionId : kbTransactionIds) {
+            final Set<String> chargePaymentIntentIds = paymentIntentIdsByKbTransactionId.getOrDefault(kbTransactionId.toString(), Collections.<String>emptySet());
+            if (chargePaymentIntentIds.size() == 1) {
+                final String paymentIntentId = chargePaymentIntentIds.iterator().next();
+                paymentIntentIds.put(key(kbTenantId, kbTransactionId), paymentIntentId);
+                resolvedPaymentIntentIds.put(kbTransactionId, paymentIntentId);
+            } else if (complete && !kbTransactionIdsWithCharges.contains(kbTransactionId.toString())) {
+                notFound.put(key(kbTenantId, kbTransactionId), Boolean.TRUE);
+                notFoundKbTransactionIds.add(kbTransactionId);
+            } // Anything else, manual checks needed
+        }
+    }
+
+    @VisibleForTesting
+    static String buildSearchQuery(final List<UUID> kbTransactionIds) {
+        return kbTransactionIds.stream()
+                               .map(kbTransactionId -> "metadata['kbTransactionId']:'" + kbTransactionId + "'")
+                               .collect(Collectors.joining(" OR "));
+    }
+
+    // Only authorizations and purchases create a PaymentIntent: its id is persisted with the response (stripe_id),
+    // or merged into the additional data (webhook, hosted payment page)
+    @VisibleForTesting
+    static String findLocalPaymentIntentId(final PaymentTransactionInfoPlugin transaction,
+                                           final List<PaymentTransactionInfoPlugin> transactions) {
+        if (transaction.getTransactionType() != TransactionType.AUTHORIZE && transaction.getTransactionType() != TransactionType.PURCHASE) {
+            return null;
+        }
+
+        for (final PaymentTransactionInfoPlugin candidate : transactions) {
+            if (!transaction.getKbTransactionPaymentId().equals(candidate.getKbTransactionPaymentId())) {
+                continue;
+            }
+
+            final StripePaymentTransactionInfoPlugin stripeTransaction = (StripePaymentTransactionInfoPlugin) candidate;
+            final String stripeId = stripeTransaction.getStripeResponseRecord().getStripeId();
+            if (isPaymentIntentId(stripeId)) {
+                return stripeId;
+            }
+            final String id = stripeTransaction.getStripeAdditionalData().getId();
+            if (isPaymentIntentId(id)) {
+                return id;
+            }
+            final String hppPaymentIntentId = stripeTransaction.getStripeAdditionalData().getString("payment_intent_id");
+            if (isPaymentIntentId(hppPaymentIntentId)) {
+                return hppPaymentIntentId;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPaymentIntentId(@Nullable final String id) {
+        return id != null && id.startsWith("pi_");
+    }
+
+    private static String key(@Nullable final UUID kbTenantId, final UUID kbTransactionId) {
+        return kbTenantId + "/" + kbTransactionId;
+    }
+
+    public static final class Resolution {
+
+        private final Map<UUID, String> paymentIntentIds;
+        private final Set<UUID> notFoundKbTransactionIds;
+
+        private Resolution(final Map<UUID, String> paymentIntentIds, final Set<UUID> notFoundKbTransactionIds) {
+            this.paymentIntentIds = paymentIntentIds;
+            this.notFoundKbTransactionIds = notFoundKbTransactionIds;
+        }
+
+        // kbTransactionId to PaymentIntent id
+        public Map<UUID, String> getPaymentIntentIds() {
+            return paymentIntentIds;
+        }
+
+        // Transactions without any charge in Stripe
+        public Set<UUID> getNotFoundKbTransactionIds() {
+            return notFoundKbTransactionIds;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.killbill.billing.plugin.util.http.SslUtils;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+/**
+ * Equivalent of the default stripe-java HttpURLConnectionClient, except that TLS settings are applied per connection.
+ */
+public class StripeUrlConnectionHttpClient extends StripeHttpClient {
+
+    private final SSLSocketFactory sslSocketFactory;
+    private final HostnameVerifier hostnameVerifier;
+
+    public StripeUrlConnectionHttpClient(final StripeConfigProperties stripeConfigProperties) {
+        super(stripeConfigProperties);
+
+        if (isTrustAllCertificates()) {
+            try {
+                this.sslSocketFactory = SslUtils.getInstance().getSSLContext(true).getSocketFactory();
+            } catch (final GeneralSecurityException e) {
+                throw new RuntimeException(e);
+            }
+            this.hostnameVerifier = (hostname, session) -> true;
+        } else {
+            this.sslSocketFactory = null;
+            this.hostnameVerifier = null;
+        }
+    }
+
+    @Override
+    public StripeResponse request(final StripeRequest request) throws ApiConnectionException {
+        try {
+            final HttpURLConnection conn = createConnection(request);
+
+            final int responseCode = conn.getResponseCode();
+            final HttpHeaders headers = HttpHeaders.of(withoutStatusLine(conn.getHeaderFields()));
+            final InputStream responseStream = responseCode >= 200 && responseCode < 300 ? conn.getInputStream() : conn.getErrorStream();
+            final String responseBody = readToEnd(responseStream);
+
+            return new StripeResponse(responseCode, headers, responseBody);
+        } catch (final IOException e) {
+            throw toApiConnectionException(e);
+        }
+    }
+
+    private HttpURLConnection createConnection(final StripeRequest request) throws IOException {
+        final URL url = resolveUrl(request);
+        final HttpURLConnection conn;
+        if (request.options().getConnectionProxy() != null) {
+            conn = (HttpURLConnection) url.openConnection(request.options().getConnectionProxy());
+        } else {
+            conn = (HttpURLConnection) url.openConnection();
+        }
+
+        if (sslSocketFactory != null && conn instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) conn).setSSLSocketFactory(sslSocketFactory);
+            ((HttpsURLConnection) conn).setHostnameVerifier(hostnameVerifier);
+        }
+
+        conn.setConnectTimeout(request.options().getConnectTimeout());
+        conn.setReadTimeout(request.options().getReadTimeout());
+        conn.setUseCaches(false);
+        for (final Map.Entry<String, List<String>> header : buildHeaders(request).map().entrySet()) {
+            conn.setRequestProperty(header.getKey(), String.join(",", header.getValue()));
+        }
+
+        conn.setRequestMethod(request.method().name());
+
+        if (request.content() != null) {
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", request.content().contentType());
+            try (final OutputStream output = conn.getOutputStream()) {
+                output.write(request.content().byteArrayContent());
+            }
+        }
+
+        return conn;
+    }
+
+    private static String readToEnd(final InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return "";
+        }
+
+        try (final InputStream in = inputStream) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
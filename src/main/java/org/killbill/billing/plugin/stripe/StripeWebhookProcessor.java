@@ -0,0 +1,342 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.StripeUnitOfWork;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeEventsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.EventDataObjectDeserializer;
+import com.stripe.model.HasId;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.ApiResource;
+import com.stripe.net.Webhook;
+
+/**
+ * Receives the Stripe webhook events: each event is verified against the webhookSecret of the tenant and persisted
+ * in stripe_events (the inbox) before it is acknowledged. Events are then claimed in batches by a poller and applied to
+ * stripe_responses by a bounded worker pool, so payments are updated as soon as Stripe notifies us instead of on the
+ * next refresh.
+ * <p/>
+ * Processing is at-least-once: a failed event is retried with an exponential backoff (up to webhookMaxAttempts), and
+ * the events claimed by a node which went away are picked up again once their lease expires. Applying an event and
+ * marking it as processed happen in one transaction, so a replayed (or concurrently processed) event doesn't update
+ * the response twice.
+ * <p/>
+ * Event dates are to the second: when an event of the same second was already applied for the object, the order of
+ * the two events is unknown, so the PaymentIntent is fetched from Stripe instead of applying the payload.
+ * <p/>
+ * Only PaymentIntent events are applied (they carry the intent and its charges, i.e. the same data the refresh would
+ * fetch); the other events are recorded only.
+ */
+public class StripeWebhookProcessor {
+
+    public static final String PROPERTY_STRIPE_SIGNATURE = "Stripe-Signature";
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeWebhookProcessor.class);
+
+    // Cap on the delay between two attempts
+    private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    private final StripeClientRegistry stripeClientRegistry;
+    private final StripeDao dao;
+    private final ExecutorService executor;
+    private final Clock clock;
+    private final long pollIntervalMillis;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final long leaseTimeoutMillis;
+    private final AtomicBoolean drainRequested = new AtomicBoolean(false);
+
+    private ScheduledExecutorService scheduler;
+
+    public StripeWebhookProcessor(final StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler,
+                                  final StripeClientRegistry stripeClientRegistry,
+                                  final StripeDao dao,
+                                  final ExecutorService executor,
+                                  final Clock clock,
+                                  final StripeConfigProperties stripeConfigProperties) {
+        this.stripeConfigPropertiesConfigurationHandler = stripeConfigPropertiesConfigurationHandler;
+        this.stripeClientRegistry = stripeClientRegistry;
+        this.dao = dao;
+        this.executor = executor;
+        this.clock = clock;
+        this.pollIntervalMillis = stripeConfigProperties.getWebhookPollInterval();
+        this.batchSize = stripeConfigProperties.getWebhookBatchSize();
+        this.maxAttempts = stripeConfigProperties.getWebhookMaxAttempts();
+        this.retryDelayMillis = stripeConfigProperties.getWebhookRetryDelay();
+        this.leaseTimeoutMillis = stripeConfigProperties.getWebhookLeaseTimeout();
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = StripeExecutors.newSingleThreadScheduledExecutor("stripe-webhook-poller");
+        // The first run picks up the events left over by the previous shutdown
+        scheduler.scheduleWithFixedDelay(this::drainSafely, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Verify and persist a webhook event: it is applied asynchronously.
+     */
+    public Event receive(final String payload, @Nullable final String signatureHeader, final UUID kbTenantId) throws SignatureVerificationException, SQLException {
+        final String webhookSecret = stripeConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId).getWebhookSecret();
+        if (webhookSecret == null) {
+            throw new SignatureVerificationException("No webhookSecret configured for tenant " + kbTenantId, signatureHeader);
+        }
+        if (signatureHeader == null) {
+            throw new SignatureVerificationException("Missing " + PROPERTY_STRIPE_SIGNATURE + " header", null);
+        }
+
+        final Event event = Webhook.constructEvent(payload, signatureHeader, webhookSecret);
+        final StripeObject stripeObject = getStripeObject(event);
+        final StripeEventsRecord eventRecord = dao.addEvent(event.getId(),
+                                                            event.getType(),
+                                                            stripeObject instanceof HasId ? ((HasId) stripeObject).getId() : null,
+                                                            payload,
+                                                            new DateTime(event.getCreated() * 1000, DateTimeZone.UTC),
+                                                            clock.getUTCNow(),
+                                                            kbTenantId);
+        if (eventRecord == null) {
+            logger.info("Ignoring Stripe event {}: already received", event.getId());
+        } else {
+            requestDrain();
+        }
+        return event;
+    }
+
+    // Don't wait for the next poll, without queuing a drain per event during bursts
+    private void requestDrain() {
+        final ScheduledExecutorService currentScheduler = scheduler;
+        if (currentScheduler != null && drainRequested.compareAndSet(false, true)) {
+            try {
+                currentScheduler.execute(this::drainSafely);
+            } catch (final RejectedExecutionException e) {
+                // Shutting down: the event will be picked up on the next start
+                drainRequested.set(false);
+            }
+        }
+    }
+
+    private void drainSafely() {
+        drainRequested.set(false);
+        try {
+            drain();
+        } catch (final Exception e) {
+            // Don't let the exception cancel the next runs
+            logger.warn("Unable to process Stripe events", e);
+        }
+    }
+
+    /**
+     * Claim and apply the due events, batch by batch, until none is left.
+     *
+     * @return the number of events claimed
+     */
+    @VisibleForTesting
+    int drain() throws SQLException, InterruptedException {
+        int nbClaimed = 0;
+        List<StripeEventsRecord> batch;
+        do {
+            final DateTime utcNow = clock.getUTCNow();
+            batch = dao.claimEvents(maxAttempts, batchSize, utcNow.plus(leaseTimeoutMillis), utcNow);
+            nbClaimed += batch.size();
+
+            // The events of a same Stripe object are applied sequentially, in order
+            final Map<String, List<StripeEventsRecord>> eventsByObject = new LinkedHashMap<String, List<StripeEventsRecord>>();
+            for (final StripeEventsRecord eventRecord : batch) {
+                final String key = eventRecord.getKbTenantId() + "/" + MoreObjects.firstNonNull(eventRecord.getStripeObjectId(), eventRecord.getStripeEventId());
+                eventsByObject.computeIfAbsent(key, k -> new ArrayList<StripeEventsRecord>()).add(eventRecord);
+            }
+
+            final List<Future<?>> futures = new ArrayList<Future<?>>(eventsByObject.size());
+            for (final List<StripeEventsRecord> objectEvents : eventsByObject.values()) {
+                objectEvents.sort(Comparator.comparing(StripeEventsRecord::getEventDate).thenComparing(StripeEventsRecord::getRecordId));
+                futures.add(executor.submit(() -> objectEvents.forEach(this::processSafely)));
+            }
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    logger.warn("Unable to process Stripe events", e.getCause());
+                }
+            }
+        } while (batch.size() == batchSize && !Thread.currentThread().isInterrupted());
+        return nbClaimed;
+    }
+
+    private void processSafely(final StripeEventsRecord eventRecord) {
+        try {
+            process(eventRecord);
+        } catch (final Exception e) {
+            final DateTime nextAttemptDate = clock.getUTCNow().plus(getRetryDelayMillis(eventRecord.getAttempts()));
+            if (eventRecord.getAttempts() >= maxAttempts) {
+                logger.error("Unable to apply Stripe event {} after {} attempts, giving up", eventRecord.getStripeEventId(), eventRecord.getAttempts(), e);
+            } else {
+                logger.warn("Unable to apply Stripe event {} (attempt {}), retrying at {}", eventRecord.getStripeEventId(), eventRecord.getAttempts(), nextAttemptDate, e);
+            }
+            try {
+                dao.scheduleEventRetry(eventRecord, nextAttemptDate, String.valueOf(e));
+            } catch (final SQLException sqlException) {
+                // The lease expiration will trigger the retry
+                logger.warn("Unable to schedule the retry of Stripe event {}", eventRecord.getStripeEventId(), sqlException);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    long getRetryDelayMillis(final int attempts) {
+        final int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(retryDelayMillis << exponent, MAX_RETRY_DELAY_MILLIS);
+    }
+
+    private void process(final StripeEventsRecord eventRecord) throws SQLException, StripeException {
+        // Outside of the transaction: this may call Stripe
+        final StripeObject stripeObject = getStripeObjectToApply(eventRecord);
+
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork(true)) {
+            final LocalDateTime latestProcessedEventDate = dao.getLatestProcessedEventDate(eventRecord);
+            if (latestProcessedEventDate != null && latestProcessedEventDate.isAfter(eventRecord.getEventDate())) {
+                logger.info("Skipping Stripe event {}: a more recent event for {} was already applied", eventRecord.getStripeEventId(), eventRecord.getStripeObjectId());
+            } else {
+                if (stripeObject instanceof PaymentIntent) {
+                    applyPaymentIntent(eventRecord, (PaymentIntent) stripeObject);
+                } else {
+                    logger.debug("Ignoring Stripe event {} of type {}", eventRecord.getStripeEventId(), eventRecord.getEventType());
+                }
+            }
+
+            if (dao.markEventProcessed(eventRecord, clock.getUTCNow())) {
+                unitOfWork.commit();
+            } else {
+                // Processed concurrently (e.g. after a lease expiration): the updates above are rolled back
+                logger.info("Ignoring Stripe event {}: already processed", eventRecord.getStripeEventId());
+            }
+        }
+    }
+
+    @Nullable
+    private StripeObject getStripeObjectToApply(final StripeEventsRecord eventRecord) throws SQLException, StripeException {
+        final StripeObject stripeObject = getStripeObject(ApiResource.GSON.fromJson(eventRecord.getPayload(), Event.class));
+        if (!(stripeObject instanceof PaymentIntent)) {
+            return stripeObject;
+        }
+
+        final LocalDateTime latestProcessedEventDate = dao.getLatestProcessedEventDate(eventRecord);
+        if (latestProcessedEventDate == null || !latestProcessedEventDate.isEqual(eventRecord.getEventDate())) {
+            return stripeObject;
+        }
+
+        // The payload may be older than the state already applied
+        logger.info("Fetching PaymentIntent {} for Stripe event {}: an event of the same second was already applied", eventRecord.getStripeObjectId(), eventRecord.getStripeEventId());
+        return PaymentIntent.retrieve(((PaymentIntent) stripeObject).getId(),
+                                      stripeClientRegistry.getRequestOptions(UUID.fromString(eventRecord.getKbTenantId())));
+    }
+
+    private void applyPaymentIntent(final StripeEventsRecord eventRecord, final PaymentIntent intent) throws SQLException {
+        // Set on the PaymentIntents created by the plugin, see StripePaymentPluginApi#executeInitialTransaction
+        final String kbTransactionId = intent.getMetadata() == null ? null : intent.getMetadata().get("kbTransactionId");
+        if (kbTransactionId == null) {
+            logger.debug("Ignoring Stripe event {}: PaymentIntent {} wasn't created by Kill Bill", eventRecord.getStripeEventId(), intent.getId());
+            return;
+        }
+
+        final StripeResponsesRecord updatedResponse = dao.updateResponse(UUID.fromString(kbTransactionId),
+                                                                         StripePluginProperties.toAdditionalDataMap(intent, getLastCharge(intent)),
+                                                                         UUID.fromString(eventRecord.getKbTenantId()));
+        if (updatedResponse == null) {
+            logger.info("Ignoring Stripe event {}: no response for kbTransactionId {}", eventRecord.getStripeEventId(), kbTransactionId);
+        } else {
+            logger.info("Applied Stripe event {} ({}) to kbTransactionId {}", eventRecord.getStripeEventId(), eventRecord.getEventType(), kbTransactionId);
+        }
+    }
+
+    // Only the charges embedded in the PaymentIntent are looked at: no call to Stripe
+    private static Charge getLastCharge(final PaymentIntent intent) {
+        if (intent.getCharges() == null || intent.getCharges().getData() == null) {
+            return null;
+        }
+
+        Charge lastCharge = null;
+        for (final Charge charge : intent.getCharges().getData()) {
+            if (lastCharge == null || lastCharge.getCreated() < charge.getCreated()) {
+                lastCharge = charge;
+            }
+        }
+        return lastCharge;
+    }
+
+    @Nullable
+    private static StripeObject getStripeObject(final Event event) {
+        final EventDataObjectDeserializer deserializer = event.getDataObjectDeserializer();
+        if (deserializer.getObject().isPresent()) {
+            return deserializer.getObject().get();
+        }
+
+        // The event was rendered with a different API version than the one of the library: the common fields are still readable
+        try {
+            return deserializer.deserializeUnsafe();
+        } catch (final EventDataObjectDeserializationException e) {
+            logger.warn("Unable to deserialize the object of Stripe event {}", event.getId(), e);
+            return null;
+        }
+    }
+}
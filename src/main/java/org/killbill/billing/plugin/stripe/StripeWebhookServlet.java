@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.Optional;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jooby.Result;
+import org.jooby.Results;
+import org.jooby.Status;
+import org.jooby.mvc.Body;
+import org.jooby.mvc.Header;
+import org.jooby.mvc.Local;
+import org.jooby.mvc.POST;
+import org.jooby.mvc.Path;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillClock;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.core.resources.PluginHealthcheck;
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+
+@Singleton
+// Handle /plugins/killbill-stripe/webhook
+@Path("/webhook")
+public class StripeWebhookServlet extends PluginHealthcheck {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeWebhookServlet.class);
+
+    private final OSGIKillbillClock clock;
+    private final StripePaymentPluginApi stripePaymentPluginApi;
+
+    @Inject
+    public StripeWebhookServlet(final OSGIKillbillClock clock,
+                                final StripePaymentPluginApi stripePaymentPluginApi) {
+        this.clock = clock;
+        this.stripePaymentPluginApi = stripePaymentPluginApi;
+    }
+
+    @POST
+    public Result receiveEvent(@Header(StripeWebhookProcessor.PROPERTY_STRIPE_SIGNATURE) final Optional<String> signature,
+                               @Body final String payload,
+                               @Local @Named("killbill_tenant") final Tenant tenant) {
+        final CallContext context = new PluginCallContext(StripeActivator.PLUGIN_NAME, clock.getClock().getUTCNow(), null, tenant.getId());
+        try {
+            stripePaymentPluginApi.processNotification(payload,
+                                                       ImmutableList.of(new PluginProperty(StripeWebhookProcessor.PROPERTY_STRIPE_SIGNATURE, signature.orElse(null), false)),
+                                                       context);
+            return Results.ok();
+        } catch (final PaymentPluginApiException e) {
+            logger.warn("Rejected Stripe webhook for tenant {}: {}", tenant.getId(), e.getErrorMessage());
+            // Stripe retries the non-2xx responses: only a transient (database) error is worth it
+            return Results.with("USER".equals(e.getErrorType()) ? Status.BAD_REQUEST : Status.SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe.dao;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Read-only view of the additional_data column, parsed lazily and at most once.
+ * <p/>
+ * The typed accessors only need the top-level scalar values: they are read with a streaming scan (nested objects and
+ * arrays are skipped). The full map is only built when {@link #getMap()} is called, and is then reused by the accessors.
+ */
+public class StripeAdditionalData {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String additionalData;
+
+    private volatile Map<String, Object> scalars;
+    private volatile Map<String, Object> map;
+
+    public StripeAdditionalData(@Nullable final String additionalData) {
+        this.additionalData = additionalData;
+    }
+
+    public String getId() {
+        return getString("id");
+    }
+
+    public String getStatus() {
+        return getString("status");
+    }
+
+    public String getLastChargeId() {
+        return getString("last_charge_id");
+    }
+
+    public String getLastChargeStatus() {
+        return getString("last_charge_status");
+    }
+
+    public String getLastChargeAuthorizationCode() {
+        return getString("last_charge_authorization_code");
+    }
+
+    public String getLastChargePaymentMethodType() {
+        return getString("last_charge_payment_method_type");
+    }
+
+    public boolean getBoolean(final String key) {
+        final Object value = get(key);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    public String getString(final String key) {
+        final Object value = get(key);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @return the top-level value (nested objects and arrays require {@link #getMap()})
+     */
+    public Object get(final String key) {
+        final Map<String, Object> fullMap = map;
+        return fullMap != null ? fullMap.get(key) : getScalars().get(key);
+    }
+
+    public Map<String, Object> getMap() {
+        Map<String, Object> fullMap = map;
+        if (fullMap == null) {
+            fullMap = Collections.unmodifiableMap(StripeDao.fromAdditionalData(additionalData));
+            map = fullMap;
+        }
+        return fullMap;
+    }
+
+    public String getRawAdditionalData() {
+        return additionalData;
+    }
+
+    private Map<String, Object> getScalars() {
+        Map<String, Object> currentScalars = scalars;
+        if (currentScalars == null) {
+            currentScalars = parseScalars(additionalData);
+            scalars = currentScalars;
+        }
+        return currentScalars;
+    }
+
+    private static Map<String, Object> parseScalars(@Nullable final String additionalData) {
+        if (additionalData == null) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, Object> scalars = new HashMap<String, Object>();
+        try (final JsonParser parser = JSON_FACTORY.createParser(additionalData)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Collections.emptyMap();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                switch (token) {
+                    case START_OBJECT:
+                    case START_ARRAY:
+                        parser.skipChildren();
+                        break;
+                    case VALUE_STRING:
+                        scalars.put(fieldName, parser.getText());
+                        break;
+                    case VALUE_NUMBER_INT:
+                    case VALUE_NUMBER_FLOAT:
+                        scalars.put(fieldName, parser.getNumberValue());
+                        break;
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        scalars.put(fieldName, parser.getBooleanValue());
+                        break;
+                    default:
+                        // null
+                        break;
+                }
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        return scalars;
+    }
+}
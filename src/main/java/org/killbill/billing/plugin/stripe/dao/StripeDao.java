@@ -19,10 +19,16 @@ package org.killbill.billing.plugin.stripe.dao;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -30,19 +36,34 @@ import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
 import org.joda.time.DateTime;
+import org.jooq.BatchBindStep;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep8;
+import org.jooq.QueryPart;
+import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.dao.payment.PluginPaymentDao;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
+import org.killbill.billing.plugin.stripe.StripeAdditionalDataWriter;
+import org.killbill.billing.plugin.stripe.StripePaymentTransactionInfoPlugin;
 import org.killbill.billing.plugin.stripe.StripePluginProperties;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripePaymentMethods;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeBulkSyncsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeEventsRecord;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeHppRequestsRecord;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripePaymentMethodsRecord;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
@@ -52,16 +73,63 @@ import com.stripe.model.Charge;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.checkout.Session;
 
+import static org.killbill.billing.plugin.stripe.dao.gen.tables.StripeBulkSyncs.STRIPE_BULK_SYNCS;
+import static org.killbill.billing.plugin.stripe.dao.gen.tables.StripeEvents.STRIPE_EVENTS;
 import static org.killbill.billing.plugin.stripe.dao.gen.tables.StripeHppRequests.STRIPE_HPP_REQUESTS;
+import static org.killbill.billing.plugin.stripe.dao.gen.tables.StripeLeases.STRIPE_LEASES;
 import static org.killbill.billing.plugin.stripe.dao.gen.tables.StripePaymentMethods.STRIPE_PAYMENT_METHODS;
 import static org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses.STRIPE_RESPONSES;
 
 public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeResponses, StripePaymentMethodsRecord, StripePaymentMethods> {
 
+    // stripe_responses.is_unresolved: set on the PENDING and UNDEFINED responses, the ones the reconciler looks at
+    private static final short UNRESOLVED = 1;
+    private static final short RESOLVED = 0;
+
+    private final StripeUnitOfWork.BoundDataSource boundDataSource;
+    private final StripeAdditionalDataWriter additionalDataWriter;
+
     public StripeDao(final DataSource dataSource) throws SQLException {
+        this(new StripeUnitOfWork.BoundDataSource(dataSource));
+    }
+
+    private StripeDao(final StripeUnitOfWork.BoundDataSource dataSource) throws SQLException {
         super(STRIPE_RESPONSES, STRIPE_PAYMENT_METHODS, dataSource);
+        this.boundDataSource = dataSource;
         // Save space in the database
         objectMapper.setSerializationInclusion(Include.NON_EMPTY);
+        this.additionalDataWriter = new StripeAdditionalDataWriter(objectMapper);
+    }
+
+    // Units of work
+
+    /**
+     * Share a single connection across the DAO calls made by the current thread, until the unit of work is closed.
+     * Each statement still commits on its own.
+     */
+    public StripeUnitOfWork beginUnitOfWork() {
+        return beginUnitOfWork(false);
+    }
+
+    /**
+     * Share a single connection across the DAO calls made by the current thread, until the unit of work is closed.
+     * If inTransaction is true, the work is committed by {@link StripeUnitOfWork#commit()} and rolled back otherwise.
+     * A unit of work begun while another one is bound joins it.
+     *
+     * @throws IllegalStateException if inTransaction is true and the bound unit of work isn't in a transaction
+     */
+    public StripeUnitOfWork beginUnitOfWork(final boolean inTransaction) {
+        return boundDataSource.begin(inTransaction);
+    }
+
+    /**
+     * Hand the connection of the current unit of work, if any, back to the pool (e.g. before a Stripe round trip).
+     */
+    public void releaseConnection() {
+        final StripeUnitOfWork unitOfWork = boundDataSource.current();
+        if (unitOfWork != null) {
+            unitOfWork.release();
+        }
     }
 
     // Payment methods
@@ -124,6 +192,255 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
                 });
     }
 
+    /**
+     * Build a payment method row, to be stored by {@link #addPaymentMethods(Iterable)} or {@link #updatePaymentMethods(Iterable)}.
+     */
+    public StripePaymentMethodsRecord newPaymentMethodRecord(final UUID kbAccountId,
+                                                             @Nullable final UUID kbPaymentMethodId,
+                                                             final Map<String, Object> additionalDataMap,
+                                                             final String stripeId,
+                                                             final DateTime utcNow,
+                                                             final UUID kbTenantId) {
+        final StripePaymentMethodsRecord record = new StripePaymentMethodsRecord();
+        record.setKbAccountId(kbAccountId.toString());
+        record.setKbPaymentMethodId(kbPaymentMethodId == null ? null : kbPaymentMethodId.toString());
+        record.setStripeId(stripeId);
+        record.setIsDefault((short) FALSE);
+        record.setIsDeleted((short) FALSE);
+        record.setAdditionalData(asString(additionalDataMap));
+        record.setCreatedDate(toLocalDateTime(utcNow));
+        record.setUpdatedDate(toLocalDateTime(utcNow));
+        record.setKbTenantId(kbTenantId.toString());
+        return record;
+    }
+
+    /**
+     * Insert the payment methods in a single multi-row INSERT.
+     */
+    public void addPaymentMethods(final Iterable<StripePaymentMethodsRecord> paymentMethods) throws SQLException {
+        if (Iterables.isEmpty(paymentMethods)) {
+            return;
+        }
+
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        InsertValuesStep8<StripePaymentMethodsRecord, String, String, String, Short, String, LocalDateTime, LocalDateTime, String> insert =
+                                DSL.using(conn, dialect, settings)
+                                   .insertInto(STRIPE_PAYMENT_METHODS,
+                                               STRIPE_PAYMENT_METHODS.KB_ACCOUNT_ID,
+                                               STRIPE_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID,
+                                               STRIPE_PAYMENT_METHODS.STRIPE_ID,
+                                               STRIPE_PAYMENT_METHODS.IS_DELETED,
+                                               STRIPE_PAYMENT_METHODS.ADDITIONAL_DATA,
+                                               STRIPE_PAYMENT_METHODS.CREATED_DATE,
+                                               STRIPE_PAYMENT_METHODS.UPDATED_DATE,
+                                               STRIPE_PAYMENT_METHODS.KB_TENANT_ID);
+                        for (final StripePaymentMethodsRecord paymentMethod : paymentMethods) {
+                            insert = insert.values(paymentMethod.getKbAccountId(),
+                                                   paymentMethod.getKbPaymentMethodId(),
+                                                   paymentMethod.getStripeId(),
+                                                   paymentMethod.getIsDeleted(),
+                                                   paymentMethod.getAdditionalData(),
+                                                   paymentMethod.getCreatedDate(),
+                                                   paymentMethod.getUpdatedDate(),
+                                                   paymentMethod.getKbTenantId());
+                        }
+                        insert.execute();
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Update the additional data of the payment methods in a single JDBC batch.
+     */
+    public void updatePaymentMethods(final Iterable<StripePaymentMethodsRecord> paymentMethods) throws SQLException {
+        if (Iterables.isEmpty(paymentMethods)) {
+            return;
+        }
+
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        final DSLContext dslContext = DSL.using(conn, dialect, settings);
+                        final BatchBindStep batch = dslContext.batch(dslContext.update(STRIPE_PAYMENT_METHODS)
+                                                                                .set(STRIPE_PAYMENT_METHODS.ADDITIONAL_DATA, DSL.param("additionalData", String.class))
+                                                                                .set(STRIPE_PAYMENT_METHODS.UPDATED_DATE, DSL.param("updatedDate", LocalDateTime.class))
+                                                                                .where(STRIPE_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(DSL.param("kbPaymentMethodId", String.class)))
+                                                                                .and(STRIPE_PAYMENT_METHODS.STRIPE_ID.equal(DSL.param("stripeId", String.class)))
+                                                                                .and(STRIPE_PAYMENT_METHODS.KB_TENANT_ID.equal(DSL.param("kbTenantId", String.class))));
+                        for (final StripePaymentMethodsRecord paymentMethod : paymentMethods) {
+                            batch.bind(paymentMethod.getAdditionalData(),
+                                       paymentMethod.getUpdatedDate(),
+                                       paymentMethod.getKbPaymentMethodId(),
+                                       paymentMethod.getStripeId(),
+                                       paymentMethod.getKbTenantId());
+                        }
+                        batch.execute();
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Deactivate the payment methods (deleted in Stripe) in a single statement.
+     */
+    public void deletePaymentMethods(final Collection<StripePaymentMethodsRecord> paymentMethods, final DateTime utcNow) throws SQLException {
+        if (paymentMethods.isEmpty()) {
+            return;
+        }
+
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        DSL.using(conn, dialect, settings)
+                           .update(STRIPE_PAYMENT_METHODS)
+                           .set(STRIPE_PAYMENT_METHODS.IS_DELETED, (short) TRUE)
+                           .set(STRIPE_PAYMENT_METHODS.UPDATED_DATE, toLocalDateTime(utcNow))
+                           .where(STRIPE_PAYMENT_METHODS.RECORD_ID.in(Collections2.transform(paymentMethods, StripePaymentMethodsRecord::getRecordId)))
+                           .execute();
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Active payment methods of the accounts.
+     */
+    public List<StripePaymentMethodsRecord> getPaymentMethods(final Collection<UUID> kbAccountIds, final UUID kbTenantId) throws SQLException {
+        if (kbAccountIds.isEmpty()) {
+            return ImmutableList.<StripePaymentMethodsRecord>of();
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<StripePaymentMethodsRecord>>() {
+                           @Override
+                           public List<StripePaymentMethodsRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(STRIPE_PAYMENT_METHODS)
+                                         .where(STRIPE_PAYMENT_METHODS.KB_ACCOUNT_ID.in(Collections2.transform(kbAccountIds, UUID::toString)))
+                                         .and(STRIPE_PAYMENT_METHODS.IS_DELETED.equal((short) FALSE))
+                                         .and(STRIPE_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .orderBy(STRIPE_PAYMENT_METHODS.RECORD_ID)
+                                         .fetch();
+                           }
+                       });
+    }
+
+    // Bulk syncs
+
+    public StripeBulkSyncsRecord getBulkSync(final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<StripeBulkSyncsRecord>() {
+                           @Override
+                           public StripeBulkSyncsRecord withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(STRIPE_BULK_SYNCS)
+                                         .where(STRIPE_BULK_SYNCS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .fetchOne();
+                           }
+                       });
+    }
+
+    /**
+     * Store the progress of the bulk sync of the tenant (one row per tenant, created on the first sync).
+     */
+    public void saveBulkSync(final StripeBulkSyncsRecord bulkSync, final DateTime utcNow) throws SQLException {
+        if (bulkSync.getCreatedDate() == null) {
+            bulkSync.setCreatedDate(toLocalDateTime(utcNow));
+        }
+        bulkSync.setUpdatedDate(toLocalDateTime(utcNow));
+
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        final DSLContext dslContext = DSL.using(conn, dialect, settings);
+                        final int updated = dslContext.update(STRIPE_BULK_SYNCS)
+                                                      .set(STRIPE_BULK_SYNCS.STATE, bulkSync.getState())
+                                                      .set(STRIPE_BULK_SYNCS.STARTING_AFTER, bulkSync.getStartingAfter())
+                                                      .set(STRIPE_BULK_SYNCS.NB_CUSTOMERS, bulkSync.getNbCustomers())
+                                                      .set(STRIPE_BULK_SYNCS.NB_ADDED, bulkSync.getNbAdded())
+                                                      .set(STRIPE_BULK_SYNCS.NB_UPDATED, bulkSync.getNbUpdated())
+                                                      .set(STRIPE_BULK_SYNCS.NB_DELETED, bulkSync.getNbDeleted())
+                                                      .set(STRIPE_BULK_SYNCS.LAST_ERROR, bulkSync.getLastError())
+                                                      .set(STRIPE_BULK_SYNCS.UPDATED_DATE, bulkSync.getUpdatedDate())
+                                                      .where(STRIPE_BULK_SYNCS.KB_TENANT_ID.equal(bulkSync.getKbTenantId()))
+                                                      .execute();
+                        if (updated == 0) {
+                            dslContext.insertInto(STRIPE_BULK_SYNCS)
+                                      .set(bulkSync)
+                                      .execute();
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    // Leases
+
+    /**
+     * Acquire or renew the lease of the tenant until leaseUntil: this only succeeds if the lease is free, expired or
+     * already held by owner, so only one node at a time holds it.
+     */
+    public boolean tryAcquireLease(final String leaseName,
+                                   final String owner,
+                                   final DateTime leaseUntil,
+                                   final DateTime utcNow,
+                                   final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Boolean>() {
+                           @Override
+                           public Boolean withConnection(final Connection conn) throws SQLException {
+                               final DSLContext dslContext = DSL.using(conn, dialect, settings);
+                               final int updated = dslContext.update(STRIPE_LEASES)
+                                                             .set(STRIPE_LEASES.OWNER, owner)
+                                                             .set(STRIPE_LEASES.EXPIRATION_DATE, toLocalDateTime(leaseUntil))
+                                                             .set(STRIPE_LEASES.UPDATED_DATE, toLocalDateTime(utcNow))
+                                                             .where(STRIPE_LEASES.LEASE_NAME.equal(leaseName))
+                                                             .and(STRIPE_LEASES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                             .and(STRIPE_LEASES.OWNER.equal(owner).or(STRIPE_LEASES.EXPIRATION_DATE.le(toLocalDateTime(utcNow))))
+                                                             .execute();
+                               if (updated > 0) {
+                                   return true;
+                               }
+
+                               // First acquisition: if another node inserted the row concurrently, it holds the lease
+                               return dslContext.insertInto(STRIPE_LEASES)
+                                                .set(STRIPE_LEASES.LEASE_NAME, leaseName)
+                                                .set(STRIPE_LEASES.OWNER, owner)
+                                                .set(STRIPE_LEASES.EXPIRATION_DATE, toLocalDateTime(leaseUntil))
+                                                .set(STRIPE_LEASES.CREATED_DATE, toLocalDateTime(utcNow))
+                                                .set(STRIPE_LEASES.UPDATED_DATE, toLocalDateTime(utcNow))
+                                                .set(STRIPE_LEASES.KB_TENANT_ID, kbTenantId.toString())
+                                                .onDuplicateKeyIgnore()
+                                                .execute() > 0;
+                           }
+                       });
+    }
+
+    /**
+     * Release the leases held by owner (across tenants), so that other nodes don't wait for them to expire.
+     */
+    public void releaseLeases(final String leaseName, final String owner) throws SQLException {
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        DSL.using(conn, dialect, settings)
+                           .deleteFrom(STRIPE_LEASES)
+                           .where(STRIPE_LEASES.LEASE_NAME.equal(leaseName))
+                           .and(STRIPE_LEASES.OWNER.equal(owner))
+                           .execute();
+                        return null;
+                    }
+                });
+    }
+
     // HPP requests
 
     public void addHppRequest(final UUID kbAccountId,
@@ -132,7 +449,7 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
                               final Session stripeSession,
                               final DateTime utcNow,
                               final UUID kbTenantId) throws SQLException {
-        final Map<String, Object> additionalDataMap = StripePluginProperties.toAdditionalDataMap(stripeSession, null);
+        final String additionalData = additionalDataWriter.write(stripeSession, null);
 
         execute(dataSource.getConnection(),
                 new WithConnectionCallback<Void>() {
@@ -151,7 +468,7 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
                                    kbPaymentId == null ? null : kbPaymentId.toString(),
                                    kbPaymentTransactionId == null ? null : kbPaymentTransactionId.toString(),
                                    stripeSession.getId(),
-                                   asString(additionalDataMap),
+                                   additionalData,
                                    toLocalDateTime(utcNow),
                                    kbTenantId.toString())
                            .execute();
@@ -177,6 +494,186 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
                        });
     }
 
+    // Events
+
+    /**
+     * @return the stored event, null if this event was already received (Stripe may deliver an event more than once)
+     */
+    public StripeEventsRecord addEvent(final String stripeEventId,
+                                       final String eventType,
+                                       @Nullable final String stripeObjectId,
+                                       final String payload,
+                                       final DateTime eventDate,
+                                       final DateTime utcNow,
+                                       final UUID kbTenantId) throws SQLException {
+        final StripeEventsRecord record = new StripeEventsRecord();
+        record.setStripeEventId(stripeEventId);
+        record.setEventType(eventType);
+        record.setStripeObjectId(stripeObjectId);
+        record.setPayload(payload);
+        record.setEventDate(toLocalDateTime(eventDate).truncatedTo(ChronoUnit.SECONDS));
+        record.setAttempts(0);
+        record.setCreatedDate(toLocalDateTime(utcNow).truncatedTo(ChronoUnit.SECONDS));
+        record.setKbTenantId(kbTenantId.toString());
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<StripeEventsRecord>() {
+                           @Override
+                           public StripeEventsRecord withConnection(final Connection conn) throws SQLException {
+                               final StripeEventsRecord generatedKeys = DSL.using(conn, dialect, settings)
+                                                                           .insertInto(STRIPE_EVENTS)
+                                                                           .set(record)
+                                                                           .onDuplicateKeyIgnore()
+                                                                           .returning(STRIPE_EVENTS.RECORD_ID)
+                                                                           .fetchOne();
+                               if (generatedKeys == null) {
+                                   return null;
+                               }
+                               record.setRecordId(generatedKeys.getRecordId());
+                               record.changed(false);
+                               return record;
+                           }
+                       });
+    }
+
+    /**
+     * Claim up to limit events due for processing: their next attempt is pushed back to leaseUntil, so the events
+     * claimed by a node which went away are picked up again once the lease expires.
+     * <p/>
+     * The rows are locked with SKIP LOCKED on PostgreSQL, so that concurrent nodes claim distinct events without
+     * waiting on each other. Other databases (SKIP LOCKED requires MySQL 8 or MariaDB 10.6) claim each event
+     * through a conditional update instead, which only succeeds for one node.
+     */
+    public List<StripeEventsRecord> claimEvents(final int maxAttempts,
+                                                final int limit,
+                                                final DateTime leaseUntil,
+                                                final DateTime utcNow) throws SQLException {
+        final LocalDateTime nextAttemptDate = toLocalDateTime(leaseUntil);
+        final Condition due = STRIPE_EVENTS.PROCESSED_DATE.isNull()
+                                                          .and(STRIPE_EVENTS.ATTEMPTS.lt(maxAttempts))
+                                                          .and(STRIPE_EVENTS.NEXT_ATTEMPT_DATE.isNull().or(STRIPE_EVENTS.NEXT_ATTEMPT_DATE.le(toLocalDateTime(utcNow))));
+        return execute(dataSource.getConnection(),
+                       conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
+                           final DSLContext dslContext = DSL.using(configuration);
+                           final List<StripeEventsRecord> claimed = new ArrayList<StripeEventsRecord>();
+                           if (dialect.family() == SQLDialect.POSTGRES) {
+                               claimed.addAll(dslContext.selectFrom(STRIPE_EVENTS)
+                                                        .where(due)
+                                                        .orderBy(STRIPE_EVENTS.RECORD_ID)
+                                                        .limit(limit)
+                                                        .forUpdate()
+                                                        .skipLocked()
+                                                        .fetch());
+                               if (!claimed.isEmpty()) {
+                                   dslContext.update(STRIPE_EVENTS)
+                                             .set(STRIPE_EVENTS.ATTEMPTS, STRIPE_EVENTS.ATTEMPTS.plus(1))
+                                             .set(STRIPE_EVENTS.NEXT_ATTEMPT_DATE, nextAttemptDate)
+                                             .where(STRIPE_EVENTS.RECORD_ID.in(Lists.transform(claimed, StripeEventsRecord::getRecordId)))
+                                             .execute();
+                               }
+                           } else {
+                               for (final StripeEventsRecord candidate : dslContext.selectFrom(STRIPE_EVENTS)
+                                                                                   .where(due)
+                                                                                   .orderBy(STRIPE_EVENTS.RECORD_ID)
+                                                                                   .limit(limit)
+                                                                                   .fetch()) {
+                                   final int updated = dslContext.update(STRIPE_EVENTS)
+                                                                 .set(STRIPE_EVENTS.ATTEMPTS, STRIPE_EVENTS.ATTEMPTS.plus(1))
+                                                                 .set(STRIPE_EVENTS.NEXT_ATTEMPT_DATE, nextAttemptDate)
+                                                                 .where(STRIPE_EVENTS.RECORD_ID.equal(candidate.getRecordId()))
+                                                                 .and(STRIPE_EVENTS.ATTEMPTS.equal(candidate.getAttempts()))
+                                                                 .and(due)
+                                                                 .execute();
+                                   if (updated == 1) {
+                                       claimed.add(candidate);
+                                   }
+                               }
+                           }
+
+                           for (final StripeEventsRecord event : claimed) {
+                               event.setAttempts(event.getAttempts() + 1);
+                               event.setNextAttemptDate(nextAttemptDate);
+                               event.changed(false);
+                           }
+                           return claimed;
+                       }));
+    }
+
+    /**
+     * @return false if the event had already been processed: when called within a unit of work, the caller should roll back
+     */
+    public boolean markEventProcessed(final StripeEventsRecord event, final DateTime utcNow) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Boolean>() {
+                           @Override
+                           public Boolean withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .update(STRIPE_EVENTS)
+                                         .set(STRIPE_EVENTS.PROCESSED_DATE, toLocalDateTime(utcNow))
+                                         .set(STRIPE_EVENTS.LAST_ERROR, (String) null)
+                                         .where(STRIPE_EVENTS.RECORD_ID.equal(event.getRecordId()))
+                                         .and(STRIPE_EVENTS.PROCESSED_DATE.isNull())
+                                         .execute() == 1;
+                           }
+                       });
+    }
+
+    public void scheduleEventRetry(final StripeEventsRecord event, final DateTime nextAttemptDate, final String error) throws SQLException {
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        DSL.using(conn, dialect, settings)
+                           .update(STRIPE_EVENTS)
+                           .set(STRIPE_EVENTS.NEXT_ATTEMPT_DATE, toLocalDateTime(nextAttemptDate))
+                           .set(STRIPE_EVENTS.LAST_ERROR, error.length() > STRIPE_EVENTS.LAST_ERROR.getDataType().length() ? error.substring(0, STRIPE_EVENTS.LAST_ERROR.getDataType().length()) : error)
+                           .where(STRIPE_EVENTS.RECORD_ID.equal(event.getRecordId()))
+                           .and(STRIPE_EVENTS.PROCESSED_DATE.isNull())
+                           .execute();
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * The date of the most recent event applied for the same Stripe object (Stripe doesn't guarantee delivery order),
+     * null if none. Event dates are to the second, so an equal date doesn't tell which event is the most recent.
+     */
+    public LocalDateTime getLatestProcessedEventDate(final StripeEventsRecord event) throws SQLException {
+        if (event.getStripeObjectId() == null) {
+            return null;
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<LocalDateTime>() {
+                           @Override
+                           public LocalDateTime withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .select(DSL.max(STRIPE_EVENTS.EVENT_DATE))
+                                         .from(STRIPE_EVENTS)
+                                         .where(STRIPE_EVENTS.STRIPE_OBJECT_ID.equal(event.getStripeObjectId()))
+                                         .and(STRIPE_EVENTS.KB_TENANT_ID.equal(event.getKbTenantId()))
+                                         .and(STRIPE_EVENTS.RECORD_ID.notEqual(event.getRecordId()))
+                                         .and(STRIPE_EVENTS.PROCESSED_DATE.isNotNull())
+                                         .fetchOne(0, LocalDateTime.class);
+                           }
+                       });
+    }
+
+    public StripeEventsRecord getEvent(final String stripeEventId, final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<StripeEventsRecord>() {
+                           @Override
+                           public StripeEventsRecord withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(STRIPE_EVENTS)
+                                         .where(STRIPE_EVENTS.STRIPE_EVENT_ID.equal(stripeEventId))
+                                         .and(STRIPE_EVENTS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .fetchOne();
+                           }
+                       });
+    }
+
     // Responses
 
     public StripeResponsesRecord addResponse(final UUID kbAccountId,
@@ -190,44 +687,44 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
                                              @Nullable final StripeException stripeException,
                                              final DateTime utcNow,
                                              final UUID kbTenantId) throws SQLException {
-        final Map<String, Object> additionalDataMap;
+        final String additionalData;
         if (stripePaymentIntent != null) {
-            additionalDataMap = StripePluginProperties.toAdditionalDataMap(stripePaymentIntent, lastCharge);
+            additionalData = additionalDataWriter.write(stripePaymentIntent, lastCharge);
         } else if (stripeException != null) {
-            additionalDataMap = StripePluginProperties.toAdditionalDataMap(stripeException);
+            additionalData = asString(StripePluginProperties.toAdditionalDataMap(stripeException));
         } else {
-            additionalDataMap = Collections.emptyMap();
+            additionalData = asString(Collections.emptyMap());
         }
 
+        // Built in memory with the values as stored (amount at the column scale, created date to the second),
+        // so only the generated record_id needs to be read back: through RETURNING on PostgreSQL, generated keys otherwise
+        final StripeResponsesRecord record = new StripeResponsesRecord();
+        record.setKbAccountId(kbAccountId.toString());
+        record.setKbPaymentId(kbPaymentId.toString());
+        record.setKbPaymentTransactionId(kbPaymentTransactionId.toString());
+        record.setTransactionType(transactionType.toString());
+        record.setAmount(amount == null ? null : amount.setScale(STRIPE_RESPONSES.AMOUNT.getDataType().scale(), RoundingMode.HALF_UP));
+        record.setCurrency(currency == null ? null : currency.name());
+        record.setStripeId(stripePaymentIntent == null ? null : stripePaymentIntent.getId());
+        record.setAdditionalData(additionalData);
+        record.setCreatedDate(toLocalDateTime(utcNow).truncatedTo(ChronoUnit.SECONDS));
+        record.setKbTenantId(kbTenantId.toString());
+        record.setIsUnresolved(toUnresolvedFlag(new StripeAdditionalData(additionalData)));
+
         return execute(dataSource.getConnection(),
-                       conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
-                           final DSLContext dslContext = DSL.using(configuration);
-                           dslContext.insertInto(STRIPE_RESPONSES,
-                                                 STRIPE_RESPONSES.KB_ACCOUNT_ID,
-                                                 STRIPE_RESPONSES.KB_PAYMENT_ID,
-                                                 STRIPE_RESPONSES.KB_PAYMENT_TRANSACTION_ID,
-                                                 STRIPE_RESPONSES.TRANSACTION_TYPE,
-                                                 STRIPE_RESPONSES.AMOUNT,
-                                                 STRIPE_RESPONSES.CURRENCY,
-                                                 STRIPE_RESPONSES.STRIPE_ID,
-                                                 STRIPE_RESPONSES.ADDITIONAL_DATA,
-                                                 STRIPE_RESPONSES.CREATED_DATE,
-                                                 STRIPE_RESPONSES.KB_TENANT_ID)
-                              .values(kbAccountId.toString(),
-                                      kbPaymentId.toString(),
-                                      kbPaymentTransactionId.toString(),
-                                      transactionType.toString(),
-                                      amount,
-                                      currency == null ? null : currency.name(),
-                                      stripePaymentIntent == null ? null : stripePaymentIntent.getId(),
-                                      asString(additionalDataMap),
-                                      toLocalDateTime(utcNow),
-                                      kbTenantId.toString())
-                              .execute();
-                           return dslContext.fetchOne(
-                                   STRIPE_RESPONSES,
-                                   STRIPE_RESPONSES.RECORD_ID.eq(STRIPE_RESPONSES.RECORD_ID.getDataType().convert(dslContext.lastID())));
-                       }));
+                       new WithConnectionCallback<StripeResponsesRecord>() {
+                           @Override
+                           public StripeResponsesRecord withConnection(final Connection conn) throws SQLException {
+                               final StripeResponsesRecord generatedKeys = DSL.using(conn, dialect, settings)
+                                                                              .insertInto(STRIPE_RESPONSES)
+                                                                              .set(record)
+                                                                              .returning(STRIPE_RESPONSES.RECORD_ID)
+                                                                              .fetchOne();
+                               record.setRecordId(generatedKeys.getRecordId());
+                               record.changed(false);
+                               return record;
+                           }
+                       });
     }
 
     public StripeResponsesRecord updateResponse(final UUID kbPaymentTransactionId,
@@ -245,42 +742,65 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
         return updateResponse(kbPaymentTransactionId, additionalProperties, kbTenantId);
     }
 
+    /**
+     * Merge the additional properties into the latest response of the transaction, atomically (see {@link #mergeAdditionalData}).
+     *
+     * @return the updated record, null if the transaction has no response
+     */
     public StripeResponsesRecord updateResponse(final UUID kbPaymentTransactionId,
                                                 final Map<String, Object> additionalProperties,
                                                 final UUID kbTenantId) throws SQLException {
         return execute(dataSource.getConnection(),
-                       new WithConnectionCallback<StripeResponsesRecord>() {
-                           @Override
-                           public StripeResponsesRecord withConnection(final Connection conn) throws SQLException {
-                               final StripeResponsesRecord response = DSL.using(conn, dialect, settings)
-                                                                         .selectFrom(STRIPE_RESPONSES)
-                                                                         .where(STRIPE_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(kbPaymentTransactionId.toString()))
-                                                                         .and(STRIPE_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
-                                                                         .orderBy(STRIPE_RESPONSES.RECORD_ID.desc())
-                                                                         .limit(1)
-                                                                         .fetchOne();
-
-                               if (response == null) {
-                                   return null;
-                               }
+                       conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> mergeAdditionalData(DSL.using(configuration),
+                                                                                                                       kbPaymentTransactionId,
+                                                                                                                       additionalProperties,
+                                                                                                                       kbTenantId)));
+    }
 
-                               final Map originalData = new HashMap(fromAdditionalData(response.getAdditionalData()));
-                               originalData.putAll(additionalProperties);
+    /**
+     * Merge the additional properties into the latest response of each transaction, in a single transaction.
+     *
+     * @return the updated records (transactions without any response are skipped)
+     */
+    public List<StripeResponsesRecord> updateResponses(final Map<UUID, Map<String, Object>> additionalPropertiesByKbPaymentTransactionId,
+                                                       final UUID kbTenantId) throws SQLException {
+        if (additionalPropertiesByKbPaymentTransactionId.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-                               DSL.using(conn, dialect, settings)
-                                  .update(STRIPE_RESPONSES)
-                                  .set(STRIPE_RESPONSES.ADDITIONAL_DATA, asString(originalData))
-                                  .where(STRIPE_RESPONSES.RECORD_ID.equal(response.getRecordId()))
-                                  .execute();
-                               return response;
+        return execute(dataSource.getConnection(),
+                       conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
+                           final DSLContext dslContext = DSL.using(configuration);
+                           final List<StripeResponsesRecord> updatedResponses = new ArrayList<StripeResponsesRecord>(additionalPropertiesByKbPaymentTransactionId.size());
+                           for (final Map.Entry<UUID, Map<String, Object>> entry : additionalPropertiesByKbPaymentTransactionId.entrySet()) {
+                               final StripeResponsesRecord updatedResponse = mergeAdditionalData(dslContext, entry.getKey(), entry.getValue(), kbTenantId);
+                               if (updatedResponse != null) {
+                                   updatedResponses.add(updatedResponse);
+                               }
                            }
-                       });
+                           return updatedResponses;
+                       }));
     }
 
-    public void updateResponse(final StripeResponsesRecord stripeResponsesRecord,
-                               final Map additionalMetadata) throws SQLException {
-        final Map additionalDataMap = fromAdditionalData(stripeResponsesRecord.getAdditionalData());
+    /**
+     * @return the updated record (the record passed in is left untouched)
+     */
+    public StripeResponsesRecord updateResponse(final StripeResponsesRecord stripeResponsesRecord,
+                                                final Map additionalMetadata) throws SQLException {
+        return updateResponse(stripeResponsesRecord, new StripeAdditionalData(stripeResponsesRecord.getAdditionalData()), additionalMetadata);
+    }
+
+    /**
+     * @param stripeAdditionalData already parsed additional data of the record
+     * @return the updated record (the record passed in is left untouched)
+     */
+    public StripeResponsesRecord updateResponse(final StripeResponsesRecord stripeResponsesRecord,
+                                                final StripeAdditionalData stripeAdditionalData,
+                                                final Map additionalMetadata) throws SQLException {
+        final Map additionalDataMap = new HashMap(stripeAdditionalData.getMap());
         additionalDataMap.putAll(additionalMetadata);
+        final String additionalData = asString(additionalDataMap);
+        final short unresolved = toUnresolvedFlag(new StripeAdditionalData(additionalData));
 
         execute(dataSource.getConnection(),
                 new WithConnectionCallback<Void>() {
@@ -288,12 +808,86 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
                     public Void withConnection(final Connection conn) throws SQLException {
                         DSL.using(conn, dialect, settings)
                            .update(STRIPE_RESPONSES)
-                           .set(STRIPE_RESPONSES.ADDITIONAL_DATA, asString(additionalDataMap))
+                           .set(STRIPE_RESPONSES.ADDITIONAL_DATA, additionalData)
+                           .set(STRIPE_RESPONSES.IS_UNRESOLVED, unresolved)
                            .where(STRIPE_RESPONSES.RECORD_ID.equal(stripeResponsesRecord.getRecordId()))
                            .execute();
                         return null;
                     }
                 });
+        return withAdditionalData(stripeResponsesRecord, additionalData, unresolved);
+    }
+
+    /**
+     * Tenants with PENDING or UNDEFINED responses created since createdSince (only the flagged rows of the
+     * stripe_responses_is_unresolved_kb_tenant_id_created_date index are read).
+     */
+    public List<UUID> getTenantIdsWithUnresolvedResponsesCreatedSince(final DateTime createdSince) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<UUID>>() {
+                           @Override
+                           public List<UUID> withConnection(final Connection conn) throws SQLException {
+                               final List<UUID> kbTenantIds = new ArrayList<UUID>();
+                               for (final String kbTenantId : DSL.using(conn, dialect, settings)
+                                                                 .selectDistinct(STRIPE_RESPONSES.KB_TENANT_ID)
+                                                                 .from(STRIPE_RESPONSES)
+                                                                 .where(STRIPE_RESPONSES.IS_UNRESOLVED.equal(UNRESOLVED))
+                                                                 .and(STRIPE_RESPONSES.CREATED_DATE.ge(toLocalDateTime(createdSince)))
+                                                                 .fetch(STRIPE_RESPONSES.KB_TENANT_ID)) {
+                                   kbTenantIds.add(UUID.fromString(kbTenantId));
+                               }
+                               return kbTenantIds;
+                           }
+                       });
+    }
+
+    /**
+     * Page through the PENDING and UNDEFINED responses of a tenant by creation date (see the
+     * stripe_responses_is_unresolved_kb_tenant_id_created_date index).
+     *
+     * @param after last record of the previous page, null for the first page
+     */
+    public List<StripeResponsesRecord> getUnresolvedResponsesCreatedSince(final UUID kbTenantId,
+                                                                          final DateTime createdSince,
+                                                                          @Nullable final StripeResponsesRecord after,
+                                                                          final int limit) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<StripeResponsesRecord>>() {
+                           @Override
+                           public List<StripeResponsesRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(STRIPE_RESPONSES)
+                                         .where(STRIPE_RESPONSES.IS_UNRESOLVED.equal(UNRESOLVED))
+                                         .and(STRIPE_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .and(STRIPE_RESPONSES.CREATED_DATE.ge(toLocalDateTime(createdSince)))
+                                         .and(after == null ? DSL.trueCondition() : DSL.row(STRIPE_RESPONSES.CREATED_DATE, STRIPE_RESPONSES.RECORD_ID).gt(after.getCreatedDate(), after.getRecordId()))
+                                         .orderBy(STRIPE_RESPONSES.CREATED_DATE, STRIPE_RESPONSES.RECORD_ID)
+                                         .limit(limit)
+                                         .fetch();
+                           }
+                       });
+    }
+
+    /**
+     * Clear the flag of responses which turned out to be resolved (e.g. flagged by the migration which introduced it).
+     */
+    public void clearUnresolvedFlags(final Collection<ULong> recordIds) throws SQLException {
+        if (recordIds.isEmpty()) {
+            return;
+        }
+
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        DSL.using(conn, dialect, settings)
+                           .update(STRIPE_RESPONSES)
+                           .set(STRIPE_RESPONSES.IS_UNRESOLVED, RESOLVED)
+                           .where(STRIPE_RESPONSES.RECORD_ID.in(recordIds))
+                           .execute();
+                        return null;
+                    }
+                });
     }
 
     @Override
@@ -317,6 +911,146 @@ public class StripeDao extends PluginPaymentDao<StripeResponsesRecord, StripeRes
                        });
     }
 
+    /**
+     * Shallow merge of the additional properties into the additional_data of the latest response of the transaction,
+     * with the same semantics as serializing the merged map: null or empty values remove the key.
+     * <p/>
+     * On MySQL and PostgreSQL, the merge is a single UPDATE (JSON_MERGE_PATCH, jsonb ||), so concurrent
+     * updates of the same response (refresh, janitor, HPP completion) can't overwrite each other. Other databases
+     * lock the row (SELECT ... FOR UPDATE) and merge in Java: the caller must run this in a transaction.
+     */
+    private StripeResponsesRecord mergeAdditionalData(final DSLContext dslContext,
+                                                      final UUID kbPaymentTransactionId,
+                                                      final Map<String, Object> additionalProperties,
+                                                      final UUID kbTenantId) throws SQLException {
+        final Condition latestResponseCondition = STRIPE_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(kbPaymentTransactionId.toString())
+                                                                                            .and(STRIPE_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()));
+        if (additionalProperties.isEmpty()) {
+            return dslContext.selectFrom(STRIPE_RESPONSES)
+                             .where(latestResponseCondition)
+                             .orderBy(STRIPE_RESPONSES.RECORD_ID.desc())
+                             .limit(1)
+                             .fetchOne();
+        }
+
+        // Keys are always removed first: the patch then re-adds the non-empty values (nested objects are replaced, not merged)
+        final List<String> keys = new ArrayList<String>(additionalProperties.keySet());
+        final String patch = asString(additionalProperties);
+
+        switch (dialect.family()) {
+            case MYSQL:
+            case MARIADB:
+                final StringBuilder mergePatch = new StringBuilder("json_merge_patch(json_remove({0}");
+                final List<QueryPart> mergePatchArguments = new ArrayList<QueryPart>(keys.size() + 2);
+                mergePatchArguments.add(DSL.coalesce(STRIPE_RESPONSES.ADDITIONAL_DATA, DSL.inline("{}")));
+                for (final String key : keys) {
+                    mergePatch.append(", {").append(mergePatchArguments.size()).append('}');
+                    mergePatchArguments.add(DSL.val(toJsonPath(key)));
+                }
+                mergePatch.append("), {").append(mergePatchArguments.size()).append("})");
+                mergePatchArguments.add(DSL.val(patch));
+
+                // No RETURNING: read the row back in the same transaction, the UPDATE holds its lock
+                final int updated = dslContext.update(STRIPE_RESPONSES)
+                                              .set(STRIPE_RESPONSES.ADDITIONAL_DATA, DSL.field(mergePatch.toString(), String.class, mergePatchArguments.toArray(new QueryPart[0])))
+                                              .where(latestResponseCondition)
+                                              .orderBy(STRIPE_RESPONSES.RECORD_ID.desc())
+                                              .limit(1)
+                                              .execute();
+                if (updated == 0) {
+                    return null;
+                }
+                final StripeResponsesRecord updatedResponse = dslContext.selectFrom(STRIPE_RESPONSES)
+                                                                        .where(latestResponseCondition)
+                                                                        .orderBy(STRIPE_RESPONSES.RECORD_ID.desc())
+                                                                        .limit(1)
+                                                                        .fetchOne();
+                return withUpdatedUnresolvedFlag(dslContext, updatedResponse);
+            case POSTGRES:
+                final StripeResponsesRecord merged = dslContext.update(STRIPE_RESPONSES)
+                                                               .set(STRIPE_RESPONSES.ADDITIONAL_DATA,
+                                                                    DSL.field("(({0}::jsonb - {1}::text[]) || {2}::jsonb)::text",
+                                                                              String.class,
+                                                                              DSL.coalesce(STRIPE_RESPONSES.ADDITIONAL_DATA, DSL.inline("{}")),
+                                                                              DSL.val(keys.toArray(new String[0])),
+                                                                              DSL.val(patch)))
+                                                               .where(STRIPE_RESPONSES.RECORD_ID.equal(DSL.select(STRIPE_RESPONSES.RECORD_ID)
+                                                                                                          .from(STRIPE_RESPONSES)
+                                                                                                          .where(latestResponseCondition)
+                                                                                                          .orderBy(STRIPE_RESPONSES.RECORD_ID.desc())
+                                                                                                          .limit(1)))
+                                                               .returning()
+                                                               .fetchOne();
+                return withUpdatedUnresolvedFlag(dslContext, merged);
+            default:
+                final StripeResponsesRecord response = dslContext.selectFrom(STRIPE_RESPONSES)
+                                                                 .where(latestResponseCondition)
+                                                                 .orderBy(STRIPE_RESPONSES.RECORD_ID.desc())
+                                                                 .limit(1)
+                                                                 .forUpdate()
+                                                                 .fetchOne();
+                if (response == null) {
+                    return null;
+                }
+
+                final Map originalData = new HashMap(fromAdditionalData(response.getAdditionalData()));
+                originalData.putAll(additionalProperties);
+                final String additionalData = asString(originalData);
+                final short unresolved = toUnresolvedFlag(new StripeAdditionalData(additionalData));
+
+                dslContext.update(STRIPE_RESPONSES)
+                          .set(STRIPE_RESPONSES.ADDITIONAL_DATA, additionalData)
+                          .set(STRIPE_RESPONSES.IS_UNRESOLVED, unresolved)
+                          .where(STRIPE_RESPONSES.RECORD_ID.equal(response.getRecordId()))
+                          .execute();
+                return withAdditionalData(response, additionalData, unresolved);
+        }
+    }
+
+    private static String toJsonPath(final String key) {
+        return "$.\"" + key.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    // The additional data was merged by the database: derive the flag from the merged value, in the same transaction
+    private StripeResponsesRecord withUpdatedUnresolvedFlag(final DSLContext dslContext, @Nullable final StripeResponsesRecord response) {
+        if (response == null) {
+            return null;
+        }
+
+        final short unresolved = toUnresolvedFlag(new StripeAdditionalData(response.getAdditionalData()));
+        if (response.getIsUnresolved() != null && response.getIsUnresolved() == unresolved) {
+            return response;
+        }
+        dslContext.update(STRIPE_RESPONSES)
+                  .set(STRIPE_RESPONSES.IS_UNRESOLVED, unresolved)
+                  .where(STRIPE_RESPONSES.RECORD_ID.equal(response.getRecordId()))
+                  .execute();
+        return withAdditionalData(response, response.getAdditionalData(), unresolved);
+    }
+
+    private static short toUnresolvedFlag(final StripeAdditionalData additionalData) {
+        final PaymentPluginStatus status = StripePaymentTransactionInfoPlugin.getPaymentPluginStatus(additionalData);
+        return status == PaymentPluginStatus.PENDING || status == PaymentPluginStatus.UNDEFINED ? UNRESOLVED : RESOLVED;
+    }
+
+    // Mirror of the row after an additional_data update, so callers don't need to fetch it again
+    private static StripeResponsesRecord withAdditionalData(final StripeResponsesRecord stripeResponsesRecord, final String additionalData, final short unresolved) {
+        final StripeResponsesRecord updatedRecord = new StripeResponsesRecord(stripeResponsesRecord.getRecordId(),
+                                                                              stripeResponsesRecord.getKbAccountId(),
+                                                                              stripeResponsesRecord.getKbPaymentId(),
+                                                                              stripeResponsesRecord.getKbPaymentTransactionId(),
+                                                                              stripeResponsesRecord.getTransactionType(),
+                                                                              stripeResponsesRecord.getAmount(),
+                                                                              stripeResponsesRecord.getCurrency(),
+                                                                              stripeResponsesRecord.getStripeId(),
+                                                                              additionalData,
+                                                                              stripeResponsesRecord.getCreatedDate(),
+                                                                              stripeResponsesRecord.getKbTenantId(),
+                                                                              unresolved);
+        updatedRecord.changed(false);
+        return updatedRecord;
+    }
+
     public static Map fromAdditionalData(@Nullable final String additionalData) {
         if (additionalData == null) {
             return Collections.emptyMap();
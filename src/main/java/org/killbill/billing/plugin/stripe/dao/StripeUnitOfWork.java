@@ -0,0 +1,247 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe.dao;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binds a single connection to the current thread, so that consecutive {@link StripeDao} calls share it
+ * instead of each checking out their own from the pool.
+ * <p>
+ * The connection is checked out lazily, on the first DAO call. Outside of a transaction, {@link #release()}
+ * hands it back to the pool early (typically before a Stripe round trip) and the next DAO call checks out
+ * a new one. In a transaction, the connection is kept until {@link #close()}: the DAO transactions join the
+ * unit of work, which is committed by {@link #commit()} and rolled back on close otherwise.
+ * <p>
+ * Units of work are not thread-safe and nest: beginning a unit of work while one is bound joins it. A transaction
+ * can't be begun in a unit of work which isn't one, as its statements would silently commit on their own.
+ */
+public final class StripeUnitOfWork implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeUnitOfWork.class);
+
+    private final BoundDataSource dataSource;
+    private final boolean inTransaction;
+
+    private int depth = 1;
+    private Connection connection;
+    private Connection boundConnection;
+
+    private StripeUnitOfWork(final BoundDataSource dataSource, final boolean inTransaction) {
+        this.dataSource = dataSource;
+        this.inTransaction = inTransaction;
+    }
+
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    /**
+     * Hand the connection back to the pool: no-op in a transaction, or if no DAO call was made since the last release.
+     */
+    public void release() {
+        if (inTransaction || connection == null) {
+            return;
+        }
+        closeConnection();
+    }
+
+    /**
+     * Commit the work done so far: no-op outside of a transaction, or in a nested unit of work (the outermost one owns the transaction).
+     */
+    public void commit() throws SQLException {
+        if (!inTransaction || depth > 1 || connection == null) {
+            return;
+        }
+        connection.commit();
+    }
+
+    @Override
+    public void close() {
+        depth--;
+        if (depth > 0) {
+            return;
+        }
+
+        dataSource.current.remove();
+        if (connection == null) {
+            return;
+        }
+        if (inTransaction) {
+            try {
+                // Nothing to roll back if commit() was called last
+                connection.rollback();
+                connection.setAutoCommit(true);
+            } catch (final SQLException e) {
+                logger.warn("Unable to roll back unit of work", e);
+            }
+        }
+        closeConnection();
+    }
+
+    private Connection getConnection() throws SQLException {
+        if (connection == null) {
+            final Connection newConnection = dataSource.delegate.getConnection();
+            if (inTransaction) {
+                try {
+                    newConnection.setAutoCommit(false);
+                } catch (final SQLException e) {
+                    newConnection.close();
+                    throw e;
+                }
+            }
+            connection = newConnection;
+            boundConnection = bind(newConnection);
+        }
+        return boundConnection;
+    }
+
+    private void closeConnection() {
+        try {
+            connection.close();
+        } catch (final SQLException e) {
+            logger.warn("Unable to release unit of work connection", e);
+        } finally {
+            connection = null;
+            boundConnection = null;
+        }
+    }
+
+    // The DAO closes the connection after each call and jOOQ commits its own transactions: in a unit of work,
+    // closing is deferred to the unit of work and, in a transaction, so are commits, rollbacks and autocommit changes
+    private Connection bind(final Connection physicalConnection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                   new Class<?>[]{Connection.class},
+                                                   (proxy, method, args) -> {
+                                                       final String methodName = method.getName();
+                                                       final int parameterCount = method.getParameterCount();
+                                                       if ("close".equals(methodName)) {
+                                                           return null;
+                                                       } else if ("isClosed".equals(methodName)) {
+                                                           return boundConnection != proxy;
+                                                       } else if (inTransaction &&
+                                                                  ((("commit".equals(methodName) || "rollback".equals(methodName)) && parameterCount == 0) ||
+                                                                   "setAutoCommit".equals(methodName))) {
+                                                           return null;
+                                                       } else if ("unwrap".equals(methodName) && ((Class<?>) args[0]).isInstance(proxy)) {
+                                                           return proxy;
+                                                       } else if ("isWrapperFor".equals(methodName) && ((Class<?>) args[0]).isInstance(proxy)) {
+                                                           return true;
+                                                       } else if ("equals".equals(methodName) && parameterCount == 1) {
+                                                           return proxy == args[0];
+                                                       } else if ("hashCode".equals(methodName) && parameterCount == 0) {
+                                                           return System.identityHashCode(proxy);
+                                                       }
+
+                                                       try {
+                                                           return method.invoke(physicalConnection, args);
+                                                       } catch (final InvocationTargetException e) {
+                                                           throw e.getCause();
+                                                       }
+                                                   });
+    }
+
+    /**
+     * DataSource handed to the DAO: returns the connection of the unit of work bound to the current thread, if any.
+     */
+    static final class BoundDataSource implements DataSource {
+
+        private final DataSource delegate;
+        private final ThreadLocal<StripeUnitOfWork> current = new ThreadLocal<StripeUnitOfWork>();
+
+        BoundDataSource(final DataSource delegate) {
+            this.delegate = delegate;
+        }
+
+        StripeUnitOfWork begin(final boolean inTransaction) {
+            final StripeUnitOfWork unitOfWork = current.get();
+            if (unitOfWork != null) {
+                if (inTransaction && !unitOfWork.inTransaction) {
+                    throw new IllegalStateException("Unable to begin a transaction in a unit of work which isn't transactional");
+                }
+                unitOfWork.depth++;
+                return unitOfWork;
+            }
+
+            final StripeUnitOfWork newUnitOfWork = new StripeUnitOfWork(this, inTransaction);
+            current.set(newUnitOfWork);
+            return newUnitOfWork;
+        }
+
+        StripeUnitOfWork current() {
+            return current.get();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            final StripeUnitOfWork unitOfWork = current.get();
+            return unitOfWork == null ? delegate.getConnection() : unitOfWork.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(final String username, final String password) throws SQLException {
+            return delegate.getConnection(username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return delegate.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(final PrintWriter out) throws SQLException {
+            delegate.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(final int seconds) throws SQLException {
+            delegate.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return delegate.getLoginTimeout();
+        }
+
+        @Override
+        public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return delegate.getParentLogger();
+        }
+
+        @Override
+        public <T> T unwrap(final Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || delegate.isWrapperFor(iface);
+        }
+    }
+}
@@ -7,6 +7,7 @@ package org.killbill.billing.plugin.stripe.dao.gen;
 import org.jooq.Index;
 import org.jooq.OrderField;
 import org.jooq.impl.Internal;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeEvents;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeHppRequests;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripePaymentMethods;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
@@ -22,11 +23,15 @@ public class Indexes {
     // INDEX definitions
     // -------------------------------------------------------------------------
 
+    public static final Index STRIPE_EVENTS_STRIPE_EVENTS_PROCESSED_DATE_NEXT_ATTEMPT_DATE = Indexes0.STRIPE_EVENTS_STRIPE_EVENTS_PROCESSED_DATE_NEXT_ATTEMPT_DATE;
+    public static final Index STRIPE_EVENTS_STRIPE_EVENTS_STRIPE_OBJECT_ID_KB_TENANT_ID = Indexes0.STRIPE_EVENTS_STRIPE_EVENTS_STRIPE_OBJECT_ID_KB_TENANT_ID;
     public static final Index STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_ACCOUNT_ID = Indexes0.STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_ACCOUNT_ID;
     public static final Index STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_PAYMENT_TRANSACTION_ID = Indexes0.STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_PAYMENT_TRANSACTION_ID;
+    public static final Index STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_KB_ACCOUNT_ID_KB_TENANT_ID = Indexes0.STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_KB_ACCOUNT_ID_KB_TENANT_ID;
     public static final Index STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_STRIPE_ID = Indexes0.STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_STRIPE_ID;
-    public static final Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_ID = Indexes0.STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_ID;
-    public static final Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_TRANSACTION_ID = Indexes0.STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_TRANSACTION_ID;
+    public static final Index STRIPE_RESPONSES_STRIPE_RESPONSES_IS_UNRESOLVED_KB_TENANT_ID_CREATED_DATE = Indexes0.STRIPE_RESPONSES_STRIPE_RESPONSES_IS_UNRESOLVED_KB_TENANT_ID_CREATED_DATE;
+    public static final Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_ID_KB_TENANT_ID = Indexes0.STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_ID_KB_TENANT_ID;
+    public static final Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_TRANSACTION_ID_KB_TENANT_ID = Indexes0.STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_TRANSACTION_ID_KB_TENANT_ID;
     public static final Index STRIPE_RESPONSES_STRIPE_RESPONSES_STRIPE_ID = Indexes0.STRIPE_RESPONSES_STRIPE_RESPONSES_STRIPE_ID;
 
     // -------------------------------------------------------------------------
@@ -34,11 +39,15 @@ public class Indexes {
     // -------------------------------------------------------------------------
 
     private static class Indexes0 {
+        public static Index STRIPE_EVENTS_STRIPE_EVENTS_PROCESSED_DATE_NEXT_ATTEMPT_DATE = Internal.createIndex("stripe_events_processed_date_next_attempt_date", StripeEvents.STRIPE_EVENTS, new OrderField[] { StripeEvents.STRIPE_EVENTS.PROCESSED_DATE, StripeEvents.STRIPE_EVENTS.NEXT_ATTEMPT_DATE }, false);
+        public static Index STRIPE_EVENTS_STRIPE_EVENTS_STRIPE_OBJECT_ID_KB_TENANT_ID = Internal.createIndex("stripe_events_stripe_object_id_kb_tenant_id", StripeEvents.STRIPE_EVENTS, new OrderField[] { StripeEvents.STRIPE_EVENTS.STRIPE_OBJECT_ID, StripeEvents.STRIPE_EVENTS.KB_TENANT_ID, StripeEvents.STRIPE_EVENTS.EVENT_DATE }, false);
         public static Index STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_ACCOUNT_ID = Internal.createIndex("stripe_hpp_requests_kb_account_id", StripeHppRequests.STRIPE_HPP_REQUESTS, new OrderField[] { StripeHppRequests.STRIPE_HPP_REQUESTS.KB_ACCOUNT_ID }, false);
         public static Index STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_PAYMENT_TRANSACTION_ID = Internal.createIndex("stripe_hpp_requests_kb_payment_transaction_id", StripeHppRequests.STRIPE_HPP_REQUESTS, new OrderField[] { StripeHppRequests.STRIPE_HPP_REQUESTS.KB_PAYMENT_TRANSACTION_ID }, false);
+        public static Index STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_KB_ACCOUNT_ID_KB_TENANT_ID = Internal.createIndex("stripe_payment_methods_kb_account_id_kb_tenant_id", StripePaymentMethods.STRIPE_PAYMENT_METHODS, new OrderField[] { StripePaymentMethods.STRIPE_PAYMENT_METHODS.KB_ACCOUNT_ID, StripePaymentMethods.STRIPE_PAYMENT_METHODS.KB_TENANT_ID }, false);
         public static Index STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_STRIPE_ID = Internal.createIndex("stripe_payment_methods_stripe_id", StripePaymentMethods.STRIPE_PAYMENT_METHODS, new OrderField[] { StripePaymentMethods.STRIPE_PAYMENT_METHODS.STRIPE_ID }, false);
-        public static Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_ID = Internal.createIndex("stripe_responses_kb_payment_id", StripeResponses.STRIPE_RESPONSES, new OrderField[] { StripeResponses.STRIPE_RESPONSES.KB_PAYMENT_ID }, false);
-        public static Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_TRANSACTION_ID = Internal.createIndex("stripe_responses_kb_payment_transaction_id", StripeResponses.STRIPE_RESPONSES, new OrderField[] { StripeResponses.STRIPE_RESPONSES.KB_PAYMENT_TRANSACTION_ID }, false);
+        public static Index STRIPE_RESPONSES_STRIPE_RESPONSES_IS_UNRESOLVED_KB_TENANT_ID_CREATED_DATE = Internal.createIndex("stripe_responses_is_unresolved_kb_tenant_id_created_date", StripeResponses.STRIPE_RESPONSES, new OrderField[] { StripeResponses.STRIPE_RESPONSES.IS_UNRESOLVED, StripeResponses.STRIPE_RESPONSES.KB_TENANT_ID, StripeResponses.STRIPE_RESPONSES.CREATED_DATE }, false);
+        public static Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_ID_KB_TENANT_ID = Internal.createIndex("stripe_responses_kb_payment_id_kb_tenant_id", StripeResponses.STRIPE_RESPONSES, new OrderField[] { StripeResponses.STRIPE_RESPONSES.KB_PAYMENT_ID, StripeResponses.STRIPE_RESPONSES.KB_TENANT_ID, StripeResponses.STRIPE_RESPONSES.RECORD_ID }, false);
+        public static Index STRIPE_RESPONSES_STRIPE_RESPONSES_KB_PAYMENT_TRANSACTION_ID_KB_TENANT_ID = Internal.createIndex("stripe_responses_kb_payment_transaction_id_kb_tenant_id", StripeResponses.STRIPE_RESPONSES, new OrderField[] { StripeResponses.STRIPE_RESPONSES.KB_PAYMENT_TRANSACTION_ID, StripeResponses.STRIPE_RESPONSES.KB_TENANT_ID, StripeResponses.STRIPE_RESPONSES.RECORD_ID }, false);
         public static Index STRIPE_RESPONSES_STRIPE_RESPONSES_STRIPE_ID = Internal.createIndex("stripe_responses_stripe_id", StripeResponses.STRIPE_RESPONSES, new OrderField[] { StripeResponses.STRIPE_RESPONSES.STRIPE_ID }, false);
     }
 }
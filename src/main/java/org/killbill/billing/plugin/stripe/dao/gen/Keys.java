@@ -9,10 +9,16 @@ import org.jooq.TableField;
 import org.jooq.UniqueKey;
 import org.jooq.impl.Internal;
 import org.jooq.types.ULong;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeBulkSyncs;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeEvents;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeHppRequests;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeLeases;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripePaymentMethods;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeBulkSyncsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeEventsRecord;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeHppRequestsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeLeasesRecord;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripePaymentMethodsRecord;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
 
@@ -28,7 +34,10 @@ public class Keys {
     // IDENTITY definitions
     // -------------------------------------------------------------------------
 
+    public static final Identity<StripeBulkSyncsRecord, ULong> IDENTITY_STRIPE_BULK_SYNCS = Identities0.IDENTITY_STRIPE_BULK_SYNCS;
+    public static final Identity<StripeEventsRecord, ULong> IDENTITY_STRIPE_EVENTS = Identities0.IDENTITY_STRIPE_EVENTS;
     public static final Identity<StripeHppRequestsRecord, ULong> IDENTITY_STRIPE_HPP_REQUESTS = Identities0.IDENTITY_STRIPE_HPP_REQUESTS;
+    public static final Identity<StripeLeasesRecord, ULong> IDENTITY_STRIPE_LEASES = Identities0.IDENTITY_STRIPE_LEASES;
     public static final Identity<StripePaymentMethodsRecord, ULong> IDENTITY_STRIPE_PAYMENT_METHODS = Identities0.IDENTITY_STRIPE_PAYMENT_METHODS;
     public static final Identity<StripeResponsesRecord, ULong> IDENTITY_STRIPE_RESPONSES = Identities0.IDENTITY_STRIPE_RESPONSES;
 
@@ -36,9 +45,18 @@ public class Keys {
     // UNIQUE and PRIMARY KEY definitions
     // -------------------------------------------------------------------------
 
+    public static final UniqueKey<StripeBulkSyncsRecord> KEY_STRIPE_BULK_SYNCS_PRIMARY = UniqueKeys0.KEY_STRIPE_BULK_SYNCS_PRIMARY;
+    public static final UniqueKey<StripeBulkSyncsRecord> KEY_STRIPE_BULK_SYNCS_RECORD_ID = UniqueKeys0.KEY_STRIPE_BULK_SYNCS_RECORD_ID;
+    public static final UniqueKey<StripeBulkSyncsRecord> KEY_STRIPE_BULK_SYNCS_STRIPE_BULK_SYNCS_KB_TENANT_ID = UniqueKeys0.KEY_STRIPE_BULK_SYNCS_STRIPE_BULK_SYNCS_KB_TENANT_ID;
+    public static final UniqueKey<StripeEventsRecord> KEY_STRIPE_EVENTS_PRIMARY = UniqueKeys0.KEY_STRIPE_EVENTS_PRIMARY;
+    public static final UniqueKey<StripeEventsRecord> KEY_STRIPE_EVENTS_RECORD_ID = UniqueKeys0.KEY_STRIPE_EVENTS_RECORD_ID;
+    public static final UniqueKey<StripeEventsRecord> KEY_STRIPE_EVENTS_STRIPE_EVENTS_STRIPE_EVENT_ID_KB_TENANT_ID = UniqueKeys0.KEY_STRIPE_EVENTS_STRIPE_EVENTS_STRIPE_EVENT_ID_KB_TENANT_ID;
     public static final UniqueKey<StripeHppRequestsRecord> KEY_STRIPE_HPP_REQUESTS_PRIMARY = UniqueKeys0.KEY_STRIPE_HPP_REQUESTS_PRIMARY;
     public static final UniqueKey<StripeHppRequestsRecord> KEY_STRIPE_HPP_REQUESTS_RECORD_ID = UniqueKeys0.KEY_STRIPE_HPP_REQUESTS_RECORD_ID;
     public static final UniqueKey<StripeHppRequestsRecord> KEY_STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_SESSION_ID = UniqueKeys0.KEY_STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_SESSION_ID;
+    public static final UniqueKey<StripeLeasesRecord> KEY_STRIPE_LEASES_PRIMARY = UniqueKeys0.KEY_STRIPE_LEASES_PRIMARY;
+    public static final UniqueKey<StripeLeasesRecord> KEY_STRIPE_LEASES_RECORD_ID = UniqueKeys0.KEY_STRIPE_LEASES_RECORD_ID;
+    public static final UniqueKey<StripeLeasesRecord> KEY_STRIPE_LEASES_STRIPE_LEASES_LEASE_NAME_KB_TENANT_ID = UniqueKeys0.KEY_STRIPE_LEASES_STRIPE_LEASES_LEASE_NAME_KB_TENANT_ID;
     public static final UniqueKey<StripePaymentMethodsRecord> KEY_STRIPE_PAYMENT_METHODS_PRIMARY = UniqueKeys0.KEY_STRIPE_PAYMENT_METHODS_PRIMARY;
     public static final UniqueKey<StripePaymentMethodsRecord> KEY_STRIPE_PAYMENT_METHODS_RECORD_ID = UniqueKeys0.KEY_STRIPE_PAYMENT_METHODS_RECORD_ID;
     public static final UniqueKey<StripePaymentMethodsRecord> KEY_STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_KB_PAYMENT_ID = UniqueKeys0.KEY_STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_KB_PAYMENT_ID;
@@ -55,15 +73,27 @@ public class Keys {
     // -------------------------------------------------------------------------
 
     private static class Identities0 {
+        public static Identity<StripeBulkSyncsRecord, ULong> IDENTITY_STRIPE_BULK_SYNCS = Internal.createIdentity(StripeBulkSyncs.STRIPE_BULK_SYNCS, StripeBulkSyncs.STRIPE_BULK_SYNCS.RECORD_ID);
+        public static Identity<StripeEventsRecord, ULong> IDENTITY_STRIPE_EVENTS = Internal.createIdentity(StripeEvents.STRIPE_EVENTS, StripeEvents.STRIPE_EVENTS.RECORD_ID);
         public static Identity<StripeHppRequestsRecord, ULong> IDENTITY_STRIPE_HPP_REQUESTS = Internal.createIdentity(StripeHppRequests.STRIPE_HPP_REQUESTS, StripeHppRequests.STRIPE_HPP_REQUESTS.RECORD_ID);
+        public static Identity<StripeLeasesRecord, ULong> IDENTITY_STRIPE_LEASES = Internal.createIdentity(StripeLeases.STRIPE_LEASES, StripeLeases.STRIPE_LEASES.RECORD_ID);
         public static Identity<StripePaymentMethodsRecord, ULong> IDENTITY_STRIPE_PAYMENT_METHODS = Internal.createIdentity(StripePaymentMethods.STRIPE_PAYMENT_METHODS, StripePaymentMethods.STRIPE_PAYMENT_METHODS.RECORD_ID);
         public static Identity<StripeResponsesRecord, ULong> IDENTITY_STRIPE_RESPONSES = Internal.createIdentity(StripeResponses.STRIPE_RESPONSES, StripeResponses.STRIPE_RESPONSES.RECORD_ID);
     }
 
     private static class UniqueKeys0 {
+        public static final UniqueKey<StripeBulkSyncsRecord> KEY_STRIPE_BULK_SYNCS_PRIMARY = Internal.createUniqueKey(StripeBulkSyncs.STRIPE_BULK_SYNCS, "KEY_stripe_bulk_syncs_PRIMARY", new TableField[] { StripeBulkSyncs.STRIPE_BULK_SYNCS.RECORD_ID }, true);
+        public static final UniqueKey<StripeBulkSyncsRecord> KEY_STRIPE_BULK_SYNCS_RECORD_ID = Internal.createUniqueKey(StripeBulkSyncs.STRIPE_BULK_SYNCS, "KEY_stripe_bulk_syncs_record_id", new TableField[] { StripeBulkSyncs.STRIPE_BULK_SYNCS.RECORD_ID }, true);
+        public static final UniqueKey<StripeBulkSyncsRecord> KEY_STRIPE_BULK_SYNCS_STRIPE_BULK_SYNCS_KB_TENANT_ID = Internal.createUniqueKey(StripeBulkSyncs.STRIPE_BULK_SYNCS, "KEY_stripe_bulk_syncs_stripe_bulk_syncs_kb_tenant_id", new TableField[] { StripeBulkSyncs.STRIPE_BULK_SYNCS.KB_TENANT_ID }, true);
+        public static final UniqueKey<StripeEventsRecord> KEY_STRIPE_EVENTS_PRIMARY = Internal.createUniqueKey(StripeEvents.STRIPE_EVENTS, "KEY_stripe_events_PRIMARY", new TableField[] { StripeEvents.STRIPE_EVENTS.RECORD_ID }, true);
+        public static final UniqueKey<StripeEventsRecord> KEY_STRIPE_EVENTS_RECORD_ID = Internal.createUniqueKey(StripeEvents.STRIPE_EVENTS, "KEY_stripe_events_record_id", new TableField[] { StripeEvents.STRIPE_EVENTS.RECORD_ID }, true);
+        public static final UniqueKey<StripeEventsRecord> KEY_STRIPE_EVENTS_STRIPE_EVENTS_STRIPE_EVENT_ID_KB_TENANT_ID = Internal.createUniqueKey(StripeEvents.STRIPE_EVENTS, "KEY_stripe_events_stripe_events_stripe_event_id_kb_tenant_id", new TableField[] { StripeEvents.STRIPE_EVENTS.STRIPE_EVENT_ID, StripeEvents.STRIPE_EVENTS.KB_TENANT_ID }, true);
         public static final UniqueKey<StripeHppRequestsRecord> KEY_STRIPE_HPP_REQUESTS_PRIMARY = Internal.createUniqueKey(StripeHppRequests.STRIPE_HPP_REQUESTS, "KEY_stripe_hpp_requests_PRIMARY", new TableField[] { StripeHppRequests.STRIPE_HPP_REQUESTS.RECORD_ID }, true);
         public static final UniqueKey<StripeHppRequestsRecord> KEY_STRIPE_HPP_REQUESTS_RECORD_ID = Internal.createUniqueKey(StripeHppRequests.STRIPE_HPP_REQUESTS, "KEY_stripe_hpp_requests_record_id", new TableField[] { StripeHppRequests.STRIPE_HPP_REQUESTS.RECORD_ID }, true);
         public static final UniqueKey<StripeHppRequestsRecord> KEY_STRIPE_HPP_REQUESTS_STRIPE_HPP_REQUESTS_KB_SESSION_ID = Internal.createUniqueKey(StripeHppRequests.STRIPE_HPP_REQUESTS, "KEY_stripe_hpp_requests_stripe_hpp_requests_kb_session_id", new TableField[] { StripeHppRequests.STRIPE_HPP_REQUESTS.SESSION_ID }, true);
+        public static final UniqueKey<StripeLeasesRecord> KEY_STRIPE_LEASES_PRIMARY = Internal.createUniqueKey(StripeLeases.STRIPE_LEASES, "KEY_stripe_leases_PRIMARY", new TableField[] { StripeLeases.STRIPE_LEASES.RECORD_ID }, true);
+        public static final UniqueKey<StripeLeasesRecord> KEY_STRIPE_LEASES_RECORD_ID = Internal.createUniqueKey(StripeLeases.STRIPE_LEASES, "KEY_stripe_leases_record_id", new TableField[] { StripeLeases.STRIPE_LEASES.RECORD_ID }, true);
+        public static final UniqueKey<StripeLeasesRecord> KEY_STRIPE_LEASES_STRIPE_LEASES_LEASE_NAME_KB_TENANT_ID = Internal.createUniqueKey(StripeLeases.STRIPE_LEASES, "KEY_stripe_leases_stripe_leases_lease_name_kb_tenant_id", new TableField[] { StripeLeases.STRIPE_LEASES.LEASE_NAME, StripeLeases.STRIPE_LEASES.KB_TENANT_ID }, true);
         public static final UniqueKey<StripePaymentMethodsRecord> KEY_STRIPE_PAYMENT_METHODS_PRIMARY = Internal.createUniqueKey(StripePaymentMethods.STRIPE_PAYMENT_METHODS, "KEY_stripe_payment_methods_PRIMARY", new TableField[] { StripePaymentMethods.STRIPE_PAYMENT_METHODS.RECORD_ID }, true);
         public static final UniqueKey<StripePaymentMethodsRecord> KEY_STRIPE_PAYMENT_METHODS_RECORD_ID = Internal.createUniqueKey(StripePaymentMethods.STRIPE_PAYMENT_METHODS, "KEY_stripe_payment_methods_record_id", new TableField[] { StripePaymentMethods.STRIPE_PAYMENT_METHODS.RECORD_ID }, true);
         public static final UniqueKey<StripePaymentMethodsRecord> KEY_STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_KB_PAYMENT_ID = Internal.createUniqueKey(StripePaymentMethods.STRIPE_PAYMENT_METHODS, "KEY_stripe_payment_methods_stripe_payment_methods_kb_payment_id", new TableField[] { StripePaymentMethods.STRIPE_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID }, true);
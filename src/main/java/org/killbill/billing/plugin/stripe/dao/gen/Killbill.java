@@ -10,7 +10,10 @@ import java.util.List;
 import org.jooq.Catalog;
 import org.jooq.Table;
 import org.jooq.impl.SchemaImpl;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeBulkSyncs;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeEvents;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeHppRequests;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeLeases;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripePaymentMethods;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
 
@@ -28,11 +31,26 @@ public class Killbill extends SchemaImpl {
      */
     public static final Killbill KILLBILL = new Killbill();
 
+    /**
+     * The table <code>killbill.stripe_bulk_syncs</code>.
+     */
+    public final StripeBulkSyncs STRIPE_BULK_SYNCS = StripeBulkSyncs.STRIPE_BULK_SYNCS;
+
+    /**
+     * The table <code>killbill.stripe_events</code>.
+     */
+    public final StripeEvents STRIPE_EVENTS = StripeEvents.STRIPE_EVENTS;
+
     /**
      * The table <code>killbill.stripe_hpp_requests</code>.
      */
     public final StripeHppRequests STRIPE_HPP_REQUESTS = StripeHppRequests.STRIPE_HPP_REQUESTS;
 
+    /**
+     * The table <code>killbill.stripe_leases</code>.
+     */
+    public final StripeLeases STRIPE_LEASES = StripeLeases.STRIPE_LEASES;
+
     /**
      * The table <code>killbill.stripe_payment_methods</code>.
      */
@@ -59,7 +77,10 @@ public class Killbill extends SchemaImpl {
     @Override
     public final List<Table<?>> getTables() {
         return Arrays.<Table<?>>asList(
+            StripeBulkSyncs.STRIPE_BULK_SYNCS,
+            StripeEvents.STRIPE_EVENTS,
             StripeHppRequests.STRIPE_HPP_REQUESTS,
+            StripeLeases.STRIPE_LEASES,
             StripePaymentMethods.STRIPE_PAYMENT_METHODS,
             StripeResponses.STRIPE_RESPONSES);
     }
@@ -4,7 +4,10 @@
 package org.killbill.billing.plugin.stripe.dao.gen;
 
 
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeBulkSyncs;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeEvents;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeHppRequests;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeLeases;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripePaymentMethods;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
 
@@ -15,11 +18,26 @@ import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class Tables {
 
+    /**
+     * The table <code>killbill.stripe_bulk_syncs</code>.
+     */
+    public static final StripeBulkSyncs STRIPE_BULK_SYNCS = StripeBulkSyncs.STRIPE_BULK_SYNCS;
+
+    /**
+     * The table <code>killbill.stripe_events</code>.
+     */
+    public static final StripeEvents STRIPE_EVENTS = StripeEvents.STRIPE_EVENTS;
+
     /**
      * The table <code>killbill.stripe_hpp_requests</code>.
      */
     public static final StripeHppRequests STRIPE_HPP_REQUESTS = StripeHppRequests.STRIPE_HPP_REQUESTS;
 
+    /**
+     * The table <code>killbill.stripe_leases</code>.
+     */
+    public static final StripeLeases STRIPE_LEASES = StripeLeases.STRIPE_LEASES;
+
     /**
      * The table <code>killbill.stripe_payment_methods</code>.
      */
@@ -140,7 +140,7 @@ public class StripePaymentMethods extends TableImpl<StripePaymentMethodsRecord>
 
     @Override
     public List<Index> getIndexes() {
-        return Arrays.<Index>asList(Indexes.STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_STRIPE_ID);
+        return Arrays.<Index>asList(Indexes.STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_KB_ACCOUNT_ID_KB_TENANT_ID, Indexes.STRIPE_PAYMENT_METHODS_STRIPE_PAYMENT_METHODS_STRIPE_ID);
     }
 
     @Override
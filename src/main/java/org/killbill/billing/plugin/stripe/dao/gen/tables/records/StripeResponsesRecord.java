@@ -9,8 +9,8 @@ import java.time.LocalDateTime;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record11;
-import org.jooq.Row11;
+import org.jooq.Record12;
+import org.jooq.Row12;
 import org.jooq.impl.UpdatableRecordImpl;
 import org.jooq.types.ULong;
 import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
@@ -20,9 +20,9 @@ import org.killbill.billing.plugin.stripe.dao.gen.tables.StripeResponses;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRecord> implements Record11<ULong, String, String, String, String, BigDecimal, String, String, String, LocalDateTime, String> {
+public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRecord> implements Record12<ULong, String, String, String, String, BigDecimal, String, String, String, LocalDateTime, String, Short> {
 
-    private static final long serialVersionUID = 1937616616;
+    private static final long serialVersionUID = -1275419630;
 
     /**
      * Setter for <code>killbill.stripe_responses.record_id</code>.
@@ -178,6 +178,20 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
         return (String) get(10);
     }
 
+    /**
+     * Setter for <code>killbill.stripe_responses.is_unresolved</code>.
+     */
+    public void setIsUnresolved(Short value) {
+        set(11, value);
+    }
+
+    /**
+     * Getter for <code>killbill.stripe_responses.is_unresolved</code>.
+     */
+    public Short getIsUnresolved() {
+        return (Short) get(11);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -188,17 +202,17 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
     }
 
     // -------------------------------------------------------------------------
-    // Record11 type implementation
+    // Record12 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row11<ULong, String, String, String, String, BigDecimal, String, String, String, LocalDateTime, String> fieldsRow() {
-        return (Row11) super.fieldsRow();
+    public Row12<ULong, String, String, String, String, BigDecimal, String, String, String, LocalDateTime, String, Short> fieldsRow() {
+        return (Row12) super.fieldsRow();
     }
 
     @Override
-    public Row11<ULong, String, String, String, String, BigDecimal, String, String, String, LocalDateTime, String> valuesRow() {
-        return (Row11) super.valuesRow();
+    public Row12<ULong, String, String, String, String, BigDecimal, String, String, String, LocalDateTime, String, Short> valuesRow() {
+        return (Row12) super.valuesRow();
     }
 
     @Override
@@ -256,6 +270,11 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
         return StripeResponses.STRIPE_RESPONSES.KB_TENANT_ID;
     }
 
+    @Override
+    public Field<Short> field12() {
+        return StripeResponses.STRIPE_RESPONSES.IS_UNRESOLVED;
+    }
+
     @Override
     public ULong component1() {
         return getRecordId();
@@ -311,6 +330,11 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
         return getKbTenantId();
     }
 
+    @Override
+    public Short component12() {
+        return getIsUnresolved();
+    }
+
     @Override
     public ULong value1() {
         return getRecordId();
@@ -366,6 +390,11 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
         return getKbTenantId();
     }
 
+    @Override
+    public Short value12() {
+        return getIsUnresolved();
+    }
+
     @Override
     public StripeResponsesRecord value1(ULong value) {
         setRecordId(value);
@@ -433,7 +462,13 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
     }
 
     @Override
-    public StripeResponsesRecord values(ULong value1, String value2, String value3, String value4, String value5, BigDecimal value6, String value7, String value8, String value9, LocalDateTime value10, String value11) {
+    public StripeResponsesRecord value12(Short value) {
+        setIsUnresolved(value);
+        return this;
+    }
+
+    @Override
+    public StripeResponsesRecord values(ULong value1, String value2, String value3, String value4, String value5, BigDecimal value6, String value7, String value8, String value9, LocalDateTime value10, String value11, Short value12) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -445,6 +480,7 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
         value9(value9);
         value10(value10);
         value11(value11);
+        value12(value12);
         return this;
     }
 
@@ -462,7 +498,7 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
     /**
      * Create a detached, initialised StripeResponsesRecord
      */
-    public StripeResponsesRecord(ULong recordId, String kbAccountId, String kbPaymentId, String kbPaymentTransactionId, String transactionType, BigDecimal amount, String currency, String stripeId, String additionalData, LocalDateTime createdDate, String kbTenantId) {
+    public StripeResponsesRecord(ULong recordId, String kbAccountId, String kbPaymentId, String kbPaymentTransactionId, String transactionType, BigDecimal amount, String currency, String stripeId, String additionalData, LocalDateTime createdDate, String kbTenantId, Short isUnresolved) {
         super(StripeResponses.STRIPE_RESPONSES);
 
         set(0, recordId);
@@ -476,5 +512,6 @@ public class StripeResponsesRecord extends UpdatableRecordImpl<StripeResponsesRe
         set(8, additionalData);
         set(9, createdDate);
         set(10, kbTenantId);
+        set(11, isUnresolved);
     }
 }
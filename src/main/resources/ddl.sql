@@ -44,11 +44,13 @@ create table stripe_responses (
 , additional_data longtext default null
 , created_date datetime not null
 , kb_tenant_id char(36) not null
+, is_unresolved smallint not null default 0
 , primary key(record_id)
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
-create index stripe_responses_kb_payment_id on stripe_responses(kb_payment_id);
-create index stripe_responses_kb_payment_transaction_id on stripe_responses(kb_payment_transaction_id);
+create index stripe_responses_kb_payment_id_kb_tenant_id on stripe_responses(kb_payment_id, kb_tenant_id, record_id);
+create index stripe_responses_kb_payment_transaction_id_kb_tenant_id on stripe_responses(kb_payment_transaction_id, kb_tenant_id, record_id);
 create index stripe_responses_stripe_id on stripe_responses(stripe_id);
+create index stripe_responses_is_unresolved_kb_tenant_id_created_date on stripe_responses(is_unresolved, kb_tenant_id, created_date);
 
 create table stripe_payment_methods (
   record_id serial
@@ -65,3 +67,51 @@ create table stripe_payment_methods (
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 create unique index stripe_payment_methods_kb_payment_id on stripe_payment_methods(kb_payment_method_id);
 create index stripe_payment_methods_stripe_id on stripe_payment_methods(stripe_id);
+create index stripe_payment_methods_kb_account_id_kb_tenant_id on stripe_payment_methods(kb_account_id, kb_tenant_id);
+
+create table stripe_events (
+  record_id serial
+, stripe_event_id varchar(255) not null
+, event_type varchar(255) not null
+, stripe_object_id varchar(255) default null
+, payload longtext not null
+, event_date datetime not null
+, processed_date datetime default null
+, attempts int not null default 0
+, next_attempt_date datetime default null
+, last_error varchar(1024) default null
+, created_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index stripe_events_stripe_event_id_kb_tenant_id on stripe_events(stripe_event_id, kb_tenant_id);
+create index stripe_events_stripe_object_id_kb_tenant_id on stripe_events(stripe_object_id, kb_tenant_id, event_date);
+create index stripe_events_processed_date_next_attempt_date on stripe_events(processed_date, next_attempt_date);
+
+create table stripe_bulk_syncs (
+  record_id serial
+, state varchar(32) not null
+, starting_after varchar(255) default null
+, nb_customers int not null default 0
+, nb_added int not null default 0
+, nb_updated int not null default 0
+, nb_deleted int not null default 0
+, last_error varchar(1024) default null
+, created_date datetime not null
+, updated_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index stripe_bulk_syncs_kb_tenant_id on stripe_bulk_syncs(kb_tenant_id);
+
+create table stripe_leases (
+  record_id serial
+, lease_name varchar(64) not null
+, owner varchar(64) not null
+, expiration_date datetime not null
+, created_date datetime not null
+, updated_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index stripe_leases_lease_name_kb_tenant_id on stripe_leases(lease_name, kb_tenant_id);
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+create index stripe_responses_kb_payment_id_kb_tenant_id on stripe_responses(kb_payment_id, kb_tenant_id, record_id);
+create index stripe_responses_kb_payment_transaction_id_kb_tenant_id on stripe_responses(kb_payment_transaction_id, kb_tenant_id, record_id);
+create index stripe_payment_methods_kb_account_id_kb_tenant_id on stripe_payment_methods(kb_account_id, kb_tenant_id);
+-- Prefixes of the indexes above
+drop index stripe_responses_kb_payment_id on stripe_responses;
+drop index stripe_responses_kb_payment_transaction_id on stripe_responses;
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+alter table stripe_responses add column is_unresolved smallint not null default 0 after kb_tenant_id;
+-- Flag the responses of the default lookback period: the reconciler clears the ones which are already resolved
+update stripe_responses set is_unresolved = 1 where created_date >= date_sub(utc_timestamp(), interval 30 day);
+create index stripe_responses_is_unresolved_kb_tenant_id_created_date on stripe_responses(is_unresolved, kb_tenant_id, created_date);
+drop index stripe_responses_kb_tenant_id_created_date on stripe_responses;
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+create table stripe_events (
+  record_id serial
+, stripe_event_id varchar(255) not null
+, event_type varchar(255) not null
+, stripe_object_id varchar(255) default null
+, payload longtext not null
+, event_date datetime not null
+, processed_date datetime default null
+, created_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+);
+create index stripe_events_stripe_event_id on stripe_events(stripe_event_id);
+create index stripe_events_stripe_object_id_kb_tenant_id on stripe_events(stripe_object_id, kb_tenant_id, event_date);
+create index stripe_events_processed_date on stripe_events(processed_date);
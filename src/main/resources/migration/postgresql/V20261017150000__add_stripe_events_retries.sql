@@ -0,0 +1,25 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+alter table stripe_events add column attempts int not null default 0;
+alter table stripe_events add column next_attempt_date datetime default null;
+alter table stripe_events add column last_error varchar(1024) default null;
+-- Stripe may deliver the same event more than once
+create unique index stripe_events_stripe_event_id_kb_tenant_id on stripe_events(stripe_event_id, kb_tenant_id);
+drop index stripe_events_stripe_event_id;
+create index stripe_events_processed_date_next_attempt_date on stripe_events(processed_date, next_attempt_date);
+drop index stripe_events_processed_date;
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+create table stripe_bulk_syncs (
+  record_id serial
+, state varchar(32) not null
+, starting_after varchar(255) default null
+, nb_customers int not null default 0
+, nb_added int not null default 0
+, nb_updated int not null default 0
+, nb_deleted int not null default 0
+, last_error varchar(1024) default null
+, created_date datetime not null
+, updated_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+);
+create unique index stripe_bulk_syncs_kb_tenant_id on stripe_bulk_syncs(kb_tenant_id);
@@ -20,6 +20,8 @@ package org.killbill.billing.plugin.stripe;
 import java.io.IOException;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
 import org.killbill.billing.platform.test.PlatformDBTestingHelper;
 import org.killbill.billing.plugin.TestUtils;
 import org.killbill.commons.embeddeddb.EmbeddedDB;
@@ -60,6 +62,10 @@ public class EmbeddedDbHelper {
         return new StripeDao(embeddedDB.getDataSource());
     }
 
+    public DataSource getDataSource() throws IOException {
+        return embeddedDB.getDataSource();
+    }
+
     public void resetDB() throws Exception {
         embeddedDB.cleanupAllTables();
     }
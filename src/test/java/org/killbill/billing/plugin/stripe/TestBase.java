@@ -20,6 +20,8 @@ package org.killbill.billing.plugin.stripe;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
@@ -37,10 +39,13 @@ import org.killbill.clock.ClockMock;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeSuite;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 public class TestBase {
 
     private static final String PROPERTIES_FILE_NAME = "stripe.properties";
@@ -55,9 +60,13 @@ public class TestBase {
     protected OSGIKillbillAPI killbillApi;
     protected CustomFieldUserApi customFieldUserApi;
     protected StripeConfigPropertiesConfigurationHandler stripeConfigPropertiesConfigurationHandler;
+    protected StripeClientRegistry stripeClientRegistry;
     protected StripeDao dao;
+    protected StripeWebhookProcessor stripeWebhookProcessor;
+    // Kill Bill calls the plugin back on its plugin dispatcher threads
+    protected ExecutorService pluginDispatcher;
 
-    @BeforeMethod(groups = {"slow", "integration"})
+    @BeforeMethod(groups = {"slow", "integration", "stress"})
     public void setUp() throws Exception {
         EmbeddedDbHelper.instance().resetDB();
         dao = EmbeddedDbHelper.instance().getStripeDao();
@@ -76,16 +85,31 @@ public class TestBase {
         TestUtils.buildPaymentMethod(account.getId(), account.getPaymentMethodId(), StripeActivator.PLUGIN_NAME, killbillApi);
 
         stripeConfigPropertiesConfigurationHandler = new StripeConfigPropertiesConfigurationHandler(StripeActivator.PLUGIN_NAME, killbillApi, null);
+        stripeClientRegistry = new StripeClientRegistry(stripeConfigPropertiesConfigurationHandler);
 
         final OSGIConfigPropertiesService configPropertiesService = Mockito.mock(OSGIConfigPropertiesService.class);
+        // Not started: the tests drain the events explicitly, on the test thread
+        stripeWebhookProcessor = new StripeWebhookProcessor(stripeConfigPropertiesConfigurationHandler,
+                                                            stripeClientRegistry,
+                                                            dao,
+                                                            MoreExecutors.newDirectExecutorService(),
+                                                            clock,
+                                                            new StripeConfigProperties(new Properties(), ""));
         stripePaymentPluginApi = new StripePaymentPluginApi(stripeConfigPropertiesConfigurationHandler,
+                                                            stripeClientRegistry,
                                                             killbillApi,
                                                             configPropertiesService,
                                                             clock,
-                                                            dao);
+                                                            dao,
+                                                            StripeExecutors.newBoundedExecutor("stripe-refresh-test", 4),
+                                                            new StripeCustomerIdCache(100, 60000),
+                                                            new StripeUndefinedTransactionResolver(10, 60000),
+                                                            stripeWebhookProcessor);
 
         TestUtils.updateOSGIKillbillAPI(killbillApi, stripePaymentPluginApi);
 
+        pluginDispatcher = StripeExecutors.newBoundedExecutor("plugin-dispatcher-test", 1);
+
         Mockito.when(killbillApi.getPaymentApi()
                                 .addPaymentMethod(Mockito.any(Account.class),
                                                   Mockito.anyString(),
@@ -97,12 +121,12 @@ public class TestBase {
                .thenAnswer(new Answer<Object>() {
                    @Override
                    public Object answer(final InvocationOnMock invocation) throws Throwable {
-                       stripePaymentPluginApi.addPaymentMethod(((Account) invocation.getArguments()[0]).getId(),
-                                                               UUID.randomUUID(),
-                                                               (PaymentMethodPlugin) invocation.getArguments()[4],
-                                                               (Boolean) invocation.getArguments()[3],
-                                                               (Iterable) invocation.getArguments()[5],
-                                                               (CallContext) invocation.getArguments()[6]);
+                       dispatchToPlugin(() -> stripePaymentPluginApi.addPaymentMethod(((Account) invocation.getArguments()[0]).getId(),
+                                                                                      UUID.randomUUID(),
+                                                                                      (PaymentMethodPlugin) invocation.getArguments()[4],
+                                                                                      (Boolean) invocation.getArguments()[3],
+                                                                                      (Iterable) invocation.getArguments()[5],
+                                                                                      (CallContext) invocation.getArguments()[6]));
                        return null;
                    }
                });
@@ -119,6 +143,28 @@ public class TestBase {
                .when(customFieldUserApi).addCustomFields(Mockito.anyList(), Mockito.any(CallContext.class));
     }
 
+    @AfterMethod(groups = {"slow", "integration", "stress"})
+    public void tearDownPluginDispatcher() {
+        pluginDispatcher.shutdownNow();
+    }
+
+    // Blocks until the plugin call, made on a plugin dispatcher thread, returns
+    protected void dispatchToPlugin(final PluginCall call) throws Throwable {
+        try {
+            pluginDispatcher.submit(() -> {
+                call.call();
+                return null;
+            }).get();
+        } catch (final ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    protected interface PluginCall {
+
+        void call() throws Exception;
+    }
+
     @BeforeMethod(groups = "integration")
     public void setUpIntegration() throws Exception {
         Properties properties = new Properties();
@@ -133,12 +179,12 @@ public class TestBase {
         stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(stripeConfigProperties);
     }
 
-    @BeforeSuite(groups = {"slow", "integration"})
+    @BeforeSuite(groups = {"slow", "integration", "stress"})
     public void setUpBeforeSuite() throws Exception {
         EmbeddedDbHelper.instance().startDb();
     }
 
-    @AfterSuite(groups = {"slow", "integration"})
+    @AfterSuite(groups = {"slow", "integration", "stress"})
     public void tearDownAfterSuite() throws Exception {
         EmbeddedDbHelper.instance().stopDB();
     }
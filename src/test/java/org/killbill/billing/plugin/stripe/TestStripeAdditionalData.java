@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.Map;
+
+import org.killbill.billing.plugin.stripe.dao.StripeAdditionalData;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStripeAdditionalData {
+
+    @Test(groups = "fast")
+    public void testTypedAccessors() {
+        final StripeAdditionalData additionalData = new StripeAdditionalData("{\"id\":\"pi_1\",\"status\":\"requires_action\",\"amount\":1000,\"fromHPP\":true,"
+                                                                             + "\"last_payment_error\":{\"code\":\"payment_intent_authentication_failure\",\"id\":\"nested\"},"
+                                                                             + "\"payment_method_types\":[\"card\"],\"last_charge_id\":\"ch_1\"}");
+        Assert.assertEquals(additionalData.getId(), "pi_1");
+        Assert.assertEquals(additionalData.getStatus(), "requires_action");
+        Assert.assertEquals(additionalData.getLastChargeId(), "ch_1");
+        Assert.assertNull(additionalData.getLastChargeStatus());
+        Assert.assertTrue(additionalData.getBoolean("fromHPP"));
+        Assert.assertFalse(additionalData.getBoolean("fromHPPCompletion"));
+        Assert.assertEquals(additionalData.get("amount"), 1000);
+        // Nested values are only available through the full map
+        Assert.assertNull(additionalData.get("last_payment_error"));
+
+        final Map<String, Object> map = additionalData.getMap();
+        Assert.assertEquals(((Map) map.get("last_payment_error")).get("code"), "payment_intent_authentication_failure");
+        Assert.assertSame(additionalData.getMap(), map);
+        Assert.assertEquals(additionalData.get("last_payment_error"), map.get("last_payment_error"));
+        Assert.assertEquals(additionalData.getId(), "pi_1");
+    }
+
+    @Test(groups = "fast")
+    public void testNoAdditionalData() {
+        final StripeAdditionalData additionalData = new StripeAdditionalData(null);
+        Assert.assertNull(additionalData.getId());
+        Assert.assertFalse(additionalData.getBoolean("fromHPP"));
+        Assert.assertTrue(additionalData.getMap().isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.PaymentMethod;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.ApiResource;
+
+public class TestStripeAdditionalDataWriter {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(Include.NON_EMPTY);
+    private final StripeAdditionalDataWriter writer = new StripeAdditionalDataWriter(objectMapper);
+
+    @Test(groups = "fast")
+    public void testPaymentIntentMatchesMapPath() throws Exception {
+        final PaymentIntent paymentIntent = ApiResource.GSON.fromJson("{\"id\":\"pi_1\",\"object\":\"payment_intent\",\"amount\":1000,\"amount_capturable\":0,"
+                                                                      + "\"capture_method\":\"automatic\",\"currency\":\"usd\",\"description\":\"\",\"livemode\":false,"
+                                                                      + "\"metadata\":{},\"payment_method_types\":[\"card\"],\"status\":\"requires_action\","
+                                                                      + "\"next_action\":{\"type\":\"redirect_to_url\",\"redirect_to_url\":{\"url\":\"https://example.com\"}},"
+                                                                      + "\"last_payment_error\":{\"code\":\"payment_intent_authentication_failure\",\"type\":\"card_error\"}}",
+                                                                      PaymentIntent.class);
+        final Charge charge = ApiResource.GSON.fromJson("{\"id\":\"ch_1\",\"object\":\"charge\",\"amount\":1000,\"captured\":true,\"paid\":true,\"status\":\"succeeded\","
+                                                        + "\"outcome\":{\"network_status\":\"approved_by_network\",\"type\":\"authorized\"},"
+                                                        + "\"payment_method_details\":{\"type\":\"card\",\"card\":{\"brand\":\"visa\",\"last4\":\"4242\"}}}",
+                                                        Charge.class);
+
+        assertSameAdditionalData(writer.write(paymentIntent, charge), StripePluginProperties.toAdditionalDataMap(paymentIntent, charge));
+        assertSameAdditionalData(writer.write(paymentIntent, null), StripePluginProperties.toAdditionalDataMap(paymentIntent, null));
+    }
+
+    @Test(groups = "fast")
+    public void testPaymentMethodMatchesMapPath() throws Exception {
+        final PaymentMethod paymentMethod = ApiResource.GSON.fromJson("{\"id\":\"pm_1\",\"object\":\"payment_method\",\"created\":1600000000,\"livemode\":false,\"type\":\"card\","
+                                                                      + "\"card\":{\"brand\":\"visa\",\"country\":\"US\",\"exp_month\":12,\"exp_year\":2030,\"last4\":\"4242\","
+                                                                      + "\"checks\":{\"cvc_check\":\"pass\"}}}",
+                                                                      PaymentMethod.class);
+
+        assertSameAdditionalData(writer.write(paymentMethod), StripePluginProperties.toAdditionalDataMap(paymentMethod));
+    }
+
+    @Test(groups = "fast")
+    public void testSessionMatchesMapPath() throws Exception {
+        final Session session = ApiResource.GSON.fromJson("{\"id\":\"cs_1\",\"object\":\"checkout.session\",\"livemode\":false,\"payment_method_types\":[\"card\"],"
+                                                          + "\"success_url\":\"https://example.com/success\",\"cancel_url\":\"https://example.com/cancel\",\"client_reference_id\":\"\"}",
+                                                          Session.class);
+
+        assertSameAdditionalData(writer.write(session, "pk_test"), StripePluginProperties.toAdditionalDataMap(session, "pk_test"));
+        assertSameAdditionalData(writer.write(session, null), StripePluginProperties.toAdditionalDataMap(session, null));
+    }
+
+    private void assertSameAdditionalData(final String streamed, final Map<String, Object> additionalDataMap) throws Exception {
+        final String expected = objectMapper.writeValueAsString(additionalDataMap);
+        Assert.assertEquals(objectMapper.readValue(streamed, Map.class), objectMapper.readValue(expected, Map.class));
+        Assert.assertEquals(streamed.length(), expected.length());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.ApiResource;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+public class TestStripeCircuitBreakerHttpClient {
+
+    @Test(groups = "fast")
+    public void testEndpoint() throws StripeException {
+        Assert.assertEquals(StripeCircuitBreakerHttpClient.getEndpoint(newRequest("https://api.stripe.com/v1/payment_intents/pi_1HxYZ2AbCdEf/confirm")),
+                            "POST /v1/payment_intents/{id}/confirm");
+        Assert.assertEquals(StripeCircuitBreakerHttpClient.getEndpoint(newRequest("https://api.stripe.com/v1/payment_intents")),
+                            "POST /v1/payment_intents");
+        Assert.assertEquals(StripeCircuitBreakerHttpClient.getEndpoint(newRequest("https://api.stripe.com/v1/customers/cus_ABC123/sources")),
+                            "POST /v1/customers/{id}/sources");
+    }
+
+    @Test(groups = "fast")
+    public void testOpensAfterConsecutiveFailures() throws StripeException {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.circuitBreakerFailureThreshold", "2");
+        properties.put("org.killbill.billing.plugin.stripe.circuitBreakerOpenDuration", "60000");
+        final StripeConfigProperties stripeConfigProperties = new StripeConfigProperties(properties, "");
+        final AtomicInteger calls = new AtomicInteger();
+        final StripeHttpClient failingClient = new StripeHttpClient(stripeConfigProperties) {
+            @Override
+            public StripeResponse request(final StripeRequest request) throws ApiConnectionException {
+                calls.incrementAndGet();
+                throw new ApiConnectionException("Read timed out", new SocketTimeoutException("Read timed out"));
+            }
+        };
+        final StripeCircuitBreakerHttpClient httpClient = new StripeCircuitBreakerHttpClient(stripeConfigProperties, failingClient);
+
+        final StripeRequest request = newRequest("https://api.stripe.com/v1/payment_intents");
+        for (int i = 0; i < 2; i++) {
+            try {
+                httpClient.request(request);
+                Assert.fail();
+            } catch (final ApiConnectionException e) {
+                Assert.assertTrue(Throwables.getRootCause(e) instanceof SocketTimeoutException);
+            }
+        }
+
+        // Open: the call fails fast, as a connection failure
+        try {
+            httpClient.request(request);
+            Assert.fail();
+        } catch (final ApiConnectionException e) {
+            Assert.assertTrue(Throwables.getRootCause(e) instanceof ConnectException);
+        }
+        Assert.assertEquals(calls.get(), 2);
+
+        // Other endpoints are not affected
+        try {
+            httpClient.request(newRequest("https://api.stripe.com/v1/refunds"));
+            Assert.fail();
+        } catch (final ApiConnectionException e) {
+            Assert.assertTrue(Throwables.getRootCause(e) instanceof SocketTimeoutException);
+        }
+        Assert.assertEquals(calls.get(), 3);
+    }
+
+    @Test(groups = "fast")
+    public void testClientErrorsDontOpenTheCircuit() throws StripeException {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.circuitBreakerFailureThreshold", "1");
+        final StripeConfigProperties stripeConfigProperties = new StripeConfigProperties(properties, "");
+        final AtomicInteger calls = new AtomicInteger();
+        final StripeHttpClient declinedClient = new StripeHttpClient(stripeConfigProperties) {
+            @Override
+            public StripeResponse request(final StripeRequest request) {
+                calls.incrementAndGet();
+                return new StripeResponse(402, HttpHeaders.of(ImmutableMap.of()), "{}");
+            }
+        };
+        final StripeCircuitBreakerHttpClient httpClient = new StripeCircuitBreakerHttpClient(stripeConfigProperties, declinedClient);
+
+        final StripeRequest request = newRequest("https://api.stripe.com/v1/payment_intents");
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(httpClient.request(request).code(), 402);
+        }
+        Assert.assertEquals(calls.get(), 3);
+    }
+
+    private static StripeRequest newRequest(final String url) throws StripeException {
+        return new StripeRequest(ApiResource.RequestMethod.POST, url, ImmutableMap.<String, Object>of(), RequestOptions.builder().setApiKey("sk_test_XXX").build());
+    }
+}
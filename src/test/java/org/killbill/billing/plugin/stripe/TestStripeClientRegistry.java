@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.stripe.net.RequestOptions;
+
+public class TestStripeClientRegistry {
+
+    @Test(groups = "fast")
+    public void testClientIsCachedPerConfigurationVersion() {
+        final StripeConfigPropertiesConfigurationHandler handler = new StripeConfigPropertiesConfigurationHandler(StripeActivator.PLUGIN_NAME, null, null);
+        handler.setDefaultConfigurable(buildConfig("sk_test_1"));
+        final StripeClientRegistry registry = new StripeClientRegistry(handler);
+
+        final StripeTenantClient client = registry.getClient(null);
+        Assert.assertSame(registry.getClient(null), client);
+        Assert.assertSame(registry.getRequestOptions(null), client.getRequestOptions());
+        Assert.assertEquals(client.getRequestOptions().getApiKey(), "sk_test_1");
+
+        // A configuration update invalidates the client
+        handler.setDefaultConfigurable(buildConfig("sk_test_2"));
+        final StripeTenantClient updatedClient = registry.getClient(null);
+        Assert.assertNotSame(updatedClient, client);
+        Assert.assertEquals(updatedClient.getRequestOptions().getApiKey(), "sk_test_2");
+    }
+
+    @Test(groups = "fast")
+    public void testReplacedClientsAreShutDown() {
+        final StripeConfigPropertiesConfigurationHandler handler = Mockito.mock(StripeConfigPropertiesConfigurationHandler.class);
+        final UUID tenantA = UUID.randomUUID();
+        final UUID tenantB = UUID.randomUUID();
+        final String sharedApiKey = "sk_test_" + UUID.randomUUID();
+        Mockito.when(handler.getConfigurable(tenantA)).thenReturn(buildConfig("sk_test_" + UUID.randomUUID()));
+        Mockito.when(handler.getConfigurable(tenantB)).thenReturn(buildConfig(sharedApiKey));
+        final StripeClientRegistry registry = new StripeClientRegistry(handler);
+
+        // New API key: the previous transport isn't routed to anymore
+        final StripeTenantClient clientA = registry.getClient(tenantA);
+        Mockito.when(handler.getConfigurable(tenantA)).thenReturn(buildConfig(sharedApiKey));
+        final StripeTenantClient updatedClientA = registry.getClient(tenantA);
+        Assert.assertTrue(clientA.isShutdown());
+        Assert.assertFalse(updatedClientA.isShutdown());
+
+        // Tenant B shares the transport of tenant A (same API key): its own one is never routed to
+        final StripeTenantClient clientB = registry.getClient(tenantB);
+        Mockito.when(handler.getConfigurable(tenantB)).thenReturn(buildConfig(sharedApiKey));
+        registry.getClient(tenantB);
+        Assert.assertTrue(clientB.isShutdown());
+        Assert.assertFalse(updatedClientA.isShutdown());
+
+        // Once replaced, the shared transport is kept as long as tenant B is routed to it
+        Mockito.when(handler.getConfigurable(tenantA)).thenReturn(buildConfig(sharedApiKey));
+        final StripeTenantClient lastClientA = registry.getClient(tenantA);
+        Assert.assertFalse(updatedClientA.isShutdown());
+        Mockito.when(handler.getConfigurable(tenantA)).thenReturn(buildConfig("sk_test_" + UUID.randomUUID()));
+        registry.getClient(tenantA);
+        Assert.assertFalse(updatedClientA.isShutdown());
+        Assert.assertTrue(lastClientA.isShutdown());
+    }
+
+    @Test(groups = "fast")
+    public void testTenantsSharingAnApiKey() {
+        final StripeRoutingHttpClient routingHttpClient = StripeRoutingHttpClient.install();
+        final String apiKey = "sk_test_" + UUID.randomUUID();
+        final UUID tenantA = UUID.randomUUID();
+        final UUID tenantB = UUID.randomUUID();
+        final UUID tenantC = UUID.randomUUID();
+
+        final StripeConfigProperties configA = buildConfig(apiKey);
+        final StripeHttpClient httpClientA = StripeHttpClient.create(configA);
+        routingHttpClient.register(tenantA, apiKey, httpClientA, configA);
+        // Same transport settings: the transport of the first tenant is shared
+        final StripeConfigProperties configB = buildConfig(apiKey);
+        routingHttpClient.register(tenantB, apiKey, StripeHttpClient.create(configB), configB);
+        Assert.assertSame(routingHttpClient.getHttpClient(apiKey), httpClientA);
+
+        // Different transport settings: rejected, the routing of the other tenants is left alone
+        final StripeConfigProperties configC = buildConfig(apiKey, "http://localhost:12111");
+        final StripeHttpClient httpClientC = StripeHttpClient.create(configC);
+        try {
+            routingHttpClient.register(tenantC, apiKey, httpClientC, configC);
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+            Assert.assertSame(routingHttpClient.getHttpClient(apiKey), httpClientA);
+        }
+
+        // Once the key isn't used anymore, it can be registered with other settings
+        routingHttpClient.unregister(tenantA, apiKey);
+        Assert.assertSame(routingHttpClient.getHttpClient(apiKey), httpClientA);
+        routingHttpClient.unregister(tenantB, apiKey);
+        Assert.assertNull(routingHttpClient.getHttpClient(apiKey));
+        routingHttpClient.register(tenantC, apiKey, httpClientC, configC);
+        Assert.assertSame(routingHttpClient.getHttpClient(apiKey), httpClientC);
+        routingHttpClient.unregister(tenantC, apiKey);
+    }
+
+    @Test(groups = "fast")
+    public void testIdempotentRequestOptionsKeepTheTenantSettings() {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "sk_test_idempotent");
+        properties.put("org.killbill.billing.plugin.stripe.connectionTimeout", "1234");
+        properties.put("org.killbill.billing.plugin.stripe.readTimeout", "5678");
+        properties.put("org.killbill.billing.plugin.stripe.proxyHost", "proxy.example.com");
+        properties.put("org.killbill.billing.plugin.stripe.proxyPort", "3128");
+        final StripeConfigProperties stripeConfigProperties = new StripeConfigProperties(properties, "");
+        final UUID kbTransactionId = UUID.randomUUID();
+
+        final RequestOptions requestOptions = StripePaymentPluginApi.withIdempotencyKey(stripeConfigProperties, kbTransactionId, TransactionType.CAPTURE);
+        Assert.assertTrue(requestOptions.getIdempotencyKey().startsWith("killbill-capture-" + kbTransactionId + "-"));
+        // Scoped to one plugin call
+        Assert.assertNotEquals(StripePaymentPluginApi.withIdempotencyKey(stripeConfigProperties, kbTransactionId, TransactionType.CAPTURE).getIdempotencyKey(), requestOptions.getIdempotencyKey());
+        Assert.assertEquals(requestOptions.getApiKey(), "sk_test_idempotent");
+        Assert.assertEquals(requestOptions.getConnectTimeout(), 1234);
+        Assert.assertEquals(requestOptions.getReadTimeout(), 5678);
+        Assert.assertEquals(((InetSocketAddress) requestOptions.getConnectionProxy().address()).getHostString(), "proxy.example.com");
+        Assert.assertEquals(((InetSocketAddress) requestOptions.getConnectionProxy().address()).getPort(), 3128);
+    }
+
+    private StripeConfigProperties buildConfig(final String apiKey) {
+        return buildConfig(apiKey, null);
+    }
+
+    private StripeConfigProperties buildConfig(final String apiKey, final String apiBase) {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", apiKey);
+        if (apiBase != null) {
+            properties.put("org.killbill.billing.plugin.stripe.apiBase", apiBase);
+        }
+        return new StripeConfigProperties(properties, "");
+    }
+}
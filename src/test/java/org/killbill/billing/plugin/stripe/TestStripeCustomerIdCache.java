@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.UUID;
+
+import org.killbill.billing.notification.plugin.api.ExtBusEvent;
+import org.killbill.billing.notification.plugin.api.ExtBusEventType;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStripeCustomerIdCache {
+
+    @Test(groups = "fast")
+    public void testInvalidationOnCustomFieldEvents() {
+        final StripeCustomerIdCache cache = new StripeCustomerIdCache(100, 60000);
+        final UUID kbTenantId = UUID.randomUUID();
+        final UUID kbAccountId = UUID.randomUUID();
+
+        Assert.assertNull(cache.getIfPresent(kbTenantId, kbAccountId));
+        cache.put(kbTenantId, kbAccountId, "cus_1");
+        Assert.assertEquals(cache.getIfPresent(kbTenantId, kbAccountId), "cus_1");
+        // Entries are tenant scoped
+        Assert.assertNull(cache.getIfPresent(UUID.randomUUID(), kbAccountId));
+
+        // Unrelated events are ignored
+        cache.handleKillbillEvent(buildEvent(ExtBusEventType.ACCOUNT_CHANGE, kbTenantId, kbAccountId));
+        Assert.assertEquals(cache.getIfPresent(kbTenantId, kbAccountId), "cus_1");
+
+        cache.handleKillbillEvent(buildEvent(ExtBusEventType.CUSTOM_FIELD_DELETION, kbTenantId, kbAccountId));
+        Assert.assertNull(cache.getIfPresent(kbTenantId, kbAccountId));
+
+        Assert.assertEquals(cache.getStats().get("hitCount"), 2L);
+        Assert.assertEquals(cache.getStats().get("missCount"), 3L);
+    }
+
+    private ExtBusEvent buildEvent(final ExtBusEventType eventType, final UUID kbTenantId, final UUID kbAccountId) {
+        final ExtBusEvent event = Mockito.mock(ExtBusEvent.class);
+        Mockito.when(event.getEventType()).thenReturn(eventType);
+        Mockito.when(event.getTenantId()).thenReturn(kbTenantId);
+        Mockito.when(event.getAccountId()).thenReturn(kbAccountId);
+        return event;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.StripeUnitOfWork;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeBulkSyncsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripePaymentMethodsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TestStripeDao extends TestBase {
+
+    @Test(groups = "slow")
+    public void testAddResponseMatchesStoredResponse() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final StripeResponsesRecord added = dao.addResponse(account.getId(), kbPaymentId, UUID.randomUUID(), TransactionType.AUTHORIZE, new BigDecimal("12.345"), Currency.USD,
+                                                            null, null, null, clock.getUTCNow().plusMillis(567), context.getTenantId());
+        final StripeResponsesRecord addedWithoutAmount = dao.addResponse(account.getId(), kbPaymentId, UUID.randomUUID(), TransactionType.VOID, null, null,
+                                                                         null, null, null, clock.getUTCNow(), context.getTenantId());
+
+        final List<StripeResponsesRecord> stored = dao.getResponses(kbPaymentId, context.getTenantId());
+        Assert.assertEquals(stored.size(), 2);
+        Assert.assertEquals(added.intoMap(), stored.get(0).intoMap());
+        Assert.assertEquals(addedWithoutAmount.intoMap(), stored.get(1).intoMap());
+        Assert.assertTrue(addedWithoutAmount.getRecordId().compareTo(added.getRecordId()) > 0);
+    }
+
+    @Test(groups = "slow")
+    public void testUpdateResponseMergesIntoLatestResponse() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final StripeResponsesRecord first = dao.addResponse(account.getId(), kbPaymentId, kbTransactionId, TransactionType.AUTHORIZE, BigDecimal.TEN, Currency.USD,
+                                                            null, null, null, clock.getUTCNow(), context.getTenantId());
+        final StripeResponsesRecord latest = dao.addResponse(account.getId(), kbPaymentId, kbTransactionId, TransactionType.AUTHORIZE, BigDecimal.TEN, Currency.USD,
+                                                             null, null, null, clock.getUTCNow(), context.getTenantId());
+
+        final StripeResponsesRecord updated = dao.updateResponse(kbTransactionId,
+                                                                 ImmutableMap.<String, Object>of("status", "requires_action",
+                                                                                                 "next_action", ImmutableMap.of("type", "redirect_to_url", "url", "https://example.com")),
+                                                                 context.getTenantId());
+        Assert.assertEquals(updated.getRecordId(), latest.getRecordId());
+        Assert.assertEquals(StripeDao.fromAdditionalData(updated.getAdditionalData()),
+                            ImmutableMap.of("status", "requires_action",
+                                            "next_action", ImmutableMap.of("type", "redirect_to_url", "url", "https://example.com")));
+
+        // Nested objects are replaced, null and empty values remove the key
+        final Map<String, Object> additionalProperties = new HashMap<String, Object>();
+        additionalProperties.put("status", null);
+        additionalProperties.put("next_action", ImmutableMap.of("type", "use_stripe_sdk"));
+        additionalProperties.put("last_charge_id", "");
+        additionalProperties.put("fromHPP", true);
+        final StripeResponsesRecord merged = dao.updateResponse(kbTransactionId, additionalProperties, context.getTenantId());
+        Assert.assertEquals(StripeDao.fromAdditionalData(merged.getAdditionalData()),
+                            ImmutableMap.of("next_action", ImmutableMap.of("type", "use_stripe_sdk"),
+                                            "fromHPP", true));
+
+        // Other responses of the transaction are untouched
+        Assert.assertEquals(dao.getResponses(kbPaymentId, context.getTenantId()).get(0).getAdditionalData(), first.getAdditionalData());
+        Assert.assertEquals(dao.getResponses(kbPaymentId, context.getTenantId()).get(1).getAdditionalData(), merged.getAdditionalData());
+    }
+
+    @Test(groups = "slow")
+    public void testUpdateResponseWithoutResponse() throws Exception {
+        Assert.assertNull(dao.updateResponse(UUID.randomUUID(), ImmutableMap.<String, Object>of("status", "succeeded"), context.getTenantId()));
+        Assert.assertNull(dao.updateResponse(UUID.randomUUID(), ImmutableMap.<String, Object>of(), context.getTenantId()));
+    }
+
+    @Test(groups = "slow")
+    public void testUnresolvedFlagFollowsStatus() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        // No Stripe object nor error: UNDEFINED
+        final StripeResponsesRecord added = dao.addResponse(account.getId(), kbPaymentId, kbTransactionId, TransactionType.PURCHASE, BigDecimal.TEN, Currency.USD,
+                                                            null, null, null, clock.getUTCNow(), context.getTenantId());
+        Assert.assertEquals((short) added.getIsUnresolved(), (short) 1);
+
+        final StripeResponsesRecord pending = dao.updateResponse(kbTransactionId, ImmutableMap.<String, Object>of("status", "requires_action"), context.getTenantId());
+        Assert.assertEquals((short) pending.getIsUnresolved(), (short) 1);
+
+        final StripeResponsesRecord processed = dao.updateResponse(kbTransactionId, ImmutableMap.<String, Object>of("last_charge_status", "succeeded"), context.getTenantId());
+        Assert.assertEquals((short) processed.getIsUnresolved(), (short) 0);
+        Assert.assertEquals((short) dao.getResponses(kbPaymentId, context.getTenantId()).get(0).getIsUnresolved(), (short) 0);
+        Assert.assertTrue(dao.getUnresolvedResponsesCreatedSince(context.getTenantId(), clock.getUTCNow().minusDays(1), null, 10).isEmpty());
+
+        final StripeResponsesRecord overridden = dao.updateResponse(processed,
+                                                                    ImmutableMap.of(StripePaymentPluginApi.PROPERTY_OVERRIDDEN_TRANSACTION_STATUS, "PENDING"));
+        Assert.assertEquals((short) overridden.getIsUnresolved(), (short) 1);
+        Assert.assertEquals(dao.getUnresolvedResponsesCreatedSince(context.getTenantId(), clock.getUTCNow().minusDays(1), null, 10).size(), 1);
+
+        dao.clearUnresolvedFlags(ImmutableList.of(overridden.getRecordId()));
+        Assert.assertTrue(dao.getUnresolvedResponsesCreatedSince(context.getTenantId(), clock.getUTCNow().minusDays(1), null, 10).isEmpty());
+    }
+
+    @Test(groups = "slow")
+    public void testLeases() throws Exception {
+        final UUID kbTenantId = UUID.randomUUID();
+        final DateTime now = clock.getUTCNow();
+
+        Assert.assertTrue(dao.tryAcquireLease("test", "node1", now.plusMinutes(10), now, kbTenantId));
+        // Held by node1: renewed by it only
+        Assert.assertFalse(dao.tryAcquireLease("test", "node2", now.plusMinutes(10), now, kbTenantId));
+        Assert.assertTrue(dao.tryAcquireLease("test", "node1", now.plusMinutes(20), now.plusMinutes(5), kbTenantId));
+        // Leases are per name and tenant
+        Assert.assertTrue(dao.tryAcquireLease("test", "node2", now.plusMinutes(10), now, UUID.randomUUID()));
+        Assert.assertTrue(dao.tryAcquireLease("other", "node2", now.plusMinutes(10), now, kbTenantId));
+
+        // Taken over once expired
+        Assert.assertFalse(dao.tryAcquireLease("test", "node2", now.plusMinutes(30), now.plusMinutes(15), kbTenantId));
+        Assert.assertTrue(dao.tryAcquireLease("test", "node2", now.plusMinutes(30), now.plusMinutes(20), kbTenantId));
+        Assert.assertFalse(dao.tryAcquireLease("test", "node1", now.plusMinutes(30), now.plusMinutes(20), kbTenantId));
+
+        // Or once released
+        dao.releaseLeases("test", "node2");
+        Assert.assertTrue(dao.tryAcquireLease("test", "node1", now.plusMinutes(30), now.plusMinutes(20), kbTenantId));
+    }
+
+    @Test(groups = "slow")
+    public void testUnitOfWorkSharesConnection() throws Exception {
+        final AtomicInteger connections = new AtomicInteger();
+        final DataSource delegate = EmbeddedDbHelper.instance().getDataSource();
+        final DataSource countingDataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                                                                                  new Class<?>[]{DataSource.class},
+                                                                                  (proxy, method, args) -> {
+                                                                                      if ("getConnection".equals(method.getName())) {
+                                                                                          connections.incrementAndGet();
+                                                                                      }
+                                                                                      try {
+                                                                                          return method.invoke(delegate, args);
+                                                                                      } catch (final InvocationTargetException e) {
+                                                                                          throw e.getCause();
+                                                                                      }
+                                                                                  });
+        final StripeDao stripeDao = new StripeDao(countingDataSource);
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+
+        connections.set(0);
+        try (final StripeUnitOfWork unitOfWork = stripeDao.beginUnitOfWork()) {
+            stripeDao.addResponse(account.getId(), kbPaymentId, kbTransactionId, TransactionType.AUTHORIZE, BigDecimal.TEN, Currency.USD,
+                                  null, null, null, clock.getUTCNow(), context.getTenantId());
+            // Nested units of work join the current one
+            try (final StripeUnitOfWork nestedUnitOfWork = stripeDao.beginUnitOfWork()) {
+                Assert.assertSame(nestedUnitOfWork, unitOfWork);
+                stripeDao.updateResponse(kbTransactionId, ImmutableMap.<String, Object>of("status", "succeeded"), context.getTenantId());
+            }
+            // But can't turn it into a transaction
+            try {
+                stripeDao.beginUnitOfWork(true);
+                Assert.fail();
+            } catch (final IllegalStateException e) {
+                Assert.assertSame(stripeDao.beginUnitOfWork(), unitOfWork);
+                unitOfWork.close();
+            }
+            Assert.assertEquals(stripeDao.getResponses(kbPaymentId, context.getTenantId()).size(), 1);
+            Assert.assertEquals(connections.get(), 1);
+
+            // After a release, the next call checks out a new connection
+            stripeDao.releaseConnection();
+            Assert.assertNotNull(stripeDao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId()));
+            Assert.assertEquals(connections.get(), 2);
+        }
+
+        // Outside of a unit of work, each call checks out its own connection
+        stripeDao.getResponses(kbPaymentId, context.getTenantId());
+        stripeDao.getResponses(kbPaymentId, context.getTenantId());
+        Assert.assertEquals(connections.get(), 4);
+    }
+
+    @Test(groups = "slow")
+    public void testUnitOfWorkInTransaction() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+
+        // Rolled back on close, unless committed
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork(true)) {
+            dao.addResponse(account.getId(), kbPaymentId, kbTransactionId, TransactionType.AUTHORIZE, BigDecimal.TEN, Currency.USD,
+                            null, null, null, clock.getUTCNow(), context.getTenantId());
+            Assert.assertEquals(dao.getResponses(kbPaymentId, context.getTenantId()).size(), 1);
+        }
+        Assert.assertEquals(dao.getResponses(kbPaymentId, context.getTenantId()).size(), 0);
+
+        try (final StripeUnitOfWork unitOfWork = dao.beginUnitOfWork(true)) {
+            dao.addResponse(account.getId(), kbPaymentId, kbTransactionId, TransactionType.AUTHORIZE, BigDecimal.TEN, Currency.USD,
+                            null, null, null, clock.getUTCNow(), context.getTenantId());
+            // The DAO transactions join the unit of work
+            dao.updateResponse(kbTransactionId, ImmutableMap.<String, Object>of("status", "succeeded"), context.getTenantId());
+            // So do nested units of work, transactional or not: the outermost one commits
+            try (final StripeUnitOfWork nestedUnitOfWork = dao.beginUnitOfWork()) {
+                Assert.assertSame(nestedUnitOfWork, unitOfWork);
+                Assert.assertTrue(nestedUnitOfWork.isInTransaction());
+            }
+            unitOfWork.commit();
+        }
+        Assert.assertEquals(dao.getResponses(kbPaymentId, context.getTenantId()).size(), 1);
+        Assert.assertEquals(StripeDao.fromAdditionalData(dao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId()).getAdditionalData()),
+                            ImmutableMap.of("status", "succeeded"));
+    }
+
+    @Test(groups = "slow")
+    public void testAddAndUpdatePaymentMethodsInBulk() throws Exception {
+        final List<StripePaymentMethodsRecord> paymentMethods = new ArrayList<StripePaymentMethodsRecord>();
+        for (int i = 0; i < 3; i++) {
+            paymentMethods.add(dao.newPaymentMethodRecord(account.getId(), UUID.randomUUID(), ImmutableMap.<String, Object>of("card_last4", "000" + i),
+                                                          "pm_" + i, clock.getUTCNow(), context.getTenantId()));
+        }
+        dao.addPaymentMethods(paymentMethods);
+        dao.addPaymentMethods(ImmutableList.<StripePaymentMethodsRecord>of());
+
+        final List<StripePaymentMethodsRecord> added = dao.getPaymentMethods(account.getId(), context.getTenantId());
+        Assert.assertEquals(added.size(), 3);
+        for (final StripePaymentMethodsRecord paymentMethod : added) {
+            Assert.assertEquals(StripeDao.fromAdditionalData(paymentMethod.getAdditionalData()).get("card_last4"), "000" + paymentMethod.getStripeId().substring(3));
+        }
+
+        dao.updatePaymentMethods(ImmutableList.<StripePaymentMethodsRecord>of(dao.newPaymentMethodRecord(account.getId(),
+                                                                                                        UUID.fromString(paymentMethods.get(0).getKbPaymentMethodId()),
+                                                                                                        ImmutableMap.<String, Object>of("card_last4", "4242"),
+                                                                                                        "pm_0",
+                                                                                                        clock.getUTCNow(),
+                                                                                                        context.getTenantId()),
+                                                                            dao.newPaymentMethodRecord(account.getId(),
+                                                                                                        UUID.fromString(paymentMethods.get(1).getKbPaymentMethodId()),
+                                                                                                        ImmutableMap.<String, Object>of("card_last4", "1881"),
+                                                                                                        "pm_1",
+                                                                                                        clock.getUTCNow(),
+                                                                                                        context.getTenantId())));
+        Assert.assertEquals(StripeDao.fromAdditionalData(dao.getPaymentMethod(UUID.fromString(paymentMethods.get(0).getKbPaymentMethodId()), context.getTenantId()).getAdditionalData()).get("card_last4"), "4242");
+        Assert.assertEquals(StripeDao.fromAdditionalData(dao.getPaymentMethod(UUID.fromString(paymentMethods.get(1).getKbPaymentMethodId()), context.getTenantId()).getAdditionalData()).get("card_last4"), "1881");
+        Assert.assertEquals(StripeDao.fromAdditionalData(dao.getPaymentMethod(UUID.fromString(paymentMethods.get(2).getKbPaymentMethodId()), context.getTenantId()).getAdditionalData()).get("card_last4"), "0002");
+    }
+
+    @Test(groups = "slow")
+    public void testBulkSyncLookupsAndCheckpoint() throws Exception {
+        final UUID otherKbAccountId = UUID.randomUUID();
+        final StripePaymentMethodsRecord pm0 = dao.newPaymentMethodRecord(account.getId(), UUID.randomUUID(), ImmutableMap.<String, Object>of(), "pm_bulk_0", clock.getUTCNow(), context.getTenantId());
+        final StripePaymentMethodsRecord pm1 = dao.newPaymentMethodRecord(account.getId(), UUID.randomUUID(), ImmutableMap.<String, Object>of(), "pm_bulk_1", clock.getUTCNow(), context.getTenantId());
+        final StripePaymentMethodsRecord pm2 = dao.newPaymentMethodRecord(otherKbAccountId, UUID.randomUUID(), ImmutableMap.<String, Object>of(), "pm_bulk_2", clock.getUTCNow(), context.getTenantId());
+        dao.addPaymentMethods(ImmutableList.<StripePaymentMethodsRecord>of(pm0, pm1, pm2));
+
+        // By account
+        Assert.assertEquals(dao.getPaymentMethods(ImmutableList.<UUID>of(), context.getTenantId()).size(), 0);
+        Assert.assertEquals(dao.getPaymentMethods(ImmutableList.of(otherKbAccountId), context.getTenantId()).size(), 1);
+        final List<StripePaymentMethodsRecord> found = dao.getPaymentMethods(ImmutableList.of(otherKbAccountId, account.getId()), context.getTenantId());
+        Assert.assertEquals(found.size(), 3);
+        Assert.assertEquals(dao.getPaymentMethods(ImmutableList.of(otherKbAccountId, account.getId()), UUID.randomUUID()).size(), 0);
+
+        // Deleted payment methods aren't returned anymore
+        dao.deletePaymentMethods(ImmutableList.of(found.get(0)), clock.getUTCNow());
+        Assert.assertEquals(dao.getPaymentMethods(account.getId(), context.getTenantId()).size(), 1);
+        Assert.assertEquals(dao.getPaymentMethods(ImmutableList.of(otherKbAccountId, account.getId()), context.getTenantId()).size(), 2);
+
+        // One checkpoint per tenant
+        final UUID kbTenantId = UUID.randomUUID();
+        Assert.assertNull(dao.getBulkSync(kbTenantId));
+        final StripeBulkSyncsRecord bulkSync = new StripeBulkSyncsRecord();
+        bulkSync.setState(StripePaymentMethodsBulkSync.STATE_RUNNING);
+        bulkSync.setNbCustomers(0);
+        bulkSync.setNbAdded(0);
+        bulkSync.setNbUpdated(0);
+        bulkSync.setNbDeleted(0);
+        bulkSync.setKbTenantId(kbTenantId.toString());
+        dao.saveBulkSync(bulkSync, clock.getUTCNow());
+
+        bulkSync.setStartingAfter("cus_XXXXX");
+        bulkSync.setNbCustomers(100);
+        bulkSync.setNbAdded(3);
+        bulkSync.setState(StripePaymentMethodsBulkSync.STATE_FAILED);
+        bulkSync.setLastError("boom");
+        dao.saveBulkSync(bulkSync, clock.getUTCNow());
+
+        final StripeBulkSyncsRecord saved = dao.getBulkSync(kbTenantId);
+        Assert.assertEquals(saved.getState(), StripePaymentMethodsBulkSync.STATE_FAILED);
+        Assert.assertEquals(saved.getStartingAfter(), "cus_XXXXX");
+        Assert.assertEquals((int) saved.getNbCustomers(), 100);
+        Assert.assertEquals((int) saved.getNbAdded(), 3);
+        Assert.assertEquals(saved.getLastError(), "boom");
+        Assert.assertNotNull(saved.getCreatedDate());
+        Assert.assertNull(dao.getBulkSync(context.getTenantId()));
+    }
+}
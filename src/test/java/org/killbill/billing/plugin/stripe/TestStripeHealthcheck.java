@@ -17,9 +17,14 @@
 
 package org.killbill.billing.plugin.stripe;
 
+import java.util.Map;
 import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
 import org.killbill.billing.osgi.api.Healthcheck;
+import org.killbill.billing.tenant.api.Tenant;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -29,13 +34,88 @@ public class TestStripeHealthcheck extends TestBase {
     public void testHealthcheckNoTenant() {
         final StripeConfigPropertiesConfigurationHandler noConfigHandler = new StripeConfigPropertiesConfigurationHandler(StripeActivator.PLUGIN_NAME, killbillApi, null);
         noConfigHandler.setDefaultConfigurable(new StripeConfigProperties(new Properties(), ""));
-        final Healthcheck healthcheck = new StripeHealthcheck(noConfigHandler);
+        final Healthcheck healthcheck = new StripeHealthcheck(new StripeClientRegistry(noConfigHandler), 30000);
         Assert.assertTrue(healthcheck.getHealthStatus(null, null).isHealthy());
     }
 
     @Test(groups = "slow")
     public void testHealthcheck() {
-        final Healthcheck healthcheck = new StripeHealthcheck(stripeConfigPropertiesConfigurationHandler);
+        final Healthcheck healthcheck = new StripeHealthcheck(stripeClientRegistry, 30000);
         Assert.assertTrue(healthcheck.getHealthStatus(null, null).isHealthy());
     }
+
+    @Test(groups = "slow")
+    public void testHealthcheckServedFromMemory() throws Exception {
+        final StripeHealthcheck healthcheck = new StripeHealthcheck(stripeClientRegistry, 30000);
+        final Tenant tenant = buildTenant(context.getTenantId());
+        Assert.assertTrue(healthcheck.getStats().isEmpty());
+
+        try {
+            // The first request schedules a probe of Stripe, the next ones are answered with its result until the next probe
+            Assert.assertSame(healthcheck.getHealthStatus(tenant, null), StripeHealthcheck.PROBING);
+            waitForProbe(healthcheck, context.getTenantId());
+            final Healthcheck.HealthStatus status = healthcheck.getHealthStatus(tenant, null);
+            Assert.assertNotSame(status, StripeHealthcheck.PROBING);
+            Assert.assertSame(healthcheck.getHealthStatus(tenant, null), status);
+            Assert.assertEquals(healthcheck.getStats().size(), 1);
+            final Map<String, Object> stats = (Map<String, Object>) healthcheck.getStats().get(context.getTenantId().toString());
+            Assert.assertEquals(stats.get("healthy"), status.isHealthy());
+            Assert.assertEquals(stats.get("consecutiveFailures"), status.isHealthy() ? 0 : 1);
+
+            healthcheck.probeAll();
+            for (int i = 0; i < 300 && healthcheck.getHealthStatus(tenant, null) == status; i++) {
+                Thread.sleep(100);
+            }
+            Assert.assertNotSame(healthcheck.getHealthStatus(tenant, null), status);
+        } finally {
+            healthcheck.stop();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testTenantsProbedIndependently() throws Exception {
+        final UUID slowKbTenantId = UUID.randomUUID();
+        final UUID misconfiguredKbTenantId = UUID.randomUUID();
+        final CountDownLatch slowProbe = new CountDownLatch(1);
+        final StripeClientRegistry registry = Mockito.mock(StripeClientRegistry.class);
+        Mockito.when(registry.getRequestOptions(slowKbTenantId)).thenAnswer(invocation -> {
+            slowProbe.await();
+            throw new IllegalStateException("Stripe unreachable");
+        });
+        Mockito.when(registry.getRequestOptions(misconfiguredKbTenantId)).thenThrow(new IllegalStateException("Invalid configuration"));
+        final StripeHealthcheck healthcheck = new StripeHealthcheck(registry, 30000);
+
+        try {
+            // Neither request waits for its probe
+            Assert.assertSame(healthcheck.getHealthStatus(buildTenant(slowKbTenantId), null), StripeHealthcheck.PROBING);
+            Assert.assertSame(healthcheck.getHealthStatus(buildTenant(misconfiguredKbTenantId), null), StripeHealthcheck.PROBING);
+
+            // The slow tenant doesn't hold back the other one
+            waitForProbe(healthcheck, misconfiguredKbTenantId);
+            Assert.assertFalse(healthcheck.getHealthStatus(buildTenant(misconfiguredKbTenantId), null).isHealthy());
+            // Still probing: no second probe is scheduled for the slow tenant
+            Assert.assertSame(healthcheck.getHealthStatus(buildTenant(slowKbTenantId), null), StripeHealthcheck.PROBING);
+            Mockito.verify(registry, Mockito.times(1)).getRequestOptions(slowKbTenantId);
+
+            slowProbe.countDown();
+            waitForProbe(healthcheck, slowKbTenantId);
+            Assert.assertFalse(healthcheck.getHealthStatus(buildTenant(slowKbTenantId), null).isHealthy());
+        } finally {
+            slowProbe.countDown();
+            healthcheck.stop();
+        }
+    }
+
+    private static Tenant buildTenant(final UUID kbTenantId) {
+        final Tenant tenant = Mockito.mock(Tenant.class);
+        Mockito.when(tenant.getId()).thenReturn(kbTenantId);
+        return tenant;
+    }
+
+    private static void waitForProbe(final StripeHealthcheck healthcheck, final UUID kbTenantId) throws InterruptedException {
+        for (int i = 0; i < 300 && !healthcheck.getStats().containsKey(kbTenantId.toString()); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(healthcheck.getStats().containsKey(kbTenantId.toString()));
+    }
 }
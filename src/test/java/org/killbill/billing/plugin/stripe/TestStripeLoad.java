@@ -0,0 +1,400 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.osgi.libs.killbill.OSGIConfigPropertiesService;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.google.common.collect.ImmutableList;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+/**
+ * Load harness: drives authorize/capture/refund/getPaymentInfo from several threads against the embedded database
+ * and a WireMock stand-in for Stripe, then reports throughput, latency percentiles and database usage.
+ * <p/>
+ * Run with mvn test -Ptest-stress -Dtest=TestStripeLoad, tuning the load with the system properties below, e.g.
+ * -Dorg.killbill.billing.plugin.stripe.load.threads=32 -Dorg.killbill.billing.plugin.stripe.load.httpClient=pooled
+ */
+public class TestStripeLoad extends TestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestStripeLoad.class);
+
+    private static final String PROPERTY_PREFIX = "org.killbill.billing.plugin.stripe.load.";
+
+    // Payments per thread, each going through authorize, capture, refund and getPaymentInfo
+    private static final int THREADS = Integer.getInteger(PROPERTY_PREFIX + "threads", 8);
+    private static final int ITERATIONS = Integer.getInteger(PROPERTY_PREFIX + "iterations", 50);
+    // Median Stripe latency (ms), log-normally distributed
+    private static final int LATENCY = Integer.getInteger(PROPERTY_PREFIX + "latency", 50);
+    // Fraction of Stripe calls failing with a 500
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty(PROPERTY_PREFIX + "errorRate", "0.01"));
+    private static final String HTTP_CLIENT = System.getProperty(PROPERTY_PREFIX + "httpClient", "urlconnection");
+
+    private static final String PAYMENT_INTENT = "{\n" +
+                                                 "  \"id\": \"pi_load\",\n" +
+                                                 "  \"object\": \"payment_intent\",\n" +
+                                                 "  \"amount\": 1000,\n" +
+                                                 "  \"amount_received\": 1000,\n" +
+                                                 "  \"capture_method\": \"manual\",\n" +
+                                                 "  \"currency\": \"usd\",\n" +
+                                                 "  \"livemode\": false,\n" +
+                                                 "  \"payment_method\": \"pm_load\",\n" +
+                                                 "  \"payment_method_types\": [\"card\"],\n" +
+                                                 "  \"status\": \"succeeded\",\n" +
+                                                 "  \"charges\": {\n" +
+                                                 "    \"object\": \"list\",\n" +
+                                                 "    \"has_more\": false,\n" +
+                                                 "    \"url\": \"/v1/charges?payment_intent=pi_load\",\n" +
+                                                 "    \"data\": [{\n" +
+                                                 "      \"id\": \"ch_load\",\n" +
+                                                 "      \"object\": \"charge\",\n" +
+                                                 "      \"amount\": 1000,\n" +
+                                                 "      \"captured\": true,\n" +
+                                                 "      \"created\": 1612340001,\n" +
+                                                 "      \"paid\": true,\n" +
+                                                 "      \"payment_intent\": \"pi_load\",\n" +
+                                                 "      \"payment_method_details\": {\"type\": \"card\"},\n" +
+                                                 "      \"status\": \"succeeded\"\n" +
+                                                 "    }]\n" +
+                                                 "  }\n" +
+                                                 "}";
+    private static final String REFUND = "{\"id\": \"re_load\", \"object\": \"refund\", \"amount\": 1000, \"charge\": \"ch_load\", \"status\": \"succeeded\"}";
+    private static final String EMPTY_SEARCH = "{\"object\": \"search_result\", \"data\": [], \"has_more\": false, \"url\": \"/v1/charges/search\"}";
+    private static final String SERVER_ERROR = "{\"error\": {\"message\": \"Injected failure\", \"type\": \"api_error\"}}";
+
+    private enum Operation {
+        AUTHORIZE, CAPTURE, REFUND, GET_PAYMENT_INFO
+    }
+
+    private WireMockServer wireMockServer;
+    private CountingDataSource countingDataSource;
+    private StripePaymentPluginApi loadPluginApi;
+    private ExecutorService refreshExecutor;
+    private UUID kbPaymentMethodId;
+
+    @BeforeMethod(groups = "stress")
+    public void setUpLoad() throws Exception {
+        final int port = TestStripePaymentPluginApiWithErrors.findFreePort();
+        wireMockServer = new WireMockServer(WireMockConfiguration.wireMockConfig()
+                                                                 .port(port)
+                                                                 .containerThreads(Math.max(THREADS * 2, 16))
+                                                                 .disableRequestJournal()
+                                                                 .extensions(new FaultInjector(ERROR_RATE)));
+        wireMockServer.start();
+        wireMockServer.stubFor(post(urlPathEqualTo("/v1/payment_intents")).willReturn(stripeResponse(PAYMENT_INTENT)));
+        wireMockServer.stubFor(get(urlPathMatching("/v1/payment_intents/[^/]+")).willReturn(stripeResponse(PAYMENT_INTENT)));
+        wireMockServer.stubFor(post(urlPathMatching("/v1/payment_intents/[^/]+/capture")).willReturn(stripeResponse(PAYMENT_INTENT)));
+        wireMockServer.stubFor(post(urlPathEqualTo("/v1/refunds")).willReturn(stripeResponse(REFUND)));
+        // Used by getPaymentInfo to look up UNDEFINED transactions (injected failures)
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/charges/search")).willReturn(stripeResponse(EMPTY_SEARCH)));
+
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "sk_test_load");
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", "http://localhost:" + port);
+        properties.put("org.killbill.billing.plugin.stripe.httpClient", HTTP_CLIENT);
+        properties.put("org.killbill.billing.plugin.stripe.httpClientMaxConnections", String.valueOf(THREADS));
+        // Measure the plugin itself, not the client-side pacing of Stripe calls
+        properties.put("org.killbill.billing.plugin.stripe.rateLimit", "0");
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(new StripeConfigProperties(properties, ""));
+
+        countingDataSource = new CountingDataSource(EmbeddedDbHelper.instance().getDataSource());
+        refreshExecutor = StripeExecutors.newBoundedExecutor("stripe-refresh-load", THREADS);
+        loadPluginApi = new StripePaymentPluginApi(stripeConfigPropertiesConfigurationHandler,
+                                                   stripeClientRegistry,
+                                                   killbillApi,
+                                                   Mockito.mock(OSGIConfigPropertiesService.class),
+                                                   clock,
+                                                   new StripeDao(countingDataSource.asDataSource()),
+                                                   refreshExecutor,
+                                                   new StripeCustomerIdCache(100, 60000),
+                                                   new StripeUndefinedTransactionResolver(10, 60000),
+                                                   Mockito.mock(StripeWebhookProcessor.class));
+
+        kbPaymentMethodId = UUID.randomUUID();
+        dao.addPaymentMethod(account.getId(), kbPaymentMethodId, Collections.emptyMap(), "pm_load", clock.getUTCNow(), context.getTenantId());
+    }
+
+    @AfterMethod(groups = "stress")
+    public void tearDownLoad() throws Exception {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test(groups = "stress")
+    public void testPaymentLifecycleUnderLoad() throws Exception {
+        final Map<Operation, ConcurrentLinkedQueue<Long>> latencies = new EnumMap<Operation, ConcurrentLinkedQueue<Long>>(Operation.class);
+        final Map<Operation, AtomicLong> failures = new EnumMap<Operation, AtomicLong>(Operation.class);
+        for (final Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentLinkedQueue<Long>());
+            failures.put(operation, new AtomicLong());
+        }
+
+        // Warm up the JIT, connection pools and caches before measuring
+        for (int i = 0; i < Math.min(ITERATIONS, 10); i++) {
+            runPayment(null, null);
+        }
+        countingDataSource.reset();
+
+        final ExecutorService drivers = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(drivers.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    runPayment(latencies, failures);
+                }
+                return null;
+            }));
+        }
+
+        final long startNanos = System.nanoTime();
+        start.countDown();
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        drivers.shutdown();
+
+        report(latencies, failures, elapsedNanos);
+        Assert.assertEquals(latencies.get(Operation.AUTHORIZE).size(), THREADS * ITERATIONS);
+    }
+
+    private void runPayment(final Map<Operation, ConcurrentLinkedQueue<Long>> latencies, final Map<Operation, AtomicLong> failures) throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final ImmutableList<PluginProperty> properties = ImmutableList.<PluginProperty>of();
+
+        long startNanos = System.nanoTime();
+        final PaymentTransactionInfoPlugin authorization = loadPluginApi.authorizePayment(account.getId(), kbPaymentId, UUID.randomUUID(), kbPaymentMethodId, BigDecimal.TEN, Currency.USD, properties, context);
+        record(latencies, failures, Operation.AUTHORIZE, startNanos, authorization.getStatus());
+
+        if (authorization.getStatus() == PaymentPluginStatus.PROCESSED) {
+            startNanos = System.nanoTime();
+            final PaymentTransactionInfoPlugin capture = loadPluginApi.capturePayment(account.getId(), kbPaymentId, UUID.randomUUID(), kbPaymentMethodId, BigDecimal.TEN, Currency.USD, properties, context);
+            record(latencies, failures, Operation.CAPTURE, startNanos, capture.getStatus());
+
+            if (capture.getStatus() == PaymentPluginStatus.PROCESSED) {
+                startNanos = System.nanoTime();
+                final PaymentTransactionInfoPlugin refund = loadPluginApi.refundPayment(account.getId(), kbPaymentId, UUID.randomUUID(), kbPaymentMethodId, BigDecimal.TEN, Currency.USD, properties, context);
+                record(latencies, failures, Operation.REFUND, startNanos, refund.getStatus());
+            }
+        }
+
+        startNanos = System.nanoTime();
+        final List<PaymentTransactionInfoPlugin> paymentInfo = loadPluginApi.getPaymentInfo(account.getId(), kbPaymentId, properties, context);
+        record(latencies, failures, Operation.GET_PAYMENT_INFO, startNanos, paymentInfo.isEmpty() ? PaymentPluginStatus.ERROR : PaymentPluginStatus.PROCESSED);
+    }
+
+    private void record(final Map<Operation, ConcurrentLinkedQueue<Long>> latencies,
+                        final Map<Operation, AtomicLong> failures,
+                        final Operation operation,
+                        final long startNanos,
+                        final PaymentPluginStatus status) {
+        if (latencies == null) {
+            return;
+        }
+        latencies.get(operation).add(System.nanoTime() - startNanos);
+        if (status != PaymentPluginStatus.PROCESSED) {
+            failures.get(operation).incrementAndGet();
+        }
+    }
+
+    private void report(final Map<Operation, ConcurrentLinkedQueue<Long>> latencies, final Map<Operation, AtomicLong> failures, final long elapsedNanos) {
+        final double elapsedSeconds = elapsedNanos / 1e9;
+        long totalOperations = 0;
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format("%n%d threads x %d payments, %s client, %d ms median Stripe latency, %.1f%% Stripe errors, %.1f s%n",
+                                    THREADS, ITERATIONS, HTTP_CLIENT, LATENCY, ERROR_RATE * 100, elapsedSeconds));
+        report.append(String.format("%-17s %8s %8s %9s %9s %9s %9s %9s%n", "operation", "count", "failed", "ops/s", "p50 (ms)", "p90 (ms)", "p99 (ms)", "max (ms)"));
+        for (final Operation operation : Operation.values()) {
+            final long[] sorted = latencies.get(operation).stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            totalOperations += sorted.length;
+            report.append(String.format("%-17s %8d %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                                        operation,
+                                        sorted.length,
+                                        failures.get(operation).get(),
+                                        sorted.length / elapsedSeconds,
+                                        percentile(sorted, 0.50),
+                                        percentile(sorted, 0.90),
+                                        percentile(sorted, 0.99),
+                                        percentile(sorted, 1.0)));
+        }
+        report.append(String.format("total %d operations (%.1f ops/s), %d connections and %d statements (%.2f statements per operation)%n",
+                                    totalOperations,
+                                    totalOperations / elapsedSeconds,
+                                    countingDataSource.getConnections(),
+                                    countingDataSource.getStatements(),
+                                    totalOperations == 0 ? 0.0 : (double) countingDataSource.getStatements() / totalOperations));
+        logger.info(report.toString());
+    }
+
+    private static double percentile(final long[] sorted, final double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static ResponseDefinitionBuilder stripeResponse(final String body) {
+        return aResponse().withStatus(200)
+                          .withHeader("Content-Type", "application/json")
+                          .withHeader("Request-Id", "req_load")
+                          .withBody(body)
+                          .withLogNormalRandomDelay(LATENCY, 0.25);
+    }
+
+    // Replaces a fraction of the responses with a Stripe api_error
+    private static final class FaultInjector extends ResponseDefinitionTransformer {
+
+        private final double errorRate;
+
+        private FaultInjector(final double errorRate) {
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public ResponseDefinition transform(final Request request, final ResponseDefinition responseDefinition, final FileSource files, final Parameters parameters) {
+            if (ThreadLocalRandom.current().nextDouble() >= errorRate) {
+                return responseDefinition;
+            }
+            return new ResponseDefinitionBuilder().withStatus(500)
+                                                  .withHeader("Content-Type", "application/json")
+                                                  .withBody(SERVER_ERROR)
+                                                  .withLogNormalRandomDelay(LATENCY, 0.25)
+                                                  .build();
+        }
+
+        @Override
+        public String getName() {
+            return "stripe-fault-injector";
+        }
+    }
+
+    // Counts the connections checked out and the statements prepared through the DAO
+    private static final class CountingDataSource implements InvocationHandler {
+
+        private final DataSource delegate;
+        private final DataSource proxy;
+        private final AtomicLong connections = new AtomicLong();
+        private final AtomicLong statements = new AtomicLong();
+
+        private CountingDataSource(final DataSource delegate) {
+            this.delegate = delegate;
+            this.proxy = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[]{DataSource.class}, this);
+        }
+
+        @Override
+        public Object invoke(final Object ignored, final Method method, final Object[] args) throws Throwable {
+            final Object result = invokeDelegate(delegate, method, args);
+            if ("getConnection".equals(method.getName())) {
+                connections.incrementAndGet();
+                final Connection connection = (Connection) result;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                              new Class[]{Connection.class},
+                                              (connectionProxy, connectionMethod, connectionArgs) -> {
+                                                  final String name = connectionMethod.getName();
+                                                  if ("prepareStatement".equals(name) || "createStatement".equals(name) || "prepareCall".equals(name)) {
+                                                      statements.incrementAndGet();
+                                                  }
+                                                  return invokeDelegate(connection, connectionMethod, connectionArgs);
+                                              });
+            }
+            return result;
+        }
+
+        private static Object invokeDelegate(final Object target, final Method method, final Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        DataSource asDataSource() {
+            return proxy;
+        }
+
+        long getConnections() {
+            return connections.get();
+        }
+
+        long getStatements() {
+            return statements.get();
+        }
+
+        void reset() {
+            connections.set(0);
+            statements.set(0);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.plugin.api.core.PluginCustomField;
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeBulkSyncsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripePaymentMethodsRecord;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.entity.Pagination;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.stripe.model.PaymentMethod;
+import com.stripe.net.ApiResource;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+public class TestStripePaymentMethodsBulkSync extends TestBase {
+
+    private WireMockServer wireMockServer;
+    private StripePaymentMethodsBulkSync bulkSync;
+
+    @BeforeMethod(groups = "slow")
+    public void setUpWireMock() throws Exception {
+        wireMockServer = new WireMockServer(WireMockConfiguration.wireMockConfig().port(TestStripePaymentPluginApiWithErrors.findFreePort()));
+        wireMockServer.start();
+
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "sk_test_bulk_sync");
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", "http://localhost:" + wireMockServer.port());
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(new StripeConfigProperties(properties, ""));
+
+        bulkSync = new StripePaymentMethodsBulkSync(stripeConfigPropertiesConfigurationHandler, stripePaymentPluginApi, killbillApi, dao, 4, clock);
+
+        // Only cus_1 is the Stripe customer of an account
+        Mockito.when(customFieldUserApi.searchCustomFields(Mockito.eq("STRIPE_CUSTOMER_ID"), Mockito.anyString(), Mockito.eq(ObjectType.ACCOUNT), Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TenantContext.class)))
+               .thenAnswer(invocation -> buildPagination(ImmutableList.<CustomField>of()));
+        Mockito.when(customFieldUserApi.searchCustomFields(Mockito.eq("STRIPE_CUSTOMER_ID"), Mockito.eq("cus_1"), Mockito.eq(ObjectType.ACCOUNT), Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TenantContext.class)))
+               .thenAnswer(invocation -> buildPagination(ImmutableList.<CustomField>of(new PluginCustomField(account.getId(), ObjectType.ACCOUNT, "STRIPE_CUSTOMER_ID", "cus_1", clock.getUTCNow()))));
+
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/payment_methods")).withQueryParam("customer", equalTo("cus_1"))
+                                                                         .withQueryParam("type", equalTo("card"))
+                                                                         .willReturn(okJson(list("/v1/payment_methods", card("pm_updated", "4242"), card("pm_added", "1111"), card("pm_unchanged", "0000")))));
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/payment_methods")).withQueryParam("customer", equalTo("cus_1"))
+                                                                         .withQueryParam("type", equalTo("sepa_debit"))
+                                                                         .willReturn(okJson(list("/v1/payment_methods"))));
+    }
+
+    @AfterMethod(groups = "slow")
+    public void tearDownWireMock() {
+        bulkSync.stop();
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testAddsUpdatesAndDeactivates() throws Exception {
+        addPaymentMethod("pm_updated", "0000");
+        addPaymentMethod("pm_unchanged", "0000");
+        addPaymentMethod("pm_deleted", "0000");
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/customers")).withQueryParam("starting_after", absent())
+                                                                   .willReturn(okJson(customers(true, "cus_unknown"))));
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/customers")).withQueryParam("starting_after", equalTo("cus_unknown"))
+                                                                   .willReturn(okJson(customers(false, "cus_1"))));
+
+        Assert.assertEquals(bulkSync.start(false, context).getState(), StripePaymentMethodsBulkSync.STATE_RUNNING);
+        waitForCompletion();
+
+        final StripeBulkSyncsRecord completed = bulkSync.getState(context.getTenantId());
+        Assert.assertEquals(completed.getState(), StripePaymentMethodsBulkSync.STATE_COMPLETED);
+        Assert.assertEquals(completed.getStartingAfter(), "cus_1");
+        Assert.assertEquals((int) completed.getNbCustomers(), 2);
+        Assert.assertEquals((int) completed.getNbAdded(), 1);
+        Assert.assertEquals((int) completed.getNbUpdated(), 1);
+        Assert.assertEquals((int) completed.getNbDeleted(), 1);
+
+        final Map<String, String> last4ByStripeId = new HashMap<String, String>();
+        for (final StripePaymentMethodsRecord paymentMethod : dao.getPaymentMethods(account.getId(), context.getTenantId())) {
+            last4ByStripeId.put(paymentMethod.getStripeId(), (String) StripeDao.fromAdditionalData(paymentMethod.getAdditionalData()).get("card_last4"));
+        }
+        Assert.assertEquals(last4ByStripeId, ImmutableMap.<String, String>of("pm_updated", "4242", "pm_added", "1111", "pm_unchanged", "0000"));
+
+        // The payment methods of the customers without an account aren't listed
+        wireMockServer.verify(0, getRequestedFor(urlPathEqualTo("/v1/payment_methods")).withQueryParam("customer", equalTo("cus_unknown")));
+        // Kill Bill calls the plugin back on another thread: the new payment method isn't retrieved nor attached again
+        wireMockServer.verify(0, getRequestedFor(urlPathEqualTo("/v1/payment_methods/pm_added")));
+        wireMockServer.verify(0, postRequestedFor(urlPathMatching("/v1/payment_methods/.*")));
+    }
+
+    @Test(groups = "slow")
+    public void testResumesFromCheckpoint() throws Exception {
+        // Interrupted after the first page
+        final StripeBulkSyncsRecord interrupted = new StripeBulkSyncsRecord();
+        interrupted.setState(StripePaymentMethodsBulkSync.STATE_FAILED);
+        interrupted.setStartingAfter("cus_unknown");
+        interrupted.setNbCustomers(1);
+        interrupted.setNbAdded(0);
+        interrupted.setNbUpdated(0);
+        interrupted.setNbDeleted(0);
+        interrupted.setKbTenantId(context.getTenantId().toString());
+        dao.saveBulkSync(interrupted, clock.getUTCNow());
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/customers")).withQueryParam("starting_after", equalTo("cus_unknown"))
+                                                                   .willReturn(okJson(customers(false, "cus_1"))));
+
+        bulkSync.start(false, context);
+        waitForCompletion();
+
+        final StripeBulkSyncsRecord completed = bulkSync.getState(context.getTenantId());
+        Assert.assertEquals(completed.getState(), StripePaymentMethodsBulkSync.STATE_COMPLETED);
+        Assert.assertEquals((int) completed.getNbCustomers(), 2);
+        Assert.assertEquals((int) completed.getNbAdded(), 3);
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/v1/customers")));
+        wireMockServer.verify(0, getRequestedFor(urlPathEqualTo("/v1/customers")).withQueryParam("starting_after", absent()));
+    }
+
+    private void waitForCompletion() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            if (!StripePaymentMethodsBulkSync.STATE_RUNNING.equals(bulkSync.getState(context.getTenantId()).getState())) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        Assert.fail("Bulk sync still running");
+    }
+
+    private void addPaymentMethod(final String stripeId, final String last4) throws Exception {
+        // As recorded by a previous sync
+        final Map<String, Object> additionalData = StripePaymentPluginApi.toPaymentMethodAdditionalDataMap(ApiResource.GSON.fromJson(card(stripeId, last4), PaymentMethod.class));
+        dao.addPaymentMethod(account.getId(), UUID.randomUUID(), additionalData, stripeId, clock.getUTCNow(), context.getTenantId());
+    }
+
+    private static Pagination<CustomField> buildPagination(final List<CustomField> customFields) {
+        final Pagination<CustomField> pagination = Mockito.mock(Pagination.class);
+        Mockito.when(pagination.iterator()).thenAnswer(invocation -> customFields.iterator());
+        return pagination;
+    }
+
+    private static String card(final String paymentMethodId, final String last4) {
+        return "{\"id\": \"" + paymentMethodId + "\", \"object\": \"payment_method\", \"type\": \"card\", \"card\": {\"brand\": \"visa\", \"last4\": \"" + last4 + "\"}}";
+    }
+
+    private static String customers(final boolean hasMore, final String... customerIds) {
+        final String[] customers = new String[customerIds.length];
+        for (int i = 0; i < customerIds.length; i++) {
+            customers[i] = "{\"id\": \"" + customerIds[i] + "\", \"object\": \"customer\", \"sources\": " + list("/v1/customers/" + customerIds[i] + "/sources") + "}";
+        }
+        return "{\"object\": \"list\", \"has_more\": " + hasMore + ", \"url\": \"/v1/customers\", \"data\": [" + String.join(", ", customers) + "]}";
+    }
+
+    private static String list(final String url, final String... objects) {
+        return "{\"object\": \"list\", \"has_more\": false, \"url\": \"" + url + "\", \"data\": [" + String.join(", ", objects) + "]}";
+    }
+}
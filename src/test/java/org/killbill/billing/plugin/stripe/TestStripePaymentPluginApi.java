@@ -543,6 +543,7 @@ public class TestStripePaymentPluginApi extends TestBase {
         final PaymentTransaction purchaseTransaction = TestUtils.buildPaymentTransaction(payment, TransactionType.PURCHASE, BigDecimal.TEN, payment.getCurrency());
         final PaymentTransaction refundTransaction = TestUtils.buildPaymentTransaction(payment, TransactionType.REFUND, BigDecimal.TEN, payment.getCurrency());
 
+        final Map<String, Object> chargeLookupStats = stripePaymentPluginApi.getChargeLookupStats();
         final PaymentTransactionInfoPlugin purchaseInfoPlugin = stripePaymentPluginApi.purchasePayment(account.getId(),
                                                                                                        payment.getId(),
                                                                                                        purchaseTransaction.getId(),
@@ -553,6 +554,9 @@ public class TestStripePaymentPluginApi extends TestBase {
                                                                                                        context);
         TestUtils.updatePaymentTransaction(purchaseTransaction, purchaseInfoPlugin);
         verifyPaymentTransactionInfoPlugin(payment, purchaseTransaction, purchaseInfoPlugin, PaymentPluginStatus.PROCESSED);
+        // The single charge is embedded in the PaymentIntent: no extra call to Stripe
+        assertEquals(stripePaymentPluginApi.getChargeLookupStats().get("embedded"), (Long) chargeLookupStats.get("embedded") + 1);
+        assertEquals(stripePaymentPluginApi.getChargeLookupStats().get("listed"), chargeLookupStats.get("listed"));
 
         final PaymentTransactionInfoPlugin refundInfoPlugin = stripePaymentPluginApi.refundPayment(account.getId(),
                                                                                                    payment.getId(),
@@ -20,35 +20,71 @@ package org.killbill.billing.plugin.stripe;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.ServerSocket;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.api.Payment;
 import org.killbill.billing.payment.api.PaymentTransaction;
+import org.killbill.billing.payment.api.PaymentMethodPlugin;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentMethodInfoPlugin;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.api.core.PluginCustomField;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripePaymentMethodsRecord;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.customfield.CustomField;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.ApiResource;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.any;
 import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.serverError;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 /**
  * Checks if the plugin could handle technical communication errors (strange responses, read/connect timeouts etc...) and map them to the correct PaymentPluginStatus.
@@ -139,6 +175,332 @@ public class TestStripePaymentPluginApiWithErrors extends TestBase {
         assertEquals(results.get(0).getGatewayErrorCode(), "parameter_unknown");
     }
 
+    @Test(groups = "slow")
+    public void testPurchaseRetriedAfterReadTimeout() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "unused");
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", WireMockHelper.wireMockUri("/"));
+        properties.put("org.killbill.billing.plugin.stripe.readTimeout", "1000");
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(new StripeConfigProperties(properties, ""));
+
+        final UUID kbPaymentMethodId = UUID.randomUUID();
+        dao.addPaymentMethod(account.getId(), kbPaymentMethodId, Collections.emptyMap(), "token", clock.getUTCNow(), context.getTenantId());
+
+        final Payment payment = TestUtils.buildPayment(account.getId(), kbPaymentMethodId, Currency.EUR, killbillApi);
+        final PaymentTransaction purchaseTransaction = TestUtils.buildPaymentTransaction(payment, TransactionType.PURCHASE, BigDecimal.TEN, payment.getCurrency());
+
+        final PaymentTransactionInfoPlugin result = WireMockHelper.doWithWireMock(new WithWireMock<>() {
+            @Override
+            public PaymentTransactionInfoPlugin execute(final WireMockServer server) throws PaymentPluginApiException {
+                // The first attempt times out, the retry gets the outcome
+                stubFor(post(urlEqualTo("/v1/payment_intents")).inScenario("retry")
+                                                               .whenScenarioStateIs(Scenario.STARTED)
+                                                               .willReturn(okJson("{}").withFixedDelay(2000))
+                                                               .willSetStateTo("timed out"));
+                stubFor(post(urlEqualTo("/v1/payment_intents")).inScenario("retry")
+                                                               .whenScenarioStateIs("timed out")
+                                                               .willReturn(okJson("{\"id\": \"pi_XXXXX\", \"object\": \"payment_intent\", \"status\": \"requires_action\", \"amount\": 1000, \"currency\": \"eur\"}")));
+
+                final PaymentTransactionInfoPlugin result = stripePaymentPluginApi.purchasePayment(account.getId(),
+                                                                                                   payment.getId(),
+                                                                                                   purchaseTransaction.getId(),
+                                                                                                   kbPaymentMethodId,
+                                                                                                   purchaseTransaction.getAmount(),
+                                                                                                   purchaseTransaction.getCurrency(),
+                                                                                                   ImmutableList.of(),
+                                                                                                   context);
+
+                // Both attempts are sent with the same idempotency key
+                final List<String> idempotencyKeys = getIdempotencyKeys("/v1/payment_intents");
+                assertEquals(idempotencyKeys.size(), 2);
+                assertTrue(idempotencyKeys.get(0).startsWith("killbill-purchase-" + purchaseTransaction.getId() + "-"));
+                assertEquals(idempotencyKeys.get(1), idempotencyKeys.get(0));
+                return result;
+            }
+        });
+
+        // The PaymentIntent returned by the retry (3DS required), rather than the timeout
+        assertEquals(result.getStatus(), PaymentPluginStatus.PENDING);
+        assertNull(result.getGatewayError());
+    }
+
+    @Test(groups = "slow")
+    public void testPendingAuthorizationCompletedWithTheSameTransaction() throws Exception {
+        final UUID kbPaymentMethodId = UUID.randomUUID();
+        dao.addPaymentMethod(account.getId(), kbPaymentMethodId, Collections.emptyMap(), "token", clock.getUTCNow(), context.getTenantId());
+
+        final Payment payment = TestUtils.buildPayment(account.getId(), kbPaymentMethodId, Currency.EUR, killbillApi);
+        final PaymentTransaction authorizationTransaction = TestUtils.buildPaymentTransaction(payment, TransactionType.AUTHORIZE, BigDecimal.TEN, payment.getCurrency());
+
+        final List<PaymentTransactionInfoPlugin> results = WireMockHelper.doWithWireMock(new WithWireMock<>() {
+            @Override
+            public List<PaymentTransactionInfoPlugin> execute(final WireMockServer server) throws PaymentPluginApiException {
+                // 3DS required, then completed
+                stubFor(post(urlEqualTo("/v1/payment_intents")).inScenario("3ds")
+                                                               .whenScenarioStateIs(Scenario.STARTED)
+                                                               .willReturn(okJson("{\"id\": \"pi_3ds\", \"object\": \"payment_intent\", \"status\": \"requires_action\", \"amount\": 1000, \"currency\": \"eur\"}"))
+                                                               .willSetStateTo("authenticated"));
+                stubFor(post(urlEqualTo("/v1/payment_intents")).inScenario("3ds")
+                                                               .whenScenarioStateIs("authenticated")
+                                                               .willReturn(okJson(succeededPaymentIntent("pi_3ds"))));
+
+                final ImmutableList.Builder<PaymentTransactionInfoPlugin> results = ImmutableList.builder();
+                for (int i = 0; i < 2; i++) {
+                    results.add(stripePaymentPluginApi.authorizePayment(account.getId(),
+                                                                        payment.getId(),
+                                                                        authorizationTransaction.getId(),
+                                                                        kbPaymentMethodId,
+                                                                        authorizationTransaction.getAmount(),
+                                                                        authorizationTransaction.getCurrency(),
+                                                                        ImmutableList.of(),
+                                                                        context));
+                }
+
+                // The completion isn't replayed by Stripe as the original call
+                final List<String> idempotencyKeys = getIdempotencyKeys("/v1/payment_intents");
+                assertEquals(idempotencyKeys.size(), 2);
+                for (final String idempotencyKey : idempotencyKeys) {
+                    assertTrue(idempotencyKey.startsWith("killbill-authorize-" + authorizationTransaction.getId() + "-"));
+                }
+                assertNotEquals(idempotencyKeys.get(1), idempotencyKeys.get(0));
+                return results.build();
+            }
+        });
+
+        assertEquals(results.get(0).getStatus(), PaymentPluginStatus.PENDING);
+        assertEquals(results.get(1).getStatus(), PaymentPluginStatus.PROCESSED);
+    }
+
+    @Test(groups = "slow")
+    public void testPendingTransactionsRefreshedConcurrently() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        for (int i = 1; i <= 3; i++) {
+            addPendingResponse(kbPaymentId, "pi_concurrent_" + i);
+        }
+
+        final List<PaymentTransactionInfoPlugin> results = WireMockHelper.doWithWireMock(new WithWireMock<>() {
+            @Override
+            public List<PaymentTransactionInfoPlugin> execute(final WireMockServer server) throws PaymentPluginApiException {
+                for (int i = 1; i <= 3; i++) {
+                    stubFor(get(urlPathEqualTo("/v1/payment_intents/pi_concurrent_" + i)).willReturn(okJson(succeededPaymentIntent("pi_concurrent_" + i)).withFixedDelay(1000)));
+                }
+
+                final long startMillis = System.currentTimeMillis();
+                final List<PaymentTransactionInfoPlugin> results = stripePaymentPluginApi.getPaymentInfo(account.getId(), kbPaymentId, ImmutableList.<PluginProperty>of(), context);
+                // Sequential refreshes would take at least 3s
+                assertTrue(System.currentTimeMillis() - startMillis < 2500);
+                return results;
+            }
+        });
+
+        assertEquals(results.size(), 3);
+        for (final PaymentTransactionInfoPlugin result : results) {
+            assertEquals(result.getStatus(), PaymentPluginStatus.PROCESSED);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testSlowRefreshLeavesTransactionStale() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "unused");
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", WireMockHelper.wireMockUri("/"));
+        properties.put("org.killbill.billing.plugin.stripe.refreshTimeout", "500");
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(new StripeConfigProperties(properties, ""));
+
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID fastKbTransactionId = addPendingResponse(kbPaymentId, "pi_fast");
+        final UUID slowKbTransactionId = addPendingResponse(kbPaymentId, "pi_slow");
+
+        final List<PaymentTransactionInfoPlugin> results = WireMockHelper.doWithWireMock(new WithWireMock<>() {
+            @Override
+            public List<PaymentTransactionInfoPlugin> execute(final WireMockServer server) throws PaymentPluginApiException {
+                stubFor(get(urlPathEqualTo("/v1/payment_intents/pi_fast")).willReturn(okJson(succeededPaymentIntent("pi_fast"))));
+                stubFor(get(urlPathEqualTo("/v1/payment_intents/pi_slow")).willReturn(okJson(succeededPaymentIntent("pi_slow")).withFixedDelay(3000)));
+
+                final long startMillis = System.currentTimeMillis();
+                final List<PaymentTransactionInfoPlugin> results = stripePaymentPluginApi.getPaymentInfo(account.getId(), kbPaymentId, ImmutableList.<PluginProperty>of(), context);
+                // The deadline doesn't wait for the slow refresh
+                assertTrue(System.currentTimeMillis() - startMillis < 2000);
+                return results;
+            }
+        });
+
+        // The slow transaction is returned as stored, instead of failing the call
+        assertEquals(results.size(), 2);
+        for (final PaymentTransactionInfoPlugin result : results) {
+            if (result.getKbTransactionPaymentId().equals(fastKbTransactionId)) {
+                assertEquals(result.getStatus(), PaymentPluginStatus.PROCESSED);
+            } else {
+                assertEquals(result.getKbTransactionPaymentId(), slowKbTransactionId);
+                assertEquals(result.getStatus(), PaymentPluginStatus.PENDING);
+            }
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testSyncedPaymentMethodsRecordedWhenKillBillFails() throws Exception {
+        // Kill Bill fails to create the second payment method
+        final AtomicInteger calls = new AtomicInteger();
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                if (calls.incrementAndGet() == 2) {
+                    throw new IllegalStateException("Database unavailable");
+                }
+                dispatchToPlugin(() -> stripePaymentPluginApi.addPaymentMethod(account.getId(),
+                                                                               UUID.randomUUID(),
+                                                                               (PaymentMethodPlugin) invocation.getArguments()[4],
+                                                                               false,
+                                                                               ImmutableList.<PluginProperty>of(),
+                                                                               context));
+                return null;
+            }
+        }).when(killbillApi.getPaymentApi()).addPaymentMethod(Mockito.any(Account.class),
+                                                              Mockito.anyString(),
+                                                              Mockito.eq("killbill-stripe"),
+                                                              Mockito.anyBoolean(),
+                                                              Mockito.any(PaymentMethodPlugin.class),
+                                                              Mockito.any(Iterable.class),
+                                                              Mockito.any(CallContext.class));
+
+        final Map<String, StripePaymentMethodsRecord> paymentMethodsToAdd = new LinkedHashMap<String, StripePaymentMethodsRecord>();
+        for (int i = 0; i < 3; i++) {
+            paymentMethodsToAdd.put("pm_synced_" + i, dao.newPaymentMethodRecord(account.getId(), null, ImmutableMap.<String, Object>of(), "pm_synced_" + i, clock.getUTCNow(), context.getTenantId()));
+        }
+        try {
+            stripePaymentPluginApi.addSyncedPaymentMethods(account.getId(), paymentMethodsToAdd, context);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals(e.getMessage(), "Database unavailable");
+        }
+
+        // The payment method Kill Bill created before the failure has its row
+        final List<StripePaymentMethodsRecord> paymentMethods = dao.getPaymentMethods(account.getId(), context.getTenantId());
+        assertEquals(paymentMethods.size(), 1);
+        assertEquals(paymentMethods.get(0).getStripeId(), "pm_synced_0");
+        assertNotNull(paymentMethods.get(0).getKbPaymentMethodId());
+    }
+
+    @Test(groups = "slow")
+    public void testRefreshPaymentMethodsDedupesListings() throws Exception {
+        setStripeCustomerId("cus_sync");
+        // Known locally, gone from Stripe
+        dao.addPaymentMethod(account.getId(), UUID.randomUUID(), Collections.emptyMap(), "pm_gone", clock.getUTCNow(), context.getTenantId());
+
+        final List<PaymentMethodInfoPlugin> paymentMethods = WireMockHelper.doWithWireMock(new WithWireMock<>() {
+            @Override
+            public List<PaymentMethodInfoPlugin> execute(final WireMockServer server) throws PaymentPluginApiException {
+                // The legacy card is returned by the card listing and as a source, pm_card under both types
+                stubFor(get(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("card"))
+                                                                  .willReturn(okJson(paymentMethodList(paymentMethod("pm_card", "card"), paymentMethod("card_legacy", "card")))));
+                stubFor(get(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("sepa_debit"))
+                                                                  .willReturn(okJson(paymentMethodList(paymentMethod("pm_sepa", "sepa_debit"), paymentMethod("pm_card", "card")))));
+                stubFor(get(urlPathEqualTo("/v1/customers/cus_sync")).willReturn(okJson(customerWithSources("cus_sync", "{\"id\": \"card_legacy\", \"object\": \"card\", \"brand\": \"Visa\", \"last4\": \"4242\"}"))));
+
+                final List<PaymentMethodInfoPlugin> paymentMethods = stripePaymentPluginApi.getPaymentMethods(account.getId(), true, ImmutableList.<PluginProperty>of(), context);
+                verify(1, getRequestedFor(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("card")));
+                verify(1, getRequestedFor(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("sepa_debit")));
+                verify(1, getRequestedFor(urlPathEqualTo("/v1/customers/cus_sync")));
+                return paymentMethods;
+            }
+        });
+
+        // Each Stripe object is created once, pm_gone is deactivated
+        assertEquals(getExternalPaymentMethodIds(paymentMethods), ImmutableSet.<String>of("pm_card", "card_legacy", "pm_sepa"));
+        assertEquals(paymentMethods.size(), 3);
+    }
+
+    @Test(groups = "slow")
+    public void testRefreshPaymentMethodsListsConfiguredTypes() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "unused");
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", WireMockHelper.wireMockUri("/"));
+        properties.put("org.killbill.billing.plugin.stripe.paymentMethodTypes", "us_bank_account");
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(new StripeConfigProperties(properties, ""));
+        setStripeCustomerId("cus_ach");
+
+        final List<PaymentMethodInfoPlugin> paymentMethods = WireMockHelper.doWithWireMock(new WithWireMock<>() {
+            @Override
+            public List<PaymentMethodInfoPlugin> execute(final WireMockServer server) throws PaymentPluginApiException {
+                stubFor(get(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("us_bank_account"))
+                                                                  .willReturn(okJson(paymentMethodList(paymentMethod("pm_ach", "us_bank_account")))));
+                stubFor(get(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("card"))
+                                                                  .willReturn(okJson(paymentMethodList(paymentMethod("pm_card", "card")))));
+                stubFor(get(urlPathEqualTo("/v1/customers/cus_ach")).willReturn(okJson(customerWithSources("cus_ach"))));
+
+                final List<PaymentMethodInfoPlugin> paymentMethods = stripePaymentPluginApi.getPaymentMethods(account.getId(), true, ImmutableList.<PluginProperty>of(), context);
+                // Only the configured types are listed
+                verify(1, getRequestedFor(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("us_bank_account")));
+                verify(0, getRequestedFor(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("card")));
+                verify(0, getRequestedFor(urlPathEqualTo("/v1/payment_methods")).withQueryParam("type", equalTo("sepa_debit")));
+                return paymentMethods;
+            }
+        });
+
+        assertEquals(getExternalPaymentMethodIds(paymentMethods), ImmutableSet.<String>of("pm_ach"));
+    }
+
+    private static List<String> getIdempotencyKeys(final String url) {
+        final List<String> idempotencyKeys = new ArrayList<String>();
+        for (final LoggedRequest request : WireMock.findAll(postRequestedFor(urlEqualTo(url)))) {
+            idempotencyKeys.add(request.getHeader("Idempotency-Key"));
+        }
+        return idempotencyKeys;
+    }
+
+    private void setStripeCustomerId(final String stripeCustomerId) {
+        final CustomField customField = new PluginCustomField(account.getId(), ObjectType.ACCOUNT, "STRIPE_CUSTOMER_ID", stripeCustomerId, clock.getUTCNow());
+        Mockito.when(customFieldUserApi.getCustomFieldsForAccountType(Mockito.eq(account.getId()), Mockito.eq(ObjectType.ACCOUNT), Mockito.any(TenantContext.class)))
+               .thenReturn(ImmutableList.of(customField));
+    }
+
+    private static Set<String> getExternalPaymentMethodIds(final Iterable<PaymentMethodInfoPlugin> paymentMethods) {
+        final Set<String> externalPaymentMethodIds = new HashSet<String>();
+        for (final PaymentMethodInfoPlugin paymentMethod : paymentMethods) {
+            externalPaymentMethodIds.add(paymentMethod.getExternalPaymentMethodId());
+        }
+        return externalPaymentMethodIds;
+    }
+
+    private static String paymentMethod(final String paymentMethodId, final String type) {
+        return "{\"id\": \"" + paymentMethodId + "\", \"object\": \"payment_method\", \"type\": \"" + type + "\"}";
+    }
+
+    private static String paymentMethodList(final String... paymentMethods) {
+        return "{\"object\": \"list\", \"has_more\": false, \"url\": \"/v1/payment_methods\", \"data\": [" + String.join(", ", paymentMethods) + "]}";
+    }
+
+    private static String customerWithSources(final String stripeCustomerId, final String... sources) {
+        return "{\"id\": \"" + stripeCustomerId + "\", \"object\": \"customer\", " +
+               "\"sources\": {\"object\": \"list\", \"has_more\": false, \"url\": \"/v1/customers/" + stripeCustomerId + "/sources\", \"data\": [" + String.join(", ", sources) + "]}}";
+    }
+
+    private UUID addPendingResponse(final UUID kbPaymentId, final String paymentIntentId) throws Exception {
+        // 3DS required: the transaction is PENDING
+        final PaymentIntent paymentIntent = ApiResource.GSON.fromJson("{\"id\": \"" + paymentIntentId + "\", \"object\": \"payment_intent\", \"amount\": 1000, " +
+                                                                      "\"currency\": \"usd\", \"status\": \"requires_action\"}", PaymentIntent.class);
+        final UUID kbTransactionId = UUID.randomUUID();
+        dao.addResponse(account.getId(),
+                        kbPaymentId,
+                        kbTransactionId,
+                        TransactionType.PURCHASE,
+                        BigDecimal.TEN,
+                        Currency.USD,
+                        paymentIntent,
+                        null,
+                        null,
+                        clock.getUTCNow(),
+                        context.getTenantId());
+        return kbTransactionId;
+    }
+
+    private static String succeededPaymentIntent(final String paymentIntentId) {
+        return "{\"id\": \"" + paymentIntentId + "\", \"object\": \"payment_intent\", \"amount\": 1000, \"currency\": \"usd\", \"status\": \"succeeded\", " +
+               "\"charges\": {\"object\": \"list\", \"has_more\": false, \"url\": \"/v1/charges?payment_intent=" + paymentIntentId + "\", \"data\": [" +
+               "{\"id\": \"ch_" + paymentIntentId + "\", \"object\": \"charge\", \"amount\": 1000, \"captured\": true, \"paid\": true, " +
+               "\"payment_intent\": \"" + paymentIntentId + "\", \"payment_method_details\": {\"type\": \"card\"}, \"status\": \"succeeded\"}]}}";
+    }
+
     private interface WithWireMock<T> {
 
         T execute(WireMockServer server) throws Exception;
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class TestStripePendingPaymentReconciler extends TestBase {
+
+    @Test(groups = "slow")
+    public void testPagesThroughRecentUnresolvedResponses() throws Exception {
+        final UUID kbTenantId = context.getTenantId();
+        final List<UUID> kbPaymentIds = new ArrayList<UUID>();
+        for (int i = 0; i < 5; i++) {
+            final UUID kbPaymentId = UUID.randomUUID();
+            kbPaymentIds.add(kbPaymentId);
+            addUndefinedResponse(kbPaymentId, kbTenantId);
+        }
+        // Resolved responses aren't returned
+        final UUID kbTransactionId = addUndefinedResponse(UUID.randomUUID(), kbTenantId);
+        dao.updateResponse(kbTransactionId, ImmutableMap.<String, Object>of("last_charge_status", "succeeded"), kbTenantId);
+
+        Assert.assertEquals(dao.getTenantIdsWithUnresolvedResponsesCreatedSince(clock.getUTCNow().minusDays(1)), List.of(kbTenantId));
+        Assert.assertTrue(dao.getTenantIdsWithUnresolvedResponsesCreatedSince(clock.getUTCNow().plusDays(1)).isEmpty());
+
+        final List<UUID> kbPaymentIdsFound = new ArrayList<UUID>();
+        StripeResponsesRecord lastRecord = null;
+        List<StripeResponsesRecord> page;
+        do {
+            page = dao.getUnresolvedResponsesCreatedSince(kbTenantId, clock.getUTCNow().minusDays(1), lastRecord, 2);
+            for (final StripeResponsesRecord record : page) {
+                kbPaymentIdsFound.add(UUID.fromString(record.getKbPaymentId()));
+                lastRecord = record;
+            }
+        } while (page.size() == 2);
+        Assert.assertEquals(kbPaymentIdsFound, kbPaymentIds);
+
+        Assert.assertTrue(dao.getUnresolvedResponsesCreatedSince(UUID.randomUUID(), clock.getUTCNow().minusDays(1), null, 2).isEmpty());
+    }
+
+    @Test(groups = "slow")
+    public void testSkipsTenantsLeasedByAnotherNode() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.backgroundReconciliation", "true");
+        final StripeConfigProperties stripeConfigProperties = new StripeConfigProperties(properties, "");
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(stripeConfigProperties);
+        final UUID kbTenantId = UUID.randomUUID();
+        addUndefinedResponse(UUID.randomUUID(), kbTenantId);
+
+        Assert.assertTrue(dao.tryAcquireLease(StripePendingPaymentReconciler.LEASE_NAME, "other-node", clock.getUTCNow().plusHours(1), clock.getUTCNow(), kbTenantId));
+        final StripePendingPaymentReconciler reconciler = new StripePendingPaymentReconciler(stripeConfigPropertiesConfigurationHandler,
+                                                                                             stripePaymentPluginApi,
+                                                                                             dao,
+                                                                                             clock,
+                                                                                             stripeConfigProperties);
+        Assert.assertEquals(reconciler.reconcile(), 0);
+        // The lease wasn't taken over
+        Assert.assertTrue(dao.tryAcquireLease(StripePendingPaymentReconciler.LEASE_NAME, "other-node", clock.getUTCNow().plusHours(1), clock.getUTCNow(), kbTenantId));
+    }
+
+    @Test(groups = "slow")
+    public void testSkipsTenantsWithoutBackgroundReconciliation() throws Exception {
+        final StripeConfigProperties stripeConfigProperties = new StripeConfigProperties(new Properties(), "");
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(stripeConfigProperties);
+        addUndefinedResponse(UUID.randomUUID(), context.getTenantId());
+
+        final StripePendingPaymentReconciler reconciler = new StripePendingPaymentReconciler(stripeConfigPropertiesConfigurationHandler,
+                                                                                             stripePaymentPluginApi,
+                                                                                             dao,
+                                                                                             clock,
+                                                                                             stripeConfigProperties);
+        Assert.assertEquals(reconciler.reconcile(), 0);
+    }
+
+    private UUID addUndefinedResponse(final UUID kbPaymentId, final UUID kbTenantId) throws Exception {
+        final UUID kbTransactionId = UUID.randomUUID();
+        // No Stripe object nor error: the transaction is UNDEFINED
+        dao.addResponse(account.getId(),
+                        kbPaymentId,
+                        kbTransactionId,
+                        TransactionType.PURCHASE,
+                        BigDecimal.TEN,
+                        DEFAULT_CURRENCY,
+                        null,
+                        null,
+                        null,
+                        clock.getUTCNow(),
+                        kbTenantId);
+        return kbTransactionId;
+    }
+}
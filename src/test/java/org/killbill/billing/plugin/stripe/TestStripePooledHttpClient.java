@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.http.trafficlistener.WiremockNetworkTrafficListener;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.ApiResource;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeRequest;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+public class TestStripePooledHttpClient {
+
+    private final AtomicInteger openedConnections = new AtomicInteger();
+
+    private WireMockServer wireMockServer;
+
+    @BeforeMethod(groups = "slow")
+    public void setUpWireMock() {
+        openedConnections.set(0);
+        wireMockServer = new WireMockServer(WireMockConfiguration.wireMockConfig()
+                                                                 .dynamicPort()
+                                                                 .networkTrafficListener(new WiremockNetworkTrafficListener() {
+                                                                     @Override
+                                                                     public void opened(final Socket socket) {
+                                                                         openedConnections.incrementAndGet();
+                                                                     }
+
+                                                                     @Override
+                                                                     public void incoming(final Socket socket, final ByteBuffer bytes) {
+                                                                     }
+
+                                                                     @Override
+                                                                     public void outgoing(final Socket socket, final ByteBuffer bytes) {
+                                                                     }
+
+                                                                     @Override
+                                                                     public void closed(final Socket socket) {
+                                                                     }
+                                                                 }));
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/balance")).willReturn(aResponse().withStatus(200).withBody("{}")));
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/slow")).willReturn(aResponse().withStatus(200).withBody("{}").withFixedDelay(1000)));
+    }
+
+    @AfterMethod(groups = "slow")
+    public void tearDownWireMock() {
+        wireMockServer.stop();
+    }
+
+    @Test(groups = "slow")
+    public void testConnectionsAreReused() throws StripeException {
+        final StripePooledHttpClient httpClient = new StripePooledHttpClient(newStripeConfigProperties(1, 60000, 300000));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(httpClient.request(newRequest("/v1/balance")).code(), 200);
+        }
+
+        Assert.assertEquals(openedConnections.get(), 1);
+        Assert.assertEquals(httpClient.getCreatedClients(), 1L);
+    }
+
+    @Test(groups = "slow")
+    public void testInFlightRequestsAreBounded() throws Exception {
+        final StripePooledHttpClient httpClient = new StripePooledHttpClient(newStripeConfigProperties(2, 60000, 300000));
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(() -> httpClient.request(newRequest("/v1/slow")).code()));
+            }
+
+            int nbSucceeded = 0;
+            int nbRejected = 0;
+            for (final Future<Integer> future : futures) {
+                try {
+                    Assert.assertEquals((int) future.get(), 200);
+                    nbSucceeded++;
+                } catch (final Exception e) {
+                    // Not sent: the transaction can safely be CANCELED
+                    Assert.assertTrue(e.getCause() instanceof ApiConnectionException);
+                    Assert.assertTrue(Throwables.getRootCause(e) instanceof StripeHttpClient.CallRejectedException);
+                    nbRejected++;
+                }
+            }
+            Assert.assertEquals(nbSucceeded, 2);
+            Assert.assertEquals(nbRejected, 1);
+            Assert.assertTrue(openedConnections.get() <= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testClientsAreRecycled() throws Exception {
+        final StripePooledHttpClient httpClient = new StripePooledHttpClient(newStripeConfigProperties(1, 60000, 200));
+        Assert.assertEquals(httpClient.request(newRequest("/v1/balance")).code(), 200);
+        Assert.assertEquals(httpClient.request(newRequest("/v1/balance")).code(), 200);
+        Assert.assertEquals(openedConnections.get(), 1);
+
+        // Past its lifetime, the client (and its connection) is replaced
+        Thread.sleep(400);
+        Assert.assertEquals(httpClient.request(newRequest("/v1/balance")).code(), 200);
+        Assert.assertEquals(httpClient.getCreatedClients(), 2L);
+        Assert.assertEquals(openedConnections.get(), 2);
+
+        // Same once idle
+        final StripePooledHttpClient idleHttpClient = new StripePooledHttpClient(newStripeConfigProperties(1, 200, 300000));
+        Assert.assertEquals(idleHttpClient.request(newRequest("/v1/balance")).code(), 200);
+        Thread.sleep(400);
+        Assert.assertEquals(idleHttpClient.request(newRequest("/v1/balance")).code(), 200);
+        Assert.assertEquals(idleHttpClient.getCreatedClients(), 2L);
+    }
+
+    @Test(groups = "slow")
+    public void testShutdownReleasesTheClients() throws Exception {
+        final StripePooledHttpClient httpClient = new StripePooledHttpClient(newStripeConfigProperties(2, 60000, 300000));
+        Assert.assertEquals(httpClient.request(newRequest("/v1/balance")).code(), 200);
+        Assert.assertEquals(httpClient.getActiveClients(), 1);
+
+        httpClient.shutdown();
+        Assert.assertEquals(httpClient.getActiveClients(), 0);
+
+        // A late request still goes through, without leaving a client behind
+        Assert.assertEquals(httpClient.request(newRequest("/v1/balance")).code(), 200);
+        Assert.assertEquals(httpClient.getActiveClients(), 0);
+    }
+
+    private StripeConfigProperties newStripeConfigProperties(final int maxConnections, final long idleTimeout, final long maxConnectionLifetime) {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", "http://localhost:" + wireMockServer.port());
+        properties.put("org.killbill.billing.plugin.stripe.httpClient", "pooled");
+        properties.put("org.killbill.billing.plugin.stripe.connectionTimeout", "200");
+        properties.put("org.killbill.billing.plugin.stripe.httpClientMaxConnections", String.valueOf(maxConnections));
+        properties.put("org.killbill.billing.plugin.stripe.httpClientIdleTimeout", String.valueOf(idleTimeout));
+        properties.put("org.killbill.billing.plugin.stripe.httpClientMaxConnectionLifetime", String.valueOf(maxConnectionLifetime));
+        return new StripeConfigProperties(properties, "");
+    }
+
+    private static StripeRequest newRequest(final String path) throws StripeException {
+        return new StripeRequest(ApiResource.RequestMethod.GET,
+                                 "https://api.stripe.com" + path,
+                                 ImmutableMap.<String, Object>of(),
+                                 RequestOptions.builder().setApiKey("sk_test_XXX").setReadTimeout(5000).build());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.ApiResource;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+public class TestStripeRateLimitedHttpClient {
+
+    @Test(groups = "fast")
+    public void testRetriesThrottledRequests() throws StripeException {
+        final StripeConfigProperties stripeConfigProperties = newStripeConfigProperties("10", "5000");
+        final AtomicInteger calls = new AtomicInteger();
+        final StripeHttpClient throttledOnceClient = new StripeHttpClient(stripeConfigProperties) {
+            @Override
+            public StripeResponse request(final StripeRequest request) {
+                if (calls.incrementAndGet() == 1) {
+                    return new StripeResponse(429, HttpHeaders.of(ImmutableMap.<String, List<String>>of("Retry-After", ImmutableList.of("0"))), "{}");
+                }
+                return new StripeResponse(200, HttpHeaders.of(ImmutableMap.<String, List<String>>of()), "{}");
+            }
+        };
+        final StripeRateLimitedHttpClient httpClient = new StripeRateLimitedHttpClient(stripeConfigProperties, throttledOnceClient);
+
+        Assert.assertEquals(httpClient.request(newRequest()).code(), 200);
+        Assert.assertEquals(calls.get(), 2);
+        // Halved on the 429, then slightly raised on the success
+        Assert.assertTrue(httpClient.getRate() > 5.0 && httpClient.getRate() < 10.0);
+
+        final Map<String, Object> stats = httpClient.getStats();
+        Assert.assertEquals(stats.get("throttledCount"), 1L);
+        Assert.assertEquals(stats.get("rejectedCount"), 0L);
+        Assert.assertEquals(stats.get("queueDepth"), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testLockTimeoutLeavesRateAlone() throws StripeException {
+        final StripeConfigProperties stripeConfigProperties = newStripeConfigProperties("10", "5000");
+        final AtomicInteger calls = new AtomicInteger();
+        final StripeHttpClient lockedOnceClient = new StripeHttpClient(stripeConfigProperties) {
+            @Override
+            public StripeResponse request(final StripeRequest request) {
+                if (calls.incrementAndGet() == 1) {
+                    return new StripeResponse(429,
+                                              HttpHeaders.of(ImmutableMap.<String, List<String>>of("Retry-After", ImmutableList.of("0"))),
+                                              "{\"error\": {\"code\": \"lock_timeout\", \"type\": \"invalid_request_error\"}}");
+                }
+                return new StripeResponse(200, HttpHeaders.of(ImmutableMap.<String, List<String>>of()), "{}");
+            }
+        };
+        final StripeRateLimitedHttpClient httpClient = new StripeRateLimitedHttpClient(stripeConfigProperties, lockedOnceClient);
+
+        // Retried, without lowering the rate
+        Assert.assertEquals(httpClient.request(newRequest()).code(), 200);
+        Assert.assertEquals(calls.get(), 2);
+        Assert.assertEquals(httpClient.getRate(), 10.0);
+
+        final Map<String, Object> stats = httpClient.getStats();
+        Assert.assertEquals(stats.get("throttledCount"), 0L);
+        Assert.assertEquals(stats.get("lockTimeoutCount"), 1L);
+    }
+
+    @Test(groups = "fast")
+    public void testGivesUpAfterMaxWait() throws StripeException {
+        final StripeConfigProperties stripeConfigProperties = newStripeConfigProperties("10", "100");
+        final AtomicInteger calls = new AtomicInteger();
+        final StripeHttpClient throttledClient = new StripeHttpClient(stripeConfigProperties) {
+            @Override
+            public StripeResponse request(final StripeRequest request) {
+                calls.incrementAndGet();
+                // Retry-After defaults to one second
+                return new StripeResponse(429, HttpHeaders.of(ImmutableMap.<String, List<String>>of()), "{}");
+            }
+        };
+        final StripeRateLimitedHttpClient httpClient = new StripeRateLimitedHttpClient(stripeConfigProperties, throttledClient);
+
+        // The 429 is returned as-is, for stripe-java to raise a RateLimitException
+        Assert.assertEquals(httpClient.request(newRequest()).code(), 429);
+        Assert.assertEquals(calls.get(), 1);
+
+        // The bucket is paused: the next call doesn't reach Stripe
+        try {
+            httpClient.request(newRequest());
+            Assert.fail();
+        } catch (final ApiConnectionException e) {
+            Assert.assertTrue(Throwables.getRootCause(e) instanceof ConnectException);
+        }
+        Assert.assertEquals(calls.get(), 1);
+        Assert.assertEquals(httpClient.getStats().get("rejectedCount"), 1L);
+    }
+
+    private static StripeConfigProperties newStripeConfigProperties(final String rateLimit, final String rateLimitMaxWait) {
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.rateLimit", rateLimit);
+        properties.put("org.killbill.billing.plugin.stripe.rateLimitMaxWait", rateLimitMaxWait);
+        return new StripeConfigProperties(properties, "");
+    }
+
+    private static StripeRequest newRequest() throws StripeException {
+        return new StripeRequest(ApiResource.RequestMethod.POST, "https://api.stripe.com/v1/payment_intents", ImmutableMap.<String, Object>of(), RequestOptions.builder().setApiKey("sk_test_XXX").build());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.stripe;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.stripe.net.RequestOptions;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+public class TestStripeUndefinedTransactionResolver extends TestBase {
+
+    private WireMockServer wireMockServer;
+    private RequestOptions requestOptions;
+
+    @BeforeMethod(groups = "slow")
+    public void setUpWireMock() throws Exception {
+        wireMockServer = new WireMockServer(WireMockConfiguration.wireMockConfig().port(TestStripePaymentPluginApiWithErrors.findFreePort()));
+        wireMockServer.start();
+
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "sk_test_resolver");
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", "http://localhost:" + wireMockServer.port());
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(new StripeConfigProperties(properties, ""));
+        requestOptions = stripeClientRegistry.getRequestOptions(null);
+    }
+
+    @AfterMethod(groups = "slow")
+    public void tearDownWireMock() {
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testLocalLookupThenBatchedSearch() throws Exception {
+        final UUID kbTenantId = UUID.randomUUID();
+        final UUID foundKbTransactionId = UUID.randomUUID();
+        final UUID missingKbTransactionId = UUID.randomUUID();
+        final UUID persistedKbTransactionId = UUID.randomUUID();
+        final List<PaymentTransactionInfoPlugin> transactions = ImmutableList.<PaymentTransactionInfoPlugin>of(buildUndefinedTransaction(foundKbTransactionId, null),
+                                                                                                              buildUndefinedTransaction(missingKbTransactionId, null),
+                                                                                                              buildUndefinedTransaction(persistedKbTransactionId, "pi_persisted"));
+        for (final PaymentTransactionInfoPlugin transaction : transactions) {
+            Assert.assertEquals(transaction.getStatus(), PaymentPluginStatus.UNDEFINED);
+        }
+
+        final String query = StripeUndefinedTransactionResolver.buildSearchQuery(ImmutableList.<UUID>of(foundKbTransactionId, missingKbTransactionId));
+        Assert.assertEquals(query, "metadata['kbTransactionId']:'" + foundKbTransactionId + "' OR metadata['kbTransactionId']:'" + missingKbTransactionId + "'");
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/charges/search")).withQueryParam("query", equalTo(query))
+                                                                        .willReturn(aResponse().withStatus(200)
+                                                                                               .withHeader("Content-Type", "application/json")
+                                                                                               .withBody("{\"object\": \"search_result\", \"has_more\": false, \"url\": \"/v1/charges/search\", \"data\": [{" +
+                                                                                                         "\"id\": \"ch_found\", \"object\": \"charge\", \"payment_intent\": \"pi_found\"," +
+                                                                                                         "\"metadata\": {\"kbTransactionId\": \"" + foundKbTransactionId + "\"}}]}")));
+
+        final StripeUndefinedTransactionResolver resolver = new StripeUndefinedTransactionResolver(10, 60000);
+        for (int i = 0; i < 2; i++) {
+            final StripeUndefinedTransactionResolver.Resolution resolution = resolver.resolve(transactions, requestOptions, kbTenantId);
+            Assert.assertEquals(resolution.getPaymentIntentIds().get(foundKbTransactionId), "pi_found");
+            Assert.assertEquals(resolution.getPaymentIntentIds().get(persistedKbTransactionId), "pi_persisted");
+            Assert.assertEquals(resolution.getNotFoundKbTransactionIds(), ImmutableSet.<UUID>of(missingKbTransactionId));
+        }
+
+        // A single search for both transactions, the second pass was served from the caches
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/v1/charges/search")));
+        Assert.assertEquals(resolver.getStats().get("local"), 2L);
+        Assert.assertEquals(resolver.getStats().get("cached"), 1L);
+        Assert.assertEquals(resolver.getStats().get("negativeCacheHits"), 1L);
+        Assert.assertEquals(resolver.getStats().get("searches"), 1L);
+        Assert.assertEquals(resolver.getStats().get("searchedTransactions"), 2L);
+    }
+
+    private StripePaymentTransactionInfoPlugin buildUndefinedTransaction(final UUID kbTransactionId, final String stripeId) {
+        final StripeResponsesRecord record = new StripeResponsesRecord();
+        record.setKbAccountId(account.getId().toString());
+        record.setKbPaymentId(UUID.randomUUID().toString());
+        record.setKbPaymentTransactionId(kbTransactionId.toString());
+        record.setTransactionType(TransactionType.PURCHASE.toString());
+        record.setAmount(BigDecimal.TEN);
+        record.setCurrency(DEFAULT_CURRENCY.name());
+        record.setStripeId(stripeId);
+        // No Stripe status nor error: the transaction is UNDEFINED
+        record.setAdditionalData(stripeId == null ? "{}" : "{\"id\": \"" + stripeId + "\"}");
+        record.setCreatedDate(LocalDateTime.now(ZoneOffset.UTC));
+        record.setKbTenantId(UUID.randomUUID().toString());
+        return StripePaymentTransactionInfoPlugin.build(record);
+    }
+}
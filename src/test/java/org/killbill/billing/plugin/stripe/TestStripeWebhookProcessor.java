@@ -0,0 +1,252 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.stripe;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.stripe.dao.StripeDao;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeEventsRecord;
+import org.killbill.billing.plugin.stripe.dao.gen.tables.records.StripeResponsesRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.google.common.collect.ImmutableList;
+import com.stripe.Stripe;
+import com.stripe.net.Webhook;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+public class TestStripeWebhookProcessor extends TestBase {
+
+    private static final String WEBHOOK_SECRET = "whsec_test";
+
+    private WireMockServer wireMockServer;
+
+    @BeforeMethod(groups = "slow")
+    public void setUpWebhookSecret() throws Exception {
+        wireMockServer = new WireMockServer(WireMockConfiguration.wireMockConfig().port(TestStripePaymentPluginApiWithErrors.findFreePort()));
+        wireMockServer.start();
+
+        final Properties properties = new Properties();
+        properties.put("org.killbill.billing.plugin.stripe.webhookSecret", WEBHOOK_SECRET);
+        properties.put("org.killbill.billing.plugin.stripe.apiKey", "sk_test_webhook");
+        properties.put("org.killbill.billing.plugin.stripe.apiBase", "http://localhost:" + wireMockServer.port());
+        stripeConfigPropertiesConfigurationHandler.setDefaultConfigurable(new StripeConfigProperties(properties, ""));
+    }
+
+    @AfterMethod(groups = "slow")
+    public void tearDownWireMock() {
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testAppliesPaymentIntentEvent() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        addUndefinedResponse(kbPaymentId, kbTransactionId);
+
+        final String payload = buildPaymentIntentEvent("evt_1", 1000, "pi_1", "succeeded", kbTransactionId);
+        stripeWebhookProcessor.receive(payload, sign(payload), context.getTenantId());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+
+        final StripeResponsesRecord response = dao.getResponses(kbPaymentId, context.getTenantId()).get(0);
+        final Map additionalData = StripeDao.fromAdditionalData(response.getAdditionalData());
+        Assert.assertEquals(additionalData.get("id"), "pi_1");
+        Assert.assertEquals(additionalData.get("status"), "succeeded");
+        Assert.assertEquals(additionalData.get("last_charge_id"), "ch_1");
+        final StripeEventsRecord eventRecord = dao.getEvent("evt_1", context.getTenantId());
+        Assert.assertNotNull(eventRecord.getProcessedDate());
+        Assert.assertEquals(eventRecord.getStripeObjectId(), "pi_1");
+        Assert.assertEquals((int) eventRecord.getAttempts(), 1);
+    }
+
+    @Test(groups = "slow")
+    public void testSkipsOutOfOrderEvent() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        addUndefinedResponse(kbPaymentId, kbTransactionId);
+
+        final String newerPayload = buildPaymentIntentEvent("evt_2", 2000, "pi_1", "succeeded", kbTransactionId);
+        stripeWebhookProcessor.receive(newerPayload, sign(newerPayload), context.getTenantId());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+        // Delivered late: the PaymentIntent must not go back to processing
+        final String olderPayload = buildPaymentIntentEvent("evt_1", 1000, "pi_1", "processing", kbTransactionId);
+        stripeWebhookProcessor.receive(olderPayload, sign(olderPayload), context.getTenantId());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+
+        final StripeResponsesRecord response = dao.getResponses(kbPaymentId, context.getTenantId()).get(0);
+        Assert.assertEquals(StripeDao.fromAdditionalData(response.getAdditionalData()).get("status"), "succeeded");
+        Assert.assertNotNull(dao.getEvent("evt_1", context.getTenantId()).getProcessedDate());
+    }
+
+    @Test(groups = "slow")
+    public void testFetchesPaymentIntentOnEventDateTie() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        addUndefinedResponse(kbPaymentId, kbTransactionId);
+
+        final String newerPayload = buildPaymentIntentEvent("evt_2", 1000, "pi_1", "succeeded", kbTransactionId);
+        stripeWebhookProcessor.receive(newerPayload, sign(newerPayload), context.getTenantId());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+        wireMockServer.verify(0, getRequestedFor(urlPathEqualTo("/v1/payment_intents/pi_1")));
+
+        // Same second, delivered late: the payload isn't applied, the current state is fetched from Stripe
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/payment_intents/pi_1")).willReturn(aResponse().withStatus(200)
+                                                                                                     .withHeader("Content-Type", "application/json")
+                                                                                                     .withBody(buildPaymentIntent(1000, "pi_1", "succeeded", kbTransactionId))));
+        final String olderPayload = buildPaymentIntentEvent("evt_1", 1000, "pi_1", "processing", kbTransactionId);
+        stripeWebhookProcessor.receive(olderPayload, sign(olderPayload), context.getTenantId());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/v1/payment_intents/pi_1")));
+        final Map additionalData = StripeDao.fromAdditionalData(dao.getResponses(kbPaymentId, context.getTenantId()).get(0).getAdditionalData());
+        Assert.assertEquals(additionalData.get("status"), "succeeded");
+        Assert.assertEquals(additionalData.get("last_charge_id"), "ch_1");
+        Assert.assertNotNull(dao.getEvent("evt_1", context.getTenantId()).getProcessedDate());
+    }
+
+    @Test(groups = "slow")
+    public void testRejectsInvalidSignature() throws Exception {
+        final String payload = buildPaymentIntentEvent("evt_1", 1000, "pi_1", "succeeded", UUID.randomUUID());
+        try {
+            stripePaymentPluginApi.processNotification(payload,
+                                                       ImmutableList.of(new PluginProperty(StripeWebhookProcessor.PROPERTY_STRIPE_SIGNATURE, sign(payload + " "), false)),
+                                                       context);
+            Assert.fail();
+        } catch (final PaymentPluginApiException e) {
+            Assert.assertEquals(e.getErrorType(), "USER");
+        }
+        Assert.assertNull(dao.getEvent("evt_1", context.getTenantId()));
+
+        Assert.assertEquals(stripePaymentPluginApi.processNotification(payload,
+                                                                       ImmutableList.of(new PluginProperty(StripeWebhookProcessor.PROPERTY_STRIPE_SIGNATURE, sign(payload), false)),
+                                                                       context).getEntity(),
+                            "evt_1");
+    }
+
+    @Test(groups = "slow")
+    public void testIgnoresDuplicateDelivery() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        addUndefinedResponse(kbPaymentId, kbTransactionId);
+
+        final String payload = buildPaymentIntentEvent("evt_1", 1000, "pi_1", "succeeded", kbTransactionId);
+        stripeWebhookProcessor.receive(payload, sign(payload), context.getTenantId());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+        final String additionalData = dao.getResponses(kbPaymentId, context.getTenantId()).get(0).getAdditionalData();
+
+        // Delivered again by Stripe: stored once, not applied again
+        stripeWebhookProcessor.receive(payload, sign(payload), context.getTenantId());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 0);
+        Assert.assertEquals(dao.getResponses(kbPaymentId, context.getTenantId()).get(0).getAdditionalData(), additionalData);
+    }
+
+    @Test(groups = "slow")
+    public void testRetriesWithBackoff() throws Exception {
+        // Not a Kill Bill transaction id: applying the event fails
+        final String payload = buildPaymentIntentEvent("evt_1", 1000, "pi_1", "succeeded", "not-a-uuid");
+        stripeWebhookProcessor.receive(payload, sign(payload), context.getTenantId());
+
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+        StripeEventsRecord eventRecord = dao.getEvent("evt_1", context.getTenantId());
+        Assert.assertNull(eventRecord.getProcessedDate());
+        Assert.assertEquals((int) eventRecord.getAttempts(), 1);
+        Assert.assertNotNull(eventRecord.getLastError());
+
+        // Not due yet
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 0);
+        clock.addDeltaFromReality(stripeWebhookProcessor.getRetryDelayMillis(1) + 1000);
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+        eventRecord = dao.getEvent("evt_1", context.getTenantId());
+        Assert.assertEquals((int) eventRecord.getAttempts(), 2);
+
+        Assert.assertEquals(stripeWebhookProcessor.getRetryDelayMillis(2), 2 * stripeWebhookProcessor.getRetryDelayMillis(1));
+        Assert.assertEquals(stripeWebhookProcessor.getRetryDelayMillis(1000), TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Test(groups = "slow")
+    public void testReclaimsExpiredLease() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        addUndefinedResponse(kbPaymentId, kbTransactionId);
+
+        final String payload = buildPaymentIntentEvent("evt_1", 1000, "pi_1", "succeeded", kbTransactionId);
+        stripeWebhookProcessor.receive(payload, sign(payload), context.getTenantId());
+
+        // Claimed by a node which went away
+        final DateTime leaseUntil = clock.getUTCNow().plusMinutes(5);
+        Assert.assertEquals(dao.claimEvents(10, 10, leaseUntil, clock.getUTCNow()).size(), 1);
+        Assert.assertTrue(dao.claimEvents(10, 10, leaseUntil, clock.getUTCNow()).isEmpty());
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 0);
+
+        clock.addDeltaFromReality(TimeUnit.MINUTES.toMillis(5) + 1000);
+        Assert.assertEquals(stripeWebhookProcessor.drain(), 1);
+        Assert.assertEquals(StripeDao.fromAdditionalData(dao.getResponses(kbPaymentId, context.getTenantId()).get(0).getAdditionalData()).get("status"), "succeeded");
+        Assert.assertEquals((int) dao.getEvent("evt_1", context.getTenantId()).getAttempts(), 2);
+    }
+
+    private void addUndefinedResponse(final UUID kbPaymentId, final UUID kbTransactionId) throws Exception {
+        dao.addResponse(account.getId(),
+                        kbPaymentId,
+                        kbTransactionId,
+                        TransactionType.PURCHASE,
+                        BigDecimal.TEN,
+                        DEFAULT_CURRENCY,
+                        null,
+                        null,
+                        null,
+                        clock.getUTCNow(),
+                        context.getTenantId());
+    }
+
+    private static String buildPaymentIntentEvent(final String eventId, final long created, final String paymentIntentId, final String status, final Object kbTransactionId) {
+        return "{\"id\":\"" + eventId + "\",\"object\":\"event\",\"api_version\":\"" + Stripe.API_VERSION + "\",\"created\":" + created + "," +
+               "\"type\":\"payment_intent." + status + "\",\"data\":{\"object\":" + buildPaymentIntent(created, paymentIntentId, status, kbTransactionId) + "}}";
+    }
+
+    private static String buildPaymentIntent(final long created, final String paymentIntentId, final String status, final Object kbTransactionId) {
+        return "{\"id\":\"" + paymentIntentId + "\",\"object\":\"payment_intent\",\"amount\":1000,\"currency\":\"usd\",\"status\":\"" + status + "\"," +
+               "\"metadata\":{\"kbTransactionId\":\"" + kbTransactionId + "\"}," +
+               "\"charges\":{\"object\":\"list\",\"has_more\":false,\"data\":[" +
+               "{\"id\":\"ch_0\",\"object\":\"charge\",\"created\":" + (created - 10) + ",\"paid\":false}," +
+               "{\"id\":\"ch_1\",\"object\":\"charge\",\"created\":" + created + ",\"paid\":true}]}}";
+    }
+
+    private static String sign(final String payload) throws Exception {
+        final long timestamp = System.currentTimeMillis() / 1000;
+        return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(WEBHOOK_SECRET, timestamp + "." + payload);
+    }
+}
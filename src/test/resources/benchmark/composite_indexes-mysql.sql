@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+-- Plan comparison for the tenant-scoped composite indexes (V20261017130000), MySQL 8.0.18+ (EXPLAIN ANALYZE).
+-- Run on a scratch schema loaded with ddl.sql *before* the migration:
+--   mysql -u root -proot stripe_bench < src/test/resources/benchmark/composite_indexes-mysql.sql
+-- It loads 5M responses (100 tenants, 4 rows per payment) and 1M payment methods, then explains the
+-- StripeDao lookups with the single-column indexes and again with the composite ones.
+
+set session cte_max_recursion_depth = 10000000;
+
+insert into stripe_responses (kb_account_id, kb_payment_id, kb_payment_transaction_id, transaction_type, amount, currency, stripe_id, additional_data, created_date, kb_tenant_id)
+with recursive seq(n) as (select 0 union all select n + 1 from seq where n < 4999999)
+select lpad(hex(n div 40), 36, '0'),
+       lpad(hex(n div 4), 36, '0'),
+       lpad(hex(n), 36, '0'),
+       elt(1 + n % 4, 'AUTHORIZE', 'CAPTURE', 'REFUND', 'REFUND'),
+       10,
+       'USD',
+       concat('pi_', n div 4),
+       '{"status":"succeeded"}',
+       now() - interval (n % 525600) minute,
+       -- Accounts are spread over 100 tenants
+       lpad(hex((n div 40) % 100), 36, '0')
+from seq;
+
+insert into stripe_payment_methods (kb_account_id, kb_payment_method_id, stripe_id, additional_data, created_date, updated_date, kb_tenant_id)
+with recursive seq(n) as (select 0 union all select n + 1 from seq where n < 999999)
+select lpad(hex(n div 2), 36, '0'),
+       lpad(hex(n), 36, '0'),
+       concat('pm_', n),
+       '{}',
+       now(),
+       now(),
+       lpad(hex((n div 2) % 100), 36, '0')
+from seq;
+
+analyze table stripe_responses, stripe_payment_methods;
+
+-- Payment 123456 (transactions 493824 to 493827) of account 12345, in tenant 45
+set @kb_payment_id = lpad(hex(123456), 36, '0');
+set @kb_payment_transaction_id = lpad(hex(493826), 36, '0');
+set @kb_account_id = lpad(hex(12345), 36, '0');
+set @kb_tenant_id = lpad(hex(45), 36, '0');
+
+-- getResponses / getSuccessfulAuthorizationResponse
+explain analyze select * from stripe_responses where kb_payment_id = @kb_payment_id and kb_tenant_id = @kb_tenant_id order by record_id asc;
+explain analyze select * from stripe_responses where kb_payment_id = @kb_payment_id and (transaction_type = 'AUTHORIZE' or transaction_type = 'PURCHASE') and kb_tenant_id = @kb_tenant_id order by record_id desc limit 1;
+-- updateResponse
+explain analyze select * from stripe_responses where kb_payment_transaction_id = @kb_payment_transaction_id and kb_tenant_id = @kb_tenant_id order by record_id desc limit 1;
+-- getPaymentMethods
+explain analyze select * from stripe_payment_methods where kb_account_id = @kb_account_id and is_deleted = 0 and kb_tenant_id = @kb_tenant_id;
+
+source src/main/resources/migration/V20261017130000__add_tenant_scoped_composite_indexes.sql;
+analyze table stripe_responses, stripe_payment_methods;
+
+-- Expected: index lookups on the composite indexes with no filesort for the record_id ordering,
+-- and a ref lookup instead of a full scan of stripe_payment_methods
+explain analyze select * from stripe_responses where kb_payment_id = @kb_payment_id and kb_tenant_id = @kb_tenant_id order by record_id asc;
+explain analyze select * from stripe_responses where kb_payment_id = @kb_payment_id and (transaction_type = 'AUTHORIZE' or transaction_type = 'PURCHASE') and kb_tenant_id = @kb_tenant_id order by record_id desc limit 1;
+explain analyze select * from stripe_responses where kb_payment_transaction_id = @kb_payment_transaction_id and kb_tenant_id = @kb_tenant_id order by record_id desc limit 1;
+explain analyze select * from stripe_payment_methods where kb_account_id = @kb_account_id and is_deleted = 0 and kb_tenant_id = @kb_tenant_id;
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+-- Plan comparison for the tenant-scoped composite indexes (V20261017130000), PostgreSQL.
+-- Run on a scratch database loaded with ddl-postgresql.sql and ddl.sql *before* the migration:
+--   psql -d stripe_bench -f src/test/resources/benchmark/composite_indexes-postgresql.sql
+-- It loads 5M responses (100 tenants, 4 rows per payment) and 1M payment methods, then explains the
+-- StripeDao lookups with the single-column indexes and again with the composite ones.
+
+insert into stripe_responses (kb_account_id, kb_payment_id, kb_payment_transaction_id, transaction_type, amount, currency, stripe_id, additional_data, created_date, kb_tenant_id)
+select lpad(to_hex(n / 40), 36, '0'),
+       lpad(to_hex(n / 4), 36, '0'),
+       lpad(to_hex(n), 36, '0'),
+       (array['AUTHORIZE', 'CAPTURE', 'REFUND', 'REFUND'])[1 + n % 4],
+       10,
+       'USD',
+       'pi_' || (n / 4),
+       '{"status":"succeeded"}',
+       now() - (n % 525600) * interval '1 minute',
+       -- Accounts are spread over 100 tenants
+       lpad(to_hex((n / 40) % 100), 36, '0')
+from generate_series(0, 4999999) as n;
+
+insert into stripe_payment_methods (kb_account_id, kb_payment_method_id, stripe_id, additional_data, created_date, updated_date, kb_tenant_id)
+select lpad(to_hex(n / 2), 36, '0'),
+       lpad(to_hex(n), 36, '0'),
+       'pm_' || n,
+       '{}',
+       now(),
+       now(),
+       lpad(to_hex((n / 2) % 100), 36, '0')
+from generate_series(0, 999999) as n;
+
+analyze stripe_responses;
+analyze stripe_payment_methods;
+
+-- Payment 123456 (transactions 493824 to 493827) of account 12345, in tenant 45
+\set kb_payment_id '\'' `printf '%036x' 123456` '\''
+\set kb_payment_transaction_id '\'' `printf '%036x' 493826` '\''
+\set kb_account_id '\'' `printf '%036x' 12345` '\''
+\set kb_tenant_id '\'' `printf '%036x' 45` '\''
+
+-- getResponses / getSuccessfulAuthorizationResponse
+explain (analyze, buffers) select * from stripe_responses where kb_payment_id = :kb_payment_id and kb_tenant_id = :kb_tenant_id order by record_id asc;
+explain (analyze, buffers) select * from stripe_responses where kb_payment_id = :kb_payment_id and (transaction_type = 'AUTHORIZE' or transaction_type = 'PURCHASE') and kb_tenant_id = :kb_tenant_id order by record_id desc limit 1;
+-- updateResponse
+explain (analyze, buffers) select * from stripe_responses where kb_payment_transaction_id = :kb_payment_transaction_id and kb_tenant_id = :kb_tenant_id order by record_id desc limit 1;
+-- getPaymentMethods
+explain (analyze, buffers) select * from stripe_payment_methods where kb_account_id = :kb_account_id and is_deleted = 0 and kb_tenant_id = :kb_tenant_id;
+
+\i src/main/resources/migration/postgresql/V20261017130000__add_tenant_scoped_composite_indexes.sql
+analyze stripe_responses;
+analyze stripe_payment_methods;
+
+-- Expected: index scans on the composite indexes with no sort node for the record_id ordering,
+-- and an index scan instead of a sequential scan of stripe_payment_methods
+explain (analyze, buffers) select * from stripe_responses where kb_payment_id = :kb_payment_id and kb_tenant_id = :kb_tenant_id order by record_id asc;
+explain (analyze, buffers) select * from stripe_responses where kb_payment_id = :kb_payment_id and (transaction_type = 'AUTHORIZE' or transaction_type = 'PURCHASE') and kb_tenant_id = :kb_tenant_id order by record_id desc limit 1;
+explain (analyze, buffers) select * from stripe_responses where kb_payment_transaction_id = :kb_payment_transaction_id and kb_tenant_id = :kb_tenant_id order by record_id desc limit 1;
+explain (analyze, buffers) select * from stripe_payment_methods where kb_account_id = :kb_account_id and is_deleted = 0 and kb_tenant_id = :kb_tenant_id;